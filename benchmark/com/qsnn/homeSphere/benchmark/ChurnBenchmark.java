@@ -0,0 +1,88 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Set;
+
+import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.LIGHT_BULB;
+
+/**
+ * 创建/删除循环下的堆占用基准测试
+ *
+ * <p>每个周期注册一个用户，创建家庭、若干房间、设备和引用这些设备的场景，然后删除该用户，
+ * 由级联删除回收全部下属实体。每隔固定周期数执行一次GC并输出堆占用与实体数量，
+ * 正常情况下堆占用应保持平稳而不随周期数增长。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.ChurnBenchmark [周期数]}，默认200000个周期。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ChurnBenchmark {
+
+    /** 每个家庭的房间数 */
+    private static final int ROOMS_PER_HOUSEHOLD = 4;
+
+    /** 每个房间的设备数 */
+    private static final int DEVICES_PER_ROOM = 5;
+
+    /** 采样间隔（周期数） */
+    private static final int SAMPLE_EVERY = 20_000;
+
+    public static void main(String[] args) {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            HomeSphereSystem system = new HomeSphereSystem();
+            Manufacturer manufacturer = new Manufacturer("基准厂商", Set.of(Device.ConnectMode.WIFI));
+            int nextDeviceID = 1;
+
+            out.println("周期数\t堆占用(MB)\t用户\t家庭\t房间\t设备\t场景");
+            long begin = System.nanoTime();
+            for (int cycle = 1; cycle <= cycles; cycle++) {
+                Integer userID = system.registerUser("churn", "churn", "Churn", "-");
+                Integer householdID = system.createHousehold("循环家庭", "-", userID);
+                Integer sceneID = system.createAutomationScene(householdID, "循环场景");
+                for (int r = 0; r < ROOMS_PER_HOUSEHOLD; r++) {
+                    Integer roomID = system.createRoom(householdID, "房间", 10.0);
+                    for (int d = 0; d < DEVICES_PER_ROOM; d++) {
+                        int deviceID = nextDeviceID++;
+                        system.createDevice(LIGHT_BULB, deviceID, "灯", "LT-OS", manufacturer, 10.0,
+                                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+                        system.addDeviceToRoom(deviceID, roomID);
+                        system.getAutomationSceneByID(sceneID)
+                                .addDeviceOperation(system.getDeviceByID(deviceID), "luminance", 50);
+                    }
+                }
+                system.deleteUser(userID);
+
+                if (cycle % SAMPLE_EVERY == 0) {
+                    out.printf("%d\t%.1f\t%d\t%d\t%d\t%d\t%d%n", cycle, usedHeapMB(),
+                            system.getUsers().size(), system.getHouseholds().size(), system.getRooms().size(),
+                            system.getDevices().size(), system.getAutomationScenes().size());
+                }
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            out.printf("共%d个周期，耗时%.1f秒，%.0f周期/秒%n", cycles, seconds, cycles / seconds);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * GC后测量已用堆内存
+     */
+    private static double usedHeapMB() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.LIGHT_BULB;
+
+/**
+ * 多线程写吞吐量基准测试
+ *
+ * <p>每个线程操作自己的家庭：创建房间、创建设备并分配到房间、在房间之间移动设备、创建自动化场景。
+ * 分别以1到32个线程运行，输出总吞吐量及相对单线程的加速比。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.ConcurrencyBenchmark [每线程操作轮数]}，默认20000轮。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ConcurrencyBenchmark {
+
+    /** 测试的线程数序列 */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+
+    /** 每轮包含的写操作数：createRoom、createDevice、addDeviceToRoom、moveDevice、createAutomationScene */
+    private static final int OPS_PER_ROUND = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            out.println("线程数\t吞吐量(ops/s)\t加速比");
+            double baseline = 0;
+            for (int threads : THREAD_COUNTS) {
+                double throughput = measure(threads, rounds);
+                if (baseline == 0) {
+                    baseline = throughput;
+                }
+                out.printf("%d\t%.0f\t%.2f%n", threads, throughput, throughput / baseline);
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * 以指定线程数运行写负载
+     *
+     * @param threads 线程数
+     * @param rounds 每线程操作轮数
+     * @return 总吞吐量，单位：操作数/秒
+     */
+    private static double measure(int threads, int rounds) throws InterruptedException {
+        HomeSphereSystem system = new HomeSphereSystem();
+        Manufacturer manufacturer = new Manufacturer("基准厂商", Set.of(Device.ConnectMode.WIFI));
+        AtomicInteger deviceIDs = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                Integer userID = system.registerUser("bench", "bench", "Bench", "-");
+                Integer householdID = system.createHousehold("基准家庭", "-", userID);
+                Integer homeRoomID = system.createRoom(householdID, "起始房间", 10.0);
+                ready.countDown();
+                try {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        Integer roomID = system.createRoom(householdID, "房间", 10.0);
+                        int deviceID = deviceIDs.incrementAndGet();
+                        system.createDevice(LIGHT_BULB, deviceID, "灯", "LT-OS", manufacturer, 10.0,
+                                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+                        system.addDeviceToRoom(deviceID, homeRoomID);
+                        system.moveDevice(userID, deviceID, roomID);
+                        system.createAutomationScene(householdID, "场景");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (double) threads * rounds * OPS_PER_ROUND / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,84 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+import com.qsnn.homeSphere.log.LogSinks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.LIGHT_BULB;
+
+/**
+ * 设备控制路径的内存分配基准测试
+ *
+ * <p>对同一台设备反复执行 {@code open/close} 与 {@code connect/disconnect} 循环，以及属性设置，
+ * 通过 {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes} 统计调用线程每个循环分配的字节数。
+ * 只统计调用线程的分配，日志在输出端后台线程中的格式化不计入。分配量包含日志与使用记录被保存到设备集合中的开销。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.DeviceControlAllocationBenchmark [循环次数]}，默认200000次。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class DeviceControlAllocationBenchmark {
+
+    private static final Manufacturer MANUFACTURER = new Manufacturer("基准厂商", Set.of(Device.ConnectMode.WIFI));
+
+    public static void main(String[] args) {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+
+            double openClose = 0;
+            double connect = 0;
+            double attribute = 0;
+            for (int round = 0; round < 3; round++) {
+                Device device = newDevice(round * 3 + 1);
+                long before = threads.getThreadAllocatedBytes(thread);
+                for (int i = 0; i < cycles; i++) {
+                    device.open();
+                    device.close();
+                }
+                openClose = (threads.getThreadAllocatedBytes(thread) - before) / (double) cycles;
+
+                device = newDevice(round * 3 + 2);
+                before = threads.getThreadAllocatedBytes(thread);
+                for (int i = 0; i < cycles; i++) {
+                    device.connect();
+                    device.disconnect();
+                }
+                connect = (threads.getThreadAllocatedBytes(thread) - before) / (double) cycles;
+
+                device = newDevice(round * 3 + 3);
+                before = threads.getThreadAllocatedBytes(thread);
+                for (int i = 0; i < cycles; i++) {
+                    device.setAttribute("luminance", i % 100);
+                }
+                attribute = (threads.getThreadAllocatedBytes(thread) - before) / (double) cycles;
+            }
+            out.printf("循环次数: %d%n", cycles);
+            out.printf("open/close: %.0f 字节/循环%n", openClose);
+            out.printf("connect/disconnect: %.0f 字节/循环%n", connect);
+            out.printf("setAttribute: %.0f 字节/次%n", attribute);
+        } finally {
+            LogSinks.get().flush();
+            System.setOut(out);
+        }
+    }
+
+    private static Device newDevice(int deviceID) {
+        HomeSphereSystem system = new HomeSphereSystem();
+        system.createDevice(LIGHT_BULB, deviceID, "基准灯", "LT-OS", MANUFACTURER, 10.0,
+                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+        return system.getDeviceByID(deviceID);
+    }
+}
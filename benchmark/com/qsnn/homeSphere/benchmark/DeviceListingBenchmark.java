@@ -0,0 +1,86 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Set;
+
+import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.LIGHT_BULB;
+
+/**
+ * 房间设备列表查询基准测试
+ *
+ * <p>在系统设备总量从1k增长到10M的过程中，测量单个房间（固定10台设备）的
+ * {@link HomeSphereSystem#getDevicesByRoom(Integer)} 平均耗时，用于验证查询代价只与房间内设备数相关。</p>
+ *
+ * <p>运行方式：{@code java -Xmx24g com.qsnn.homeSphere.benchmark.DeviceListingBenchmark [规模列表]}，
+ * 规模列表以逗号分隔，默认为 1000,10000,100000,1000000,10000000。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class DeviceListingBenchmark {
+
+    /** 被测房间内的设备数 */
+    private static final int DEVICES_PER_ROOM = 10;
+
+    /** 每个规模下的查询次数 */
+    private static final int QUERIES = 200_000;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "1000,10000,100000,1000000,10000000";
+        PrintStream out = System.out;
+        out.println("总设备数\t单次查询耗时(ns)");
+        for (String size : sizes.split(",")) {
+            int totalDevices = Integer.parseInt(size.trim());
+            out.println(totalDevices + "\t" + String.format("%.1f", measure(totalDevices, out)));
+        }
+    }
+
+    /**
+     * 构造指定规模的系统并测量目标房间的查询耗时
+     *
+     * @param totalDevices 系统内设备总数
+     * @param out 原始标准输出
+     * @return 平均单次查询耗时，单位：纳秒
+     */
+    private static double measure(int totalDevices, PrintStream out) {
+        // 构造期间屏蔽实体创建日志的控制台输出
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        HomeSphereSystem system = new HomeSphereSystem();
+        Integer targetRoomID;
+        try {
+            Manufacturer manufacturer = new Manufacturer("基准厂商", Set.of(Device.ConnectMode.WIFI));
+            Integer userID = system.registerUser("bench", "bench", "Bench", "-");
+            Integer householdID = system.createHousehold("基准家庭", "-", userID);
+            targetRoomID = system.createRoom(householdID, "目标房间", 10.0);
+            Integer otherRoomID = system.createRoom(householdID, "其他房间", 10.0);
+            for (int id = 1; id <= totalDevices; id++) {
+                system.createDevice(LIGHT_BULB, id, "灯" + id, "LT-OS", manufacturer, 10.0,
+                        Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+                system.addDeviceToRoom(id, id <= DEVICES_PER_ROOM ? targetRoomID : otherRoomID);
+            }
+        } finally {
+            System.setOut(out);
+        }
+
+        // 预热
+        long sink = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            sink += system.getDevicesByRoom(targetRoomID).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            sink += system.getDevicesByRoom(targetRoomID).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink != 2L * QUERIES * DEVICES_PER_ROOM) {
+            throw new IllegalStateException("查询结果与预期不符");
+        }
+        return (double) elapsed / QUERIES;
+    }
+}
@@ -0,0 +1,97 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.domain.deviceModule.Usage;
+import com.qsnn.homeSphere.index.EnergyRollup;
+import com.qsnn.homeSphere.log.LogSinks;
+import com.qsnn.homeSphere.utils.Util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 能耗序列查询基准测试
+ *
+ * <p>为一个家庭的若干台设备生成最近60天的使用记录，查询最近30天的按小时能耗序列（720个桶），
+ * 对比每个桶逐条计算（{@link Util#calculatePowerConsumption(Collection, LocalDateTime, LocalDateTime)}）
+ * 与分级时间桶汇总（{@link EnergyRollup}）的单次查询耗时，并校验两者结果一致。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.EnergyRollupBenchmark [设备数]}，默认50台。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class EnergyRollupBenchmark {
+
+    /** 逐条计算的查询次数 */
+    private static final int SCAN_QUERIES = 3;
+
+    /** 汇总的查询次数 */
+    private static final int ROLLUP_QUERIES = 20_000;
+
+    public static void main(String[] args) {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        LogSinks.install(log -> { });
+        Random random = new Random(7);
+        LocalDateTime now = LocalDateTime.of(2025, 6, 30, 0, 0);
+        LocalDateTime first = now.minusDays(60);
+
+        List<Set<Usage>> devices = new ArrayList<>();
+        EnergyRollup rollup = new EnergyRollup();
+        int sessions = 0;
+        long start = System.nanoTime();
+        for (int d = 0; d < deviceCount; d++) {
+            Set<Usage> usages = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+            LocalDateTime time = first;
+            while (true) {
+                LocalDateTime open = time.plusSeconds(random.nextInt(3_600));
+                LocalDateTime close = open.plusSeconds(1 + random.nextInt(2 * 3_600));
+                if (close.isAfter(now)) {
+                    break;
+                }
+                Usage usage = new Usage(String.format("DEV%07d", d), 10 + random.nextInt(2_000), open, close);
+                usages.add(usage);
+                rollup.add(usage);
+                time = close;
+                sessions++;
+            }
+            devices.add(usages);
+        }
+        System.out.printf("设备: %d 台, 使用记录: %d 条, 生成记录并建立汇总 %.1f ms, 汇总约 %.1f KB%n", deviceCount, sessions,
+                (System.nanoTime() - start) / 1e6, rollup.estimatedBytes() / 1024.0);
+
+        LocalDateTime from = now.minusDays(30);
+        double maxError = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            NavigableMap<LocalDateTime, Double> series = rollup.series(from, now, EnergyRollup.Resolution.HOUR);
+            for (Map.Entry<LocalDateTime, Double> bucket : series.entrySet()) {
+                double expected = 0;
+                for (Set<Usage> usages : devices) {
+                    expected += Util.calculatePowerConsumption(usages, bucket.getKey(), bucket.getKey().plusHours(1));
+                }
+                maxError = Math.max(maxError, Math.abs(expected - bucket.getValue()));
+            }
+        }
+        double scanMillis = (System.nanoTime() - start) / 1e6 / SCAN_QUERIES;
+
+        double checksum = 0;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < ROLLUP_QUERIES; i++) {
+                checksum += rollup.series(from, now, EnergyRollup.Resolution.HOUR).lastEntry().getValue();
+            }
+        }
+        double rollupMillis = (System.nanoTime() - start) / 1e6 / ROLLUP_QUERIES;
+        System.out.printf("30天按小时序列: 逐桶逐条计算 %.1f ms/次, 汇总 %.3f ms/次, 最大差异 %.3g Wh（校验和 %.0f）%n",
+                scanMillis, rollupMillis, maxError, checksum);
+    }
+}
@@ -0,0 +1,158 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.index.DeviceStatusIndex;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntSetMultimap;
+
+import java.util.Random;
+
+/**
+ * 设备群状态统计基准测试
+ *
+ * <p>构造指定数量的设备（默认1000万台），平均分布在1000个家庭中，随机设置在线与电源状态，
+ * 分别用两种方式统计"每个家庭中已供电的设备数"：</p>
+ * <ul>
+ *   <li>对象遍历：取出家庭的设备ID集合，逐个访问设备状态对象</li>
+ *   <li>状态索引：读取家庭分片中的供电设备计数</li>
+ * </ul>
+ * <p>另外测量全量统计与随机状态切换的开销，以及多个线程各自切换不同家庭设备时的吞吐量（状态索引按家庭分片，
+ * 不同家庭的切换互不阻塞）。设备状态对象只保留两个状态字段，对象遍历的实际开销只会比这里更高。</p>
+ *
+ * <p>运行方式：{@code java -Xmx3g com.qsnn.homeSphere.benchmark.FleetStatusBenchmark [设备数]}。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class FleetStatusBenchmark {
+
+    /** 家庭数 */
+    private static final int HOUSEHOLDS = 1000;
+
+    /** 随机状态切换次数 */
+    private static final int TOGGLES = 1_000_000;
+
+    /** 重复测量次数，取最后一次（预热后）的结果 */
+    private static final int ITERATIONS = 5;
+
+    /**
+     * 设备状态对象，代表遍历时需要访问的设备
+     */
+    private static final class DeviceState {
+        Device.OnlineStatusType online;
+        Device.PowerStatusType power;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Random random = new Random(42);
+
+        DeviceState[] states = new DeviceState[deviceCount + 1];
+        ConcurrentIntSetMultimap householdToDevices = new ConcurrentIntSetMultimap();
+        DeviceStatusIndex statusIndex = new DeviceStatusIndex();
+
+        long start = System.nanoTime();
+        int perHousehold = deviceCount / HOUSEHOLDS;
+        for (int h = 0; h < HOUSEHOLDS; h++) {
+            int[] members = new int[perHousehold];
+            for (int k = 0; k < perHousehold; k++) {
+                int deviceID = h * perHousehold + k + 1;
+                DeviceState state = new DeviceState();
+                state.online = random.nextInt(10) < 7 ? Device.OnlineStatusType.ONLINE : Device.OnlineStatusType.OUTLINE;
+                state.power = random.nextInt(10) < 3 ? Device.PowerStatusType.POWERED : Device.PowerStatusType.UNPOWERED;
+                states[deviceID] = state;
+                statusIndex.register(deviceID, state.online, state.power);
+                members[k] = deviceID;
+            }
+            householdToDevices.putAll(h, members);
+            statusIndex.assignHousehold(h, members);
+        }
+        System.out.printf("设备数: %d, 家庭数: %d, 构建耗时: %.0f ms%n",
+                deviceCount, HOUSEHOLDS, (System.nanoTime() - start) / 1e6);
+        System.out.printf("状态索引占用: %.1f MB%n", statusIndex.estimatedBytes() / 1048576.0);
+
+        double walkHouseholds = 0;
+        double indexHouseholds = 0;
+        double walkFleet = 0;
+        double indexFleet = 0;
+        long checksum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            start = System.nanoTime();
+            for (int h = 0; h < HOUSEHOLDS; h++) {
+                int count = 0;
+                for (int deviceID : householdToDevices.get(h)) {
+                    if (states[deviceID].power == Device.PowerStatusType.POWERED) {
+                        count++;
+                    }
+                }
+                checksum += count;
+            }
+            walkHouseholds = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for (int h = 0; h < HOUSEHOLDS; h++) {
+                checksum -= statusIndex.count(h, Device.PowerStatusType.POWERED);
+            }
+            indexHouseholds = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            int online = 0;
+            for (int deviceID = 1; deviceID < states.length; deviceID++) {
+                if (states[deviceID] != null && states[deviceID].online == Device.OnlineStatusType.ONLINE) {
+                    online++;
+                }
+            }
+            walkFleet = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            checksum += online - statusIndex.count(Device.OnlineStatusType.ONLINE);
+            indexFleet = (System.nanoTime() - start) / 1e6;
+        }
+        if (checksum != 0) {
+            throw new IllegalStateException("两种统计方式结果不一致");
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < TOGGLES; i++) {
+            int deviceID = random.nextInt(perHousehold * HOUSEHOLDS) + 1;
+            DeviceState state = states[deviceID];
+            Device.PowerStatusType next = state.power == Device.PowerStatusType.POWERED
+                    ? Device.PowerStatusType.UNPOWERED : Device.PowerStatusType.POWERED;
+            statusIndex.powerStatusChanged(deviceID, state.power, next);
+            state.power = next;
+        }
+        double toggleNanos = (System.nanoTime() - start) / (double) TOGGLES;
+
+        // 每个线程只切换分给自己的家庭中的设备
+        int threads = Math.min(HOUSEHOLDS, Runtime.getRuntime().availableProcessors());
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                Random own = new Random(first);
+                for (int i = 0; i < TOGGLES; i++) {
+                    int h = first + own.nextInt((HOUSEHOLDS - first + threads - 1) / threads) * threads;
+                    int deviceID = h * perHousehold + own.nextInt(perHousehold) + 1;
+                    DeviceState state = states[deviceID];
+                    Device.PowerStatusType next = state.power == Device.PowerStatusType.POWERED
+                            ? Device.PowerStatusType.UNPOWERED : Device.PowerStatusType.POWERED;
+                    statusIndex.powerStatusChanged(deviceID, state.power, next);
+                    state.power = next;
+                }
+            });
+        }
+        start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double concurrentNanos = (System.nanoTime() - start) / ((double) TOGGLES * threads);
+
+        System.out.printf("按家庭统计（%d个家庭） 对象遍历: %.1f ms, 分片计数: %.2f ms, 加速比: %.0f%n",
+                HOUSEHOLDS, walkHouseholds, indexHouseholds, walkHouseholds / indexHouseholds);
+        System.out.printf("全量在线统计 对象遍历: %.1f ms, 全量计数: %.4f ms%n", walkFleet, indexFleet);
+        System.out.printf("状态切换: %.0f ns/次, %d线程并发切换: 平均 %.0f ns/次%n", toggleNanos, threads, concurrentNanos);
+    }
+}
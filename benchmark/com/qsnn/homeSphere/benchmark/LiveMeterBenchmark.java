@@ -0,0 +1,85 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.index.EnergyAggregates;
+
+import java.util.Random;
+
+/**
+ * 实时负载与实时能耗读取基准测试
+ *
+ * <p>把一批设备分配到若干家庭（每个家庭10个房间），随机开启一半设备，测量 {@link EnergyAggregates}
+ * 的开关更新、按家庭读取实时负载和实时能耗以及读取全部设备实时能耗的单次耗时（单线程、无竞争）。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.LiveMeterBenchmark [设备数]}，默认100000台。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LiveMeterBenchmark {
+
+    /** 每个家庭的设备数 */
+    private static final int DEVICES_PER_HOUSEHOLD = 50;
+
+    /** 每个家庭的房间数 */
+    private static final int ROOMS_PER_HOUSEHOLD = 10;
+
+    /** 每项操作的次数 */
+    private static final int OPERATIONS = 5_000_000;
+
+    public static void main(String[] args) {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int households = Math.max(1, deviceCount / DEVICES_PER_HOUSEHOLD);
+        EnergyAggregates meter = new EnergyAggregates();
+        Random random = new Random(7);
+        for (int d = 0; d < deviceCount; d++) {
+            int household = d % households;
+            meter.assign(d, household * ROOMS_PER_HOUSEHOLD + random.nextInt(ROOMS_PER_HOUSEHOLD), household);
+            if (random.nextBoolean()) {
+                meter.sessionOpened(d, 5 + random.nextInt(2_000));
+            }
+        }
+        int[] ids = new int[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            ids[i] = random.nextInt(deviceCount);
+        }
+
+        double checksum = 0;
+        double updateNanos = 0;
+        double loadNanos = 0;
+        double liveNanos = 0;
+        double fleetNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                if ((i & 1) == 0) {
+                    meter.sessionOpened(ids[i], 60);
+                } else {
+                    meter.sessionClosed(ids[i]);
+                }
+            }
+            updateNanos = (double) (System.nanoTime() - start) / OPERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                checksum += meter.householdLoad(ids[i] % households);
+            }
+            loadNanos = (double) (System.nanoTime() - start) / OPERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                checksum += meter.householdLiveEnergy(ids[i] % households);
+            }
+            liveNanos = (double) (System.nanoTime() - start) / OPERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                checksum += meter.fleetLiveEnergy();
+            }
+            fleetNanos = (double) (System.nanoTime() - start) / OPERATIONS;
+        }
+        System.out.printf("设备: %d 台, 家庭: %d 个, 全部设备负载 %.0f W%n", deviceCount, households, meter.fleetLoad());
+        System.out.printf("开关更新 %.1f ns/次, 家庭负载 %.1f ns/次, 家庭实时能耗 %.1f ns/次, 全部设备实时能耗 %.1f ns/次"
+                + "（校验和 %.0f）%n", updateNanos, loadNanos, liveNanos, fleetNanos, checksum);
+    }
+}
@@ -0,0 +1,70 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogSinks;
+import com.qsnn.homeSphere.log.MappedLogJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 内存映射日志段写入基准测试
+ *
+ * <p>单线程预先创建一批日志（一半为模板日志、一半为普通文本日志），然后测量
+ * {@link MappedLogJournal#append(Log)} 写入的吞吐量，以及写入后完整遍历一次的读取吞吐量，并输出每条记录的平均字节数。
+ * 段文件写入临时目录，结束后删除。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.LogJournalBenchmark [日志条数]}，默认2000000条。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogJournalBenchmark {
+
+    /** 重复测量次数，取最后一次（预热后）的结果 */
+    private static final int ITERATIONS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        LogSinks.install(log -> { });
+        Log[] logs = new Log[count];
+        for (int i = 0; i < count; i++) {
+            String actor = "DEV" + (i % 1000);
+            logs[i] = i % 2 == 0
+                    ? new Log(actor, Log.LogType.INFO, null, "属性变更: {} = {}", "luminance", i % 100)
+                    : new Log(actor, "设备开启", Log.LogType.INFO, "");
+        }
+
+        for (int iteration = 1; iteration <= ITERATIONS; iteration++) {
+            Path directory = Files.createTempDirectory("log-journal-benchmark");
+            try {
+                MappedLogJournal journal = new MappedLogJournal(directory);
+                long start = System.nanoTime();
+                for (Log log : logs) {
+                    journal.append(log);
+                }
+                long writeNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                MappedLogJournal.Cursor cursor = journal.query(null, null);
+                long checksum = 0;
+                while (cursor.next()) {
+                    checksum += cursor.getLogID();
+                }
+                long readNanos = System.nanoTime() - start;
+                journal.close();
+                System.out.printf("第%d轮: 写入 %.2f 百万条/秒, 遍历 %.2f 百万条/秒, 段数 %d, 平均 %.1f 字节/条 (校验 %d)%n",
+                        iteration, count * 1e3 / writeNanos, count * 1e3 / readNanos, journal.getSegmentCount(),
+                        journal.getCommittedBytes() / (double) count, checksum & 0xFFFF);
+            } finally {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.domain.EntityType;
+import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogSinks;
+import com.qsnn.homeSphere.log.LogStore;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志存储内存占用基准测试
+ *
+ * <p>为一批设备生成日志（事件为几种固定操作，与设备的开关、联网日志相同），分别测量两种保存方式的堆内存增量：
+ * 按对象保存（日志对象加时间对象，即改为列式存储之前每条日志保留的对象）和按列保存在 {@link LogStore} 中。
+ * 堆内存以多次GC后的已用内存估算，结果输出每条日志的平均字节数。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.LogMemoryBenchmark [日志条数]}，默认1000000条。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogMemoryBenchmark {
+
+    private static final String[] EVENTS = {"连接电源", "断开电源", "连接网络", "断开网络"};
+
+    /** 设备数 */
+    private static final int DEVICES = 1_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        LogSinks.install(log -> { });
+        String[] actors = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            actors[i] = String.format("DEV%07d", i);
+        }
+
+        long before = usedMemory();
+        List<Log> logs = new ArrayList<>(count);
+        List<LocalDateTime> times = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Log log = new Log(actors[i % DEVICES], EVENTS[(i / DEVICES) % EVENTS.length], Log.LogType.INFO, "");
+            logs.add(log);
+            times.add(log.getT());
+        }
+        double objectBytes = (double) (usedMemory() - before) / count;
+        System.out.printf("按对象保存: %d 条, 每条约 %.1f 字节%n", count, objectBytes);
+        logs = null;
+        times = null;
+
+        before = usedMemory();
+        LogStore[] stores = new LogStore[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            stores[i] = new LogStore(EntityType.DEVICE);
+        }
+        for (int i = 0; i < count; i++) {
+            stores[i % DEVICES].add(new Log(actors[i % DEVICES], EVENTS[(i / DEVICES) % EVENTS.length],
+                    Log.LogType.INFO, ""));
+        }
+        double columnBytes = (double) (usedMemory() - before) / count;
+        long estimated = 0;
+        for (LogStore store : stores) {
+            estimated += store.estimatedBytes();
+        }
+        System.out.printf("按列保存: %d 条, 每条约 %.1f 字节（估算 %.1f 字节）, 缩减为 1/%.1f%n",
+                count, columnBytes, (double) estimated / count, objectBytes / columnBytes);
+        System.out.println(stores[0].iterator().next());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
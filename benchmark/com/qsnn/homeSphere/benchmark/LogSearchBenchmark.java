@@ -0,0 +1,96 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogSearchIndex;
+import com.qsnn.homeSphere.log.LogSinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志全文检索基准测试
+ *
+ * <p>生成一批设备日志（事件为几种固定操作，备注含设备名称和设备ID），建立 {@link LogSearchIndex}，
+ * 对比索引检索与逐条扫描的耗时。每个查询最多取100条结果，并另外统计全部匹配条数的耗时。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.LogSearchBenchmark [日志条数]}，默认2000000条。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogSearchBenchmark {
+
+    private static final String[] EVENTS = {"连接电源", "断开电源", "连接网络", "断开网络"};
+
+    private static final String[][] QUERIES = {
+            {"断开电源"},
+            {"客厅灯-4711"},
+            {"DEV0012345"},
+            {"断开网络", "卧室"},
+    };
+
+    /** 重复测量次数，取最后一次（预热后）的结果 */
+    private static final int ITERATIONS = 3;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        LogSinks.install(log -> { });
+        String[] rooms = {"客厅", "卧室", "厨房", "书房"};
+        List<Log> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int device = i % 50_000;
+            logs.add(new Log(String.format("DEV%07d", device), EVENTS[(i / 7) % EVENTS.length], Log.LogType.INFO,
+                    rooms[device % rooms.length] + "灯-" + device + " DEV" + String.format("%07d", device)));
+        }
+
+        LogSearchIndex index = new LogSearchIndex();
+        long start = System.nanoTime();
+        for (Log log : logs) {
+            index.add(log);
+        }
+        long buildNanos = System.nanoTime() - start;
+        System.out.printf("日志条数: %d, 建立索引 %.0f ms（%.2f 百万条/秒）, 二元组 %d 个, 索引约 %.1f MB%n",
+                count, buildNanos / 1e6, count * 1e3 / buildNanos, index.gramCount(),
+                index.estimatedBytes() / 1048576.0);
+
+        for (String[] terms : QUERIES) {
+            double indexed = 0;
+            double indexedAll = 0;
+            double scanned = 0;
+            int hits = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                start = System.nanoTime();
+                index.search(100, terms);
+                indexed = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                hits = index.search(terms).size();
+                indexedAll = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                scan(logs, terms);
+                scanned = (System.nanoTime() - start) / 1e6;
+            }
+            System.out.printf("%s: 匹配 %d 条, 索引前100条 %.2f ms, 索引全部 %.1f ms, 逐条扫描 %.1f ms%n",
+                    String.join(" + ", terms), hits, indexed, indexedAll, scanned);
+        }
+    }
+
+    private static int scan(List<Log> logs, String[] terms) {
+        int hits = 0;
+        for (Log log : logs) {
+            boolean all = true;
+            for (String term : terms) {
+                if (!log.getEvent().contains(term) && !log.getRemarks().contains(term)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
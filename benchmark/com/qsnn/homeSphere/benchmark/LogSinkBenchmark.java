@@ -0,0 +1,92 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.log.AsyncRingBufferLogSink;
+import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogSink;
+import com.qsnn.homeSphere.log.LogSinks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志输出端基准测试
+ *
+ * <p>多个线程并发创建日志，分别测量同步输出（构造时直接println，即原实现）与
+ * {@link AsyncRingBufferLogSink} 异步输出下单条日志构造的平均耗时。两种方式都写入同一个临时文件，
+ * 异步方式的耗时不包含最后等待后台线程写完的时间，该时间单独输出。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.LogSinkBenchmark [线程数] [每线程日志数]}，
+ * 默认4个线程、每线程200000条。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogSinkBenchmark {
+
+    /** 重复测量次数，取最后一次（预热后）的结果 */
+    private static final int ITERATIONS = 3;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        File file = File.createTempFile("log-sink-benchmark", ".log");
+        file.deleteOnExit();
+
+        try (PrintStream target = new PrintStream(new FileOutputStream(file), false)) {
+            double sync = 0;
+            double async = 0;
+            double drain = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                LogSinks.install(log -> target.println(log));
+                sync = run(threads, perThread);
+
+                AsyncRingBufferLogSink sink = new AsyncRingBufferLogSink(target,
+                        AsyncRingBufferLogSink.DEFAULT_CAPACITY, AsyncRingBufferLogSink.DEFAULT_BATCH_SIZE,
+                        AsyncRingBufferLogSink.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                        AsyncRingBufferLogSink.OverflowPolicy.BLOCK, 1);
+                LogSink previous = LogSinks.install(sink);
+                async = run(threads, perThread);
+                long start = System.nanoTime();
+                sink.close();
+                drain = (System.nanoTime() - start) / 1e6;
+                LogSinks.install(previous);
+            }
+            System.out.printf("线程数: %d, 每线程日志数: %d%n", threads, perThread);
+            System.out.printf("同步输出: %.0f ns/条%n", sync);
+            System.out.printf("异步输出: %.0f ns/条（收尾写出 %.1f ms）%n", async, drain);
+        }
+    }
+
+    /**
+     * 并发创建日志，返回单条日志的平均构造耗时（纳秒）
+     */
+    private static double run(int threads, int perThread) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        long[] elapsed = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers.add(new Thread(() -> {
+                String actor = "bench-" + index;
+                long start = System.nanoTime();
+                for (int i = 0; i < perThread; i++) {
+                    new Log(actor, "设备开启", Log.LogType.INFO, "基准测试");
+                }
+                elapsed[index] = System.nanoTime() - start;
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long total = 0;
+        for (long e : elapsed) {
+            total += e;
+        }
+        return total / (double) (threads * (long) perThread);
+    }
+}
@@ -0,0 +1,110 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.DeviceSpec;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.LIGHT_BULB;
+
+/**
+ * 批量设备入网基准测试
+ *
+ * <p>在一栋100户、每户10个房间的楼宇中接入指定数量的设备，分别测量逐个调用
+ * {@code createDevice} + {@code addDeviceToRoom} 与批量调用 {@code createDevices} +
+ * {@code addDevicesToRoom} 的耗时。逐个调用时创建日志照常输出到标准输出（重定向到空流）。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.OnboardingBenchmark [设备数]}，默认100000台。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class OnboardingBenchmark {
+
+    /** 楼宇户数 */
+    private static final int HOUSEHOLDS = 100;
+
+    /** 每户房间数 */
+    private static final int ROOMS_PER_HOUSEHOLD = 10;
+
+    /** 重复测量次数，取最后一次（预热后）的结果 */
+    private static final int ITERATIONS = 5;
+
+    private static final Manufacturer MANUFACTURER = new Manufacturer("基准厂商", Set.of(Device.ConnectMode.WIFI));
+
+    public static void main(String[] args) {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            double single = 0;
+            double batch = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                single = measureSingle(deviceCount);
+                batch = measureBatch(deviceCount);
+            }
+            out.printf("设备数: %d%n", deviceCount);
+            out.printf("逐个接入: %.1f ms%n", single);
+            out.printf("批量接入: %.1f ms%n", batch);
+            out.printf("加速比: %.2f%n", single / batch);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static double measureSingle(int deviceCount) {
+        HomeSphereSystem system = new HomeSphereSystem();
+        int[] roomIDs = createBuilding(system);
+        long begin = System.nanoTime();
+        for (int i = 0; i < deviceCount; i++) {
+            int deviceID = i + 1;
+            system.createDevice(LIGHT_BULB, deviceID, "灯" + deviceID, "LT-OS", MANUFACTURER, 10.0,
+                    Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+            system.addDeviceToRoom(deviceID, roomIDs[i % roomIDs.length]);
+        }
+        return (System.nanoTime() - begin) / 1e6;
+    }
+
+    private static double measureBatch(int deviceCount) {
+        HomeSphereSystem system = new HomeSphereSystem();
+        int[] roomIDs = createBuilding(system);
+        long begin = System.nanoTime();
+        List<DeviceSpec> specs = new ArrayList<>(deviceCount);
+        Map<Integer, Integer> assignments = new HashMap<>(deviceCount * 4 / 3 + 1);
+        for (int i = 0; i < deviceCount; i++) {
+            int deviceID = i + 1;
+            specs.add(new DeviceSpec(LIGHT_BULB, deviceID, "灯" + deviceID, "LT-OS", MANUFACTURER, 10.0,
+                    Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER));
+            assignments.put(deviceID, roomIDs[i % roomIDs.length]);
+        }
+        system.createDevices(specs);
+        system.addDevicesToRoom(assignments);
+        return (System.nanoTime() - begin) / 1e6;
+    }
+
+    /**
+     * 创建楼宇的家庭与房间
+     *
+     * @return 全部房间ID
+     */
+    private static int[] createBuilding(HomeSphereSystem system) {
+        Integer ownerID = system.registerUser("owner", "owner", "Owner", "-");
+        int[] roomIDs = new int[HOUSEHOLDS * ROOMS_PER_HOUSEHOLD];
+        for (int h = 0; h < HOUSEHOLDS; h++) {
+            Integer householdID = system.createHousehold("住户" + h, "-", ownerID);
+            for (int r = 0; r < ROOMS_PER_HOUSEHOLD; r++) {
+                roomIDs[h * ROOMS_PER_HOUSEHOLD + r] = system.createRoom(householdID, "房间" + r, 10.0);
+            }
+        }
+        return roomIDs;
+    }
+}
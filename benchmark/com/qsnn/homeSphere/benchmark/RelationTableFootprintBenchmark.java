@@ -0,0 +1,151 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntIntMap;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntSetMultimap;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 关系表堆内存占用基准测试
+ *
+ * <p>以相同的家庭/房间/设备拓扑分别填充装箱关系表（{@code ConcurrentHashMap<Integer, Set<Integer>>}）
+ * 和int专用关系表（{@link ConcurrentIntSetMultimap}、{@link ConcurrentIntIntMap}），
+ * 比较两者在GC后的堆内存占用。</p>
+ *
+ * <p>拓扑：每个家庭1名用户、4个房间，设备均匀分布到各房间。</p>
+ *
+ * <p>运行方式：{@code java -Xmx16g com.qsnn.homeSphere.benchmark.RelationTableFootprintBenchmark [家庭数] [设备数]}，
+ * 默认1000000个家庭、10000000台设备。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class RelationTableFootprintBenchmark {
+
+    /** 每个家庭的房间数 */
+    private static final int ROOMS_PER_HOUSEHOLD = 4;
+
+    /** 各类实体ID的起始值，避开Integer缓存区间 */
+    private static final int USER_BASE = 100_000_000;
+    private static final int HOUSEHOLD_BASE = 200_000_000;
+    private static final int ROOM_BASE = 300_000_000;
+    private static final int DEVICE_BASE = 400_000_000;
+
+    /** 测量期间持有被测关系表的强引用 */
+    private static Object retained;
+
+    public static void main(String[] args) {
+        int householdCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int deviceCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        System.out.printf("家庭数: %d, 房间数: %d, 设备数: %d%n",
+                householdCount, householdCount * ROOMS_PER_HOUSEHOLD, deviceCount);
+
+        long boxed = measure(() -> populateBoxed(householdCount, deviceCount));
+        System.out.printf("装箱关系表: %.1f MB%n", boxed / 1048576.0);
+
+        long primitive = measure(() -> populatePrimitive(householdCount, deviceCount));
+        System.out.printf("int专用关系表: %.1f MB%n", primitive / 1048576.0);
+
+        System.out.printf("内存占用比: %.2fx%n", (double) boxed / primitive);
+    }
+
+    /**
+     * 测量构造结果在GC后占用的堆内存
+     *
+     * @param factory 关系表构造过程
+     * @return 占用字节数
+     */
+    private static long measure(Supplier<Object> factory) {
+        long before = usedHeap();
+        retained = factory.get();
+        long after = usedHeap();
+        retained = null;
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Object populateBoxed(int householdCount, int deviceCount) {
+        Map<Integer, Set<Integer>> userToHouseholds = new ConcurrentHashMap<>();
+        Map<Integer, Set<Integer>> householdToUsers = new ConcurrentHashMap<>();
+        Map<Integer, Set<Integer>> householdToRooms = new ConcurrentHashMap<>();
+        Map<Integer, Integer> roomToHousehold = new ConcurrentHashMap<>();
+        Map<Integer, Integer> deviceToRoom = new ConcurrentHashMap<>();
+        Map<Integer, Set<Integer>> roomToDevices = new ConcurrentHashMap<>();
+        Map<Integer, Set<Integer>> householdToDevices = new ConcurrentHashMap<>();
+
+        for (int h = 0; h < householdCount; h++) {
+            int userID = USER_BASE + h;
+            int householdID = HOUSEHOLD_BASE + h;
+            userToHouseholds.computeIfAbsent(userID, k -> ConcurrentHashMap.newKeySet()).add(householdID);
+            householdToUsers.computeIfAbsent(householdID, k -> ConcurrentHashMap.newKeySet()).add(userID);
+            for (int r = 0; r < ROOMS_PER_HOUSEHOLD; r++) {
+                int roomID = ROOM_BASE + h * ROOMS_PER_HOUSEHOLD + r;
+                householdToRooms.computeIfAbsent(householdID, k -> ConcurrentHashMap.newKeySet()).add(roomID);
+                roomToHousehold.put(roomID, householdID);
+            }
+        }
+        int roomCount = householdCount * ROOMS_PER_HOUSEHOLD;
+        for (int d = 0; d < deviceCount; d++) {
+            int deviceID = DEVICE_BASE + d;
+            int roomIndex = d % roomCount;
+            int roomID = ROOM_BASE + roomIndex;
+            int householdID = HOUSEHOLD_BASE + roomIndex / ROOMS_PER_HOUSEHOLD;
+            deviceToRoom.put(deviceID, roomID);
+            roomToDevices.computeIfAbsent(roomID, k -> ConcurrentHashMap.newKeySet()).add(deviceID);
+            householdToDevices.computeIfAbsent(householdID, k -> ConcurrentHashMap.newKeySet()).add(deviceID);
+        }
+        return new Object[]{userToHouseholds, householdToUsers, householdToRooms, roomToHousehold,
+                deviceToRoom, roomToDevices, householdToDevices};
+    }
+
+    private static Object populatePrimitive(int householdCount, int deviceCount) {
+        ConcurrentIntSetMultimap userToHouseholds = new ConcurrentIntSetMultimap();
+        ConcurrentIntSetMultimap householdToUsers = new ConcurrentIntSetMultimap();
+        ConcurrentIntSetMultimap householdToRooms = new ConcurrentIntSetMultimap();
+        ConcurrentIntIntMap roomToHousehold = new ConcurrentIntIntMap();
+        ConcurrentIntIntMap deviceToRoom = new ConcurrentIntIntMap();
+        ConcurrentIntSetMultimap roomToDevices = new ConcurrentIntSetMultimap();
+        ConcurrentIntSetMultimap householdToDevices = new ConcurrentIntSetMultimap();
+
+        for (int h = 0; h < householdCount; h++) {
+            int userID = USER_BASE + h;
+            int householdID = HOUSEHOLD_BASE + h;
+            userToHouseholds.put(userID, householdID);
+            householdToUsers.put(householdID, userID);
+            for (int r = 0; r < ROOMS_PER_HOUSEHOLD; r++) {
+                int roomID = ROOM_BASE + h * ROOMS_PER_HOUSEHOLD + r;
+                householdToRooms.put(householdID, roomID);
+                roomToHousehold.put(roomID, householdID);
+            }
+        }
+        int roomCount = householdCount * ROOMS_PER_HOUSEHOLD;
+        for (int d = 0; d < deviceCount; d++) {
+            int deviceID = DEVICE_BASE + d;
+            int roomIndex = d % roomCount;
+            int roomID = ROOM_BASE + roomIndex;
+            int householdID = HOUSEHOLD_BASE + roomIndex / ROOMS_PER_HOUSEHOLD;
+            deviceToRoom.put(deviceID, roomID);
+            roomToDevices.put(roomID, deviceID);
+            householdToDevices.put(householdID, deviceID);
+        }
+        return new Object[]{userToHouseholds, householdToUsers, householdToRooms, roomToHousehold,
+                deviceToRoom, roomToDevices, householdToDevices};
+    }
+}
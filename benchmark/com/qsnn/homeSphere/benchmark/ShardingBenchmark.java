@@ -0,0 +1,150 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+import com.qsnn.homeSphere.shard.ShardedHomeSphereSystem;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.LIGHT_BULB;
+
+/**
+ * 分片执行模式吞吐量基准测试
+ *
+ * <p>对同一写负载（每个家庭每轮：createRoom、createDevice、addDeviceToRoom、moveDevice、createAutomationScene）
+ * 分别测量两种执行方式的吞吐量：</p>
+ * <ul>
+ *   <li>共享模式：N个线程直接调用同一个加锁的 {@link HomeSphereSystem}，每线程一个家庭</li>
+ *   <li>分片模式：N个分片的 {@link ShardedHomeSphereSystem}，每轮通过公开方法依次提交createRoom、createDevice
+ *       （含放入房间）、moveDevice、createAutomationScene四条经路由表投递的命令，各轮流水线提交，最后统一等待完成</li>
+ * </ul>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.ShardingBenchmark [每家庭操作轮数]}，默认20000轮。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ShardingBenchmark {
+
+    /** 测试的并行度序列（线程数或分片数） */
+    private static final int[] PARALLELISM = {1, 2, 4, 8, 16, 32};
+
+    /** 每轮包含的写操作数 */
+    private static final int OPS_PER_ROUND = 5;
+
+    /** 基准测试使用的制造商 */
+    private static final Manufacturer MANUFACTURER = new Manufacturer("基准厂商", Set.of(Device.ConnectMode.WIFI));
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            out.println("并行度\t共享模式(ops/s)\t分片模式(ops/s)\t分片/共享");
+            for (int n : PARALLELISM) {
+                double shared = measureShared(n, rounds);
+                double sharded = measureSharded(n, rounds);
+                out.printf("%d\t%.0f\t%.0f\t%.2f%n", n, shared, sharded, sharded / shared);
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * 共享模式：多线程直接调用同一系统实例
+     */
+    private static double measureShared(int threads, int rounds) throws InterruptedException {
+        HomeSphereSystem system = new HomeSphereSystem();
+        AtomicInteger deviceIDs = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                Integer userID = system.registerUser("bench", "bench", "Bench", "-");
+                Integer householdID = system.createHousehold("基准家庭", "-", userID);
+                Integer homeRoomID = system.createRoom(householdID, "起始房间", 10.0);
+                ready.countDown();
+                try {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        runRound(system, userID, householdID, homeRoomID, deviceIDs.incrementAndGet());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (double) threads * rounds * OPS_PER_ROUND / (elapsed / 1e9);
+    }
+
+    /**
+     * 分片模式：每个分片一个家庭，由单个提交线程流水线投递命令
+     */
+    private static double measureSharded(int shardCount, int rounds) {
+        AtomicInteger deviceIDs = new AtomicInteger();
+        try (ShardedHomeSphereSystem system = new ShardedHomeSphereSystem(shardCount)) {
+            Integer userID = system.registerUser("bench", "bench", "Bench", "-");
+            int[] householdIDs = new int[shardCount];
+            int[] homeRoomIDs = new int[shardCount];
+            for (int s = 0; s < shardCount; s++) {
+                householdIDs[s] = system.createHousehold("基准家庭", "-", userID).join();
+                homeRoomIDs[s] = system.createRoom(householdIDs[s], "起始房间", 10.0).join();
+            }
+
+            List<CompletableFuture<Void>> pending = new ArrayList<>(shardCount * rounds);
+            long begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                for (int s = 0; s < shardCount; s++) {
+                    Integer householdID = householdIDs[s];
+                    Integer homeRoomID = homeRoomIDs[s];
+                    int deviceID = deviceIDs.incrementAndGet();
+                    // createDevice在一条命令中创建设备并放入房间，计为两次写操作
+                    pending.add(system.createRoom(householdID, "房间", 10.0)
+                            .thenCompose(roomID -> system.createDevice(homeRoomID, LIGHT_BULB, deviceID, "灯",
+                                            "LT-OS", MANUFACTURER, 10.0, Device.ConnectMode.WIFI,
+                                            Device.PowerMode.MAINSPOWER)
+                                    .thenCompose(id -> system.moveDevice(userID, deviceID, roomID)))
+                            .thenCompose(moved -> system.createAutomationScene(householdID, "场景", ""))
+                            .thenAccept(sceneID -> { }));
+                }
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            long elapsed = System.nanoTime() - begin;
+            return (double) shardCount * rounds * OPS_PER_ROUND / (elapsed / 1e9);
+        }
+    }
+
+    /**
+     * 执行一轮写操作
+     */
+    private static void runRound(HomeSphereSystem system, Integer userID, Integer householdID,
+                                 Integer homeRoomID, int deviceID) {
+        Integer roomID = system.createRoom(householdID, "房间", 10.0);
+        system.createDevice(LIGHT_BULB, deviceID, "灯", "LT-OS", MANUFACTURER, 10.0,
+                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+        system.addDeviceToRoom(deviceID, homeRoomID);
+        system.moveDevice(userID, deviceID, roomID);
+        system.createAutomationScene(householdID, "场景");
+    }
+}
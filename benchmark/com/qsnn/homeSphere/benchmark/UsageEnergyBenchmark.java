@@ -0,0 +1,83 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.domain.deviceModule.Usage;
+import com.qsnn.homeSphere.domain.deviceModule.UsageStore;
+import com.qsnn.homeSphere.log.LogSinks;
+import com.qsnn.homeSphere.utils.Util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 时间段能耗查询基准测试
+ *
+ * <p>为一台设备生成互不重叠的使用记录（默认1000000条，约跨越57年），随机生成按月的查询时间段，
+ * 对比逐条计算（{@link Util#calculatePowerConsumption(Collection, LocalDateTime, LocalDateTime)}）
+ * 与列式使用记录存储的前缀和查询（{@link UsageStore#energy}）的单次查询耗时，并校验两者结果一致。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.UsageEnergyBenchmark [使用记录条数]}，默认1000000条。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class UsageEnergyBenchmark {
+
+    /** 逐条计算的查询次数 */
+    private static final int SCAN_QUERIES = 20;
+
+    /** 索引的查询次数 */
+    private static final int INDEX_QUERIES = 1_000_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        LogSinks.install(log -> { });
+        Random random = new Random(7);
+        Set<Usage> usages = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+        LocalDateTime first = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime time = first;
+        for (int i = 0; i < count; i++) {
+            LocalDateTime open = time.plusSeconds(random.nextInt(1_200));
+            LocalDateTime close = open.plusSeconds(1 + random.nextInt(2_400));
+            usages.add(new Usage("DEV0000001", 60, open, close));
+            time = close;
+        }
+
+        long start = System.nanoTime();
+        UsageStore index = new UsageStore("1");
+        index.addAll(usages);
+        long buildNanos = System.nanoTime() - start;
+        System.out.printf("使用记录: %d 条（%s ~ %s）, 写入列式存储 %.1f ms, 存储约 %.1f MB%n", count, first, time,
+                buildNanos / 1e6, index.estimatedBytes() / 1048576.0);
+
+        long months = ChronoUnit.MONTHS.between(first, time);
+        LocalDateTime[] from = new LocalDateTime[INDEX_QUERIES];
+        for (int i = 0; i < INDEX_QUERIES; i++) {
+            from[i] = first.plusMonths(random.nextInt((int) months)).plusSeconds(random.nextInt(86_400));
+        }
+
+        double maxError = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            double expected = Util.calculatePowerConsumption(usages, from[i], from[i].plusMonths(1));
+            maxError = Math.max(maxError, Math.abs(expected - index.energy(from[i], from[i].plusMonths(1))));
+        }
+        double scanMicros = (System.nanoTime() - start) / 1e3 / SCAN_QUERIES;
+
+        double checksum = 0;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < INDEX_QUERIES; i++) {
+                checksum += index.energy(from[i], from[i].plusMonths(1));
+            }
+        }
+        double indexMicros = (System.nanoTime() - start) / 1e3 / INDEX_QUERIES;
+        System.out.printf("按月查询: 逐条计算 %.1f µs/次, 前缀和 %.3f µs/次, 最大差异 %.3g Wh（校验和 %.0f）%n",
+                scanMicros, indexMicros, maxError, checksum);
+    }
+}
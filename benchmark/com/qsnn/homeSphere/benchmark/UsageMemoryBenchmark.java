@@ -0,0 +1,110 @@
+package com.qsnn.homeSphere.benchmark;
+
+import com.qsnn.homeSphere.domain.deviceModule.Usage;
+import com.qsnn.homeSphere.domain.deviceModule.UsageStore;
+import com.qsnn.homeSphere.log.LogSinks;
+import com.qsnn.homeSphere.utils.Util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 使用记录内存占用与逐条计算基准测试
+ *
+ * <p>为一批设备生成开关使用记录，分别测量两种保存方式的堆内存增量：按对象保存（按关闭时间排序的使用记录集合，
+ * 即改为列式存储之前每台设备保留的数据）和按列保存在 {@link UsageStore} 中。堆内存以多次GC后的已用内存估算，
+ * 结果输出每条使用记录的平均字节数，并对比两种方式逐条计算全部设备一天能耗的耗时。</p>
+ *
+ * <p>运行方式：{@code java com.qsnn.homeSphere.benchmark.UsageMemoryBenchmark [使用记录条数]}，默认1000000条。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class UsageMemoryBenchmark {
+
+    /** 设备数 */
+    private static final int DEVICES = 1_000;
+
+    /** 逐条计算的轮数 */
+    private static final int SCAN_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        LogSinks.install(log -> { });
+        LocalDateTime first = LocalDateTime.of(2025, 1, 1, 0, 0);
+        int perDevice = count / DEVICES;
+
+        long before = usedMemory();
+        List<Collection<Usage>> objects = new ArrayList<>(DEVICES);
+        for (int d = 0; d < DEVICES; d++) {
+            Set<Usage> usages = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+            for (int i = 0; i < perDevice; i++) {
+                usages.add(session(d, i, first));
+            }
+            objects.add(usages);
+        }
+        double objectBytes = (double) (usedMemory() - before) / (perDevice * DEVICES);
+        System.out.printf("按对象保存: %d 条, 每条约 %.1f 字节%n", perDevice * DEVICES, objectBytes);
+        double objectMillis = scanMillis(objects, first);
+        objects = null;
+
+        before = usedMemory();
+        List<Collection<Usage>> stores = new ArrayList<>(DEVICES);
+        long estimated = 0;
+        for (int d = 0; d < DEVICES; d++) {
+            UsageStore store = new UsageStore(String.valueOf(d));
+            for (int i = 0; i < perDevice; i++) {
+                store.add(session(d, i, first));
+            }
+            stores.add(store);
+        }
+        double columnBytes = (double) (usedMemory() - before) / (perDevice * DEVICES);
+        for (Collection<Usage> store : stores) {
+            estimated += ((UsageStore) store).estimatedBytes();
+        }
+        System.out.printf("按列保存: %d 条, 每条约 %.1f 字节（估算 %.1f 字节）, 缩减为 1/%.1f%n", perDevice * DEVICES,
+                columnBytes, (double) estimated / (perDevice * DEVICES), objectBytes / columnBytes);
+        double columnMillis = scanMillis(stores, first);
+        System.out.printf("逐条计算一天能耗: 按对象 %.1f ms/轮, 按列 %.1f ms/轮%n", objectMillis, columnMillis);
+    }
+
+    /**
+     * 第i次开关：每15分钟开启一次，持续1到10分钟
+     */
+    private static Usage session(int device, int i, LocalDateTime first) {
+        LocalDateTime open = first.plusSeconds(i * 900L + device % 60);
+        return new Usage(device + "" + i, 10 + device % 90, open, open.plusSeconds(60 + (device * 31L + i) % 540));
+    }
+
+    private static double scanMillis(List<Collection<Usage>> devices, LocalDateTime first) {
+        double checksum = 0;
+        long start = 0;
+        for (int round = 0; round < SCAN_ROUNDS * 2; round++) {
+            if (round == SCAN_ROUNDS) {
+                start = System.nanoTime();
+            }
+            LocalDateTime from = first.plusDays(round);
+            for (Collection<Usage> usages : devices) {
+                checksum += Util.calculatePowerConsumption(usages, from, from.plusDays(1));
+            }
+        }
+        if (checksum < 0) {
+            System.out.println(checksum);
+        }
+        return (System.nanoTime() - start) / 1e6 / SCAN_ROUNDS;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
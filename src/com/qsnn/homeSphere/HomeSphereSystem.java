@@ -1,20 +1,40 @@
 package com.qsnn.homeSphere;
 
+import com.qsnn.homeSphere.domain.EntityType;
 import com.qsnn.homeSphere.domain.automationScene.AutomationScene;
 import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.DeviceSpec;
+import com.qsnn.homeSphere.domain.deviceModule.DeviceStateListener;
 import com.qsnn.homeSphere.domain.deviceModule.attributes.DeviceAttribute;
 import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
 import com.qsnn.homeSphere.domain.deviceModule.devices.*;
 import com.qsnn.homeSphere.domain.house.Household;
 import com.qsnn.homeSphere.domain.house.Room;
 import com.qsnn.homeSphere.domain.users.User;
+import com.qsnn.homeSphere.index.DeviceIndex;
+import com.qsnn.homeSphere.index.DeviceQuery;
+import com.qsnn.homeSphere.index.EnergyAggregates;
+import com.qsnn.homeSphere.index.EnergyRollup;
 import com.qsnn.homeSphere.log.Log;
-
+import com.qsnn.homeSphere.log.LogQuery;
+import com.qsnn.homeSphere.log.LogSearchIndex;
+import com.qsnn.homeSphere.log.LogStore;
+import com.qsnn.homeSphere.utils.StripedLock;
+import com.qsnn.homeSphere.utils.id.IdAllocators;
+import com.qsnn.homeSphere.utils.persistent.PersistentIntMap;
+import com.qsnn.homeSphere.utils.persistent.VersionedIntMap;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntIntMap;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntSetMultimap;
+import com.qsnn.homeSphere.utils.primitive.IntHashSet;
+
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
-import static com.qsnn.homeSphere.utils.Util.createFreeID;
-
 /**
  * 智能家居系统核心类
  *
@@ -31,10 +51,14 @@ import static com.qsnn.homeSphere.utils.Util.createFreeID;
  *
  * <p><b>设计特点：</b></p>
  * <ul>
- *   <li>使用多个映射表维护实体间的关系</li>
+ *   <li>使用多个映射表维护实体间的关系，关系表以int专用的开放寻址表存储，避免装箱开销</li>
  *   <li>提供完整的CRUD操作和关系管理</li>
  *   <li>包含权限验证和安全检查机制</li>
  *   <li>支持灵活的查询和统计功能</li>
+ *   <li>线程安全：所有映射表均为并发映射表，读操作无锁</li>
+ *   <li>家庭范围内的写操作按家庭ID获取分段锁，不同家庭的写操作可并行执行</li>
+ *   <li>实体数据表为多版本持久化映射表，读者可以O(1)获取一致的只读快照</li>
+ *   <li>设备按类型、连接模式、制造商和状态维护二级索引，设备群查询无需遍历全部设备</li>
  * </ul>
  *
  * @author qsnn
@@ -48,42 +72,135 @@ public class HomeSphereSystem {
     // ==================== 统一数据源 ====================
 
     /** 家庭数据映射表 */
-    private final Map<Integer, Household> households = new HashMap<>();
+    private final VersionedIntMap<Household> households = new VersionedIntMap<>();
 
     /** 用户数据映射表 */
-    private final Map<Integer, User> users = new HashMap<>();
+    private final VersionedIntMap<User> users = new VersionedIntMap<>();
 
     /** 房间数据映射表 */
-    private final Map<Integer, Room> rooms = new HashMap<>();
+    private final VersionedIntMap<Room> rooms = new VersionedIntMap<>();
 
     /** 设备数据映射表 */
-    private final Map<Integer, Device> devices = new HashMap<>();
+    private final VersionedIntMap<Device> devices = new VersionedIntMap<>();
 
     /** 自动化场景数据映射表 */
-    private final Map<Integer, AutomationScene> automationScenes = new HashMap<>();
+    private final VersionedIntMap<AutomationScene> automationScenes = new VersionedIntMap<>();
 
     // ==================== 统一的关系映射表 ====================
 
     /** 用户到家庭的映射关系（用户 -> 家庭集合） */
-    private final Map<Integer, Set<Integer>> userToHouseholds = new HashMap<>();
+    private final ConcurrentIntSetMultimap userToHouseholds = new ConcurrentIntSetMultimap();
 
     /** 家庭到用户的映射关系（家庭 -> 用户集合） */
-    private final Map<Integer, Set<Integer>> householdToUsers = new HashMap<>();
+    private final ConcurrentIntSetMultimap householdToUsers = new ConcurrentIntSetMultimap();
+
+    /** 用户担任管理员的家庭（用户 -> 家庭集合），删除用户时据此级联删除家庭 */
+    private final ConcurrentIntSetMultimap userToAdministered = new ConcurrentIntSetMultimap();
 
     /** 家庭到房间的映射关系（家庭 -> 房间集合） */
-    private final Map<Integer, Set<Integer>> householdToRooms = new HashMap<>();
+    private final ConcurrentIntSetMultimap householdToRooms = new ConcurrentIntSetMultimap();
 
     /** 房间到家庭的映射关系（房间 -> 家庭） */
-    private final Map<Integer, Integer> roomToHousehold = new HashMap<>();
+    private final ConcurrentIntIntMap roomToHousehold = new ConcurrentIntIntMap();
 
     /** 设备到房间的映射关系（设备 -> 房间） */
-    private final Map<Integer, Integer> deviceToRoom = new HashMap<>();
+    private final ConcurrentIntIntMap deviceToRoom = new ConcurrentIntIntMap();
+
+    /** 房间到设备的映射关系（房间 -> 设备集合），与deviceToRoom同步维护 */
+    private final ConcurrentIntSetMultimap roomToDevices = new ConcurrentIntSetMultimap();
+
+    /** 家庭到设备的映射关系（家庭 -> 设备集合），与deviceToRoom同步维护 */
+    private final ConcurrentIntSetMultimap householdToDevices = new ConcurrentIntSetMultimap();
 
     /** 家庭到自动化场景的映射关系（家庭 -> 场景集合） */
-    private final Map<Integer, Set<Integer>> householdToScenes = new HashMap<>();
+    private final ConcurrentIntSetMultimap householdToScenes = new ConcurrentIntSetMultimap();
 
     /** 自动化场景到家庭的映射关系（场景 -> 家庭） */
-    private final Map<Integer, Integer> sceneToHousehold = new HashMap<>();
+    private final ConcurrentIntIntMap sceneToHousehold = new ConcurrentIntIntMap();
+
+    // ==================== 二级索引 ====================
+
+    /** 设备属性与状态索引 */
+    private final DeviceIndex deviceIndex = new DeviceIndex();
+
+    /** 房间与家庭能耗汇总 */
+    private final EnergyAggregates energyAggregates = new EnergyAggregates();
+
+    /** 设备状态监听器：状态变化交给二级索引，电源状态变化和新增的使用记录交给能耗汇总 */
+    private final DeviceStateListener deviceListener = new DeviceStateListener() {
+        @Override
+        public void onOnlineStatusChanged(Device device, Device.OnlineStatusType previous,
+                                          Device.OnlineStatusType current) {
+            deviceIndex.onOnlineStatusChanged(device, previous, current);
+        }
+
+        @Override
+        public void onPowerStatusChanged(Device device, Device.PowerStatusType previous,
+                                         Device.PowerStatusType current) {
+            deviceIndex.onPowerStatusChanged(device, previous, current);
+            if (device.getPowerMode() != Device.PowerMode.BATTERY) {
+                if (current == Device.PowerStatusType.POWERED) {
+                    energyAggregates.sessionOpened(device.getDeviceID(), device.getPower());
+                } else {
+                    energyAggregates.sessionClosed(device.getDeviceID());
+                }
+            }
+        }
+
+        @Override
+        public void onUsageAdded(Device device, long openSecond, long closeSecond, double power) {
+            // 与Device.calculatePowerConsumption一致，电池设备不计能耗
+            if (device.getPowerMode() != Device.PowerMode.BATTERY) {
+                energyAggregates.usageAdded(device.getDeviceID(), openSecond, closeSecond, power);
+            }
+        }
+    };
+
+    // ==================== 系统日志 ====================
+
+    /** 不属于单个实体的系统级日志（如批量操作的汇总日志） */
+    private final Queue<Log> systemLogs = new ConcurrentLinkedQueue<>();
+
+    /** 本系统的日志全文检索索引，未启用时为null；只包含本系统实体的日志存储 */
+    private volatile LogSearchIndex logSearchIndex;
+
+    // ==================== 并发控制 ====================
+
+    /** 家庭分段锁，保护同一家庭内跨多个映射表的写操作 */
+    private final StripedLock householdLocks;
+
+    /** 各类实体的ID分配器 */
+    private final IdAllocators idAllocators;
+
+    /**
+     * 系统构造函数，使用内存中的ID分配器
+     */
+    public HomeSphereSystem() {
+        this(IdAllocators.inMemory());
+    }
+
+    /**
+     * 系统构造函数
+     *
+     * @param idAllocators 各类实体的ID分配器，传入持久化分配器可使ID在重启后继续递增
+     */
+    public HomeSphereSystem(IdAllocators idAllocators) {
+        this(idAllocators, false);
+    }
+
+    /**
+     * 系统构造函数
+     *
+     * @param idAllocators 各类实体的ID分配器
+     * @param threadConfined 为true时实例只会被单个线程访问（如分片事件循环），写操作不再获取家庭分段锁
+     */
+    public HomeSphereSystem(IdAllocators idAllocators, boolean threadConfined) {
+        if (idAllocators == null) {
+            throw new IllegalArgumentException("ID分配器不能为空");
+        }
+        this.idAllocators = idAllocators;
+        this.householdLocks = threadConfined ? StripedLock.threadConfined() : new StripedLock(64);
+    }
 
     /**
      * 系统主入口方法
@@ -106,11 +223,53 @@ public class HomeSphereSystem {
      * @return 新注册用户的ID
      */
     public Integer registerUser(String username, String password, String name, String address){
-        User u = new User(createFreeID(users.keySet()), username, password, name, address);
-        users.put(u.getUserID(), u);
+        User u = register(EntityType.USER, users, id -> new User(id, username, password, name, address));
+        indexLogs(u.getUserLogs());
         return u.getUserID();
     }
 
+    /**
+     * 登记已在其他系统实例中注册的用户
+     *
+     * <p>用于分片部署：用户在全局目录中注册，首次参与某个分片内的家庭时登记到该分片。</p>
+     *
+     * @param user 已注册的用户对象
+     * @return 本次新登记返回true，此前已登记返回false
+     * @throws IllegalArgumentException 如果该ID已登记了另一个用户对象
+     */
+    public boolean attachUser(User user) {
+        User existing = users.putIfAbsent(user.getUserID(), user);
+        if (existing != null && existing != user) {
+            throw new IllegalArgumentException("用户ID已被占用: " + user.getUserID());
+        }
+        if (existing != null) {
+            return false;
+        }
+        indexLogs(user.getUserLogs());
+        return true;
+    }
+
+    /**
+     * 撤销通过 {@link #attachUser} 登记的用户
+     *
+     * <p>用户仍属于本实例中的家庭时不撤销。用户对象及其日志由全局目录持有，这里只移出本实例，不清空日志。</p>
+     *
+     * @param userID 用户ID
+     * @return 撤销成功返回true
+     */
+    public boolean detachUser(Integer userID) {
+        User user = users.get(userID);
+        if (user == null || userToHouseholds.size(userID) > 0) {
+            return false;
+        }
+        users.remove(userID);
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            index.removeAll(user.getUserLogs());
+        }
+        return true;
+    }
+
     /**
      * 用户登录
      *
@@ -134,6 +293,35 @@ public class HomeSphereSystem {
         // 退出登录逻辑
     }
 
+    /**
+     * 删除用户
+     *
+     * <p>级联删除该用户担任管理员的家庭（无论用户是否仍在成员中），并将用户从其余家庭中移除，同时清除用户日志。
+     * 只访问用户自身的家庭关系，不扫描全表；每个家庭在其家庭锁内处理。</p>
+     *
+     * <p>用户先从数据表移除，之后的 {@link #createRelations} 在家庭锁内核对用户时失败；
+     * 移除之前已通过核对的并发操作可能在首轮处理之后才写入关系，因此反复处理直到用户没有剩余的家庭关系。</p>
+     *
+     * @param userID 用户ID
+     * @return 删除是否成功，用户不存在时返回false
+     */
+    public boolean deleteUser(Integer userID) {
+        User user = userID != null ? users.remove(userID) : null;
+        if (user == null) {
+            return false;
+        }
+        do {
+            for (int householdID : userToAdministered.get(userID)) {
+                deleteHousehold(householdID);
+            }
+            for (int householdID : userToHouseholds.get(userID)) {
+                leaveHousehold(userID, householdID);
+            }
+        } while (userToAdministered.size(userID) > 0 || userToHouseholds.size(userID) > 0);
+        discardLogs(user.getUserLogs());
+        return true;
+    }
+
     // ==================== 家庭相关方法 ====================
 
     /**
@@ -145,12 +333,65 @@ public class HomeSphereSystem {
      * @return 新创建家庭的ID
      */
     public Integer createHousehold(String name, String address, Integer creatorID){
-        Household h = new Household(createFreeID(households.keySet()), name, address, creatorID);
-        households.put(h.getHouseholdID(), h);
-        createRelations(creatorID, h.getAdministratorID(), h.getHouseholdID());
+        if (creatorID == null || !users.containsKey(creatorID)) {
+            throw new IllegalArgumentException("用户或家庭不存在");
+        }
+        Household h = register(EntityType.HOUSEHOLD, households, id -> new Household(id, name, address, creatorID));
+        indexLogs(h.getHouseholdLogs());
+        // 先登记管理员再建立成员关系：创建者被并发删除时，要么由deleteUser级联删除本家庭，要么建立关系失败后在此回滚
+        userToAdministered.put(creatorID, h.getHouseholdID());
+        try {
+            createRelations(creatorID, creatorID, h.getHouseholdID());
+        } catch (IllegalArgumentException e) {
+            deleteHousehold(h.getHouseholdID());
+            throw e;
+        }
         return h.getHouseholdID();
     }
 
+    /**
+     * 删除家庭
+     *
+     * <p>级联删除家庭的场景、房间及房间内的设备，解除全部成员关系，并清除相关日志和使用记录。</p>
+     *
+     * @param householdID 家庭ID
+     * @return 删除是否成功，家庭不存在时返回false
+     */
+    public boolean deleteHousehold(Integer householdID) {
+        if (householdID == null) {
+            return false;
+        }
+        Lock lock = householdLocks.get(householdID);
+        lock.lock();
+        try {
+            Household household = households.remove(householdID);
+            if (household == null) {
+                return false;
+            }
+
+            // 先删除场景，之后删除设备时无需再逐个场景解除引用
+            for (int sceneID : householdToScenes.removeAll(householdID)) {
+                sceneToHousehold.remove(sceneID);
+                automationScenes.remove(sceneID);
+            }
+            for (int roomID : householdToRooms.get(householdID)) {
+                dropRoom(roomID, householdID);
+            }
+            for (int userID : householdToUsers.removeAll(householdID)) {
+                userToHouseholds.remove(userID, householdID);
+            }
+            userToAdministered.remove(household.getAdministratorID(), householdID);
+            householdToDevices.removeAll(householdID);
+            deviceIndex.dropHousehold(householdID);
+            energyAggregates.removeHousehold(householdID);
+
+            discardLogs(household.getHouseholdLogs());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // ==================== 房间相关方法 ====================
 
     /**
@@ -164,13 +405,45 @@ public class HomeSphereSystem {
     public Integer createRoom(Integer householdID, String name, Double area) {
         validateHousehold(householdID);
 
-        Integer roomID = createFreeID(rooms.keySet());
-        Room room = new Room(roomID, name, area);
-        rooms.put(roomID, room);
+        Lock lock = householdLocks.get(householdID);
+        lock.lock();
+        try {
+            Room room = register(EntityType.ROOM, rooms, id -> new Room(id, name, area));
+            Integer roomID = room.getRoomID();
+            indexLogs(room.getRoomLogs());
+
+            roomToHousehold.put(roomID, householdID);
+            householdToRooms.put(householdID, roomID);
+            return roomID;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        householdToRooms.computeIfAbsent(householdID, k -> new HashSet<>()).add(roomID);
-        roomToHousehold.put(roomID, householdID);
-        return room.getRoomID();
+    /**
+     * 删除房间
+     *
+     * <p>级联删除房间内的设备（含其日志、使用记录及在本家庭场景中的引用）。</p>
+     *
+     * @param roomID 房间ID
+     * @return 删除是否成功，房间不存在时返回false
+     */
+    public boolean deleteRoom(Integer roomID) {
+        Integer householdID = lookup(roomToHousehold, roomID);
+        if (householdID == null) {
+            return false;
+        }
+        Lock lock = householdLocks.get(householdID);
+        lock.lock();
+        try {
+            if (!rooms.containsKey(roomID) || !Objects.equals(householdID, lookup(roomToHousehold, roomID))) {
+                return false;
+            }
+            dropRoom(roomID, householdID);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     // ==================== 设备相关方法 ====================
@@ -221,14 +494,115 @@ public class HomeSphereSystem {
 
         // 2. 根据设备类型创建具体设备
         Device device = createDeviceByType(deviceType, deviceID, name, OS, manufacturer,
-                power, connectMode, powerMode, customAttributes);
-
-        // 3. 记录到设备映射表
-        devices.put(deviceID, device);
+                power, connectMode, powerMode, customAttributes, true);
 
+        // 3. 记录到设备映射表，并登记到二级索引
+        publishDevice(device);
         return deviceID;
     }
 
+    /**
+     * 发布单个新设备，替换同ID的旧设备
+     *
+     * <p>旧设备已分配到某个家庭的房间时，在该家庭的锁内替换，与该家庭的移动、删除等操作互斥；
+     * 未分配的设备不属于任何家庭，与 {@link #deleteDevice} 一样不加家庭锁。</p>
+     */
+    private void publishDevice(Device device) {
+        int deviceID = device.getDeviceID();
+        device.setStateListener(deviceListener);
+        while (true) {
+            Integer roomID = lookup(deviceToRoom, deviceID);
+            Lock lock = roomID != null ? householdLocks.get(lookup(roomToHousehold, roomID)) : null;
+            if (lock != null) {
+                lock.lock();
+            }
+            try {
+                if (!Objects.equals(roomID, lookup(deviceToRoom, deviceID))) {
+                    continue; // 加锁前旧设备已被其他线程移动，重试
+                }
+                Device previous = devices.put(deviceID, device);
+                if (previous != null) {
+                    unregisterDevice(previous);
+                    energyAggregates.reset(deviceID);
+                }
+                deviceIndex.add(device);
+                indexLogs(device.getDeviceLogs());
+                return;
+            } finally {
+                if (lock != null) {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量创建设备
+     *
+     * <p>规格参数已在 {@link DeviceSpec} 构造时校验，这里只做整批校验（设备ID不能重复）。
+     * 单个设备不再记录创建日志，整批只记录一条汇总日志，新设备一次性发布到设备映射表。</p>
+     *
+     * @param specs 设备规格列表
+     * @return 按规格顺序排列的设备ID列表
+     * @throws IllegalArgumentException 如果规格列表为空、包含null或设备ID重复
+     */
+    public List<Integer> createDevices(List<DeviceSpec> specs) {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("设备规格列表不能为空");
+        }
+
+        // 1. 整批校验
+        int[] ids = new int[specs.size()];
+        IntHashSet seen = new IntHashSet(specs.size());
+        for (int i = 0; i < ids.length; i++) {
+            DeviceSpec spec = specs.get(i);
+            if (spec == null) {
+                throw new IllegalArgumentException("设备规格不能为null");
+            }
+            if (!seen.add(spec.getDeviceID())) {
+                throw new IllegalArgumentException("批次内设备ID重复: " + spec.getDeviceID());
+            }
+            ids[i] = spec.getDeviceID();
+        }
+
+        // 2. 创建设备实例，不记录单个设备的创建日志
+        List<Device> created = new ArrayList<>(ids.length);
+        for (DeviceSpec spec : specs) {
+            created.add(createDeviceByType(spec.getDeviceType(), spec.getDeviceID(), spec.getName(), spec.getOS(),
+                    spec.getManufacturer(), spec.getPower(), spec.getConnectMode(), spec.getPowerMode(),
+                    spec.getCustomAttributes(), false));
+        }
+
+        // 3. 替换已有设备的逐个在其家庭的锁内发布；其余新设备一次性发布到设备映射表（期间有同ID设备被并发创建时
+        //    改为逐个发布），登记到二级索引，并记录汇总日志
+        List<Device> fresh = new ArrayList<>(created.size());
+        for (Device device : created) {
+            if (devices.containsKey(device.getDeviceID())) {
+                publishDevice(device);
+            } else {
+                fresh.add(device);
+            }
+        }
+        int[] freshIDs = fresh.size() == ids.length ? ids : fresh.stream().mapToInt(Device::getDeviceID).toArray();
+        if (devices.putAllIfAbsent(freshIDs, fresh)) {
+            for (Device device : fresh) {
+                device.setStateListener(deviceListener);
+                indexLogs(device.getDeviceLogs());
+            }
+            deviceIndex.addAll(fresh);
+        } else {
+            fresh.forEach(this::publishDevice);
+        }
+        systemLogs.add(new Log("system", "批量创建设备：" + ids.length + "台", Log.LogType.INFO,
+                "设备ID " + ids[0] + " ~ " + ids[ids.length - 1]));
+
+        List<Integer> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
     /**
      * 添加设备到房间
      *
@@ -238,8 +612,103 @@ public class HomeSphereSystem {
      */
     public boolean addDeviceToRoom(Integer deviceID, Integer roomID) {
         validateRoom(roomID);
-        deviceToRoom.put(deviceID, roomID);
-        return true;
+        Integer householdID = lookup(roomToHousehold, roomID);
+
+        // 设备可能已分配到其他家庭的房间，需同时持有新旧两个家庭的锁
+        while (true) {
+            Integer previousRoomID = lookup(deviceToRoom, deviceID);
+            Integer previousHouseholdID = previousRoomID != null ? lookup(roomToHousehold, previousRoomID) : householdID;
+            householdLocks.lockBoth(householdID, previousHouseholdID);
+            try {
+                if (!Objects.equals(previousRoomID, lookup(deviceToRoom, deviceID))) {
+                    continue; // 加锁前设备已被其他线程重新分配，重试
+                }
+                deviceToRoom.put(deviceID, roomID);
+                if (previousRoomID != null) {
+                    unindexDevice(deviceID, previousRoomID);
+                }
+                indexDevice(deviceID, roomID);
+                return true;
+            } finally {
+                householdLocks.unlockBoth(householdID, previousHouseholdID);
+            }
+        }
+    }
+
+    /**
+     * 批量将设备分配到房间
+     *
+     * <p>先整批校验目标房间，再按目标家庭分组：每个家庭只加一次锁，每个房间的设备索引只扩容一次，
+     * 整批只记录一条汇总日志。当前位于其他家庭房间的设备需要同时锁定两个家庭，按单个设备逐一分配。</p>
+     *
+     * @param assignments 设备ID到目标房间ID的映射
+     * @return 分配的设备数量
+     * @throws IllegalArgumentException 如果映射为空、包含null或目标房间不存在
+     */
+    public int addDevicesToRoom(Map<Integer, Integer> assignments) {
+        if (assignments == null || assignments.isEmpty()) {
+            throw new IllegalArgumentException("设备分配映射不能为空");
+        }
+
+        // 1. 整批校验，并按 家庭 -> 房间 -> 设备 分组
+        Map<Integer, Map<Integer, IntHashSet>> byHousehold = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : assignments.entrySet()) {
+            Integer deviceID = entry.getKey();
+            Integer roomID = entry.getValue();
+            if (deviceID == null || roomID == null) {
+                throw new IllegalArgumentException("设备ID和房间ID不能为空");
+            }
+            Integer householdID = lookup(roomToHousehold, roomID);
+            if (householdID == null || !rooms.containsKey(roomID)) {
+                throw new IllegalArgumentException("房间不存在");
+            }
+            byHousehold.computeIfAbsent(householdID, h -> new HashMap<>())
+                    .computeIfAbsent(roomID, r -> new IntHashSet())
+                    .add(deviceID);
+        }
+        deviceToRoom.ensureCapacity(deviceToRoom.size() + assignments.size());
+
+        // 2. 逐个家庭加锁批量分配
+        Map<Integer, Integer> crossHousehold = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, IntHashSet>> household : byHousehold.entrySet()) {
+            Integer householdID = household.getKey();
+            Lock lock = householdLocks.get(householdID);
+            lock.lock();
+            try {
+                for (Map.Entry<Integer, IntHashSet> room : household.getValue().entrySet()) {
+                    int roomID = room.getKey();
+                    int[] placed = new int[room.getValue().size()];
+                    int[] count = {0};
+                    room.getValue().forEach(deviceID -> {
+                        Integer previousRoomID = lookup(deviceToRoom, deviceID);
+                        if (previousRoomID != null
+                                && !householdID.equals(lookup(roomToHousehold, previousRoomID))) {
+                            crossHousehold.put(deviceID, roomID);
+                            return;
+                        }
+                        deviceToRoom.put(deviceID, roomID);
+                        if (previousRoomID != null) {
+                            unindexDevice(deviceID, previousRoomID);
+                        }
+                        energyAggregates.assign(deviceID, roomID, householdID);
+                        placed[count[0]++] = deviceID;
+                    });
+                    int[] batch = Arrays.copyOf(placed, count[0]);
+                    roomToDevices.putAll(roomID, batch);
+                    householdToDevices.putAll(householdID, batch);
+                    deviceIndex.assignHousehold(householdID, batch);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 3. 跨家庭移动的设备逐一分配
+        crossHousehold.forEach(this::addDeviceToRoom);
+
+        systemLogs.add(new Log("system", "批量分配设备：" + assignments.size() + "台", Log.LogType.INFO,
+                "涉及" + byHousehold.size() + "个家庭"));
+        return assignments.size();
     }
 
     /**
@@ -262,46 +731,91 @@ public class HomeSphereSystem {
             throw new IllegalArgumentException("设备不存在！");
         }
 
-        // 3. 验证设备当前所在房间
-        Integer currentRoomID = deviceToRoom.get(deviceID);
-        if (currentRoomID == null) {
-            throw new IllegalArgumentException("设备未分配到任何房间！");
-        }
-
-        // 4. 验证目标房间存在
+        // 3. 验证目标房间存在
         Room targetRoom = rooms.get(targetRoomID);
         if (targetRoom == null) {
             throw new IllegalArgumentException("目标房间不存在！");
         }
 
-        // 5. 验证源房间和目标房间属于同一个家庭
-        Integer sourceHouseholdID = roomToHousehold.get(currentRoomID);
-        Integer targetHouseholdID = roomToHousehold.get(targetRoomID);
+        // 4. 锁定目标房间所在家庭，后续校验与移动在锁内完成
+        Integer targetHouseholdID = lookup(roomToHousehold, targetRoomID);
+        Lock lock = householdLocks.get(targetHouseholdID);
+        lock.lock();
+        try {
+            // 5. 验证设备当前所在房间
+            Integer currentRoomID = lookup(deviceToRoom, deviceID);
+            if (currentRoomID == null) {
+                throw new IllegalArgumentException("设备未分配到任何房间！");
+            }
 
-        if (!Objects.equals(sourceHouseholdID, targetHouseholdID)) {
-            throw new IllegalArgumentException("只能在同一家庭内的房间之间移动设备！");
-        }
+            // 6. 验证源房间和目标房间属于同一个家庭
+            Integer sourceHouseholdID = lookup(roomToHousehold, currentRoomID);
+            if (!Objects.equals(sourceHouseholdID, targetHouseholdID)) {
+                throw new IllegalArgumentException("只能在同一家庭内的房间之间移动设备！");
+            }
 
-        // 6. 验证操作者权限
-        Set<Integer> householdUsers = householdToUsers.get(sourceHouseholdID);
-        if (householdUsers == null || !householdUsers.contains(operatorUserID)) {
-            throw new IllegalArgumentException("权限不足：只有家庭成员方可移动设备！");
-        }
+            // 7. 验证操作者权限
+            if (sourceHouseholdID == null || !householdToUsers.contains(sourceHouseholdID, operatorUserID)) {
+                throw new IllegalArgumentException("权限不足：只有家庭成员方可移动设备！");
+            }
 
-        // 7. 执行设备移动操作
-        try {
-            // 更新设备到房间的映射
-            deviceToRoom.put(deviceID, targetRoomID);
+            // 8. 执行设备移动操作
+            try {
+                // 更新设备到房间的映射
+                deviceToRoom.put(deviceID, targetRoomID);
+                unindexDevice(deviceID, currentRoomID);
+                indexDevice(deviceID, targetRoomID);
 
-            // 记录操作日志
-            System.out.println("设备 " + deviceID + " 从房间 " + currentRoomID + " 移动到房间 " + targetRoomID);
+                // 记录操作日志
+                System.out.println("设备 " + deviceID + " 从房间 " + currentRoomID + " 移动到房间 " + targetRoomID);
 
-            return true;
+                return true;
 
-        } catch (Exception e) {
-            System.err.println("移动设备失败: " + e.getMessage());
+            } catch (Exception e) {
+                System.err.println("移动设备失败: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除设备
+     *
+     * <p>解除设备与房间、家庭的关系，从所在家庭的场景中移除该设备，并清除设备日志和使用记录。</p>
+     *
+     * @param deviceID 设备ID
+     * @return 删除是否成功，设备不存在时返回false
+     */
+    public boolean deleteDevice(Integer deviceID) {
+        if (deviceID == null) {
             return false;
         }
+        while (true) {
+            Integer roomID = lookup(deviceToRoom, deviceID);
+            if (roomID == null) {
+                // 未分配到房间的设备不属于任何家庭
+                Device device = devices.remove(deviceID);
+                if (device == null) {
+                    return false;
+                }
+                purgeDevice(device);
+                return true;
+            }
+
+            Integer householdID = lookup(roomToHousehold, roomID);
+            Lock lock = householdLocks.get(householdID);
+            lock.lock();
+            try {
+                if (!Objects.equals(roomID, lookup(deviceToRoom, deviceID))) {
+                    continue; // 加锁前设备已被其他线程移动，重试
+                }
+                return dropDevice(deviceID, roomID, householdID);
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     // ==================== 自动化场景相关方法 ====================
@@ -317,14 +831,20 @@ public class HomeSphereSystem {
     public Integer createAutomationScene(Integer householdId, String name, String description) {
         validateHousehold(householdId);
 
-        AutomationScene scene = new AutomationScene(createFreeID(automationScenes.keySet()), name, description);
-        automationScenes.put(scene.getSceneId(), scene);
+        Lock lock = householdLocks.get(householdId);
+        lock.lock();
+        try {
+            AutomationScene scene = register(EntityType.SCENE, automationScenes,
+                    id -> new AutomationScene(id, name, description));
 
-        // 建立场景与家庭的映射关系
-        householdToScenes.computeIfAbsent(householdId, k -> new HashSet<>()).add(scene.getSceneId());
-        sceneToHousehold.put(scene.getSceneId(), householdId);
+            // 建立场景与家庭的映射关系
+            sceneToHousehold.put(scene.getSceneId(), householdId);
+            householdToScenes.put(householdId, scene.getSceneId());
 
-        return scene.getSceneId();
+            return scene.getSceneId();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -345,25 +865,28 @@ public class HomeSphereSystem {
      * @return 删除是否成功
      */
     public boolean deleteAutomationScene(Integer sceneId) {
-        if (!automationScenes.containsKey(sceneId)) {
-            return false;
+        Integer householdId = lookup(sceneToHousehold, sceneId);
+        if (householdId == null) {
+            return automationScenes.remove(sceneId) != null;
         }
 
-        // 移除场景与家庭的映射关系
-        Integer householdId = sceneToHousehold.remove(sceneId);
-        if (householdId != null) {
-            Set<Integer> householdScenes = householdToScenes.get(householdId);
-            if (householdScenes != null) {
-                householdScenes.remove(sceneId);
-                if (householdScenes.isEmpty()) {
-                    householdToScenes.remove(householdId);
-                }
+        Lock lock = householdLocks.get(householdId);
+        lock.lock();
+        try {
+            if (!automationScenes.containsKey(sceneId)) {
+                return false;
             }
-        }
 
-        // 移除场景数据
-        automationScenes.remove(sceneId);
-        return true;
+            // 移除场景与家庭的映射关系
+            sceneToHousehold.remove(sceneId);
+            householdToScenes.remove(householdId, sceneId);
+
+            // 移除场景数据
+            automationScenes.remove(sceneId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -383,11 +906,7 @@ public class HomeSphereSystem {
      * @return 自动化场景集合
      */
     public Set<AutomationScene> getAutomationScenesByHousehold(Integer householdId) {
-        Set<Integer> sceneIds = householdToScenes.getOrDefault(householdId, Collections.emptySet());
-        return sceneIds.stream()
-                .map(automationScenes::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return resolve(householdToScenes.get(householdId), automationScenes);
     }
 
     /**
@@ -397,7 +916,7 @@ public class HomeSphereSystem {
      * @return 家庭对象
      */
     public Household getHouseholdByScene(Integer sceneId) {
-        Integer householdId = sceneToHousehold.get(sceneId);
+        Integer householdId = lookup(sceneToHousehold, sceneId);
         return householdId != null ? households.get(householdId) : null;
     }
 
@@ -409,7 +928,7 @@ public class HomeSphereSystem {
      * @return 如果场景属于该家庭返回true，否则返回false
      */
     public boolean isSceneInHousehold(Integer sceneId, Integer householdId) {
-        Integer actualHouseholdId = sceneToHousehold.get(sceneId);
+        Integer actualHouseholdId = lookup(sceneToHousehold, sceneId);
         return Objects.equals(actualHouseholdId, householdId);
     }
 
@@ -420,8 +939,7 @@ public class HomeSphereSystem {
      * @return 自动化场景数量
      */
     public int countAutomationScenesByHousehold(Integer householdId) {
-        Set<Integer> householdScenes = householdToScenes.get(householdId);
-        return householdScenes != null ? householdScenes.size() : 0;
+        return householdToScenes.size(householdId);
     }
 
     // ==================== 关系管理方法 ====================
@@ -434,47 +952,58 @@ public class HomeSphereSystem {
      * @param householdId 要关联的家庭ID
      */
     public void createRelations(Integer operatorID, Integer userId, Integer householdId) {
-        if (!users.containsKey(userId) || !households.containsKey(householdId)) {
+        if (userId == null || householdId == null) {
             throw new IllegalArgumentException("用户或家庭不存在");
         }
-        if(!households.get(householdId).getAdministratorID().equals(operatorID)){
-            throw new IllegalArgumentException("操作者权限不足");
-        }
 
-        userToHouseholds.computeIfAbsent(userId, k -> new HashSet<>()).add(householdId);
-        householdToUsers.computeIfAbsent(householdId, k -> new HashSet<>()).add(userId);
+        Lock lock = householdLocks.get(householdId);
+        lock.lock();
+        try {
+            // 在家庭锁内核对，与deleteUser、deleteHousehold互斥，不会为已删除的用户或家庭写入关系
+            Household household = households.get(householdId);
+            if (household == null || !users.containsKey(userId)) {
+                throw new IllegalArgumentException("用户或家庭不存在");
+            }
+            if (!household.getAdministratorID().equals(operatorID)) {
+                throw new IllegalArgumentException("操作者权限不足");
+            }
+            userToHouseholds.put(userId, householdId);
+            householdToUsers.put(householdId, userId);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * 从家庭中移除用户
      *
+     * <p>家庭管理员不能被移除：对管理员调用时不做任何修改并返回false，需要删除家庭或删除该用户。</p>
+     *
      * @param userId 用户ID
      * @param householdId 家庭ID
-     * @return 移除是否成功
+     * @return 移除是否成功，用户不在家庭中或是该家庭的管理员时返回false
      */
     public boolean removeUserFromHousehold(Integer userId, Integer householdId) {
-        boolean removedFromUser = false;
-        boolean removedFromHousehold = false;
-
-        // 从用户的家庭集合中删除
-        Set<Integer> userHouseholds = userToHouseholds.get(userId);
-        if (userHouseholds != null) {
-            removedFromUser = userHouseholds.remove(householdId);
-            if (userHouseholds.isEmpty()) {
-                userToHouseholds.remove(userId);
-            }
+        if (userId == null || householdId == null) {
+            return false;
         }
-
-        // 从家庭的用户集合中删除
-        Set<Integer> householdUsers = householdToUsers.get(householdId);
-        if (householdUsers != null) {
-            removedFromHousehold = householdUsers.remove(userId);
-            if (householdUsers.isEmpty()) {
-                householdToUsers.remove(householdId);
+        Lock lock = householdLocks.get(householdId);
+        lock.lock();
+        try {
+            Household household = households.get(householdId);
+            if (household != null && household.getAdministratorID().equals(userId)) {
+                return false;
             }
-        }
+            // 从用户的家庭集合中删除
+            boolean removedFromUser = userToHouseholds.remove(userId, householdId);
+
+            // 从家庭的用户集合中删除
+            boolean removedFromHousehold = householdToUsers.remove(householdId, userId);
 
-        return removedFromUser || removedFromHousehold;
+            return removedFromUser || removedFromHousehold;
+        } finally {
+            lock.unlock();
+        }
     }
 
     // ==================== 查询方法 ====================
@@ -526,11 +1055,7 @@ public class HomeSphereSystem {
      * @return 家庭集合
      */
     public Set<Household> getHouseholdsByUser(Integer userId) {
-        Set<Integer> householdIds = userToHouseholds.getOrDefault(userId, Collections.emptySet());
-        return householdIds.stream()
-                .map(households::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return resolve(userToHouseholds.get(userId), households);
     }
 
     /**
@@ -540,11 +1065,7 @@ public class HomeSphereSystem {
      * @return 用户集合
      */
     public Set<User> getUsersByHousehold(Integer householdId) {
-        Set<Integer> userIds = householdToUsers.getOrDefault(householdId, Collections.emptySet());
-        return userIds.stream()
-                .map(users::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return resolve(householdToUsers.get(householdId), users);
     }
 
     /**
@@ -554,11 +1075,7 @@ public class HomeSphereSystem {
      * @return 房间集合
      */
     public Set<Room> getRoomsByHousehold(Integer householdID) {
-        Set<Integer> roomIDs = householdToRooms.getOrDefault(householdID, Collections.emptySet());
-        return roomIDs.stream()
-                .map(rooms::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return resolve(householdToRooms.get(householdID), rooms);
     }
 
     /**
@@ -568,7 +1085,7 @@ public class HomeSphereSystem {
      * @return 家庭对象
      */
     public Household getHouseholdByRoom(Integer roomID) {
-        Integer householdID = roomToHousehold.get(roomID);
+        Integer householdID = lookup(roomToHousehold, roomID);
         return householdID != null ? households.get(householdID) : null;
     }
 
@@ -579,9 +1096,61 @@ public class HomeSphereSystem {
      * @return 设备集合
      */
     public Set<Device> getDevicesByRoom(Integer roomID) {
-        return devices.values().stream()
-                .filter(device -> roomID.equals(deviceToRoom.get(device.getDeviceID())))
-                .collect(Collectors.toSet());
+        return resolve(roomToDevices.get(roomID), devices);
+    }
+
+    /**
+     * 获取家庭内设备
+     *
+     * @param householdID 家庭ID
+     * @return 设备集合
+     */
+    public Set<Device> getDevicesByHousehold(Integer householdID) {
+        return resolve(householdToDevices.get(householdID), devices);
+    }
+
+    /**
+     * 创建设备组合查询
+     *
+     * <p>查询基于设备二级索引与房间、家庭关系表求交集，例如查询某家庭内所有离线的ZigBee设备：</p>
+     * <pre>
+     * system.queryDevices()
+     *       .inHousehold(householdID)
+     *       .connectMode(Device.ConnectMode.ZIGBEE)
+     *       .onlineStatus(Device.OnlineStatusType.OUTLINE)
+     *       .list();
+     * </pre>
+     *
+     * @return 新的查询对象
+     */
+    public DeviceQuery queryDevices() {
+        return deviceIndex.query(householdToDevices, roomToDevices, devices::get);
+    }
+
+    /**
+     * 统计指定在线状态的设备数量
+     *
+     * <p>基于压缩位图索引计算家庭位图与状态位图的交集基数，不访问设备对象。</p>
+     *
+     * @param householdID 家庭ID，为null时统计全部设备
+     * @param status 在线状态
+     * @return 设备数量
+     */
+    public int countDevices(Integer householdID, Device.OnlineStatusType status) {
+        return householdID != null ? deviceIndex.count(householdID, status) : deviceIndex.count(status);
+    }
+
+    /**
+     * 统计指定电源状态的设备数量
+     *
+     * <p>基于压缩位图索引计算家庭位图与状态位图的交集基数，不访问设备对象。</p>
+     *
+     * @param householdID 家庭ID，为null时统计全部设备
+     * @param status 电源状态
+     * @return 设备数量
+     */
+    public int countDevices(Integer householdID, Device.PowerStatusType status) {
+        return householdID != null ? deviceIndex.count(householdID, status) : deviceIndex.count(status);
     }
 
     /**
@@ -591,7 +1160,7 @@ public class HomeSphereSystem {
      * @return 房间对象
      */
     public Room getRoomByDevice(Integer deviceID) {
-        Integer roomID = deviceToRoom.get(deviceID);
+        Integer roomID = lookup(deviceToRoom, deviceID);
         return roomID != null ? rooms.get(roomID) : null;
     }
 
@@ -605,8 +1174,7 @@ public class HomeSphereSystem {
      * @return 如果用户在家庭中返回true，否则返回false
      */
     public boolean isUserInHousehold(Integer userId, Integer householdId) {
-        Set<Integer> userHouseholds = userToHouseholds.get(userId);
-        return userHouseholds != null && userHouseholds.contains(householdId);
+        return userToHouseholds.contains(userId, householdId);
     }
 
     /**
@@ -616,8 +1184,7 @@ public class HomeSphereSystem {
      * @return 家庭数量
      */
     public int countHouseholdsByUser(Integer userId) {
-        Set<Integer> userHouseholds = userToHouseholds.get(userId);
-        return userHouseholds != null ? userHouseholds.size() : 0;
+        return userToHouseholds.size(userId);
     }
 
     /**
@@ -627,8 +1194,185 @@ public class HomeSphereSystem {
      * @return 用户数量
      */
     public int countUsersByHousehold(Integer householdId) {
-        Set<Integer> householdUsers = householdToUsers.get(householdId);
-        return householdUsers != null ? householdUsers.size() : 0;
+        return householdToUsers.size(householdId);
+    }
+
+    // ==================== 能耗统计方法 ====================
+
+    /**
+     * 计算房间内设备在时间段内的用电量
+     *
+     * <p>起止时间都为null时直接读取能耗汇总（O(1)）；否则累加房间内每台设备的累计能耗索引查询结果，
+     * 每台设备为O(log n)。两种方式都按设备当前所在的房间统计：设备移动后，其全部历史能耗计入新房间。
+     * 需要按能耗发生时所在房间统计时使用 {@link #getRoomEnergySeries}。</p>
+     *
+     * @param roomID 房间ID
+     * @param startTime 起始时间，为null表示不限
+     * @param endTime 结束时间，为null表示不限
+     * @return 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     * @throws IllegalArgumentException 如果房间不存在
+     */
+    public double getRoomEnergy(Integer roomID, LocalDateTime startTime, LocalDateTime endTime) {
+        if (roomID == null || !rooms.containsKey(roomID)) {
+            throw new IllegalArgumentException("房间不存在！");
+        }
+        if (startTime == null && endTime == null) {
+            return energyAggregates.roomTotal(roomID);
+        }
+        return sumEnergy(roomToDevices.get(roomID), startTime, endTime);
+    }
+
+    /**
+     * 计算家庭内设备在时间段内的用电量
+     *
+     * <p>起止时间都为null时直接读取能耗汇总（O(1)）；否则累加家庭内每台设备的累计能耗索引查询结果。
+     * 与 {@link #getRoomEnergy} 相同，按设备当前所在的家庭统计。</p>
+     *
+     * @param householdID 家庭ID
+     * @param startTime 起始时间，为null表示不限
+     * @param endTime 结束时间，为null表示不限
+     * @return 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     * @throws IllegalArgumentException 如果家庭不存在
+     */
+    public double getHouseholdEnergy(Integer householdID, LocalDateTime startTime, LocalDateTime endTime) {
+        if (householdID == null || !households.containsKey(householdID)) {
+            throw new IllegalArgumentException("家庭不存在！");
+        }
+        if (startTime == null && endTime == null) {
+            return energyAggregates.householdTotal(householdID);
+        }
+        return sumEnergy(householdToDevices.get(householdID), startTime, endTime);
+    }
+
+    /**
+     * 获取房间今日用电量，直接读取能耗汇总（O(1)）
+     *
+     * @param roomID 房间ID
+     * @return 今日用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     */
+    public double getRoomEnergyToday(Integer roomID) {
+        return energyAggregates.roomToday(roomID);
+    }
+
+    /**
+     * 获取家庭今日用电量，直接读取能耗汇总（O(1)），用于首页"今日用电"卡片
+     *
+     * @param householdID 家庭ID
+     * @return 今日用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     */
+    public double getHouseholdEnergyToday(Integer householdID) {
+        return energyAggregates.householdToday(householdID);
+    }
+
+    /**
+     * 获取房间的实时负载，直接读取维护的计数（O(1)）
+     *
+     * @param roomID 房间ID
+     * @return 房间内开启设备的功率之和，单位：瓦特(W)；电池设备不计入
+     */
+    public double getRoomLoad(Integer roomID) {
+        return energyAggregates.roomLoad(roomID);
+    }
+
+    /**
+     * 获取家庭的实时负载，直接读取维护的计数（O(1)）
+     *
+     * @param householdID 家庭ID
+     * @return 家庭内开启设备的功率之和，单位：瓦特(W)；电池设备不计入
+     */
+    public double getHouseholdLoad(Integer householdID) {
+        return energyAggregates.householdLoad(householdID);
+    }
+
+    /**
+     * 获取系统内全部设备的实时负载，直接读取维护的计数（O(1)）
+     *
+     * @return 开启设备的功率之和，单位：瓦特(W)；电池设备不计入
+     */
+    public double getFleetLoad() {
+        return energyAggregates.fleetLoad();
+    }
+
+    /**
+     * 获取房间当前设备至今的用电量，包括开启中尚未关闭的使用（O(1)）
+     *
+     * @param roomID 房间ID
+     * @return 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     */
+    public double getRoomLiveEnergy(Integer roomID) {
+        return energyAggregates.roomLiveEnergy(roomID);
+    }
+
+    /**
+     * 获取家庭当前设备至今的用电量，包括开启中尚未关闭的使用（O(1)）
+     *
+     * @param householdID 家庭ID
+     * @return 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     */
+    public double getHouseholdLiveEnergy(Integer householdID) {
+        return energyAggregates.householdLiveEnergy(householdID);
+    }
+
+    /**
+     * 获取系统内全部设备至今的用电量，包括开启中尚未关闭的使用（O(1)）
+     *
+     * @return 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     */
+    public double getFleetLiveEnergy() {
+        return energyAggregates.fleetLiveEnergy();
+    }
+
+    /**
+     * 查询房间的能耗序列，用于按小时、天等粒度绘制用电曲线
+     *
+     * <p>序列按能耗发生时设备所在的房间记录，每个桶从保留了它的最粗级别读取，
+     * 所有级别都已淘汰的桶为 {@link Double#NaN}。</p>
+     *
+     * @param roomID 房间ID
+     * @param startTime 起始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @param resolution 查询粒度
+     * @return 桶起始时间 -> 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     * @throws IllegalArgumentException 如果房间不存在或查询参数无效
+     */
+    public NavigableMap<LocalDateTime, Double> getRoomEnergySeries(Integer roomID, LocalDateTime startTime,
+                                                                   LocalDateTime endTime,
+                                                                   EnergyRollup.Resolution resolution) {
+        if (roomID == null || !rooms.containsKey(roomID)) {
+            throw new IllegalArgumentException("房间不存在！");
+        }
+        return energyAggregates.roomSeries(roomID, startTime, endTime, resolution);
+    }
+
+    /**
+     * 查询家庭的能耗序列，用于按小时、天等粒度绘制用电曲线
+     *
+     * @param householdID 家庭ID
+     * @param startTime 起始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @param resolution 查询粒度
+     * @return 桶起始时间 -> 用电量，单位与 {@link Device#calculatePowerConsumption} 相同
+     * @throws IllegalArgumentException 如果家庭不存在或查询参数无效
+     * @see #getRoomEnergySeries
+     */
+    public NavigableMap<LocalDateTime, Double> getHouseholdEnergySeries(Integer householdID, LocalDateTime startTime,
+                                                                        LocalDateTime endTime,
+                                                                        EnergyRollup.Resolution resolution) {
+        if (householdID == null || !households.containsKey(householdID)) {
+            throw new IllegalArgumentException("家庭不存在！");
+        }
+        return energyAggregates.householdSeries(householdID, startTime, endTime, resolution);
+    }
+
+    /**
+     * 设置能耗序列某一级别保留的桶数
+     *
+     * @param resolution 级别
+     * @param buckets 保留桶数，必须大于0
+     * @throws IllegalArgumentException 如果保留桶数不大于0
+     */
+    public void setEnergyRollupRetention(EnergyRollup.Resolution resolution, int buckets) {
+        energyAggregates.setRollupRetention(resolution, buckets);
     }
 
     // ==================== 日志相关方法 ====================
@@ -639,7 +1383,7 @@ public class HomeSphereSystem {
      * @return 设备日志集合
      */
     public Set<Log> getAllDeviceLogs(){
-        return devices.values().stream().map(Device::getDeviceLogs).flatMap(Set::stream)
+        return devices.values().stream().map(Device::getDeviceLogs).flatMap(LogStore::stream)
                 .collect(Collectors.toSet());
     }
 
@@ -649,7 +1393,7 @@ public class HomeSphereSystem {
      * @return 用户日志集合
      */
     public Set<Log> getAllUserLogs(){
-        return users.values().stream().map(User::getUserLogs).flatMap(Set::stream)
+        return users.values().stream().map(User::getUserLogs).flatMap(LogStore::stream)
                 .collect(Collectors.toSet());
     }
 
@@ -659,7 +1403,7 @@ public class HomeSphereSystem {
      * @return 房间日志集合
      */
     public Set<Log> getAllRoomLogs(){
-        return rooms.values().stream().map(Room::getRoomLogs).flatMap(Set::stream)
+        return rooms.values().stream().map(Room::getRoomLogs).flatMap(LogStore::stream)
                 .collect(Collectors.toSet());
     }
 
@@ -669,45 +1413,314 @@ public class HomeSphereSystem {
      * @return 家庭日志集合
      */
     public Set<Log> getAllHouseholdLogs(){
-        return households.values().stream().map(Household::getHouseholdLogs).flatMap(Set::stream)
+        return households.values().stream().map(Household::getHouseholdLogs).flatMap(LogStore::stream)
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * 创建全局日志查询
+     *
+     * <p>查询对设备、用户、房间和家庭的日志存储做惰性的多路归并，结果按时间排序，
+     * 支持按实体类型、日志类型、执行者和时间范围过滤以及分页。例如查询最近100条错误日志：</p>
+     * <pre>
+     * system.queryLogs()
+     *       .logTypes(Log.LogType.ERROR)
+     *       .newestFirst()
+     *       .limit(100)
+     *       .list();
+     * </pre>
+     *
+     * @return 新的查询对象
+     */
+    public LogQuery queryLogs() {
+        Map<EntityType, Iterable<LogStore>> sources = new EnumMap<>(EntityType.class);
+        sources.put(EntityType.DEVICE, () -> devices.values().stream().map(Device::getDeviceLogs).iterator());
+        sources.put(EntityType.USER, () -> users.values().stream().map(User::getUserLogs).iterator());
+        sources.put(EntityType.ROOM, () -> rooms.values().stream().map(Room::getRoomLogs).iterator());
+        sources.put(EntityType.HOUSEHOLD,
+                () -> households.values().stream().map(Household::getHouseholdLogs).iterator());
+        return new LogQuery(sources);
+    }
+
+    /**
+     * 启用日志全文检索
+     *
+     * <p>创建本系统持有的 {@link LogSearchIndex}，并将本系统中已有实体的日志存储加入索引；
+     * 此后新建实体的日志存储也会加入，删除的实体从索引中移除，其他系统实例的日志不会进入索引。
+     * 已启用时返回当前索引。</p>
+     *
+     * @return 本系统的索引
+     */
+    public synchronized LogSearchIndex enableLogSearch() {
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            return index;
+        }
+        index = new LogSearchIndex();
+        // 先发布再加入已有实体：并发新建的实体要么在遍历时已可见，要么创建时读到已发布的索引，重复加入会被忽略
+        logSearchIndex = index;
+        forEachLogStore(index::addAll);
+        return index;
+    }
+
+    /**
+     * 停用日志全文检索，本系统的日志存储从索引中移除，此后检索改为逐条扫描
+     */
+    public synchronized void disableLogSearch() {
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            logSearchIndex = null;
+            forEachLogStore(index::removeAll);
+        }
+    }
+
+    /**
+     * 检索事件或备注中同时包含全部关键词的实体日志
+     *
+     * <p>已启用日志检索时通过本系统的 {@link LogSearchIndex} 检索，否则逐条扫描本系统的实体日志；
+     * 两种方式的结果都只包含本系统实体的日志。</p>
+     *
+     * @param terms 关键词，例如设备名称、"断开电源"或设备ID，英文字母不区分大小写
+     * @return 匹配的日志
+     */
+    public List<Log> searchLogs(String... terms) {
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            return index.search(terms);
+        }
+        if (terms.length == 0) {
+            throw new IllegalArgumentException("检索关键词不能为空");
+        }
+        return queryLogs().stream()
+                .filter(log -> Arrays.stream(terms).map(term -> term.toLowerCase(Locale.ROOT)).allMatch(
+                        term -> log.getEvent().toLowerCase(Locale.ROOT).contains(term)
+                                || log.getRemarks().toLowerCase(Locale.ROOT).contains(term)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取系统级日志
+     *
+     * @return 系统日志列表，按记录顺序排列
+     */
+    public List<Log> getSystemLogs() {
+        return new ArrayList<>(systemLogs);
+    }
+
     // ==================== 私有方法 ====================
 
+    /**
+     * 删除用户时将其移出一个家庭；在家庭锁内发现用户是管理员时改为删除该家庭
+     */
+    private void leaveHousehold(Integer userID, int householdID) {
+        Lock lock = householdLocks.get(householdID);
+        lock.lock();
+        try {
+            Household household = households.get(householdID);
+            if (household != null && household.getAdministratorID().equals(userID)) {
+                deleteHousehold(householdID);
+                return;
+            }
+            userToHouseholds.remove(userID, householdID);
+            householdToUsers.remove(householdID, userID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 将设备登记到房间及其所属家庭的设备索引中
+     */
+    private void indexDevice(Integer deviceID, Integer roomID) {
+        roomToDevices.put(roomID, deviceID);
+        int householdID = roomToHousehold.get(roomID);
+        if (householdID != ConcurrentIntIntMap.NO_VALUE) {
+            householdToDevices.put(householdID, deviceID);
+            deviceIndex.assignHousehold(householdID, deviceID);
+        }
+        energyAggregates.assign(deviceID, roomID,
+                householdID != ConcurrentIntIntMap.NO_VALUE ? householdID : null);
+    }
+
+    /**
+     * 从房间及其所属家庭的设备索引中移除设备
+     */
+    private void unindexDevice(Integer deviceID, Integer roomID) {
+        roomToDevices.remove(roomID, deviceID);
+        int householdID = roomToHousehold.get(roomID);
+        if (householdID != ConcurrentIntIntMap.NO_VALUE) {
+            householdToDevices.remove(householdID, deviceID);
+            deviceIndex.unassignHousehold(householdID, deviceID);
+        }
+        energyAggregates.unassign(deviceID);
+    }
+
+    /**
+     * 删除房间及其设备（调用方需持有家庭锁）
+     */
+    private void dropRoom(int roomID, Integer householdID) {
+        for (int deviceID : roomToDevices.get(roomID)) {
+            dropDevice(deviceID, roomID, householdID);
+        }
+        roomToHousehold.remove(roomID);
+        householdToRooms.remove(householdID, roomID);
+        energyAggregates.removeRoom(roomID);
+        Room room = rooms.remove(roomID);
+        if (room != null) {
+            discardLogs(room.getRoomLogs());
+        }
+    }
+
+    /**
+     * 删除已分配到房间的设备（调用方需持有家庭锁）
+     *
+     * @return 设备是否存在
+     */
+    private boolean dropDevice(int deviceID, int roomID, Integer householdID) {
+        deviceToRoom.remove(deviceID);
+        unindexDevice(deviceID, roomID);
+        Device device = devices.remove(deviceID);
+        if (device == null) {
+            return false;
+        }
+        if (householdID != null) {
+            for (int sceneID : householdToScenes.get(householdID)) {
+                AutomationScene scene = automationScenes.get(sceneID);
+                if (scene != null) {
+                    scene.removeDevice(device);
+                }
+            }
+        }
+        purgeDevice(device);
+        return true;
+    }
+
+    /**
+     * 清除已删除设备的索引项、日志和使用记录
+     */
+    private void purgeDevice(Device device) {
+        unregisterDevice(device);
+        deviceIndex.release(device.getDeviceID());
+        energyAggregates.remove(device.getDeviceID());
+        discardLogs(device.getDeviceLogs());
+        device.getDeviceUsages().clear();
+    }
+
+    /**
+     * 从二级索引中注销设备，并停止接收其状态变化
+     */
+    private void unregisterDevice(Device device) {
+        device.setStateListener(null);
+        deviceIndex.remove(device);
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            index.removeAll(device.getDeviceLogs());
+        }
+    }
+
+    /**
+     * 已启用日志检索时将新实体的日志存储加入索引
+     */
+    private void indexLogs(LogStore logs) {
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            index.addAll(logs);
+        }
+    }
+
+    /**
+     * 清空已删除实体的日志，并从日志检索索引中移除其日志存储
+     */
+    private void discardLogs(LogStore logs) {
+        logs.clear();
+        LogSearchIndex index = logSearchIndex;
+        if (index != null) {
+            index.removeAll(logs);
+        }
+    }
+
+    /**
+     * 遍历本系统全部实体的日志存储
+     */
+    private void forEachLogStore(Consumer<LogStore> action) {
+        devices.values().forEach(device -> action.accept(device.getDeviceLogs()));
+        users.values().forEach(user -> action.accept(user.getUserLogs()));
+        rooms.values().forEach(room -> action.accept(room.getRoomLogs()));
+        households.values().forEach(household -> action.accept(household.getHouseholdLogs()));
+    }
+
+    /**
+     * 在一对一关系表中查找，键为null或不存在时返回null
+     */
+    private static Integer lookup(ConcurrentIntIntMap relation, Integer key) {
+        if (key == null) {
+            return null;
+        }
+        int value = relation.get(key);
+        return value != ConcurrentIntIntMap.NO_VALUE ? value : null;
+    }
+
+    /**
+     * 将关系表中的ID数组解析为实体集合，忽略已不存在的实体
+     */
+    private static <T> Set<T> resolve(int[] ids, VersionedIntMap<T> registry) {
+        Set<T> result = new HashSet<>(Math.max(4, ids.length * 4 / 3 + 1));
+        for (int id : ids) {
+            T entity = registry.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 以新分配的ID创建实体并登记到数据映射表
+     *
+     * @throws IllegalStateException 如果分配出的ID已被占用（分配器配置错误）
+     */
+    private <T> T register(EntityType type, VersionedIntMap<T> registry, IntFunction<T> factory) {
+        int id = idAllocators.of(type).nextId();
+        T entity = factory.apply(id);
+        if (registry.putIfAbsent(id, entity) != null) {
+            throw new IllegalStateException(type.getDisplayName() + "ID冲突: " + id);
+        }
+        return entity;
+    }
+
     /**
      * 根据设备类型创建具体设备实例
      */
     private Device createDeviceByType(DeviceType deviceType, Integer deviceID, String name, String OS,
                                       Manufacturer manufacturer, double power,
                                       Device.ConnectMode connectMode, Device.PowerMode powerMode,
-                                      Set<DeviceAttribute<?>> customAttributes) {
+                                      Set<DeviceAttribute<?>> customAttributes, boolean logCreation) {
 
         String brand = manufacturer.getName();
 
         switch (deviceType) {
             case AIR_CONDITIONER:
                 return new AirConditioner(deviceID, name, OS, manufacturer, brand,
-                        connectMode, powerMode, power);
+                        connectMode, powerMode, power, logCreation);
 
             case LIGHT_BULB:
                 return new LightBulb(deviceID, name, OS, manufacturer, brand,
-                        connectMode, powerMode, power);
+                        connectMode, powerMode, power, logCreation);
 
             case SMART_LOCK:
                 return new SmartLock(deviceID, name, OS, manufacturer, brand,
-                        connectMode, powerMode, power);
+                        connectMode, powerMode, power, logCreation);
 
             case BATHROOM_SCALE:
                 return new BathroomScale(deviceID, name, OS, manufacturer, brand,
-                        connectMode, powerMode, power);
+                        connectMode, powerMode, power, logCreation);
 
             case UNDEFINED:
                 if (customAttributes == null || customAttributes.isEmpty()) {
                     throw new IllegalArgumentException("UndefinedDevice必须提供自定义属性");
                 }
                 return new UndefinedDevice(deviceID, name, OS, manufacturer, brand,
-                        connectMode, powerMode, power, customAttributes);
+                        connectMode, powerMode, power, customAttributes, logCreation);
 
             default:
                 throw new IllegalArgumentException("不支持的设备类型: " + deviceType);
@@ -741,25 +1754,68 @@ public class HomeSphereSystem {
         }
     }
 
-    // ==================== Getter方法 ====================
+    /**
+     * 累加一组设备在时间段内的用电量，起止时间为null时不限
+     */
+    private double sumEnergy(int[] deviceIDs, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime from = startTime != null ? startTime : LocalDateTime.MIN;
+        LocalDateTime to = endTime != null ? endTime : LocalDateTime.MAX;
+        double total = 0;
+        for (int deviceID : deviceIDs) {
+            Device device = devices.get(deviceID);
+            if (device != null) {
+                total += device.calculatePowerConsumption(from, to);
+            }
+        }
+        return total;
+    }
+
+    // ==================== 快照方法 ====================
 
-    public Map<Integer, AutomationScene> getAutomationScenes() {
-        return new HashMap<>(automationScenes);
+    /**
+     * 获取自动化场景数据的只读快照
+     *
+     * <p>快照获取开销为O(1)，遍历期间不受并发写操作影响。后续各快照方法同理。</p>
+     *
+     * @return 不可变快照
+     */
+    public PersistentIntMap<AutomationScene> getAutomationScenes() {
+        return automationScenes.snapshot();
     }
 
-    public Map<Integer, User> getUsers() {
-        return users;
+    /**
+     * 获取用户数据的只读快照
+     *
+     * @return 不可变快照
+     */
+    public PersistentIntMap<User> getUsers() {
+        return users.snapshot();
     }
 
-    public Map<Integer, Household> getHouseholds() {
-        return households;
+    /**
+     * 获取家庭数据的只读快照
+     *
+     * @return 不可变快照
+     */
+    public PersistentIntMap<Household> getHouseholds() {
+        return households.snapshot();
     }
 
-    public Map<Integer, Room> getRooms() {
-        return rooms;
+    /**
+     * 获取房间数据的只读快照
+     *
+     * @return 不可变快照
+     */
+    public PersistentIntMap<Room> getRooms() {
+        return rooms.snapshot();
     }
 
-    public Map<Integer, Device> getDevices() {
-        return devices;
+    /**
+     * 获取设备数据的只读快照
+     *
+     * @return 不可变快照
+     */
+    public PersistentIntMap<Device> getDevices() {
+        return devices.snapshot();
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,82 @@
 package com.qsnn.homeSphere;
 
+import com.qsnn.homeSphere.domain.EntityType;
 import com.qsnn.homeSphere.domain.automationScene.AutomationScene;
 import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.DeviceSpec;
 import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+import com.qsnn.homeSphere.domain.deviceModule.Usage;
+import com.qsnn.homeSphere.domain.deviceModule.UsageStore;
 import com.qsnn.homeSphere.domain.deviceModule.attributes.BooleanAttribute;
 import com.qsnn.homeSphere.domain.deviceModule.attributes.DeviceAttribute;
 import com.qsnn.homeSphere.domain.deviceModule.attributes.RangeAttribute;
 import com.qsnn.homeSphere.domain.deviceModule.attributes.StringChoiceAttribute;
 import com.qsnn.homeSphere.domain.house.Household;
 import com.qsnn.homeSphere.domain.house.Room;
+import com.qsnn.homeSphere.index.EnergyAggregates;
+import com.qsnn.homeSphere.index.EnergyRollup;
 import com.qsnn.homeSphere.domain.users.User;
+import com.qsnn.homeSphere.log.AsyncRingBufferLogSink;
 import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.FileLogArchive;
+import com.qsnn.homeSphere.log.LogArchive;
+import com.qsnn.homeSphere.log.LogDictionary;
+import com.qsnn.homeSphere.log.LogRateLimit;
+import com.qsnn.homeSphere.log.LogRateLimiter;
+import com.qsnn.homeSphere.log.LogRetention;
+import com.qsnn.homeSphere.log.LogRetentionPolicy;
+import com.qsnn.homeSphere.log.LogSearchIndex;
+import com.qsnn.homeSphere.log.LogSink;
+import com.qsnn.homeSphere.log.LogSinks;
+import com.qsnn.homeSphere.log.LogStore;
+import com.qsnn.homeSphere.log.MappedLogJournal;
+import com.qsnn.homeSphere.shard.ShardedHomeSphereSystem;
+import com.qsnn.homeSphere.utils.id.IdAllocators;
+import com.qsnn.homeSphere.utils.id.TimeOrderedIdGenerator;
+import com.qsnn.homeSphere.utils.Util;
+import com.qsnn.homeSphere.utils.persistent.PersistentIntMap;
+import com.qsnn.homeSphere.utils.persistent.VersionedIntMap;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntIntMap;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntSetMultimap;
+import com.qsnn.homeSphere.utils.primitive.IntHashSet;
+import com.qsnn.homeSphere.utils.primitive.IntIntHashMap;
+import com.qsnn.homeSphere.utils.primitive.IntObjectHashMap;
+import com.qsnn.homeSphere.utils.primitive.IntSetMultimap;
 import org.junit.*;
 import org.junit.rules.ExpectedException;
-
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType.*;
 import static org.junit.Assert.*;
@@ -45,6 +105,10 @@ public class HomeSphereSystemTest {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    /** 测试用的临时目录，测试结束后自动删除 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @BeforeClass
     public static void setUpClass() {
         System.out.println("=== 智能家居系统测试开始 ===\n");
@@ -259,6 +323,1461 @@ public class HomeSphereSystemTest {
         assertEquals("设备应该在新的房间", "客厅", newRoom.getName());
     }
 
+    @Test
+    public void testDeviceIndexAfterMovement() {
+        System.out.println("测试设备移动后的房间与家庭设备索引");
+
+        Device bedroomLight = system.getDeviceByID(bedroomLightId);
+        assertTrue("移动前卧室应包含夜灯", system.getDevicesByRoom(bedroomId).contains(bedroomLight));
+
+        system.moveDevice(aliceId, bedroomLightId, livingRoomId);
+
+        assertFalse("移动后卧室不应再包含夜灯", system.getDevicesByRoom(bedroomId).contains(bedroomLight));
+        assertTrue("移动后客厅应包含夜灯", system.getDevicesByRoom(livingRoomId).contains(bedroomLight));
+        assertTrue("家庭设备应包含夜灯", system.getDevicesByHousehold(aliceHouseholdId).contains(bedroomLight));
+        assertTrue("Bob家庭不应包含Alice的设备",
+                system.getDevicesByHousehold(bobHouseholdId).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentHouseholdMutations() throws Exception {
+        System.out.println("测试多线程并发写入不同家庭");
+
+        int threads = 8;
+        int roomsPerThread = 50;
+        Integer[] householdIds = new Integer[threads];
+        // 断言在工作线程中执行，通过Future.get()把失败传回测试线程
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Integer ownerId = system.registerUser("user" + t, "pwd", "User" + t, "-");
+                householdIds[t] = system.createHousehold("并发家庭" + t, "-", ownerId);
+                Integer householdId = householdIds[t];
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < roomsPerThread; i++) {
+                        Integer roomId = system.createRoom(householdId, "房间" + i, 10.0);
+                        system.createAutomationScene(householdId, "场景" + i);
+                        system.getRoomsByHousehold(householdId);
+                        assertEquals(householdId, (Integer) system.getHouseholdByRoom(roomId).getHouseholdID());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            // 同ID设备的替换与该设备在家庭内的移动并发进行，替换在家庭锁内完成，索引不应错乱
+            Manufacturer maker = new Manufacturer("并发厂商", Set.of(Device.ConnectMode.WIFI));
+            Future<?> replacing = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    system.createDevice(LIGHT_BULB, livingRoomLightId, "替换灯" + i, "LT-OS", maker, 10.0,
+                            Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+                }
+            });
+            Future<?> moving = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    assertTrue(system.moveDevice(aliceId, livingRoomLightId, i % 2 == 0 ? bedroomId : livingRoomId));
+                }
+            });
+            replacing.get();
+            moving.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Integer householdId : householdIds) {
+            assertEquals("每个家庭的房间数应该正确", roomsPerThread, system.getRoomsByHousehold(householdId).size());
+            assertEquals("每个家庭的场景数应该正确", roomsPerThread, system.countAutomationScenesByHousehold(householdId));
+        }
+        Set<Device> aliceDevices = system.getDevicesByHousehold(aliceHouseholdId);
+        assertTrue("家庭中应是替换后的设备", aliceDevices.contains(system.getDeviceByID(livingRoomLightId)));
+        int counted = 0;
+        for (Device.OnlineStatusType status : Device.OnlineStatusType.values()) {
+            counted += system.countDevices(aliceHouseholdId, status);
+        }
+        assertEquals("状态计数应与家庭设备数一致", aliceDevices.size(), counted);
+    }
+
+    @Test
+    public void testPersistentIdAllocationSurvivesRestart() throws IOException {
+        System.out.println("测试持久化ID分配在重启后不重复");
+
+        Path leaseDir = temporaryFolder.newFolder("homesphere-ids").toPath();
+        HomeSphereSystem first = new HomeSphereSystem(IdAllocators.persistent(leaseDir));
+        Integer firstUserId = first.registerUser("dave", "pwd", "Dave", "-");
+        Integer secondUserId = first.registerUser("erin", "pwd", "Erin", "-");
+        assertTrue("同一线程分配的ID应单调递增", secondUserId > firstUserId);
+
+        HomeSphereSystem restarted = new HomeSphereSystem(IdAllocators.persistent(leaseDir));
+        Integer restartedUserId = restarted.registerUser("frank", "pwd", "Frank", "-");
+        assertTrue("重启后分配的ID应大于重启前的ID", restartedUserId > secondUserId);
+    }
+
+    @Test
+    public void testIntIntHashMapProbeChains() {
+        System.out.println("测试int映射表的探测链删除与扩容");
+
+        // 容量16的表中理想槽位相同的键形成一条探测链，槽位15的链跨过数组末尾回绕到开头
+        for (int home : new int[]{3, 15}) {
+            int[] chain = keysWithHome(home, 16, 5);
+            IntIntHashMap map = new IntIntHashMap(8);
+            for (int key : chain) {
+                assertEquals(IntIntHashMap.NO_VALUE, map.put(key, key + 1));
+            }
+            assertEquals("删除链中间的键后其余键仍可找到", chain[2] + 1, map.remove(chain[2]));
+            assertEquals("删除链首后其余键仍可找到", chain[0] + 1, map.remove(chain[0]));
+            assertEquals(IntIntHashMap.NO_VALUE, map.get(chain[0]));
+            assertEquals(IntIntHashMap.NO_VALUE, map.get(chain[2]));
+            for (int key : new int[]{chain[1], chain[3], chain[4]}) {
+                assertEquals(key + 1, map.get(key));
+            }
+            assertEquals(3, map.size());
+            assertEquals("重复删除应返回NO_VALUE", IntIntHashMap.NO_VALUE, map.remove(chain[2]));
+        }
+
+        // 超过装载因子后扩容，扩容后删除和覆盖仍正确
+        IntIntHashMap map = new IntIntHashMap();
+        long initialBytes = map.estimatedBytes();
+        for (int key = -5000; key < 5000; key++) {
+            map.put(key, -key);
+        }
+        assertTrue("超过装载因子后应扩容", map.estimatedBytes() > initialBytes);
+        assertEquals(10000, map.size());
+        for (int key = -5000; key < 5000; key += 2) {
+            assertEquals(-key, map.remove(key));
+        }
+        for (int key = -5000; key < 5000; key++) {
+            assertEquals(key % 2 == 0 ? IntIntHashMap.NO_VALUE : -key, map.get(key));
+        }
+        assertEquals("覆盖应返回原值", 1, map.put(-1, 7));
+        assertEquals(5000, map.size());
+
+        // NO_VALUE是保留值，不能作为值或键写入
+        try {
+            map.put(1, IntIntHashMap.NO_VALUE);
+            fail("不应允许写入NO_VALUE");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(-1, map.get(1));
+        }
+        try {
+            map.put(Integer.MIN_VALUE, 1);
+            fail("不应允许保留键");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(IntIntHashMap.NO_VALUE, map.get(Integer.MIN_VALUE));
+        }
+    }
+
+    @Test
+    public void testPrimitiveCollectionsMatchJdkCollections() {
+        System.out.println("测试int专用集合与JDK集合的随机操作结果一致");
+
+        Random random = new Random(20250101);
+        IntIntHashMap intMap = new IntIntHashMap();
+        IntObjectHashMap<String> objectMap = new IntObjectHashMap<>();
+        IntHashSet intSet = new IntHashSet();
+        IntSetMultimap multimap = new IntSetMultimap();
+        Map<Integer, Integer> expectedInts = new HashMap<>();
+        Map<Integer, String> expectedObjects = new HashMap<>();
+        Set<Integer> expectedSet = new HashSet<>();
+        Map<Integer, Set<Integer>> expectedMultimap = new HashMap<>();
+        for (int step = 0; step < 20000; step++) {
+            // 键范围小，删除经常发生在探测链中间
+            int key = random.nextInt(200) - 100;
+            int value = random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                assertEquals(Objects.requireNonNullElse(expectedInts.remove(key), IntIntHashMap.NO_VALUE),
+                        (Integer) intMap.remove(key));
+                assertEquals(expectedObjects.remove(key), objectMap.remove(key));
+                assertEquals(expectedSet.remove(key), intSet.remove(key));
+                Set<Integer> values = expectedMultimap.get(key);
+                boolean removed = values != null && values.remove(value);
+                if (values != null && values.isEmpty()) {
+                    expectedMultimap.remove(key);
+                }
+                assertEquals(removed, multimap.remove(key, value));
+            } else {
+                assertEquals(Objects.requireNonNullElse(expectedInts.put(key, value), IntIntHashMap.NO_VALUE),
+                        (Integer) intMap.put(key, value));
+                assertEquals(expectedObjects.put(key, "v" + value), objectMap.put(key, "v" + value));
+                assertEquals(expectedSet.add(key), intSet.add(key));
+                assertEquals(expectedMultimap.computeIfAbsent(key, k -> new HashSet<>()).add(value),
+                        multimap.put(key, value));
+            }
+            if (step % 500 == 0) {
+                multimap.removeAll(key);
+                expectedMultimap.remove(key);
+            }
+        }
+        assertEquals(expectedInts.size(), intMap.size());
+        assertEquals(expectedObjects.size(), objectMap.size());
+        assertEquals(expectedSet.size(), intSet.size());
+        assertEquals("值集合为空的键应被移除", expectedMultimap.size(), multimap.keyCount());
+        assertEquals(expectedMultimap.values().stream().mapToLong(Set::size).sum(), multimap.relationCount());
+        Set<Integer> actualSet = new HashSet<>();
+        intSet.forEach(actualSet::add);
+        assertEquals(expectedSet, actualSet);
+        for (int key = -100; key < 100; key++) {
+            assertEquals(Objects.requireNonNullElse(expectedInts.get(key), IntIntHashMap.NO_VALUE),
+                    (Integer) intMap.get(key));
+            assertEquals(expectedObjects.get(key), objectMap.get(key));
+            Set<Integer> values = new HashSet<>();
+            for (int value : multimap.get(key)) {
+                values.add(value);
+            }
+            assertEquals(expectedMultimap.getOrDefault(key, Set.of()), values);
+            assertEquals(values.size(), multimap.size(key));
+        }
+    }
+
+    @Test
+    public void testConcurrentPrimitiveMapsReadDuringRehash() throws Exception {
+        System.out.println("测试并发int映射表在扩容和删除期间的乐观读");
+
+        // 单分段使所有写操作都与读操作竞争同一把锁
+        ConcurrentIntIntMap map = new ConcurrentIntIntMap(1);
+        ConcurrentIntSetMultimap multimap = new ConcurrentIntSetMultimap(1);
+        for (int key = 0; key < 1000; key++) {
+            map.put(key, key + 1);
+            multimap.put(key, key + 1);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 0; round < 20; round++) {
+                    // 反复扩容后整体删除，探测链上不断发生回移
+                    for (int key = 1000; key < 5000; key++) {
+                        map.put(key, key + 1);
+                        multimap.put(key, key + 1);
+                    }
+                    for (int key = 1000; key < 5000; key++) {
+                        map.remove(key);
+                        multimap.remove(key, key + 1);
+                    }
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                readers.add(executor.submit(() -> {
+                    while (!writer.isDone()) {
+                        for (int key = 0; key < 1000; key++) {
+                            assertEquals("乐观读失败时应回退为读锁，不应读到不一致的值", key + 1, map.get(key));
+                            assertTrue(multimap.contains(key, key + 1));
+                            assertEquals(1, multimap.size(key));
+                        }
+                    }
+                }));
+            }
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1000, map.size());
+        assertEquals(ConcurrentIntIntMap.NO_VALUE, map.get(4999));
+        assertEquals(0, multimap.size(4999));
+    }
+
+    /**
+     * 找出在指定容量的表中理想槽位相同的若干个键（与 {@code IntHashing.mix} 相同的扰动）
+     */
+    private static int[] keysWithHome(int home, int capacity, int count) {
+        int[] keys = new int[count];
+        int found = 0;
+        for (int key = 0; found < count; key++) {
+            int h = key * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & (capacity - 1)) == home) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void testSnapshotIsolation() {
+        System.out.println("测试只读快照隔离");
+
+        PersistentIntMap<Room> roomsBefore = system.getRooms();
+        int roomCount = roomsBefore.size();
+        Integer newRoomId = system.createRoom(aliceHouseholdId, "快照后新建的房间", 6.0);
+
+        assertEquals("快照不应看到之后的写入", roomCount, roomsBefore.size());
+        assertFalse("快照不应包含新房间", roomsBefore.containsKey(newRoomId));
+        assertTrue("新快照应包含新房间", system.getRooms().containsKey(newRoomId));
+        assertTrue("新快照版本号应更大", system.getRooms().version() > roomsBefore.version());
+
+        thrown.expect(UnsupportedOperationException.class);
+        roomsBefore.remove(livingRoomId);
+    }
+
+    @Test
+    public void testVersionedMapBulkWriteUnderContention() throws Exception {
+        System.out.println("测试持续单键写入下的批量写入");
+
+        VersionedIntMap<String> map = new VersionedIntMap<>();
+        int batch = 20000;
+        int[] keys = new int[batch];
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < batch; i++) {
+            keys[i] = 1_000_000 + i;
+            values.add("bulk-" + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            AtomicLong singles = new AtomicLong();
+            List<Future<?>> writers = new ArrayList<>();
+            CompletableFuture<Void> bulkDone = new CompletableFuture<>();
+            for (int t = 0; t < 2; t++) {
+                int base = t * 100_000;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; !bulkDone.isDone() || i < 1000; i++) {
+                        map.put(base + i % 5000, "single-" + i);
+                        map.remove(base + (i + 2500) % 5000);
+                        singles.incrementAndGet();
+                        PersistentIntMap<String> snapshot = map.snapshot();
+                        assertEquals("读者不应看到半批结果", snapshot.containsKey(keys[0]),
+                                snapshot.containsKey(keys[batch - 1]));
+                    }
+                }));
+            }
+            Future<?> bulk = executor.submit(() -> {
+                map.putAll(keys, values);
+                bulkDone.complete(null);
+            });
+            bulk.get();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            assertTrue(singles.get() >= 2000);
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < batch; i++) {
+            assertEquals("bulk-" + i, map.get(keys[i]));
+        }
+        assertFalse("任一键已存在时不应写入", map.putAllIfAbsent(new int[]{-5, keys[0]}, List.of("a", "b")));
+        assertNull(map.get(-5));
+        assertTrue(map.putAllIfAbsent(new int[]{-5, -6}, List.of("a", "b")));
+        assertEquals("b", map.get(-6));
+        assertEquals("b", map.putIfAbsent(-6, "c"));
+        assertEquals("b", map.remove(-6));
+        assertNull(map.remove(-6));
+    }
+
+    @Test
+    public void testCascadingDelete() throws Exception {
+        System.out.println("测试级联删除");
+
+        Integer ownerId = system.registerUser("ivy", "pwd", "Ivy", "-");
+        Integer memberId = system.registerUser("jack", "pwd", "Jack", "-");
+        Integer homeId = system.createHousehold("待删除的家", "-", ownerId);
+        system.createRelations(ownerId, memberId, homeId);
+        Integer roomId = system.createRoom(homeId, "待删除的房间", 10.0);
+        Integer spareRoomId = system.createRoom(homeId, "保留的房间", 10.0);
+        Manufacturer maker = new Manufacturer("删除厂商", Set.of(Device.ConnectMode.WIFI));
+        system.createDevice(LIGHT_BULB, 9101, "灯1", "LT-OS", maker, 10.0,
+                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+        system.createDevice(LIGHT_BULB, 9102, "灯2", "LT-OS", maker, 10.0,
+                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+        system.addDeviceToRoom(9101, roomId);
+        system.addDeviceToRoom(9102, spareRoomId);
+        Integer sceneId = system.createAutomationScene(homeId, "删除场景");
+        AutomationScene scene = system.getAutomationSceneByID(sceneId);
+        scene.addDeviceOperation(system.getDeviceByID(9101), "luminance", 50);
+
+        // 删除房间：房间内设备随之删除，并从场景中移除
+        assertTrue("房间应删除成功", system.deleteRoom(roomId));
+        assertNull("房间应不存在", system.getRoomByID(roomId));
+        assertNull("房间内设备应被级联删除", system.getDeviceByID(9101));
+        assertEquals("场景不应再引用已删除设备", 0, scene.getDeviceCount());
+        assertEquals("家庭设备索引应同步更新", 1, system.getDevicesByHousehold(homeId).size());
+        assertFalse("重复删除应返回false", system.deleteRoom(roomId));
+
+        assertFalse("移除家庭管理员应返回false", system.removeUserFromHousehold(ownerId, homeId));
+        assertTrue("管理员应仍是家庭成员", system.isUserInHousehold(ownerId, homeId));
+
+        // 删除管理员用户：其管理的家庭及全部下属实体被删除，成员关系解除
+        assertTrue("用户应删除成功", system.deleteUser(ownerId));
+        assertNull("用户应不存在", system.getUserByID(ownerId));
+        assertNull("家庭应被级联删除", system.getHouseholdByID(homeId));
+        assertNull("剩余房间应被级联删除", system.getRoomByID(spareRoomId));
+        assertNull("剩余设备应被级联删除", system.getDeviceByID(9102));
+        assertNull("场景应被级联删除", system.getAutomationSceneByID(sceneId));
+        assertEquals("成员不应再属于已删除的家庭", 0, system.countHouseholdsByUser(memberId));
+
+        // 删除用户与建立关系并发：删除完成后不应留下指向已删除用户的成员关系
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                Integer adminId = system.registerUser("cascade-admin-" + i, "pwd", "Admin", "-");
+                Integer guestId = system.registerUser("cascade-guest-" + i, "pwd", "Guest", "-");
+                Integer guestHomeId = system.createHousehold("访客的家-" + i, "-", guestId);
+                Integer sharedHomeId = system.createHousehold("共享的家-" + i, "-", adminId);
+                Future<?> relate = executor.submit(() -> {
+                    try {
+                        system.createRelations(adminId, guestId, sharedHomeId);
+                    } catch (IllegalArgumentException ignored) {
+                        // 用户已被删除
+                    }
+                });
+                Future<Boolean> delete = executor.submit(() -> system.deleteUser(guestId));
+                relate.get();
+                assertTrue(delete.get());
+                assertFalse("已删除的用户不应留在家庭中", system.isUserInHousehold(guestId, sharedHomeId));
+                assertEquals(1, system.countUsersByHousehold(sharedHomeId));
+                assertNull("用户管理的家庭应被级联删除", system.getHouseholdByID(guestHomeId));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        try {
+            system.createHousehold("无主的家", "-", -1);
+            fail("创建者不存在时应拒绝创建家庭");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(system.getHouseholds().values().stream().noneMatch(h -> "无主的家".equals(h.getName())));
+        }
+    }
+
+    @Test
+    public void testBulkOnboarding() {
+        System.out.println("测试批量创建和分配设备");
+
+        Manufacturer maker = new Manufacturer("批量厂商", Set.of(Device.ConnectMode.WIFI));
+        List<DeviceSpec> specs = new ArrayList<>();
+        Map<Integer, Integer> assignments = new HashMap<>();
+        for (int id = 9201; id <= 9300; id++) {
+            specs.add(new DeviceSpec(LIGHT_BULB, id, "批量灯" + id, "LT-OS", maker, 10.0,
+                    Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER));
+            assignments.put(id, id % 2 == 0 ? livingRoomId : bedroomId);
+        }
+        int livingBefore = system.getDevicesByRoom(livingRoomId).size();
+        int logsBefore = system.getSystemLogs().size();
+
+        assertEquals("应返回全部设备ID", 100, system.createDevices(specs).size());
+        assertEquals("应分配全部设备", 100, system.addDevicesToRoom(assignments));
+        assertEquals("客厅设备数应正确", livingBefore + 50, system.getDevicesByRoom(livingRoomId).size());
+        assertEquals("设备所在房间应正确", "主卧室", system.getRoomByDevice(9201).getName());
+        assertTrue("批量创建的设备不应有单独的创建日志", system.getDeviceByID(9201).getDeviceLogs().isEmpty());
+        assertEquals("每批应只记录一条汇总日志", logsBefore + 2, system.getSystemLogs().size());
+
+        thrown.expect(IllegalArgumentException.class);
+        system.createDevices(List.of(specs.get(0), specs.get(0)));
+    }
+
+    @Test
+    public void testDeviceSecondaryIndexes() {
+        System.out.println("测试设备二级索引查询");
+
+        assertEquals("客厅应有两台WiFi市电设备", 2, system.queryDevices().inRoom(livingRoomId)
+                .connectMode(Device.ConnectMode.WIFI).powerMode(Device.PowerMode.MAINSPOWER).count());
+        assertEquals("家庭内应有两盏灯", 2, system.queryDevices().inHousehold(aliceHouseholdId)
+                .type(LIGHT_BULB).count());
+
+        // 状态变化应增量更新索引
+        system.getDeviceByID(bedroomLightId).connect();
+        Set<Device> online = system.queryDevices().inHousehold(aliceHouseholdId)
+                .onlineStatus(Device.OnlineStatusType.ONLINE).list();
+        assertEquals("应只有一台在线设备", 1, online.size());
+        assertEquals("在线设备应为卧室夜灯", bedroomLightId, online.iterator().next().getDeviceID());
+        assertEquals("离线的小米设备应只剩门锁", 1, system.queryDevices()
+                .manufacturer(new Manufacturer("小米", Set.of(Device.ConnectMode.WIFI)))
+                .onlineStatus(Device.OnlineStatusType.OUTLINE).count());
+
+        // 删除设备后不应再被查询到
+        system.deleteDevice(bedroomLightId);
+        assertEquals("删除后不应有在线设备", 0, system.queryDevices()
+                .onlineStatus(Device.OnlineStatusType.ONLINE).count());
+        assertEquals("未登记的制造商应无结果", 0, system.queryDevices()
+                .manufacturer(new Manufacturer("未知厂商", Set.of(Device.ConnectMode.WIFI))).count());
+    }
+
+    @Test
+    public void testDeviceStatusIndex() {
+        System.out.println("测试设备状态索引统计");
+
+        assertEquals("初始时家庭内没有供电设备", 0,
+                system.countDevices(aliceHouseholdId, Device.PowerStatusType.POWERED));
+        system.getDeviceByID(livingRoomLightId).open();
+        system.getDeviceByID(bedroomLightId).open();
+        system.getDeviceByID(bedroomLightId).connect();
+        assertEquals("家庭内应有两台供电设备", 2,
+                system.countDevices(aliceHouseholdId, Device.PowerStatusType.POWERED));
+        assertEquals("家庭内应有一台在线设备", 1,
+                system.countDevices(aliceHouseholdId, Device.OnlineStatusType.ONLINE));
+
+        system.getDeviceByID(livingRoomLightId).close();
+        assertEquals("关闭后应只剩一台供电设备", 1,
+                system.countDevices(aliceHouseholdId, Device.PowerStatusType.POWERED));
+
+        // 设备移到其他家庭时状态随之移到该家庭的分片
+        Integer bobRoomId = system.createRoom(bobHouseholdId, "书房", 8.0);
+        assertTrue(system.addDeviceToRoom(bedroomLightId, bobRoomId));
+        assertEquals("移出后原家庭不应再计入", 0,
+                system.countDevices(aliceHouseholdId, Device.PowerStatusType.POWERED));
+        assertEquals("新家庭应计入移入的设备", 1,
+                system.countDevices(bobHouseholdId, Device.PowerStatusType.POWERED));
+        assertArrayEquals("按家庭与状态组合查询应只返回移入的设备", new int[]{bedroomLightId}, system.queryDevices()
+                .inHousehold(bobHouseholdId).powerStatus(Device.PowerStatusType.POWERED).ids());
+        system.getDeviceByID(bedroomLightId).disconnect();
+        assertEquals("状态变化应更新设备所在家庭的分片", 0,
+                system.countDevices(bobHouseholdId, Device.OnlineStatusType.ONLINE));
+        system.getDeviceByID(bedroomLightId).connect();
+
+        // 移出家庭和删除设备后都不应再计入
+        system.deleteDevice(bedroomLightId);
+        assertEquals("删除后家庭内不应有供电设备", 0,
+                system.countDevices(aliceHouseholdId, Device.PowerStatusType.POWERED));
+        assertEquals("全量统计应与家庭统计一致", 0,
+                system.countDevices(null, Device.OnlineStatusType.ONLINE));
+    }
+
+    @Test
+    public void testDeferredLogFormatting() {
+        System.out.println("测试日志延迟格式化");
+
+        Log log = new Log("fmt-test", Log.LogType.INFO, null, "属性变更: {} = {}", "luminance", 80);
+        assertEquals("模板参数应按顺序替换", "属性变更: luminance = 80", log.getEvent());
+        assertEquals("空备注应输出为空字符串", "", log.getRemarks());
+        assertTrue("格式化文本应包含事件", log.toString().contains("luminance = 80"));
+
+        Device light = system.getDeviceByID(livingRoomLightId);
+        light.open();
+        light.close();
+        Log closeLog = light.getDeviceLogs().stream()
+                .filter(l -> l.getEvent().startsWith("断开电源")).reduce((first, second) -> second).orElseThrow();
+        assertEquals("断开电源日志的事件文本应保持不变", "断开电源", closeLog.getEvent());
+        assertTrue("断开电源日志的备注应为本次使用记录", closeLog.getRemarks().startsWith("LOG[")
+                && closeLog.getRemarks().endsWith("kWh"));
+        assertEquals("日志ID文本应为定长", 19, closeLog.getLogIDText().length());
+
+        assertTrue(light.setAttribute("luminance", 81));
+        assertTrue("属性变更日志应保存到设备日志", light.getDeviceLogs().stream()
+                .anyMatch(l -> "属性变更: luminance = 81".equals(l.getEvent())));
+    }
+
+    @Test
+    public void testLogIdsAreUniqueAndOrdered() throws InterruptedException {
+        System.out.println("测试日志ID唯一且按时间排序");
+
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(7);
+        int threads = 4;
+        int perThread = 20_000;
+        long[][] ids = new long[threads][perThread];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long[] own = ids[t];
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    own[i] = generator.nextId();
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Set<Long> unique = new HashSet<>();
+        for (long[] own : ids) {
+            for (int i = 0; i < perThread; i++) {
+                unique.add(own[i]);
+                if (i > 0) {
+                    assertTrue("同一线程内ID应严格递增", own[i] > own[i - 1]);
+                }
+            }
+        }
+        assertEquals("ID不应重复", threads * perThread, unique.size());
+        assertEquals("应能取出节点号", 7, TimeOrderedIdGenerator.nodeOf(ids[0][0]));
+        assertTrue("应能取出时间戳", Math.abs(TimeOrderedIdGenerator.timestampOf(ids[0][0])
+                - System.currentTimeMillis()) < 60_000);
+
+        Log first = new Log("id-test", "事件", Log.LogType.INFO, null);
+        Log second = new Log("id-test", "事件", Log.LogType.INFO, null);
+        assertNotEquals("不同日志不应相等", first, second);
+        assertEquals("日志应可存入哈希集合", 2, new HashSet<>(List.of(first, second, first)).size());
+    }
+
+    @Test
+    public void testLogStoreKeepsAllLogsAndSupportsRangeQuery() {
+        System.out.println("测试分块日志存储与时间范围查询");
+
+        LogStore store = new LogStore();
+        List<Log> appended = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Log log = new Log("store-test", "event-" + i, Log.LogType.INFO, null);
+            appended.add(log);
+            store.add(log);
+        }
+        assertEquals("时间相同的日志也应全部保留", 1000, store.size());
+        assertEquals("遍历顺序应为追加顺序", appended, new ArrayList<>(store));
+        assertEquals("不限范围应返回全部日志", 1000, store.range(null, null).size());
+
+        LocalDateTime from = appended.get(300).getT();
+        LocalDateTime to = appended.get(700).getT();
+        List<Log> expected = new ArrayList<>();
+        for (Log log : appended) {
+            if (!log.getT().isBefore(from) && !log.getT().isAfter(to)) {
+                expected.add(log);
+            }
+        }
+        List<Log> range = store.range(from, to);
+        assertEquals("范围查询应返回范围内的全部日志", expected, range);
+        assertTrue("范围应包含边界日志", range.contains(appended.get(300)) && range.contains(appended.get(700)));
+        assertTrue("起始时间晚于结束时间应返回空", store.range(to.plusNanos(1), from).isEmpty());
+
+        Device light = system.getDeviceByID(livingRoomLightId);
+        int before = light.getDeviceLogs().size();
+        for (int i = 0; i < 50; i++) {
+            light.connect();
+            light.disconnect();
+        }
+        assertEquals("设备日志不应因时间相同而丢失", before + 100, light.getDeviceLogs().size());
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertTrue(store.range(null, null).isEmpty());
+    }
+
+    @Test
+    public void testLogRetentionSpillsToArchive() throws IOException {
+        System.out.println("测试日志保留策略与归档");
+
+        Path directory = temporaryFolder.newFolder("log-archive").toPath();
+        FileLogArchive archive = new FileLogArchive(directory);
+        LogRetention.getArchive();
+        LogArchive previousArchive = LogRetention.installArchive(archive);
+        LogRetentionPolicy previousDevicePolicy =
+                LogRetention.setPolicy(EntityType.DEVICE, new LogRetentionPolicy(10, null, 0));
+        LogRetentionPolicy previousRoomPolicy =
+                LogRetention.setPolicy(EntityType.ROOM, new LogRetentionPolicy(0, Duration.ZERO, 0));
+        try {
+            Device lock = system.getDeviceByID(mainDoorLockId);
+            int before = lock.getDeviceLogs().size();
+            for (int i = 0; i < 50; i++) {
+                lock.connect();
+                lock.disconnect();
+            }
+            LogStore logs = lock.getDeviceLogs();
+            assertEquals("设备日志应按条数上限保留", 10, logs.size());
+            List<Log> retained = new ArrayList<>(logs);
+            assertEquals("应保留最新的日志", "断开网络", retained.get(9).getEvent());
+            LogRetention.awaitBackgroundWork();
+            List<String> archived = Files.readAllLines(archive.fileFor(EntityType.DEVICE), StandardCharsets.UTF_8);
+            assertEquals("淘汰的日志应写入归档", before + 100 - 10, archived.size());
+            assertTrue("归档行应为日志文本", archived.get(archived.size() - 1).startsWith("LOG[LOG"));
+
+            LogStore roomLogs = new LogStore(EntityType.ROOM);
+            for (int i = 0; i < 200; i++) {
+                roomLogs.add(new Log("retention-test", "event-" + i, Log.LogType.INFO, null));
+            }
+            LocalDateTime newest = new ArrayList<>(roomLogs).get(roomLogs.size() - 1).getT();
+            for (Log log : roomLogs) {
+                assertEquals("超过保留时长的日志应被淘汰", newest, log.getT());
+            }
+
+            LogStore quiet = new LogStore();
+            for (int i = 0; i < 200; i++) {
+                quiet.add(new Log("retention-test", "quiet-" + i, Log.LogType.INFO, null));
+            }
+            LogStore chatty = new LogStore();
+            long archivedBefore = countLines(directory);
+            long budget = LogRetention.getRetainedBytes() + 2_000;
+            LogRetention.setGlobalBudgetBytes(budget);
+            for (int i = 0; i < 1000; i++) {
+                chatty.add(new Log("retention-test", "event-" + i, Log.LogType.INFO, null));
+            }
+            LogRetention.awaitBackgroundWork();
+            assertTrue("全局预算应限制保留的字节数", LogRetention.getRetainedBytes() <= budget);
+            assertTrue("超出预算时应淘汰日志", countLines(directory) > archivedBefore);
+            assertTrue("应先淘汰全局最早的日志，而不是正在追加的存储", quiet.isEmpty() || chatty.size() == 1000);
+            Path other = archive.fileFor(null);
+            assertEquals("淘汰的日志应全部归档", 1200 - quiet.size() - chatty.size(),
+                    Files.exists(other) ? Files.readAllLines(other, StandardCharsets.UTF_8).size() : 0);
+            quiet.clear();
+            chatty.clear();
+        } finally {
+            LogRetention.setGlobalBudgetBytes(0);
+            LogRetention.setPolicy(EntityType.DEVICE, previousDevicePolicy);
+            LogRetention.setPolicy(EntityType.ROOM, previousRoomPolicy);
+            LogRetention.installArchive(previousArchive);
+            archive.close();
+        }
+    }
+
+    @Test
+    public void testMappedLogJournal() throws IOException {
+        System.out.println("测试内存映射日志段");
+
+        Path directory = temporaryFolder.newFolder("log-journal").toPath();
+        MappedLogJournal journal = new MappedLogJournal(directory, MappedLogJournal.MIN_SEGMENT_BYTES);
+        LogSinks.get();
+        LogSink previous = LogSinks.install(journal);
+        List<Log> written = new ArrayList<>();
+        try {
+            for (int i = 0; i < 300; i++) {
+                written.add(new Log("journal-test", Log.LogType.INFO, null, "属性变更: {} = {}", "luminance", i));
+                written.add(new Log("DEV" + (i % 7), "设备开启-" + i, Log.LogType.WARNING, i % 2 == 0 ? "" : "备注" + i));
+            }
+        } finally {
+            LogSinks.install(previous);
+        }
+        assertTrue("写满后应滚动到新段", journal.getSegmentCount() > 1);
+        assertEquals(written.size(), journal.getRecordCount());
+        assertEquals(0, journal.getDroppedCount());
+        assertJournalMatches(written, journal.query(null, null));
+
+        LocalDateTime from = written.get(200).getT();
+        LocalDateTime to = written.get(400).getT();
+        List<Log> expected = new ArrayList<>();
+        for (Log log : written) {
+            if (!log.getT().isBefore(from) && !log.getT().isAfter(to)) {
+                expected.add(log);
+            }
+        }
+        assertJournalMatches(expected, journal.query(from, to));
+        journal.close();
+
+        MappedLogJournal reopened = new MappedLogJournal(directory, MappedLogJournal.MIN_SEGMENT_BYTES);
+        assertEquals("重启后应恢复全部记录", written.size(), reopened.getRecordCount());
+        Log appended = new Log("journal-test", Log.LogType.ERROR, null, "重启后追加 {}", 1);
+        reopened.append(appended);
+        written.add(appended);
+        assertJournalMatches(written, reopened.query(null, null));
+        reopened.close();
+
+        // 日志类型为null的记录，以及在崩溃残留的半条记录位置上重新写入
+        Path crashed = temporaryFolder.newFolder("log-journal-crash").toPath();
+        MappedLogJournal first = new MappedLogJournal(crashed, MappedLogJournal.MIN_SEGMENT_BYTES);
+        first.append(new Log("journal-test", "崩溃前写入的长记录：客厅主灯断开电源", Log.LogType.INFO, "备注备注备注备注"));
+        first.close();
+        Path segment;
+        try (java.util.stream.Stream<Path> files = Files.list(crashed)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // 清除第一条记录的标记，并把其后的内容改为像记录标记的字节，模拟崩溃时未提交的半条记录
+            byte[] halfRecord = new byte[64];
+            Arrays.fill(halfRecord, (byte) 0x81);
+            halfRecord[0] = 0;
+            channel.write(ByteBuffer.wrap(halfRecord), 16);
+        }
+        MappedLogJournal recovered = new MappedLogJournal(crashed, MappedLogJournal.MIN_SEGMENT_BYTES);
+        assertEquals("未提交的记录不应恢复", 0, recovered.getRecordCount());
+        Log untyped = new Log("j", "短", null, null);
+        recovered.append(untyped);
+        assertEquals(0, recovered.getDroppedCount());
+        recovered.close();
+        MappedLogJournal again = new MappedLogJournal(crashed, MappedLogJournal.MIN_SEGMENT_BYTES);
+        assertJournalMatches(List.of(untyped), again.query(null, null));
+        again.close();
+    }
+
+    private static long countLines(Path directory) throws IOException {
+        long lines = 0;
+        try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                lines += Files.readAllLines(file, StandardCharsets.UTF_8).size();
+            }
+        }
+        return lines;
+    }
+
+    private static void assertJournalMatches(List<Log> expected, MappedLogJournal.Cursor cursor) {
+        for (Log log : expected) {
+            assertTrue("日志段应包含全部记录", cursor.next());
+            assertEquals(log.getLogID(), cursor.getLogID());
+            assertEquals(log.getT(), cursor.getTime());
+            assertEquals(log.getEventType(), cursor.getEventType());
+            assertEquals(log.getActor(), cursor.getActor());
+            assertEquals(log.getEvent(), cursor.getEvent());
+            assertEquals(log.getRemarks(), cursor.getRemarks());
+        }
+        assertFalse("日志段不应包含多余记录", cursor.next());
+    }
+
+    @Test
+    public void testGlobalLogQueryMergesInTimeOrder() {
+        System.out.println("测试全局日志归并查询");
+
+        Device[] targets = {system.getDeviceByID(livingRoomACId), system.getDeviceByID(livingRoomLightId),
+                system.getDeviceByID(bedroomLightId)};
+        for (int i = 0; i < 60; i++) {
+            Log.LogType type = i % 5 == 0 ? Log.LogType.ERROR : Log.LogType.INFO;
+            targets[i % 3].getDeviceLogs().add(new Log("query-test-" + (i % 3), "event-" + i, type, null));
+        }
+
+        Comparator<Log> byTime = Comparator.comparing(Log::getT).thenComparingLong(Log::getLogID);
+        List<Log> all = new ArrayList<>();
+        all.addAll(system.getAllDeviceLogs());
+        all.addAll(system.getAllUserLogs());
+        all.addAll(system.getAllRoomLogs());
+        all.addAll(system.getAllHouseholdLogs());
+        all.sort(byTime);
+        assertEquals("全量查询应按时间归并全部实体日志", all, system.queryLogs().list());
+
+        List<Log> errors = new ArrayList<>(system.getAllDeviceLogs());
+        errors.removeIf(log -> log.getEventType() != Log.LogType.ERROR);
+        errors.sort(byTime.reversed());
+        List<Log> latest = system.queryLogs().entityTypes(EntityType.DEVICE).logTypes(Log.LogType.ERROR)
+                .newestFirst().limit(5).list();
+        assertEquals("最近的错误日志应从新到旧排列", errors.subList(0, 5), latest);
+
+        List<Log> actorLogs = new ArrayList<>(targets[1].getDeviceLogs());
+        actorLogs.removeIf(log -> !"query-test-1".equals(log.getActor()));
+        LocalDateTime from = actorLogs.get(3).getT();
+        List<Log> expected = new ArrayList<>();
+        for (Log log : actorLogs) {
+            if (!log.getT().isBefore(from)) {
+                expected.add(log);
+            }
+        }
+        expected.sort(byTime);
+        List<Log> page = system.queryLogs().actor("query-test-1").between(from, null).offset(2).limit(4).list();
+        assertEquals("应支持执行者、时间范围与分页条件", expected.subList(2, 6), page);
+        assertEquals(3, system.queryLogs().entityTypes(EntityType.DEVICE).stream().limit(3).count());
+        assertTrue(system.queryLogs().entityTypes(EntityType.SCENE).list().isEmpty());
+
+        // 稀有的类型和执行者夹在大量普通日志的中间块里，整块跳过后仍应找到
+        LogStore bulk = targets[2].getDeviceLogs();
+        for (int i = 0; i < 1200; i++) {
+            boolean rare = i == 700;
+            bulk.add(new Log(rare ? "query-rare" : "query-bulk", "bulk-" + i,
+                    rare ? Log.LogType.WARNING : Log.LogType.INFO, null));
+        }
+        List<Log> warnings = system.queryLogs().logTypes(Log.LogType.WARNING).list();
+        assertEquals(1, warnings.size());
+        assertEquals("bulk-700", warnings.get(0).getEvent());
+        assertEquals(warnings, system.queryLogs().actor("query-rare").newestFirst().list());
+        assertEquals(warnings, system.queryLogs().actor("query-rare").logTypes(Log.LogType.WARNING).limit(1).list());
+        assertTrue(system.queryLogs().actor("query-rare").logTypes(Log.LogType.INFO).list().isEmpty());
+        assertTrue(system.queryLogs().actor("query-absent").list().isEmpty());
+    }
+
+    @Test
+    public void testLogSearchIndex() {
+        System.out.println("测试日志全文检索索引");
+
+        Device light = system.getDeviceByID(livingRoomLightId);
+        light.open();
+        light.close();
+        List<Log> expected = system.searchLogs("断开电源");
+        assertFalse("未安装索引时应逐条扫描", expected.isEmpty());
+
+        LogSearchIndex index = system.enableLogSearch();
+        try {
+            assertEquals("启用时应加入已有的实体日志", new HashSet<>(expected),
+                    new HashSet<>(system.searchLogs("断开电源")));
+            assertFalse("应能按设备名称检索", system.searchLogs("客厅主灯").isEmpty());
+
+            Device lock = system.getDeviceByID(mainDoorLockId);
+            lock.open();
+            lock.close();
+            List<Log> hits = system.searchLogs("断开电源");
+            assertEquals("新追加的日志应增量加入索引", expected.size() + 1, hits.size());
+            for (Log log : hits) {
+                assertTrue(log.getEvent().contains("断开电源") || log.getRemarks().contains("断开电源"));
+            }
+
+            HomeSphereSystem other = new HomeSphereSystem();
+            Integer otherUser = other.registerUser("search-other", "pwd", "其他实例", "地址");
+            other.getUserByID(otherUser).getUserLogs().add(new Log("search-other", "断开电源", Log.LogType.INFO, ""));
+            assertEquals("其他系统实例的日志不应进入本系统的索引", hits.size(), system.searchLogs("断开电源").size());
+
+            LogStore store = new LogStore();
+            store.add(new Log("search-test", "Sensor OFFLINE alert", Log.LogType.ERROR, "zone-7"));
+            assertTrue("未加入索引的存储不应被检索", index.search("sensor").isEmpty());
+            index.addAll(store);
+            store.add(new Log("search-test", "Sensor online", Log.LogType.INFO, "zone-8"));
+            assertEquals("多个关键词应求交集，英文不区分大小写", 1, index.search("sensor", "Zone-7").size());
+            assertTrue("只有一个字符的关键词应逐条核对", index.search("7").size() >= 1);
+            assertTrue("不存在的二元组应返回空结果", index.search("zz-not-found").isEmpty());
+            store.clear();
+            assertTrue("清空的日志应从结果中移除", index.search("sensor", "zone").isEmpty());
+
+            store.add(new Log("search-test", "Sensor rejoined", Log.LogType.INFO, "zone-9"));
+            index.removeAll(store);
+            store.add(new Log("search-test", "Sensor rejoined", Log.LogType.INFO, "zone-9"));
+            assertTrue("移除的存储不应再出现在结果中", index.search("sensor").isEmpty());
+            index.addAll(store);
+            assertEquals("重新加入的存储不应与旧文档重复", 2, index.search("sensor", "rejoined").size());
+
+            int live = index.size();
+            for (int i = 0; i < 3000; i++) {
+                store.add(new Log("search-test", "Sensor burst " + i, Log.LogType.INFO, null));
+            }
+            store.clear();
+            index.compact();
+            assertEquals("压缩应释放清空的文档", live - 2, index.size());
+            assertTrue("压缩后清空的日志不应出现在结果中", index.search("burst").isEmpty());
+            assertEquals("压缩后系统日志仍可检索", hits.size(), system.searchLogs("断开电源").size());
+        } finally {
+            system.disableLogSearch();
+        }
+        assertEquals("停用索引后应逐条扫描", expected.size() + 1, system.searchLogs("断开电源").size());
+    }
+
+    @Test
+    public void testLogStoreKeepsColumnsAndRendersViews() {
+        System.out.println("测试列式日志存储与日志视图");
+
+        LogStore store = new LogStore();
+        StringBuilder longActor = new StringBuilder("actor-");
+        for (int i = 0; i < LogDictionary.MAX_TEXT_LENGTH; i++) {
+            longActor.append('x');
+        }
+        List<Log> appended = List.of(
+                new Log("columns-test", "connect", Log.LogType.INFO, ""),
+                new Log("columns-test", Log.LogType.WARNING, 42, "temperature {} -> {}", 20, 25),
+                new Log(longActor.toString(), "disconnect", Log.LogType.ERROR, "remarks"),
+                new Log("columns-test", "untyped", null, null));
+        appended.forEach(store::add);
+
+        List<Log> views = new ArrayList<>(store);
+        assertEquals("视图应与原日志按日志ID判等", appended, views);
+        for (int i = 0; i < appended.size(); i++) {
+            Log original = appended.get(i);
+            Log view = views.get(i);
+            assertNotSame(original, view);
+            assertEquals(original.toString(), view.toString());
+            assertEquals(original.getTimeNanos(), view.getTimeNanos());
+            assertEquals(original.getT(), view.getT());
+        }
+        assertEquals("temperature 20 -> 25", views.get(1).getEvent());
+        assertEquals("42", views.get(1).getRemarks());
+        assertEquals("过长的执行者应按原文保存", longActor.toString(), views.get(2).getActor());
+        assertNull(views.get(3).getEventType());
+        assertTrue("执行者和事件文本应驻留在字典中", LogDictionary.lookup("columns-test") >= 0
+                && LogDictionary.lookup("temperature {} -> {}") >= 0);
+        assertTrue("字典条数和字节数应有上限", LogDictionary.size() <= LogDictionary.MAX_ENTRIES
+                && LogDictionary.estimatedBytes() <= LogDictionary.MAX_BYTES + 16L + 4L * LogDictionary.MAX_ENTRIES);
+
+        views.get(0).setEvent("changed");
+        assertEquals("修改视图不应影响存储", "connect", store.iterator().next().getEvent());
+
+        LogStore plain = new LogStore();
+        for (int i = 0; i < 1000; i++) {
+            plain.add(new Log("columns-test", "connect", Log.LogType.INFO, ""));
+        }
+        assertTrue("无附加字段的日志每条应只占列中的固定字节", plain.retainedBytes() <= 1000L * 24);
+        assertTrue(plain.estimatedBytes() < 1000L * 32);
+    }
+
+    @Test
+    public void testUsageStorePrefixSumMatchesLinearScan() {
+        System.out.println("测试使用记录前缀和能耗查询");
+
+        Random random = new Random(42);
+        Set<Usage> usages = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+        UsageStore index = new UsageStore("energy-test");
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime open = time.plusSeconds(random.nextInt(3_600));
+            LocalDateTime close = open.plusSeconds(random.nextInt(7_200) + 1);
+            Usage usage = new Usage("energy-test", 10 + random.nextInt(2000), open, close);
+            usages.add(usage);
+            index.add(usage);
+            time = close;
+        }
+        assertEquals(usages.size(), index.size());
+
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 0, 0);
+        long spanSeconds = Duration.between(first, time).getSeconds();
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime from = first.minusHours(2).plusNanos((long) (random.nextDouble() * spanSeconds * 1e9));
+            LocalDateTime to = from.plusNanos((long) (random.nextDouble() * 72 * 3600 * 1e9));
+            double expected = Util.calculatePowerConsumption(usages, from, to);
+            assertEquals("任意时间段应与逐条计算一致", expected, index.energy(from, to), 1e-9 * Math.max(1, expected));
+        }
+        assertEquals(Util.calculatePowerConsumption(usages, LocalDateTime.MIN, LocalDateTime.MAX),
+                index.energy(LocalDateTime.MIN, LocalDateTime.MAX), 1e-6);
+        assertEquals(0.0, index.energy(time.plusDays(1), time.plusDays(2)), 0.0);
+        assertEquals("起始时间晚于结束时间时应退回逐条计算", Util.calculatePowerConsumption(usages, time, first),
+                index.energy(time, first), 1e-9);
+
+        Device light = system.getDeviceByID(livingRoomLightId);
+        light.open();
+        light.close();
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(Util.calculatePowerConsumption(light.getDeviceUsages(), now.minusDays(1), now),
+                light.calculatePowerConsumption(now.minusDays(1), now), 1e-9);
+    }
+
+    @Test
+    public void testUsageStoreMatchesUsageObjects() {
+        System.out.println("测试列式使用记录存储");
+
+        Random random = new Random(11);
+        Set<Usage> objects = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+        UsageStore store = new UsageStore("store-test");
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 0, 0);
+        for (int i = 0; i < 1500; i++) {
+            LocalDateTime open = time.plusSeconds(random.nextInt(3600));
+            LocalDateTime close = open.plusSeconds(random.nextInt(7200));
+            Usage usage = new Usage("store-test", 1 + random.nextInt(2000), open, close);
+            objects.add(usage);
+            store.add(usage);
+            time = close.plusSeconds(1);
+        }
+        assertEquals(objects.size(), store.size());
+        Iterator<Usage> expected = objects.iterator();
+        for (Usage view : store) {
+            Usage usage = expected.next();
+            assertEquals(usage.getOpenTime(), view.getOpenTime());
+            assertEquals(usage.getCloseTime(), view.getCloseTime());
+            assertEquals(usage.getPowerConsumption(), view.getPowerConsumption(), 1e-12);
+            assertNull("视图不应保留日志", view.getLog());
+        }
+
+        LocalDateTime first = LocalDateTime.of(2024, 3, 1, 0, 0);
+        long spanSeconds = Duration.between(first, time).getSeconds();
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime from = first.plusNanos((long) (random.nextDouble() * spanSeconds * 1e9));
+            LocalDateTime to = from.plusNanos((long) ((random.nextDouble() - 0.1) * 48 * 3600 * 1e9));
+            double scan = Util.calculatePowerConsumption(objects, from, to);
+            assertEquals("按列逐条计算应与对象一致", scan, Util.calculatePowerConsumption(store, from, to),
+                    1e-9 * Math.max(1, Math.abs(scan)));
+            assertEquals("前缀和应与逐条计算一致", scan, store.energy(from, to), 1e-9 * Math.max(1, Math.abs(scan)));
+        }
+        assertEquals(Util.calculatePowerConsumption(objects), Util.calculatePowerConsumption(store), 1e-9);
+        assertTrue("每条使用记录应只占列中的固定字节", store.estimatedBytes() < 1500L * 32);
+
+        // 乱序插入重叠的记录后仍按关闭时间排序，查询退回逐条计算
+        Usage late = new Usage("store-test", 500, first.plusHours(1), first.plusHours(30));
+        objects.add(late);
+        store.add(late);
+        LocalDateTime previous = LocalDateTime.MIN;
+        for (Usage view : store) {
+            assertFalse(view.getCloseTime().isBefore(previous));
+            previous = view.getCloseTime();
+        }
+        assertEquals(Util.calculatePowerConsumption(objects, first, first.plusDays(2)),
+                store.energy(first, first.plusDays(2)), 1e-6);
+        Iterator<Usage> iterator = store.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getCloseTime().equals(late.getCloseTime())) {
+                iterator.remove();
+            }
+        }
+        objects.remove(late);
+        assertEquals(objects.size(), store.size());
+        assertEquals(Util.calculatePowerConsumption(objects, first, first.plusDays(2)),
+                store.energy(first, first.plusDays(2)), 1e-6);
+        store.clear();
+        assertEquals(0.0, store.energy(LocalDateTime.MIN, LocalDateTime.MAX), 0.0);
+    }
+
+    @Test
+    public void testEnergyAggregatesFollowDeviceMoves() throws Exception {
+        System.out.println("测试房间与家庭能耗汇总");
+
+        EnergyAggregates aggregates = new EnergyAggregates();
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        aggregates.assign(1, 10, 100);
+        aggregates.assign(2, 20, 100);
+        aggregates.usageAdded(1, new Usage("agg-1", 1000, today.plusHours(1), today.plusHours(3)));
+        aggregates.usageAdded(2, new Usage("agg-2", 500, today.minusHours(1), today.plusHours(1)));
+        aggregates.usageAdded(2, new Usage("agg-2", 500, today.minusDays(2), today.minusDays(2).plusHours(1)));
+        assertEquals(2000, aggregates.roomTotal(10), 1e-9);
+        assertEquals(1500, aggregates.roomTotal(20), 1e-9);
+        assertEquals("跨零点的使用记录只计入当天部分", 2500, aggregates.householdToday(100), 1e-9);
+        assertEquals(3500, aggregates.householdTotal(100), 1e-9);
+
+        aggregates.assign(2, 10, 100);
+        assertEquals("移动设备后能耗应随设备转移", 3500, aggregates.roomTotal(10), 1e-9);
+        assertEquals(0, aggregates.roomTotal(20), 1e-9);
+        assertEquals(2500, aggregates.roomToday(10), 1e-9);
+        assertEquals("同一家庭内移动不改变家庭能耗", 3500, aggregates.householdTotal(100), 1e-9);
+
+        aggregates.assign(2, 30, 200);
+        assertEquals(2000, aggregates.householdTotal(100), 1e-9);
+        assertEquals(1500, aggregates.householdTotal(200), 1e-9);
+        assertEquals(500, aggregates.householdToday(200), 1e-9);
+        aggregates.remove(1);
+        assertEquals("删除设备后应扣除其能耗", 0, aggregates.householdTotal(100), 1e-9);
+
+        Device light = system.getDeviceByID(bedroomLightId);
+        light.open();
+        light.close();
+        double householdTotal = system.getHouseholdEnergy(aliceHouseholdId, null, null);
+        assertEquals(system.getHouseholdEnergy(aliceHouseholdId, LocalDateTime.MIN, LocalDateTime.MAX),
+                householdTotal, 1e-9);
+        LocalDateTime tomorrow = today.plusDays(1);
+        double expectedToday = 0;
+        for (Device device : system.getDevicesByHousehold(aliceHouseholdId)) {
+            if (device.getPowerMode() != Device.PowerMode.BATTERY) {
+                expectedToday += device.calculatePowerConsumption(today, tomorrow);
+            }
+        }
+        assertEquals(expectedToday, system.getHouseholdEnergyToday(aliceHouseholdId), 1e-9);
+        double bedroomTotal = system.getRoomEnergy(bedroomId, null, null);
+        double livingRoomTotal = system.getRoomEnergy(livingRoomId, null, null);
+        system.moveDevice(aliceId, bedroomLightId, livingRoomId);
+        assertEquals(0, system.getRoomEnergy(bedroomId, null, null), 1e-9);
+        assertEquals(bedroomTotal + livingRoomTotal, system.getRoomEnergy(livingRoomId, null, null), 1e-9);
+        assertEquals(householdTotal, system.getHouseholdEnergy(aliceHouseholdId, null, null), 1e-9);
+        assertEquals("移动设备后按时间段查询应与总能耗口径一致", system.getRoomEnergy(livingRoomId, null, null),
+                system.getRoomEnergy(livingRoomId, LocalDateTime.MIN, LocalDateTime.MAX), 1e-9);
+        assertEquals(0, system.getRoomEnergy(bedroomId, LocalDateTime.MIN, LocalDateTime.MAX), 1e-9);
+
+        // 不同家庭的设备并发记录使用和移动，汇总不应丢失或重复
+        EnergyAggregates concurrent = new EnergyAggregates();
+        int households = 4;
+        int perHousehold = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(households);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int h = 0; h < households; h++) {
+                int household = h;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perHousehold; i++) {
+                        int device = household * perHousehold + i;
+                        concurrent.assign(device, household * 10, household);
+                        concurrent.usageAdded(device, new Usage("c" + device, 100, today, today.plusHours(1)));
+                        concurrent.assign(device, household * 10 + 1, household);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int h = 0; h < households; h++) {
+            assertEquals(0, concurrent.roomTotal(h * 10), 1e-9);
+            assertEquals(100.0 * perHousehold, concurrent.roomTotal(h * 10 + 1), 1e-9);
+            assertEquals(100.0 * perHousehold, concurrent.householdTotal(h), 1e-9);
+        }
+    }
+
+    @Test
+    public void testEnergyTotalsUseStoredPower() throws InterruptedException {
+        System.out.println("测试能耗汇总与区间查询使用相同的功率");
+
+        Integer homeId = system.createHousehold("功率精度测试的家", "-", aliceId);
+        Integer roomId = system.createRoom(homeId, "功率精度测试房间", 10.0);
+        Manufacturer maker = new Manufacturer("精度厂商", Set.of(Device.ConnectMode.WIFI));
+        // 1500.1不能用float精确表示
+        system.createDevice(AIR_CONDITIONER, 9301, "精度空调", "AC-OS", maker, 1500.1,
+                Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER);
+        system.addDeviceToRoom(9301, roomId);
+        Device device = system.getDeviceByID(9301);
+        device.connect();
+        device.open();
+        Thread.sleep(1100);
+        device.close();
+
+        double total = system.getHouseholdEnergy(homeId, null, null);
+        assertTrue(total > 0);
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now().plusDays(1);
+        assertEquals("汇总应与按存储计算的区间查询一致", system.getHouseholdEnergy(homeId, from, to), total, 0.0);
+        assertEquals(system.getRoomEnergy(roomId, from, to), system.getRoomEnergy(roomId, null, null), 0.0);
+        assertTrue(system.deleteHousehold(homeId));
+    }
+
+    @Test
+    public void testLiveMeterIncludesOpenSessions() {
+        System.out.println("测试实时负载与实时能耗");
+
+        long hour = 3_600_000_000_000L;
+        AtomicLong clock = new AtomicLong(5 * hour);
+        EnergyAggregates meter = new EnergyAggregates(clock::get);
+        meter.assign(1, 10, 100);
+        meter.assign(2, 20, 100);
+        meter.sessionOpened(1, 100);
+        clock.addAndGet(hour);
+        meter.sessionOpened(2, 50);
+        assertEquals(150, meter.householdLoad(100), 1e-9);
+        assertEquals(100, meter.roomLoad(10), 1e-9);
+        clock.addAndGet(hour);
+        assertEquals("开启中的使用应计入实时能耗", 250, meter.householdLiveEnergy(100), 1e-6);
+        assertEquals(200, meter.roomLiveEnergy(10), 1e-6);
+
+        meter.assign(1, 20, 100);
+        assertEquals("移动设备后负载应随设备转移", 0, meter.roomLoad(10), 1e-9);
+        assertEquals(150, meter.roomLoad(20), 1e-9);
+        assertEquals(250, meter.roomLiveEnergy(20), 1e-6);
+
+        LocalDateTime open = LocalDateTime.of(2025, 1, 1, 0, 0);
+        meter.usageAdded(1, new Usage("live-1", 100, open, open.plusHours(2)));
+        assertEquals("关闭后负载应扣除", 50, meter.fleetLoad(), 1e-9);
+        assertEquals("关闭时已开启的能耗换成使用记录的能耗", 250, meter.fleetLiveEnergy(), 1e-6);
+        meter.sessionClosed(1);
+        assertEquals(50, meter.fleetLoad(), 1e-9);
+        clock.addAndGet(hour);
+        assertEquals(300, meter.householdLiveEnergy(100), 1e-6);
+        meter.remove(2);
+        assertEquals(0, meter.fleetLoad(), 1e-9);
+        assertEquals(200, meter.fleetLiveEnergy(), 1e-6);
+
+        Device light = system.getDeviceByID(livingRoomLightId);
+        Device lock = system.getDeviceByID(mainDoorLockId);
+        if (light.getPowerStatus() == Device.PowerStatusType.POWERED) {
+            light.close();
+        }
+        double fleetLoad = system.getFleetLoad();
+        double roomLoad = system.getRoomLoad(livingRoomId);
+        light.open();
+        lock.open();
+        assertEquals(fleetLoad + light.getPower(), system.getFleetLoad(), 1e-9);
+        assertEquals("电池设备不计入负载", roomLoad + light.getPower(), system.getRoomLoad(livingRoomId), 1e-9);
+        assertEquals(roomLoad + light.getPower(), system.getHouseholdLoad(aliceHouseholdId)
+                - system.getRoomLoad(bedroomId), 1e-9);
+        assertTrue(system.getHouseholdLiveEnergy(aliceHouseholdId)
+                >= system.getHouseholdEnergy(aliceHouseholdId, null, null));
+        light.close();
+        lock.close();
+        assertEquals(fleetLoad, system.getFleetLoad(), 1e-9);
+        assertEquals("关闭后实时能耗应等于已关闭使用记录的能耗", system.getRoomEnergy(livingRoomId, null, null),
+                system.getRoomLiveEnergy(livingRoomId), 1e-6);
+    }
+
+    @Test
+    public void testEnergyRollupSeriesMatchesUsages() {
+        System.out.println("测试分级时间桶能耗汇总");
+
+        Random random = new Random(7);
+        Set<Usage> usages = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+        EnergyRollup rollup = new EnergyRollup();
+        LocalDateTime first = LocalDateTime.of(2024, 1, 30, 22, 0);
+        LocalDateTime time = first;
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime open = time.plusSeconds(random.nextInt(3 * 3600));
+            LocalDateTime close = open.plusSeconds(1 + random.nextInt(5 * 3600));
+            Usage usage = new Usage("rollup-test", 10 + random.nextInt(2000), open, close);
+            usages.add(usage);
+            rollup.add(usage);
+            time = close;
+        }
+
+        // 使用记录按整秒开关，每个桶应与逐条裁剪计算一致；分钟级别只保留最近两天
+        for (EnergyRollup.Resolution resolution : EnergyRollup.Resolution.values()) {
+            LocalDateTime from = resolution == EnergyRollup.Resolution.MINUTE ? time.minusDays(1) : first;
+            NavigableMap<LocalDateTime, Double> series = rollup.series(from, time, resolution);
+            assertFalse("第一个桶应包含起始时间", series.firstKey().isAfter(from));
+            double total = 0;
+            for (Map.Entry<LocalDateTime, Double> bucket : series.entrySet()) {
+                LocalDateTime end = series.higherKey(bucket.getKey());
+                if (end == null) {
+                    end = time.plusYears(1);
+                }
+                double expected = Util.calculatePowerConsumption(usages, bucket.getKey(), end);
+                assertEquals(resolution + "桶的能耗应与逐条计算一致", expected, bucket.getValue(),
+                        1e-9 * Math.max(1, expected));
+                total += bucket.getValue();
+            }
+            assertEquals(Util.calculatePowerConsumption(usages, series.firstKey(), time.plusDays(1)), total, 1e-6);
+        }
+        assertEquals("月桶应从月初开始", LocalDateTime.of(2024, 1, 1, 0, 0),
+                rollup.series(first, time, EnergyRollup.Resolution.MONTH).firstKey());
+        assertTrue(rollup.series(first, first, EnergyRollup.Resolution.HOUR).isEmpty());
+
+        // 天级别只保留最近两天，更早的天由小时级别求和；分钟级别之外都淘汰的桶为NaN
+        NavigableMap<LocalDateTime, Double> days = rollup.series(first, time, EnergyRollup.Resolution.DAY);
+        rollup.setRetention(EnergyRollup.Resolution.DAY, 2);
+        assertEquals(2, rollup.getRetention(EnergyRollup.Resolution.DAY));
+        NavigableMap<LocalDateTime, Double> fallback = rollup.series(first, time, EnergyRollup.Resolution.DAY);
+        for (LocalDateTime day : days.keySet()) {
+            assertEquals(days.get(day), fallback.get(day), 1e-9 * Math.max(1, days.get(day)));
+        }
+        rollup.setRetention(EnergyRollup.Resolution.HOUR, 24);
+        fallback = rollup.series(first, time, EnergyRollup.Resolution.DAY);
+        assertTrue("所有级别都已淘汰的桶应为NaN", fallback.firstEntry().getValue().isNaN());
+        assertEquals(days.lastEntry().getValue(), fallback.lastEntry().getValue(), 1e-9);
+
+        try {
+            rollup.setRetention(EnergyRollup.Resolution.MINUTE, 0);
+            fail("保留桶数为0时应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            // 预期异常
+        }
+        assertTrue(system.getHouseholdEnergySeries(aliceHouseholdId, first, time, EnergyRollup.Resolution.DAY)
+                .values().stream().allMatch(energy -> energy == 0));
+
+        // 环形数组按写入跨越的桶数扩容：一条短记录只占用少量内存，之后补入的较早记录仍计入对应的桶
+        EnergyRollup small = new EnergyRollup();
+        LocalDateTime noon = LocalDateTime.of(2025, 3, 1, 12, 0);
+        small.add(new Usage("small", 600, noon, noon.plusMinutes(5)));
+        assertTrue("只写入少量桶时不应按保留桶数分配", small.estimatedBytes() < 2048);
+        small.add(new Usage("small", 600, noon.minusHours(3), noon.minusHours(2)));
+        NavigableMap<LocalDateTime, Double> minutes = small.series(noon.minusHours(3), noon.plusMinutes(5),
+                EnergyRollup.Resolution.MINUTE);
+        assertEquals(10, minutes.get(noon.minusHours(3)), 1e-9);
+        assertEquals(10, minutes.get(noon.plusMinutes(4)), 1e-9);
+        assertEquals(650, minutes.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+    }
+
+    @Test
+    public void testLogRateLimitingAggregatesRepeatedEvents() throws InterruptedException {
+        System.out.println("测试日志限流与重复事件汇总");
+
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setLimit(Log.LogType.INFO, new LogRateLimit(0.001, 5));
+        LogRateLimiter previous = LogRateLimiter.install(limiter);
+        try {
+            Device lock = system.getDeviceByID(mainDoorLockId);
+            String actor = lock.getDeviceLogs().iterator().next().getActor();
+            int before = lock.getDeviceLogs().size();
+            for (int i = 0; i < 1000; i++) {
+                lock.connect();
+                lock.disconnect();
+            }
+            assertEquals("超出突发容量的日志应被抑制", before + 5, lock.getDeviceLogs().size());
+            assertEquals(1995, limiter.getSuppressedCount(actor));
+            assertTrue("ERROR日志不应被限流",
+                    limiter.tryAcquire(actor, Log.LogType.ERROR, "故障", lock.getDeviceLogs()));
+            assertTrue("未配置的日志类型不应被限流",
+                    limiter.tryAcquire(actor, Log.LogType.WARNING, "告警", lock.getDeviceLogs()));
+
+            limiter.flush();
+            List<Log> logs = new ArrayList<>(lock.getDeviceLogs());
+            List<Log> summaries = logs.subList(before + 5, logs.size());
+            assertEquals("交替出现的事件应分别汇总为一条", 2, summaries.size());
+            assertTrue(summaries.get(0).getEvent().startsWith("断开网络 ×998（"));
+            assertTrue(summaries.get(1).getEvent().startsWith("连接网络 ×997（"));
+            assertEquals(0, limiter.getSuppressedCount(actor));
+        } finally {
+            LogRateLimiter.install(previous);
+        }
+
+        // 清理只写出已安静的事件的汇总，并移除令牌桶已补满、没有待汇总事件的执行者
+        LogRateLimiter sweeping = new LogRateLimiter();
+        sweeping.setLimit(Log.LogType.INFO, new LogRateLimit(1000, 1));
+        List<Log> target = new ArrayList<>();
+        assertTrue(sweeping.tryAcquire("idle-actor", Log.LogType.INFO, "事件", target));
+        assertFalse(sweeping.tryAcquire("idle-actor", Log.LogType.INFO, "事件", target));
+        assertEquals(1, sweeping.getActorCount());
+        assertEquals("有待汇总事件的执行者不应被移除", 0, sweeping.sweep(60_000));
+        assertTrue(target.isEmpty());
+        Thread.sleep(5);
+        assertEquals("空闲的执行者应被移除", 1, sweeping.sweep(0));
+        assertEquals(1, target.size());
+        assertTrue(target.get(0).getEvent().startsWith("事件 ×1（"));
+        assertEquals(0, sweeping.getActorCount());
+        assertTrue("移除后的执行者重新获得完整的突发容量",
+                sweeping.tryAcquire("idle-actor", Log.LogType.INFO, "事件", target));
+
+        thrown.expect(IllegalArgumentException.class);
+        limiter.setLimit(Log.LogType.ERROR, new LogRateLimit(1, 1));
+    }
+
+    @Test
+    public void testAsyncLogSink() throws Exception {
+        System.out.println("测试异步日志输出");
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        AsyncRingBufferLogSink sink = new AsyncRingBufferLogSink(new PrintStream(buffer, true), 16, 4, 10,
+                AsyncRingBufferLogSink.OverflowPolicy.BLOCK, 1);
+        LogSinks.get();
+        LogSink previous = LogSinks.install(sink);
+        try {
+            for (int i = 0; i < 100; i++) {
+                new Log("sink-test", "event-" + i, Log.LogType.INFO, null);
+            }
+            sink.flush();
+            String output = buffer.toString();
+            assertEquals("应写出全部日志", 100, output.lines().count());
+            assertTrue("日志应保持提交顺序", output.indexOf("event-9 ") < output.indexOf("event-10 "));
+            assertEquals("阻塞策略不应丢弃日志", 0, sink.getDroppedCount());
+        } finally {
+            LogSinks.install(previous);
+            sink.close();
+        }
+
+        // 与关闭并发追加：无论在关闭之前、之中还是之后被接收，每条日志都恰好写出一次
+        List<Log> logs = new ArrayList<>();
+        LogSink quiet = LogSinks.install(log -> { });
+        try {
+            for (int i = 0; i < 300; i++) {
+                logs.add(new Log("close-test", "close-" + i, Log.LogType.INFO, null));
+            }
+        } finally {
+            LogSinks.install(quiet);
+        }
+        ExecutorService producers = Executors.newFixedThreadPool(3);
+        try {
+            for (int round = 0; round < 100; round++) {
+                ByteArrayOutputStream closing = new ByteArrayOutputStream();
+                AsyncRingBufferLogSink racing = new AsyncRingBufferLogSink(new PrintStream(closing, true), 8, 4, 10,
+                        AsyncRingBufferLogSink.OverflowPolicy.BLOCK, 1);
+                List<Future<?>> appends = new ArrayList<>();
+                for (int t = 0; t < 3; t++) {
+                    int first = t * 100;
+                    appends.add(producers.submit(() -> {
+                        for (int i = first; i < first + 100; i++) {
+                            racing.append(logs.get(i));
+                        }
+                    }));
+                }
+                racing.close();
+                for (Future<?> append : appends) {
+                    append.get();
+                }
+                assertEquals("关闭前后接收的日志都应写出且只写出一次", 300, closing.toString().lines().count());
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShardedHouseholdCommands() {
+        System.out.println("测试按家庭分片执行命令");
+
+        try (ShardedHomeSphereSystem sharded = new ShardedHomeSphereSystem(4)) {
+            Integer ownerId = sharded.registerUser("gina", "pwd", "Gina", "-");
+            Integer memberId = sharded.registerUser("hank", "pwd", "Hank", "-");
+            Integer firstHome = sharded.createHousehold("分片家庭1", "-", ownerId).join();
+            Integer secondHome = sharded.createHousehold("分片家庭2", "-", ownerId).join();
+            sharded.createRelations(ownerId, memberId, secondHome).join();
+
+            Integer kitchen = sharded.createRoom(firstHome, "厨房", 12.0).join();
+            Integer study = sharded.createRoom(firstHome, "书房", 9.0).join();
+            Manufacturer maker = new Manufacturer("分片厂商", Set.of(Device.ConnectMode.WIFI));
+            sharded.createDevice(kitchen, LIGHT_BULB, 9001, "分片灯", "LT-OS", maker, 10.0,
+                    Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER).join();
+            assertTrue("设备应能在家庭内移动", sharded.moveDevice(ownerId, 9001, study).join());
+
+            Set<Device> studyDevices = sharded.getDevicesByRoom(study).join();
+            assertEquals("设备应位于新房间", 1, studyDevices.size());
+            assertEquals("所有者应属于两个家庭", 2, sharded.getHouseholdsByUser(ownerId).join().size());
+            assertEquals("成员应属于一个家庭", 1, sharded.getHouseholdsByUser(memberId).join().size());
+            assertTrue("未知家庭的命令应异常完成",
+                    sharded.createRoom(-1, "不存在", 1.0).isCompletedExceptionally());
+
+            // 设备ID已属于其他家庭时拒绝创建，路由不被改到另一个分片
+            Integer hall = sharded.createRoom(secondHome, "客厅", 20.0).join();
+            assertTrue("重复的设备ID应异常完成", sharded.createDevice(hall, LIGHT_BULB, 9001, "重复灯", "LT-OS", maker,
+                    10.0, Device.ConnectMode.WIFI, Device.PowerMode.MAINSPOWER).isCompletedExceptionally());
+            assertTrue("原设备仍可通过路由访问", sharded.moveDevice(ownerId, 9001, kitchen).join());
+            assertEquals(1, sharded.getDevicesByRoom(kitchen).join().size());
+
+            // 权限不足的关联失败后，用户不应留在该分片中
+            Integer outsiderId = sharded.registerUser("ivy", "pwd", "Ivy", "-");
+            CompletableFuture<Void> denied = sharded.createRelations(memberId, outsiderId, firstHome);
+            try {
+                denied.join();
+                fail("非管理员关联用户应失败");
+            } catch (CompletionException expected) {
+                assertTrue(expected.getCause() instanceof IllegalArgumentException);
+            }
+            assertTrue("失败的关联不应留下用户", sharded.getHouseholdsByUser(outsiderId).join().isEmpty());
+            HomeSphereSystem other = new HomeSphereSystem();
+            User outsider = sharded.getUserByID(outsiderId);
+            assertTrue(other.attachUser(outsider));
+            assertFalse("重复登记应返回false", other.attachUser(outsider));
+            assertTrue(other.detachUser(outsiderId));
+            assertNull(other.getUserByID(outsiderId));
+            sharded.createRelations(ownerId, outsiderId, firstHome).join();
+            assertEquals(1, sharded.getHouseholdsByUser(outsiderId).join().size());
+        }
+    }
+
     @Test
     public void testAutomationScene() {
         System.out.println("测试自动化场景");
@@ -0,0 +1,33 @@
+package com.qsnn.homeSphere.domain;
+
+/**
+ * 系统实体类型枚举
+ *
+ * <p>标识系统中由 {@code HomeSphereSystem} 统一管理的各类实体，用于按实体类型区分ID分配等配置。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public enum EntityType {
+    /** 用户 */
+    USER("用户"),
+    /** 家庭 */
+    HOUSEHOLD("家庭"),
+    /** 房间 */
+    ROOM("房间"),
+    /** 设备 */
+    DEVICE("设备"),
+    /** 自动化场景 */
+    SCENE("自动化场景");
+
+    private final String displayName;
+
+    EntityType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
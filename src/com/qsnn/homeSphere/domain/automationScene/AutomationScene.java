@@ -5,8 +5,6 @@ import com.qsnn.homeSphere.domain.deviceModule.Device;
 import java.time.LocalDateTime;
 import java.util.*;
 
-import static com.qsnn.homeSphere.utils.Util.createFreeID;
-
 /**
  * 自动化场景实现类
  *
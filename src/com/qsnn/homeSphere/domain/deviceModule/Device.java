@@ -1,11 +1,17 @@
 package com.qsnn.homeSphere.domain.deviceModule;
 
+import com.qsnn.homeSphere.domain.EntityType;
 import com.qsnn.homeSphere.domain.deviceModule.attributes.DeviceAttribute;
+import com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType;
 import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogRateLimiter;
+import com.qsnn.homeSphere.log.LogStore;
+import com.qsnn.homeSphere.utils.LocalClock;
 import com.qsnn.homeSphere.utils.Util;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 设备抽象基类
@@ -70,15 +76,24 @@ public abstract class Device {
     /** 设备上次开启时间 */
     protected LocalDateTime lastOpenTime;
 
-    /** 设备使用记录集合，按关闭时间排序 */
-    protected final Set<Usage> deviceUsages = new TreeSet<>(Comparator.comparing(Usage::getCloseTime));
+    /** 设备使用记录，按关闭时间排序的列式存储 */
+    protected final UsageStore deviceUsages;
 
-    /** 设备日志记录集合，按时间排序 */
-    protected final Set<Log> deviceLogs = new TreeSet<>(Comparator.comparing(Log::getT));
+    /** 设备日志存储 */
+    protected final LogStore deviceLogs = new LogStore(EntityType.DEVICE);
 
     /** 设备属性映射表，存储动态属性 */
     protected final Map<String, DeviceAttribute<?>> attributes = new HashMap<>();
 
+    /** 属性名 -> 属性变更事件文本，作为限流汇总的依据；属性名来自各设备类型的固定集合，所有设备共享 */
+    private static final Map<String, String> ATTRIBUTE_EVENTS = new ConcurrentHashMap<>();
+
+    /** 设备序列号的文本形式，作为日志执行者，避免每条日志重新生成 */
+    private final String actorID;
+
+    /** 设备状态监听器，由管理该设备的系统设置 */
+    private volatile DeviceStateListener stateListener;
+
     /**
      * 设备构造函数
      *
@@ -95,7 +110,29 @@ public abstract class Device {
      */
     public Device(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand,
                   ConnectMode connectMode, PowerMode powerMode, double power) {
+        this(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, true);
+    }
+
+    /**
+     * 设备构造函数（可选是否记录创建日志）
+     *
+     * <p>批量创建设备时由系统为整批设备记录一条汇总日志，单个设备不再记录创建日志。</p>
+     *
+     * @param deviceID 设备唯一序列号
+     * @param name 设备名称
+     * @param OS 设备操作系统
+     * @param manufacturer 设备制造商
+     * @param brand 设备品牌
+     * @param connectMode 设备连接模式
+     * @param powerMode 设备供电模式
+     * @param power 设备功率，单位：瓦特(W)
+     * @param logCreation 是否记录设备创建日志
+     */
+    protected Device(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand,
+                     ConnectMode connectMode, PowerMode powerMode, double power, boolean logCreation) {
         this.deviceID = deviceID;
+        this.actorID = String.valueOf(deviceID);
+        this.deviceUsages = new UsageStore(actorID);
         this.name = name;
         this.OS = OS;
         this.manufacturer = manufacturer;
@@ -105,7 +142,9 @@ public abstract class Device {
         this.onlineStatus = OnlineStatusType.OUTLINE;
         this.powerStatus = PowerStatusType.UNPOWERED;
         this.power = power;
-        deviceLogs.add(new Log(getDeviceID().toString(),"创建设备：" + name, Log.LogType.INFO, this.toString()));
+        if (logCreation) {
+            deviceLogs.add(new Log(actorID, "创建设备：" + name, Log.LogType.INFO, this.toString()));
+        }
     }
 
     // ==================== 基本Getter/Setter方法 ====================
@@ -212,18 +251,19 @@ public abstract class Device {
     /**
      * 获取设备使用记录
      *
-     * @return 设备使用记录集合，按关闭时间排序
+     * @return 设备使用记录集合，按关闭时间排序，遍历时生成使用记录视图（时间精确到秒）；
+     *         关闭时间相同的记录全部保留，因此不是Set
      */
-    public Set<Usage> getDeviceUsages() {
+    public Collection<Usage> getDeviceUsages() {
         return deviceUsages;
     }
 
     /**
      * 获取设备日志记录
      *
-     * @return 设备日志记录集合，按时间排序
+     * @return 设备日志存储
      */
-    public Set<Log> getDeviceLogs() {
+    public LogStore getDeviceLogs() {
         return deviceLogs;
     }
 
@@ -284,7 +324,7 @@ public abstract class Device {
     /**
      * 设置设备属性值
      *
-     * <p>设置属性值并自动记录变更日志</p>
+     * <p>设置属性值并把变更日志保存到设备日志存储，日志经过 {@link LogRateLimiter} 限流</p>
      *
      * @param <T> 属性值类型
      * @param attributeName 属性名称
@@ -295,10 +335,10 @@ public abstract class Device {
     public <T> boolean setAttribute(String attributeName, T value) {
         DeviceAttribute<T> attribute = (DeviceAttribute<T>) attributes.get(attributeName);
         if (attribute != null && attribute.setValue(value)) {
-            // 记录属性变更日志
-            new Log(getDeviceID().toString(),
-                    String.format("属性变更: %s = %s", attributeName, value),
-                    Log.LogType.INFO, null);
+            // 记录属性变更日志并保存到设备日志，限流时按属性名汇总
+            if (LogRateLimiter.get().tryAcquire(actorID, Log.LogType.INFO, attributeEvent(attributeName), deviceLogs)) {
+                deviceLogs.add(new Log(actorID, Log.LogType.INFO, null, "属性变更: {} = {}", attributeName, value));
+            }
             return true;
         }
         return false;
@@ -311,6 +351,13 @@ public abstract class Device {
      */
     protected abstract void initializeAttributes();
 
+    /**
+     * 获取设备类型
+     *
+     * @return 设备类型
+     */
+    public abstract DeviceType getDeviceType();
+
     // ==================== 设备操作方法 ====================
 
     /**
@@ -350,8 +397,8 @@ public abstract class Device {
      * <p>将设备在线状态设置为ONLINE，并记录连接日志</p>
      */
     public void connect(){
-        deviceLogs.add(new Log(getDeviceID().toString(), "连接网络", Log.LogType.INFO, null));
-        this.onlineStatus = OnlineStatusType.ONLINE;
+        addControlLog("连接网络");
+        updateOnlineStatus(OnlineStatusType.ONLINE);
     }
 
     /**
@@ -360,8 +407,8 @@ public abstract class Device {
      * <p>将设备在线状态设置为OUTLINE，并记录断开日志</p>
      */
     public void disconnect(){
-        deviceLogs.add(new Log(getDeviceID().toString(),"断开网络", Log.LogType.INFO, null));
-        this.onlineStatus = OnlineStatusType.OUTLINE;
+        addControlLog("断开网络");
+        updateOnlineStatus(OnlineStatusType.OUTLINE);
     }
 
     /**
@@ -370,25 +417,96 @@ public abstract class Device {
      * <p>将设备电源状态设置为POWERED，记录开启时间，并记录电源连接日志</p>
      */
     public void open(){
-        deviceLogs.add(new Log(getDeviceID().toString(),"连接电源", Log.LogType.INFO, null));
+        addControlLog("连接电源");
         if(this.powerStatus == PowerStatusType.UNPOWERED){
             lastOpenTime = LocalDateTime.now();
         }
-        this.powerStatus = PowerStatusType.POWERED;
+        updatePowerStatus(PowerStatusType.POWERED);
     }
 
     /**
      * 关闭设备电源
      *
-     * <p>将设备电源状态设置为UNPOWERED，创建使用记录，并记录电源断开日志</p>
+     * <p>将设备电源状态设置为UNPOWERED；设备处于开启状态时把本次使用直接追加到使用记录存储并通知状态监听器，
+     * 不创建使用记录对象。最后记录事件为"断开电源"的日志，开启状态下以本次使用记录的视图作为备注，
+     * 备注文本在读取时才生成。</p>
      */
     public void close(){
-        Usage u = new Usage(deviceID + "" + deviceUsages.size(),getPower(), lastOpenTime, LocalDateTime.now());
-        if(this.powerStatus == PowerStatusType.POWERED){
-            deviceUsages.add(u);
+        Usage usage = null;
+        if (this.powerStatus == PowerStatusType.POWERED) {
+            long open = UsageStore.secondsOf(lastOpenTime);
+            long close = LocalClock.nowSeconds();
+            // 存储按float保存功率，监听器收到同一个取值，汇总与按存储计算的能耗逐位一致
+            float stored = (float) power;
+            int position = deviceUsages.append(open, close, stored);
+            usage = deviceUsages.get(position);
+            // 监听器收到的是存储后的秒数和功率，与之后按存储计算的能耗口径一致；
+            // 先通知新增使用记录再更新电源状态，统计在同一次回调中把开启中的能耗换成已关闭的使用记录
+            DeviceStateListener listener = stateListener;
+            if (listener != null) {
+                listener.onUsageAdded(this, open, close, stored);
+            }
+        }
+        updatePowerStatus(PowerStatusType.UNPOWERED);
+        if (LogRateLimiter.get().tryAcquire(actorID, Log.LogType.INFO, "断开电源", deviceLogs)) {
+            deviceLogs.add(new Log(actorID, Log.LogType.INFO, usage, "断开电源"));
+        }
+    }
+
+    /**
+     * 获取属性变更的事件文本，每个属性名只生成一次
+     *
+     * @param attributeName 属性名称
+     * @return 事件文本
+     */
+    private static String attributeEvent(String attributeName) {
+        return ATTRIBUTE_EVENTS.computeIfAbsent(attributeName, name -> "属性变更: " + name);
+    }
+
+    /**
+     * 记录设备控制日志
+     *
+     * <p>先经过 {@link LogRateLimiter}，被限流的日志只计入重复事件汇总，不创建日志对象</p>
+     *
+     * @param event 事件描述
+     */
+    private void addControlLog(String event) {
+        if (LogRateLimiter.get().tryAcquire(actorID, Log.LogType.INFO, event, deviceLogs)) {
+            deviceLogs.add(new Log(actorID, event, Log.LogType.INFO, null));
+        }
+    }
+
+    /**
+     * 设置设备状态监听器
+     *
+     * @param stateListener 状态监听器，传入null表示取消监听
+     */
+    public void setStateListener(DeviceStateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * 更新在线状态，状态实际变化时通知监听器
+     */
+    private void updateOnlineStatus(OnlineStatusType status) {
+        OnlineStatusType previous = this.onlineStatus;
+        this.onlineStatus = status;
+        DeviceStateListener listener = stateListener;
+        if (listener != null && previous != status) {
+            listener.onOnlineStatusChanged(this, previous, status);
+        }
+    }
+
+    /**
+     * 更新电源状态，状态实际变化时通知监听器
+     */
+    private void updatePowerStatus(PowerStatusType status) {
+        PowerStatusType previous = this.powerStatus;
+        this.powerStatus = status;
+        DeviceStateListener listener = stateListener;
+        if (listener != null && previous != status) {
+            listener.onPowerStatusChanged(this, previous, status);
         }
-        this.powerStatus = PowerStatusType.UNPOWERED;
-        deviceLogs.add(new Log(getDeviceID().toString(),"断开电源", Log.LogType.INFO, u.toString()));
     }
 
     // ==================== 能耗计算方法 ====================
@@ -396,7 +514,8 @@ public abstract class Device {
     /**
      * 计算指定时间段的设备用电量
      *
-     * <p>电池设备返回0，非电池设备根据使用记录计算能耗</p>
+     * <p>电池设备返回0，非电池设备根据使用记录计算能耗。通常由 {@link UsageStore} 的前缀和以两次二分查找回答，
+     * 使用记录被外部修改为相互重叠或起始时间晚于结束时间时按列逐条计算，两者口径一致。</p>
      *
      * @param startTime 起始时间
      * @param endTime 结束时间
@@ -406,7 +525,7 @@ public abstract class Device {
         if(powerMode == PowerMode.BATTERY){
             return 0.0;
         }
-        return Util.calculatePowerConsumption(deviceUsages, startTime, endTime);
+        return deviceUsages.energy(startTime, endTime);
     }
 
     /**
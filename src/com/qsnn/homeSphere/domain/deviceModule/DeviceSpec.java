@@ -0,0 +1,183 @@
+package com.qsnn.homeSphere.domain.deviceModule;
+
+import com.qsnn.homeSphere.domain.deviceModule.attributes.DeviceAttribute;
+import com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType;
+
+import java.util.Set;
+
+/**
+ * 设备规格
+ *
+ * <p>描述待创建设备的全部参数，用于批量创建设备。规格对象不可变，参数在构造时完成校验，
+ * 批量创建时无需再逐个校验。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class DeviceSpec {
+
+    /** 设备类型 */
+    private final DeviceType deviceType;
+
+    /** 设备ID */
+    private final int deviceID;
+
+    /** 设备名称 */
+    private final String name;
+
+    /** 设备操作系统 */
+    private final String OS;
+
+    /** 设备制造商 */
+    private final Manufacturer manufacturer;
+
+    /** 设备功率，单位：瓦特(W) */
+    private final double power;
+
+    /** 设备连接模式 */
+    private final Device.ConnectMode connectMode;
+
+    /** 设备供电模式 */
+    private final Device.PowerMode powerMode;
+
+    /** 自定义属性集合，仅UNDEFINED类型设备使用 */
+    private final Set<DeviceAttribute<?>> customAttributes;
+
+    /**
+     * 设备规格构造函数（不带自定义属性）
+     *
+     * @param deviceType 设备类型
+     * @param deviceID 设备ID
+     * @param name 设备名称
+     * @param OS 设备操作系统
+     * @param manufacturer 设备制造商
+     * @param power 设备功率
+     * @param connectMode 设备连接模式
+     * @param powerMode 设备供电模式
+     */
+    public DeviceSpec(DeviceType deviceType, int deviceID, String name, String OS, Manufacturer manufacturer,
+                      double power, Device.ConnectMode connectMode, Device.PowerMode powerMode) {
+        this(deviceType, deviceID, name, OS, manufacturer, power, connectMode, powerMode, null);
+    }
+
+    /**
+     * 设备规格构造函数（带自定义属性）
+     *
+     * @param deviceType 设备类型
+     * @param deviceID 设备ID
+     * @param name 设备名称
+     * @param OS 设备操作系统
+     * @param manufacturer 设备制造商
+     * @param power 设备功率
+     * @param connectMode 设备连接模式
+     * @param powerMode 设备供电模式
+     * @param customAttributes 自定义属性集合
+     * @throws IllegalArgumentException 如果设备类型、名称或制造商为空，或UNDEFINED设备缺少自定义属性
+     */
+    public DeviceSpec(DeviceType deviceType, int deviceID, String name, String OS, Manufacturer manufacturer,
+                      double power, Device.ConnectMode connectMode, Device.PowerMode powerMode,
+                      Set<DeviceAttribute<?>> customAttributes) {
+        if (deviceType == null) {
+            throw new IllegalArgumentException("设备类型不能为空");
+        }
+        if (name == null || manufacturer == null) {
+            throw new IllegalArgumentException("设备名称和制造商不能为空");
+        }
+        if (deviceType == DeviceType.UNDEFINED && (customAttributes == null || customAttributes.isEmpty())) {
+            throw new IllegalArgumentException("UndefinedDevice必须提供自定义属性");
+        }
+        this.deviceType = deviceType;
+        this.deviceID = deviceID;
+        this.name = name;
+        this.OS = OS;
+        this.manufacturer = manufacturer;
+        this.power = power;
+        this.connectMode = connectMode;
+        this.powerMode = powerMode;
+        this.customAttributes = customAttributes;
+    }
+
+    // ==================== Getter 方法 ====================
+
+    /**
+     * 获取设备类型
+     *
+     * @return 设备类型
+     */
+    public DeviceType getDeviceType() {
+        return deviceType;
+    }
+
+    /**
+     * 获取设备ID
+     *
+     * @return 设备ID
+     */
+    public int getDeviceID() {
+        return deviceID;
+    }
+
+    /**
+     * 获取设备名称
+     *
+     * @return 设备名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取设备操作系统
+     *
+     * @return 设备操作系统
+     */
+    public String getOS() {
+        return OS;
+    }
+
+    /**
+     * 获取设备制造商
+     *
+     * @return 设备制造商
+     */
+    public Manufacturer getManufacturer() {
+        return manufacturer;
+    }
+
+    /**
+     * 获取设备功率
+     *
+     * @return 设备功率，单位：瓦特(W)
+     */
+    public double getPower() {
+        return power;
+    }
+
+    /**
+     * 获取设备连接模式
+     *
+     * @return 设备连接模式
+     */
+    public Device.ConnectMode getConnectMode() {
+        return connectMode;
+    }
+
+    /**
+     * 获取设备供电模式
+     *
+     * @return 设备供电模式
+     */
+    public Device.PowerMode getPowerMode() {
+        return powerMode;
+    }
+
+    /**
+     * 获取自定义属性集合
+     *
+     * @return 自定义属性集合，非UNDEFINED设备可能为null
+     */
+    public Set<DeviceAttribute<?>> getCustomAttributes() {
+        return customAttributes;
+    }
+}
@@ -0,0 +1,46 @@
+package com.qsnn.homeSphere.domain.deviceModule;
+
+/**
+ * 设备状态监听器
+ *
+ * <p>设备的在线状态或电源状态实际发生变化、或新增使用记录后回调，供系统维护依赖设备状态的索引和统计。
+ * 回调在修改状态的线程上同步执行，实现应尽量轻量。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public interface DeviceStateListener {
+
+    /**
+     * 在线状态变化回调
+     *
+     * @param device 状态变化的设备
+     * @param previous 变化前的在线状态
+     * @param current 变化后的在线状态
+     */
+    void onOnlineStatusChanged(Device device, Device.OnlineStatusType previous, Device.OnlineStatusType current);
+
+    /**
+     * 电源状态变化回调
+     *
+     * @param device 状态变化的设备
+     * @param previous 变化前的电源状态
+     * @param current 变化后的电源状态
+     */
+    void onPowerStatusChanged(Device device, Device.PowerStatusType previous, Device.PowerStatusType current);
+
+    /**
+     * 新增使用记录回调，在使用记录加入设备的使用记录存储之后、电源状态变为UNPOWERED之前调用
+     *
+     * <p>只传递使用记录的原始值，不创建使用记录对象；时间与 {@link UsageStore} 相同，
+     * 为本地时间按UTC换算的纪元秒数（见 {@link UsageStore#secondsOf}）。</p>
+     *
+     * @param device 设备
+     * @param openSecond 开启时间的纪元秒数
+     * @param closeSecond 关闭时间的纪元秒数
+     * @param power 功率，单位：瓦特(W)
+     */
+    default void onUsageAdded(Device device, long openSecond, long closeSecond, double power) {
+    }
+}
@@ -10,7 +10,8 @@ import java.time.format.DateTimeFormatter;
  * 设备使用记录类
  *
  * <p>该类用于记录单个设备的使用情况，包括使用时间、功率消耗等信息。
- * 每次设备使用都会自动生成对应的日志记录。</p>
+ * 每次设备使用都会自动生成对应的日志记录。设备保存的使用记录由 {@link UsageStore} 按列存储，
+ * 关闭设备时不创建使用记录对象，遍历时得到的是按列读取、不保留日志的使用记录视图。</p>
  *
  * <p><b>主要功能：</b></p>
  * <ul>
@@ -24,6 +25,9 @@ import java.time.format.DateTimeFormatter;
  *   <li>使用组合关系包含Log对象，符合单一职责原则</li>
  *   <li>所有字段均为final，确保对象不可变性</li>
  *   <li>能耗计算在构造时完成，避免重复计算</li>
+ *   <li>使用记录视图是存储内部的子类，只保存列中的原始值，Getter按需生成设备ID和时间对象；
+ *       视图不校验参数、不生成日志，{@link #getLog()} 返回null</li>
+ *   <li>toString和equals通过Getter读取字段，对视图同样适用</li>
  * </ul>
  *
  * @author qsnn
@@ -47,7 +51,7 @@ public class Usage {
     /** 能耗计算结果，单位：千瓦时(kWh) */
     private final double powerConsumption;
 
-    /** 设备使用日志记录 */
+    /** 设备使用日志记录，使用记录视图为null */
     private final Log log;
 
     /**
@@ -74,8 +78,20 @@ public class Usage {
         // 计算能耗（在构造时完成，避免重复计算）
         this.powerConsumption = calculatePowerConsumption();
 
-        // 自动生成使用日志
-        this.log = new Log(deviceID, "设备被使用", Log.LogType.INFO, this.toString());
+        // 自动生成使用日志，备注文本在输出时才生成
+        this.log = new Log(deviceID, Log.LogType.INFO, this, "设备被使用");
+    }
+
+    /**
+     * 构造使用记录视图（{@link UsageStore} 的视图子类使用），字段留空，由子类的Getter按列读取；不校验参数，不生成日志
+     */
+    Usage() {
+        this.deviceID = null;
+        this.power = 0;
+        this.openTime = null;
+        this.closeTime = null;
+        this.powerConsumption = 0;
+        this.log = null;
     }
 
     /**
@@ -172,7 +188,7 @@ public class Usage {
     /**
      * 获取设备使用日志
      *
-     * @return 对应的日志记录对象
+     * @return 对应的日志记录对象，使用记录视图返回null
      */
     public Log getLog() {
         return log;
@@ -184,7 +200,7 @@ public class Usage {
      * @return 使用时长，单位：小时
      */
     public double getUsageDurationInHours() {
-        Duration duration = Duration.between(openTime, closeTime);
+        Duration duration = Duration.between(getOpenTime(), getCloseTime());
         return duration.toSeconds() / 3600.0;
     }
 
@@ -200,10 +216,10 @@ public class Usage {
      */
     @Override
     public String toString() {
-        return "LOG[" + deviceID + "] " +
-                openTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " - " +
-                closeTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " " +
-                "功耗：" + String.format("%.3f", powerConsumption) + "kWh";
+        return "LOG[" + getDeviceID() + "] " +
+                getOpenTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " - " +
+                getCloseTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " " +
+                "功耗：" + String.format("%.3f", getPowerConsumption()) + "kWh";
     }
 
     /**
@@ -220,11 +236,11 @@ public class Usage {
         if (obj == null || getClass() != obj.getClass()) return false;
 
         Usage usage = (Usage) obj;
-        return Double.compare(usage.power, power) == 0 &&
-                Double.compare(usage.powerConsumption, powerConsumption) == 0 &&
-                deviceID.equals(usage.deviceID) &&
-                openTime.equals(usage.openTime) &&
-                closeTime.equals(usage.closeTime);
+        return Double.compare(usage.getPower(), getPower()) == 0 &&
+                Double.compare(usage.getPowerConsumption(), getPowerConsumption()) == 0 &&
+                getDeviceID().equals(usage.getDeviceID()) &&
+                getOpenTime().equals(usage.getOpenTime()) &&
+                getCloseTime().equals(usage.getCloseTime());
     }
 
 }
\ No newline at end of file
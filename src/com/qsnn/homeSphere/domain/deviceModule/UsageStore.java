@@ -0,0 +1,541 @@
+package com.qsnn.homeSphere.domain.deviceModule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 分块列式使用记录存储
+ *
+ * <p>每台设备持有一个使用记录存储。使用记录按关闭时间顺序保存在若干块中，每块按列保存开启、关闭时间的纪元秒数
+ * （本地时间按UTC换算）、功率，以及"功率 × 使用秒数"的前缀和。不保存使用记录对象、时间对象和日志对象，
+ * 设备关闭时直接追加各列的原始值；遍历时按列生成 {@link Usage} 视图。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>按关闭时间顺序追加使用记录，O(1)摊还；关闭时间早于已有记录时插入到对应位置</li>
+ *   <li>计算时间段内的能耗：使用记录互不重叠时二分查找两端后由前缀和相减，O(log n)；否则按列逐条计算</li>
+ *   <li>作为按关闭时间排序的集合（不是Set）遍历，支持通过迭代器删除和清空</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>时间精确到秒（追加时舍去秒以下部分），功率按float保存；能耗口径与
+ *       {@link com.qsnn.homeSphere.utils.Util#calculatePowerConsumption(java.util.Collection, LocalDateTime, LocalDateTime)} 一致，
+ *       单位为瓦时(Wh)</li>
+ *   <li>每条使用记录约占28字节（两个long、一个float和一个double）；块容量从8开始倍增到256，除最后一块外都是满的</li>
+ *   <li>视图只保存该条记录各列的原始值和共享的设备ID前缀，设备ID（设备序列号加记录位置）和时间对象在调用Getter时才生成；
+ *       视图不保留使用日志，修改存储后已生成的视图不变</li>
+ *   <li>关闭时间相同、甚至完全相同的使用记录全部保留，因此只实现Collection而不实现Set</li>
+ *   <li>非线程安全，由所属设备负责并发控制</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class UsageStore extends AbstractCollection<Usage> {
+
+    /** 首块容量 */
+    private static final int FIRST_CHUNK_CAPACITY = 8;
+
+    /** 最大块容量 */
+    private static final int MAX_CHUNK_CAPACITY = 256;
+
+    /** 容量小于最大容量的块数 */
+    private static final int GROWING_CHUNKS = Integer.numberOfTrailingZeros(MAX_CHUNK_CAPACITY / FIRST_CHUNK_CAPACITY);
+
+    /** 容量小于最大容量的块的总容量 */
+    private static final int GROWING_CAPACITY = FIRST_CHUNK_CAPACITY * ((1 << GROWING_CHUNKS) - 1);
+
+    /** 每条使用记录在各列中的字节数 */
+    private static final int ENTRY_BYTES = 28;
+
+    /**
+     * 一块使用记录
+     */
+    private static final class Chunk {
+
+        /** 开启时间纪元秒数 */
+        final long[] opens;
+
+        /** 关闭时间纪元秒数，跨块单调不减 */
+        final long[] closes;
+
+        /** 功率，单位：瓦特(W) */
+        final float[] powers;
+
+        /** 截至该条记录（含）的"功率 × 使用秒数"之和，单位：瓦秒 */
+        final double[] prefix;
+
+        /** 块内记录数 */
+        int count;
+
+        Chunk(int capacity) {
+            this.opens = new long[capacity];
+            this.closes = new long[capacity];
+            this.powers = new float[capacity];
+            this.prefix = new double[capacity];
+        }
+    }
+
+    /** 视图设备ID的前缀（设备序列号） */
+    private final String idPrefix;
+
+    /** 各块，只有前chunkCount个有效 */
+    private Chunk[] chunks = new Chunk[4];
+
+    /** 块数 */
+    private int chunkCount;
+
+    /** 使用记录数 */
+    private int size;
+
+    /** 是否存在与前一条记录重叠的记录，存在时能耗查询逐条计算 */
+    private boolean overlapping;
+
+    /** 结构修改次数，迭代器据此检测并发修改 */
+    private int modCount;
+
+    /**
+     * 构造使用记录存储
+     *
+     * @param idPrefix 视图设备ID的前缀，通常为设备序列号
+     */
+    public UsageStore(String idPrefix) {
+        this.idPrefix = idPrefix;
+    }
+
+    // ==================== 写操作 ====================
+
+    /**
+     * 按关闭时间顺序加入一条使用记录（时间舍去秒以下部分）
+     *
+     * @param usage 使用记录
+     * @return 总是返回true
+     */
+    @Override
+    public boolean add(Usage usage) {
+        append(secondsOf(usage.getOpenTime()), secondsOf(usage.getCloseTime()), (float) usage.getPower());
+        return true;
+    }
+
+    /**
+     * 按关闭时间顺序追加一条使用记录的各列原始值，不创建任何对象（新块除外）
+     *
+     * @param open 开启时间的纪元秒数（本地时间按UTC换算，见 {@link #secondsOf}）
+     * @param close 关闭时间的纪元秒数
+     * @param power 功率，单位：瓦特(W)
+     * @return 记录所在的位置
+     */
+    public int append(long open, long close, float power) {
+        int position = size;
+        if (size > 0 && close < closeAt(size - 1)) {
+            position = upperBound(close);
+        }
+        growByOne();
+        for (int i = size - 1; i > position; i--) {
+            copy(i - 1, i);
+        }
+        set(position, open, close, power);
+        if (position == size - 1 && !overlapping) {
+            overlapping = position > 0 && open < closeAt(position - 1);
+            updatePrefix(position, position + 1);
+        } else {
+            refresh(position);
+        }
+        modCount++;
+        return position;
+    }
+
+    /**
+     * 清空存储
+     */
+    @Override
+    public void clear() {
+        chunks = new Chunk[4];
+        chunkCount = 0;
+        size = 0;
+        overlapping = false;
+        modCount++;
+    }
+
+    // ==================== 查询 ====================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取指定位置的使用记录视图
+     *
+     * @param position 位置，按关闭时间顺序从0开始
+     * @return 使用记录视图
+     * @throws IndexOutOfBoundsException 如果位置越界
+     */
+    public Usage get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("使用记录位置越界: " + position);
+        }
+        Chunk chunk = chunks[chunkOf(position)];
+        int offset = offsetOf(position);
+        return new View(idPrefix, position, chunk.opens[offset], chunk.closes[offset], chunk.powers[offset]);
+    }
+
+    @Override
+    public Iterator<Usage> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Usage next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return get(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    /**
+     * 计算时间段内的能耗
+     *
+     * <p>使用记录互不重叠且起始时间不晚于结束时间时由前缀和回答，否则调用 {@link #scanEnergy}。</p>
+     *
+     * @param startTime 查询起始时间
+     * @param endTime 查询结束时间
+     * @return 能耗，单位：瓦时(Wh)
+     */
+    public double energy(LocalDateTime startTime, LocalDateTime endTime) {
+        if (overlapping || startTime.isAfter(endTime)) {
+            return scanEnergy(startTime, endTime);
+        }
+        long start = startTime.toEpochSecond(ZoneOffset.UTC);
+        long end = endTime.toEpochSecond(ZoneOffset.UTC);
+        int startNano = startTime.getNano();
+        // 关闭时间不早于起始时间即关闭秒数不小于起始时间向上取整的秒数
+        long ceilStart = startNano > 0 ? start + 1 : start;
+        int first = lowerBound(ceilStart);
+        int last = upperBound(end);
+        double wattSeconds = 0;
+        if (first < last) {
+            long open = openAt(first);
+            if (open < ceilStart) {
+                // 只有第一条记录可能跨越起点，其余记录完整落在时间段内
+                wattSeconds += powerAt(first) * (closeAt(first) - ceilStart) + prefixBefore(last) - prefixAt(first);
+            } else {
+                wattSeconds += prefixBefore(last) - prefixBefore(first);
+            }
+        }
+        // 关闭时间之后的第一条记录可能跨越终点（也可能同时跨越起点）
+        if (last < size && openAt(last) <= end) {
+            long open = openAt(last);
+            long seconds = open >= ceilStart ? end - open
+                    : end - start - (endTime.getNano() < startNano ? 1 : 0);
+            wattSeconds += powerAt(last) * seconds;
+        }
+        return wattSeconds / 3600.0;
+    }
+
+    /**
+     * 逐条计算时间段内的能耗
+     *
+     * <p>按列遍历全部使用记录，与逐个使用记录对象计算的口径完全一致，包括起始时间晚于结束时间的情况。</p>
+     *
+     * @param startTime 查询起始时间
+     * @param endTime 查询结束时间
+     * @return 能耗，单位：瓦时(Wh)
+     */
+    public double scanEnergy(LocalDateTime startTime, LocalDateTime endTime) {
+        long start = startTime.toEpochSecond(ZoneOffset.UTC);
+        long end = endTime.toEpochSecond(ZoneOffset.UTC);
+        int startNano = startTime.getNano();
+        int endNano = endTime.getNano();
+        long ceilStart = startNano > 0 ? start + 1 : start;
+        double wattSeconds = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            Chunk chunk = chunks[c];
+            long[] opens = chunk.opens;
+            long[] closes = chunk.closes;
+            float[] powers = chunk.powers;
+            for (int i = 0, n = chunk.count; i < n; i++) {
+                long open = opens[i];
+                long close = closes[i];
+                if (close < ceilStart || open > end) {
+                    continue;
+                }
+                // 重叠部分为[max(开启, 起始), min(关闭, 结束)]，按秒向下取整
+                long fromSecond = open >= ceilStart ? open : start;
+                int fromNano = open >= ceilStart ? 0 : startNano;
+                long toSecond = close <= end ? close : end;
+                int toNano = close <= end ? 0 : endNano;
+                wattSeconds += (double) powers[i] * (toSecond - fromSecond - (toNano < fromNano ? 1 : 0));
+            }
+        }
+        return wattSeconds / 3600.0;
+    }
+
+    /**
+     * 计算全部使用记录的能耗
+     *
+     * @return 总能耗，单位：千瓦时(kWh)，与逐个累加 {@link Usage#getPowerConsumption()} 的口径一致
+     */
+    public double totalEnergy() {
+        return size == 0 ? 0 : prefixAt(size - 1) / 3600.0 / 1000.0;
+    }
+
+    /**
+     * 估算存储占用的堆内存字节数
+     *
+     * @return 估算字节数
+     */
+    public long estimatedBytes() {
+        long bytes = 40L + 16L + chunks.length * 4L;
+        for (int c = 0; c < chunkCount; c++) {
+            bytes += 24L + 4 * 16L + (long) chunks[c].opens.length * ENTRY_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * 将时间换算为存储使用的纪元秒数（本地时间按UTC换算，舍去秒以下部分）
+     *
+     * @param time 时间
+     * @return 纪元秒数
+     */
+    public static long secondsOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // ==================== 使用记录视图 ====================
+
+    /**
+     * 按列读取的使用记录视图，只保存该条记录的原始值，Getter按需生成设备ID和时间对象
+     */
+    private static final class View extends Usage {
+
+        /** 设备ID前缀，同一存储的视图共享 */
+        private final String idPrefix;
+
+        /** 生成视图时记录所在的位置 */
+        private final int position;
+
+        private final long open;
+
+        private final long close;
+
+        private final float power;
+
+        View(String idPrefix, int position, long open, long close, float power) {
+            this.idPrefix = idPrefix;
+            this.position = position;
+            this.open = open;
+            this.close = close;
+            this.power = power;
+        }
+
+        @Override
+        public String getDeviceID() {
+            return idPrefix + position;
+        }
+
+        @Override
+        public double getPower() {
+            return power;
+        }
+
+        @Override
+        public LocalDateTime getOpenTime() {
+            return LocalDateTime.ofEpochSecond(open, 0, ZoneOffset.UTC);
+        }
+
+        @Override
+        public LocalDateTime getCloseTime() {
+            return LocalDateTime.ofEpochSecond(close, 0, ZoneOffset.UTC);
+        }
+
+        @Override
+        public double getPowerConsumption() {
+            return (double) power * ((close - open) / 3600.0) / 1000.0;
+        }
+
+        @Override
+        public double getUsageDurationInHours() {
+            return (close - open) / 3600.0;
+        }
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 删除指定位置的使用记录，后面的记录前移
+     */
+    private void removeAt(int position) {
+        for (int i = position + 1; i < size; i++) {
+            copy(i, i - 1);
+        }
+        Chunk tail = chunks[chunkCount - 1];
+        if (--tail.count == 0) {
+            chunks[--chunkCount] = null;
+        }
+        size--;
+        refresh(position);
+        modCount++;
+    }
+
+    /**
+     * 末尾增加一个位置，需要时分配新块
+     */
+    private void growByOne() {
+        if (chunkCount == 0 || chunks[chunkCount - 1].count == chunks[chunkCount - 1].opens.length) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            int capacity = Math.min(MAX_CHUNK_CAPACITY, FIRST_CHUNK_CAPACITY << Math.min(chunkCount, GROWING_CHUNKS));
+            chunks[chunkCount++] = new Chunk(capacity);
+        }
+        chunks[chunkCount - 1].count++;
+        size++;
+    }
+
+    /**
+     * 插入或删除后重新计算从from开始的前缀和以及重叠标记
+     */
+    private void refresh(int from) {
+        updatePrefix(from, size);
+        overlapping = false;
+        for (int i = 1; i < size && !overlapping; i++) {
+            overlapping = openAt(i) < closeAt(i - 1);
+        }
+    }
+
+    private void updatePrefix(int from, int to) {
+        double sum = prefixBefore(from);
+        for (int i = from; i < to; i++) {
+            Chunk chunk = chunks[chunkOf(i)];
+            int offset = offsetOf(i);
+            sum += (double) chunk.powers[offset] * (chunk.closes[offset] - chunk.opens[offset]);
+            chunk.prefix[offset] = sum;
+        }
+    }
+
+    /**
+     * 第一条关闭时间不早于second的记录位置
+     */
+    private int lowerBound(long second) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (closeAt(mid) < second) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一条关闭时间晚于second的记录位置
+     */
+    private int upperBound(long second) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (closeAt(mid) <= second) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void set(int position, long open, long close, float power) {
+        Chunk chunk = chunks[chunkOf(position)];
+        int offset = offsetOf(position);
+        chunk.opens[offset] = open;
+        chunk.closes[offset] = close;
+        chunk.powers[offset] = power;
+    }
+
+    private void copy(int from, int to) {
+        set(to, openAt(from), closeAt(from), (float) powerAt(from));
+    }
+
+    private long openAt(int position) {
+        return chunks[chunkOf(position)].opens[offsetOf(position)];
+    }
+
+    private long closeAt(int position) {
+        return chunks[chunkOf(position)].closes[offsetOf(position)];
+    }
+
+    private double powerAt(int position) {
+        return chunks[chunkOf(position)].powers[offsetOf(position)];
+    }
+
+    private double prefixAt(int position) {
+        return chunks[chunkOf(position)].prefix[offsetOf(position)];
+    }
+
+    /**
+     * 位置之前全部记录的"功率 × 使用秒数"之和
+     */
+    private double prefixBefore(int position) {
+        return position == 0 ? 0 : prefixAt(position - 1);
+    }
+
+    /**
+     * 位置所在的块序号：前几块容量为8、16、...、128，之后每块256
+     */
+    private static int chunkOf(int position) {
+        if (position < GROWING_CAPACITY) {
+            return 31 - Integer.numberOfLeadingZeros(position / FIRST_CHUNK_CAPACITY + 1);
+        }
+        return GROWING_CHUNKS + (position - GROWING_CAPACITY) / MAX_CHUNK_CAPACITY;
+    }
+
+    /**
+     * 位置在所在块内的下标
+     */
+    private static int offsetOf(int position) {
+        if (position < GROWING_CAPACITY) {
+            int chunk = 31 - Integer.numberOfLeadingZeros(position / FIRST_CHUNK_CAPACITY + 1);
+            return position - FIRST_CHUNK_CAPACITY * ((1 << chunk) - 1);
+        }
+        return (position - GROWING_CAPACITY) % MAX_CHUNK_CAPACITY;
+    }
+}
@@ -8,10 +8,19 @@ import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
 
 public class AirConditioner extends Device {
     public AirConditioner(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power) {
-        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power);
+        this(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, true);
+    }
+
+    public AirConditioner(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power, boolean logCreation) {
+        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, logCreation);
         initializeAttributes();
     }
 
+    @Override
+    public DeviceType getDeviceType() {
+        return DeviceType.AIR_CONDITIONER;
+    }
+
     @Override
     protected void initializeAttributes() {
         // 模式控制
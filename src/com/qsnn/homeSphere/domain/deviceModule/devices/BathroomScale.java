@@ -6,10 +6,19 @@ import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
 public class BathroomScale extends Device {
 
     public BathroomScale(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power) {
-        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power);
+        this(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, true);
+    }
+
+    public BathroomScale(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power, boolean logCreation) {
+        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, logCreation);
         initializeAttributes();
     }
 
+    @Override
+    public DeviceType getDeviceType() {
+        return DeviceType.BATHROOM_SCALE;
+    }
+
     @Override
     protected void initializeAttributes() {}
 
@@ -7,10 +7,19 @@ import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
 
 public class LightBulb extends Device {
     public LightBulb(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power) {
-        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power);
+        this(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, true);
+    }
+
+    public LightBulb(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power, boolean logCreation) {
+        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, logCreation);
         initializeAttributes();
     }
 
+    @Override
+    public DeviceType getDeviceType() {
+        return DeviceType.LIGHT_BULB;
+    }
+
     @Override
     protected void initializeAttributes() {
         // 色温
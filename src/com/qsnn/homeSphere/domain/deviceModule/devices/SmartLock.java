@@ -7,10 +7,19 @@ import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
 
 public class SmartLock extends Device {
     public SmartLock(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power) {
-        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power);
+        this(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, true);
+    }
+
+    public SmartLock(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power, boolean logCreation) {
+        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, logCreation);
         initializeAttributes();
     }
 
+    @Override
+    public DeviceType getDeviceType() {
+        return DeviceType.SMART_LOCK;
+    }
+
     @Override
     protected void initializeAttributes() {
         // 供电模式
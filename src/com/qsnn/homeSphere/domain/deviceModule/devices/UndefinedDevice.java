@@ -8,12 +8,21 @@ import java.util.Set;
 
 public class UndefinedDevice extends Device {
     public UndefinedDevice(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power, Set<DeviceAttribute<?>> attributes ) {
-        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power);
+        this(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, attributes, true);
+    }
+
+    public UndefinedDevice(Integer deviceID, String name, String OS, Manufacturer manufacturer, String brand, ConnectMode connectMode, PowerMode powerMode, double power, Set<DeviceAttribute<?>> attributes, boolean logCreation) {
+        super(deviceID, name, OS, manufacturer, brand, connectMode, powerMode, power, logCreation);
         for (DeviceAttribute<?> attribute : attributes) {
             addAttribute(attribute.getName(), attribute);
         }
     }
 
+    @Override
+    public DeviceType getDeviceType() {
+        return DeviceType.UNDEFINED;
+    }
+
     @Override
     protected void initializeAttributes() {
 
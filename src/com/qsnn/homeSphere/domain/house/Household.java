@@ -1,6 +1,8 @@
 package com.qsnn.homeSphere.domain.house;
 
+import com.qsnn.homeSphere.domain.EntityType;
 import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogStore;
 
 import java.util.*;
 
@@ -19,7 +21,7 @@ import java.util.*;
  * <p><b>设计特点：</b></p>
  * <ul>
  *   <li>家庭ID为final，确保唯一性和不变性</li>
- *   <li>使用TreeSet存储日志，按时间排序</li>
+ *   <li>使用只追加的分块日志存储，按时间范围查询</li>
  *   <li>在构造时自动记录家庭创建日志</li>
  * </ul>
  *
@@ -42,9 +44,9 @@ public class Household {
 
     /**
      * 家庭日志记录集合
-     * 使用TreeSet并按日志时间排序，确保日志按时间顺序存储
+     * 使用只追加的分块存储，时间相同的日志全部保留
      */
-    protected final Set<Log> householdLogs = new TreeSet<>(Comparator.comparing(Log::getT)); //日志记录
+    protected final LogStore householdLogs = new LogStore(EntityType.HOUSEHOLD); //日志记录
 
     /**
      * 家庭构造函数
@@ -105,11 +107,11 @@ public class Household {
     /**
      * 获取家庭日志集合
      *
-     * <p>返回的日志集合按时间顺序排序</p>
+     * <p>日志按追加顺序保存，可通过 {@link LogStore#range} 按时间范围查询</p>
      *
-     * @return 家庭的日志记录集合，按时间排序
+     * @return 家庭的日志存储
      */
-    public Set<Log> getHouseholdLogs() {
+    public LogStore getHouseholdLogs() {
         return householdLogs;
     }
 
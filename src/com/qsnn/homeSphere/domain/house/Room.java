@@ -1,6 +1,8 @@
 package com.qsnn.homeSphere.domain.house;
 
+import com.qsnn.homeSphere.domain.EntityType;
 import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogStore;
 
 import java.util.*;
 
@@ -19,7 +21,7 @@ import java.util.*;
  * <p><b>设计特点：</b></p>
  * <ul>
  *   <li>房间ID为final，确保唯一性和不变性</li>
- *   <li>使用TreeSet存储日志，按时间排序</li>
+ *   <li>使用只追加的分块日志存储，按时间范围查询</li>
  *   <li>在构造时自动记录房间创建日志</li>
  * </ul>
  *
@@ -43,9 +45,9 @@ public class Room {
 
     /**
      * 房间日志记录集合
-     * 使用TreeSet并按日志时间排序，确保日志按时间顺序存储
+     * 使用只追加的分块存储，时间相同的日志全部保留
      */
-    protected final Set<Log> roomLogs = new TreeSet<>(Comparator.comparing(Log::getT));
+    protected final LogStore roomLogs = new LogStore(EntityType.ROOM);
 
     /**
      * 房间构造函数
@@ -105,11 +107,11 @@ public class Room {
     /**
      * 获取房间日志集合
      *
-     * <p>返回的日志集合按时间顺序排序</p>
+     * <p>日志按追加顺序保存，可通过 {@link LogStore#range} 按时间范围查询</p>
      *
-     * @return 房间的日志记录集合，按时间排序
+     * @return 房间的日志存储
      */
-    public Set<Log> getRoomLogs() {
+    public LogStore getRoomLogs() {
         return roomLogs;
     }
 
@@ -199,7 +201,7 @@ public class Room {
      * <p>由于roomLogs是protected，子类可以直接访问添加日志</p>
      *
      * @param log 要添加的日志对象
-     * @return 如果日志添加成功返回true，如果日志已存在返回false
+     * @return 总是返回true，日志存储只追加，不去重
      */
     protected boolean addLog(Log log) {
         return roomLogs.add(log);
@@ -1,11 +1,10 @@
 package com.qsnn.homeSphere.domain.users;
 
+import com.qsnn.homeSphere.domain.EntityType;
 import com.qsnn.homeSphere.log.Log;
+import com.qsnn.homeSphere.log.LogStore;
 
-import java.util.Comparator;
-import java.util.Set;
 import java.util.StringJoiner;
-import java.util.TreeSet;
 
 /**
  * 用户类
@@ -22,8 +21,9 @@ import java.util.TreeSet;
  * <p><b>设计特点：</b></p>
  * <ul>
  *   <li>用户ID为final，确保唯一性和不变性</li>
- *   <li>使用TreeSet存储日志，按时间排序</li>
+ *   <li>使用只追加的分块日志存储，按时间范围查询</li>
  *   <li>在构造时自动记录用户注册日志</li>
+ *   <li>可变字段为volatile：分片部署中同一用户对象被多个分片线程读取，修改后对各分片立即可见</li>
  * </ul>
  *
  * @author qsnn
@@ -35,22 +35,22 @@ public class User {
     private final int userID;
 
     /** 用户名，用于登录认证 */
-    private String username;
+    private volatile String username;
 
     /** 用户密码，用于登录认证 */
-    private String password;
+    private volatile String password;
 
     /** 用户真实姓名 */
-    private String name;
+    private volatile String name;
 
     /** 用户联系地址 */
-    private String address;
+    private volatile String address;
 
     /**
      * 用户日志记录集合
-     * 使用TreeSet并按日志时间排序，确保日志按时间顺序存储
+     * 使用只追加的分块存储，时间相同的日志全部保留
      */
-    protected final Set<Log> userLogs = new TreeSet<>(Comparator.comparing(Log::getT)); //日志记录
+    protected final LogStore userLogs = new LogStore(EntityType.USER); //日志记录
 
     /**
      * 用户构造函数
@@ -122,11 +122,11 @@ public class User {
     /**
      * 获取用户日志集合
      *
-     * <p>返回的日志集合按时间顺序排序</p>
+     * <p>日志按追加顺序保存，可通过 {@link LogStore#range} 按时间范围查询</p>
      *
-     * @return 用户的日志记录集合，按时间排序
+     * @return 用户的日志存储
      */
-    public Set<Log> getUserLogs() {
+    public LogStore getUserLogs() {
         return userLogs;
     }
 
@@ -0,0 +1,284 @@
+package com.qsnn.homeSphere.index;
+
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.DeviceStateListener;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+import com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntSetMultimap;
+import com.qsnn.homeSphere.utils.primitive.IntHashSet;
+import com.qsnn.homeSphere.utils.primitive.IntSetRelation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * 设备二级索引
+ *
+ * <p>按设备类型、连接模式、供电模式、制造商维护"属性值 -> 设备ID集合"索引，在线状态和电源状态由
+ * {@link DeviceStatusIndex} 按家庭分片索引，使设备群查询无需遍历全部设备对象。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>枚举属性以常量序号作为键，制造商按名称映射为紧凑的int编号</li>
+ *   <li>类型、连接模式、供电模式、制造商在设备生命周期内不变，只在登记和注销时更新</li>
+ *   <li>在线状态与电源状态通过 {@link DeviceStateListener} 回调增量更新</li>
+ *   <li>状态索引不按状态值集中保存（每种状态只有少数几个取值，按状态值分段时全部设备挤在同一段中），
+ *       而是按家庭分片，状态变化只锁定设备所在家庭的分片；并发查询可能短暂地漏掉正在变化的设备</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class DeviceIndex implements DeviceStateListener {
+
+    /** 设备类型索引 */
+    private final ConcurrentIntSetMultimap byType = new ConcurrentIntSetMultimap();
+
+    /** 连接模式索引 */
+    private final ConcurrentIntSetMultimap byConnectMode = new ConcurrentIntSetMultimap();
+
+    /** 供电模式索引 */
+    private final ConcurrentIntSetMultimap byPowerMode = new ConcurrentIntSetMultimap();
+
+    /** 制造商索引 */
+    private final ConcurrentIntSetMultimap byManufacturer = new ConcurrentIntSetMultimap();
+
+    /** 制造商名称到编号的映射 */
+    private final Map<String, Integer> manufacturerCodes = new ConcurrentHashMap<>();
+
+    /** 下一个制造商编号 */
+    private final AtomicInteger nextManufacturerCode = new AtomicInteger();
+
+    /** 在线状态与电源状态索引，按家庭分片 */
+    private final DeviceStatusIndex statusIndex = new DeviceStatusIndex();
+
+    // ==================== 维护方法 ====================
+
+    /**
+     * 登记设备
+     *
+     * @param device 设备
+     */
+    public void add(Device device) {
+        int id = device.getDeviceID();
+        byType.put(device.getDeviceType().ordinal(), id);
+        byConnectMode.put(device.getConnectMode().ordinal(), id);
+        byPowerMode.put(device.getPowerMode().ordinal(), id);
+        byManufacturer.put(manufacturerCode(device.getManufacturer()), id);
+        statusIndex.register(id, device.getOnlineStatus(), device.getPowerStatus());
+    }
+
+    /**
+     * 批量登记设备，每个属性值只获取一次分段锁
+     *
+     * @param devices 设备列表
+     */
+    public void addAll(List<Device> devices) {
+        putGrouped(byType, devices, d -> d.getDeviceType().ordinal());
+        putGrouped(byConnectMode, devices, d -> d.getConnectMode().ordinal());
+        putGrouped(byPowerMode, devices, d -> d.getPowerMode().ordinal());
+        putGrouped(byManufacturer, devices, d -> manufacturerCode(d.getManufacturer()));
+        for (Device device : devices) {
+            statusIndex.register(device.getDeviceID(), device.getOnlineStatus(), device.getPowerStatus());
+        }
+    }
+
+    /**
+     * 注销设备，保留设备在状态索引中的序号与家庭归属
+     *
+     * @param device 设备
+     */
+    public void remove(Device device) {
+        int id = device.getDeviceID();
+        byType.remove(device.getDeviceType().ordinal(), id);
+        byConnectMode.remove(device.getConnectMode().ordinal(), id);
+        byPowerMode.remove(device.getPowerMode().ordinal(), id);
+        byManufacturer.remove(manufacturerCode(device.getManufacturer()), id);
+        statusIndex.clearStatus(id);
+    }
+
+    /**
+     * 释放已删除设备在状态索引中的序号（调用方需先解除其家庭归属）
+     *
+     * @param deviceID 设备ID
+     */
+    public void release(int deviceID) {
+        statusIndex.release(deviceID);
+    }
+
+    /**
+     * 记录设备加入家庭
+     *
+     * @param householdID 家庭ID
+     * @param deviceID 设备ID
+     */
+    public void assignHousehold(int householdID, int deviceID) {
+        statusIndex.assignHousehold(householdID, deviceID);
+    }
+
+    /**
+     * 记录一批设备加入家庭
+     *
+     * @param householdID 家庭ID
+     * @param deviceIDs 设备ID数组
+     */
+    public void assignHousehold(int householdID, int[] deviceIDs) {
+        statusIndex.assignHousehold(householdID, deviceIDs);
+    }
+
+    /**
+     * 记录设备离开家庭
+     *
+     * @param householdID 家庭ID
+     * @param deviceID 设备ID
+     */
+    public void unassignHousehold(int householdID, int deviceID) {
+        statusIndex.unassignHousehold(householdID, deviceID);
+    }
+
+    /**
+     * 删除家庭的状态分片
+     *
+     * @param householdID 家庭ID
+     */
+    public void dropHousehold(int householdID) {
+        statusIndex.dropHousehold(householdID);
+    }
+
+    @Override
+    public void onOnlineStatusChanged(Device device, Device.OnlineStatusType previous,
+                                      Device.OnlineStatusType current) {
+        statusIndex.onlineStatusChanged(device.getDeviceID(), previous, current);
+    }
+
+    @Override
+    public void onPowerStatusChanged(Device device, Device.PowerStatusType previous,
+                                     Device.PowerStatusType current) {
+        statusIndex.powerStatusChanged(device.getDeviceID(), previous, current);
+    }
+
+    // ==================== 查询方法 ====================
+
+    /**
+     * 创建设备查询
+     *
+     * @param householdDevices 家庭到设备的关系
+     * @param roomDevices 房间到设备的关系
+     * @param resolver 设备ID到设备对象的解析函数
+     * @return 新的查询对象
+     */
+    public DeviceQuery query(IntSetRelation householdDevices, IntSetRelation roomDevices,
+                             IntFunction<Device> resolver) {
+        return new DeviceQuery(this, householdDevices, roomDevices, resolver);
+    }
+
+    /**
+     * 统计指定类型的设备数量
+     *
+     * @param type 设备类型
+     * @return 设备数量
+     */
+    public int count(DeviceType type) {
+        return byType.size(type.ordinal());
+    }
+
+    /**
+     * 统计指定在线状态的设备数量
+     *
+     * @param status 在线状态
+     * @return 设备数量
+     */
+    public int count(Device.OnlineStatusType status) {
+        return statusIndex.count(status);
+    }
+
+    /**
+     * 统计指定电源状态的设备数量
+     *
+     * @param status 电源状态
+     * @return 设备数量
+     */
+    public int count(Device.PowerStatusType status) {
+        return statusIndex.count(status);
+    }
+
+    /**
+     * 统计家庭中指定在线状态的设备数量
+     *
+     * @param householdID 家庭ID
+     * @param status 在线状态
+     * @return 设备数量
+     */
+    public int count(int householdID, Device.OnlineStatusType status) {
+        return statusIndex.count(householdID, status);
+    }
+
+    /**
+     * 统计家庭中指定电源状态的设备数量
+     *
+     * @param householdID 家庭ID
+     * @param status 电源状态
+     * @return 设备数量
+     */
+    public int count(int householdID, Device.PowerStatusType status) {
+        return statusIndex.count(householdID, status);
+    }
+
+    ConcurrentIntSetMultimap byType() {
+        return byType;
+    }
+
+    ConcurrentIntSetMultimap byConnectMode() {
+        return byConnectMode;
+    }
+
+    ConcurrentIntSetMultimap byPowerMode() {
+        return byPowerMode;
+    }
+
+    ConcurrentIntSetMultimap byManufacturer() {
+        return byManufacturer;
+    }
+
+    IntSetRelation byOnlineStatus() {
+        return statusIndex.onlineStatuses();
+    }
+
+    IntSetRelation byPowerStatus() {
+        return statusIndex.powerStatuses();
+    }
+
+    /**
+     * 获取制造商编号，未登记过的制造商返回-1
+     */
+    int existingManufacturerCode(Manufacturer manufacturer) {
+        Integer code = manufacturerCodes.get(manufacturer.getName());
+        return code != null ? code : -1;
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 获取或分配制造商编号
+     */
+    private int manufacturerCode(Manufacturer manufacturer) {
+        return manufacturerCodes.computeIfAbsent(manufacturer.getName(), name -> nextManufacturerCode.getAndIncrement());
+    }
+
+    /**
+     * 按键分组后批量写入索引
+     */
+    private static void putGrouped(ConcurrentIntSetMultimap index, List<Device> devices, ToIntFunction<Device> keyOf) {
+        Map<Integer, IntHashSet> groups = new HashMap<>();
+        for (Device device : devices) {
+            groups.computeIfAbsent(keyOf.applyAsInt(device), key -> new IntHashSet()).add(device.getDeviceID());
+        }
+        groups.forEach((key, ids) -> index.putAll(key, ids.toArray()));
+    }
+}
@@ -0,0 +1,240 @@
+package com.qsnn.homeSphere.index;
+
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+import com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType;
+import com.qsnn.homeSphere.utils.primitive.IntSetRelation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * 设备组合查询
+ *
+ * <p>以链式调用组合多个条件，结果为同时满足全部条件的设备。例如：</p>
+ * <pre>
+ * system.queryDevices()
+ *       .connectMode(Device.ConnectMode.ZIGBEE)
+ *       .onlineStatus(Device.OnlineStatusType.OUTLINE)
+ *       .ids();
+ * </pre>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>每个条件对应一个"键 -> 设备集合"关系，求交集时以最小的集合为基础，其余条件逐个做O(1)成员检查</li>
+ *   <li>查询对象不可跨线程共享，每次查询应新建</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class DeviceQuery {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final DeviceIndex index;
+
+    private final IntSetRelation householdDevices;
+
+    private final IntSetRelation roomDevices;
+
+    private final IntFunction<Device> resolver;
+
+    /** 条件关系 */
+    private final List<IntSetRelation> relations = new ArrayList<>();
+
+    /** 条件键，与relations一一对应 */
+    private int[] keys = new int[4];
+
+    /** 存在不可能满足的条件（如从未登记过的制造商） */
+    private boolean unsatisfiable;
+
+    DeviceQuery(DeviceIndex index, IntSetRelation householdDevices, IntSetRelation roomDevices,
+                IntFunction<Device> resolver) {
+        this.index = index;
+        this.householdDevices = householdDevices;
+        this.roomDevices = roomDevices;
+        this.resolver = resolver;
+    }
+
+    // ==================== 条件方法 ====================
+
+    /**
+     * 限定设备类型
+     *
+     * @param type 设备类型
+     * @return 本查询对象
+     */
+    public DeviceQuery type(DeviceType type) {
+        return where(index.byType(), type.ordinal());
+    }
+
+    /**
+     * 限定连接模式
+     *
+     * @param connectMode 连接模式
+     * @return 本查询对象
+     */
+    public DeviceQuery connectMode(Device.ConnectMode connectMode) {
+        return where(index.byConnectMode(), connectMode.ordinal());
+    }
+
+    /**
+     * 限定供电模式
+     *
+     * @param powerMode 供电模式
+     * @return 本查询对象
+     */
+    public DeviceQuery powerMode(Device.PowerMode powerMode) {
+        return where(index.byPowerMode(), powerMode.ordinal());
+    }
+
+    /**
+     * 限定制造商（按名称匹配）
+     *
+     * @param manufacturer 制造商
+     * @return 本查询对象
+     */
+    public DeviceQuery manufacturer(Manufacturer manufacturer) {
+        int code = index.existingManufacturerCode(manufacturer);
+        if (code < 0) {
+            unsatisfiable = true;
+            return this;
+        }
+        return where(index.byManufacturer(), code);
+    }
+
+    /**
+     * 限定在线状态
+     *
+     * @param status 在线状态
+     * @return 本查询对象
+     */
+    public DeviceQuery onlineStatus(Device.OnlineStatusType status) {
+        return where(index.byOnlineStatus(), status.ordinal());
+    }
+
+    /**
+     * 限定电源状态
+     *
+     * @param status 电源状态
+     * @return 本查询对象
+     */
+    public DeviceQuery powerStatus(Device.PowerStatusType status) {
+        return where(index.byPowerStatus(), status.ordinal());
+    }
+
+    /**
+     * 限定所属家庭
+     *
+     * @param householdID 家庭ID
+     * @return 本查询对象
+     */
+    public DeviceQuery inHousehold(int householdID) {
+        return where(householdDevices, householdID);
+    }
+
+    /**
+     * 限定所在房间
+     *
+     * @param roomID 房间ID
+     * @return 本查询对象
+     */
+    public DeviceQuery inRoom(int roomID) {
+        return where(roomDevices, roomID);
+    }
+
+    // ==================== 结果方法 ====================
+
+    /**
+     * 获取满足全部条件的设备ID
+     *
+     * @return 设备ID数组
+     * @throws IllegalArgumentException 如果没有任何条件
+     */
+    public int[] ids() {
+        if (relations.isEmpty() && !unsatisfiable) {
+            throw new IllegalArgumentException("查询至少需要一个条件");
+        }
+        if (unsatisfiable) {
+            return EMPTY;
+        }
+
+        // 以最小的集合为基础
+        int smallest = 0;
+        int smallestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < relations.size(); i++) {
+            int size = relations.get(i).size(keys[i]);
+            if (size < smallestSize) {
+                smallest = i;
+                smallestSize = size;
+            }
+        }
+        if (smallestSize == 0) {
+            return EMPTY;
+        }
+
+        int[] candidates = relations.get(smallest).get(keys[smallest]);
+        int matched = 0;
+        for (int id : candidates) {
+            if (matchesAll(id, smallest)) {
+                candidates[matched++] = id;
+            }
+        }
+        return matched == candidates.length ? candidates : Arrays.copyOf(candidates, matched);
+    }
+
+    /**
+     * 获取满足全部条件的设备
+     *
+     * @return 设备集合
+     */
+    public Set<Device> list() {
+        int[] ids = ids();
+        Set<Device> result = new HashSet<>(Math.max(4, ids.length * 4 / 3 + 1));
+        for (int id : ids) {
+            Device device = resolver.apply(id);
+            if (device != null) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 统计满足全部条件的设备数量
+     *
+     * @return 设备数量
+     */
+    public int count() {
+        if (relations.size() == 1 && !unsatisfiable) {
+            return relations.get(0).size(keys[0]);
+        }
+        return ids().length;
+    }
+
+    // ==================== 私有方法 ====================
+
+    private DeviceQuery where(IntSetRelation relation, int key) {
+        if (relations.size() == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[relations.size()] = key;
+        relations.add(relation);
+        return this;
+    }
+
+    private boolean matchesAll(int id, int skip) {
+        for (int i = 0; i < relations.size(); i++) {
+            if (i != skip && !relations.get(i).contains(keys[i], id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
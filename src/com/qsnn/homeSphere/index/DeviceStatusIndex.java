@@ -0,0 +1,605 @@
+package com.qsnn.homeSphere.index;
+
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntIntMap;
+import com.qsnn.homeSphere.utils.primitive.IntSetRelation;
+import com.qsnn.homeSphere.utils.primitive.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 设备状态索引
+ *
+ * <p>设备在线状态与电源状态的唯一索引。为每台设备分配一个稠密序号，按序号在分块的状态列中保存每台设备的状态
+ * （每台设备1字节），并按家庭分片维护各状态的设备数："家庭H中已供电的设备数"直接读取家庭H分片的计数，
+ * 无需访问任何设备对象，也无需求交集。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>按家庭统计、全量统计各状态的设备数</li>
+ *   <li>以 {@link IntSetRelation} 的形式提供"状态 -> 设备ID集合"关系，供 {@link DeviceQuery} 求交集：
+ *       成员检查直接读取状态列，列出设备时顺序扫描状态列</li>
+ *   <li>设备加入、离开家庭时在分片之间转移其计数</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>设备ID可能稀疏，序号从0开始连续分配，删除设备后回收复用，使状态列保持稠密</li>
+ *   <li>状态不按状态值集中保存（每种状态只有少数几个取值，按状态值分段时全部设备挤在同一段中），
+ *       状态变化只锁定设备所在家庭的分片，不同家庭的设备并行更新</li>
+ *   <li>每台设备所属的分片引用按序号保存在分块的列中，定位分片不需要查找家庭表；
+ *       归属只在持有新旧两个分片的锁时修改（按分片创建顺序加锁，避免死锁），更新状态前先定位分片、加锁后再确认归属未变</li>
+ *   <li>各列分块分配，扩容只复制块数组，块本身不移动，持有分片锁的写入不会因扩容丢失；读取无锁</li>
+ *   <li>全量统计由每种状态一个 {@link LongAdder} 计数，不遍历分片</li>
+ *   <li>设备被删除时调用方需先解除家庭归属，再释放序号</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class DeviceStatusIndex {
+
+    private static final Device.OnlineStatusType[] ONLINE_STATUSES = Device.OnlineStatusType.values();
+
+    private static final Device.PowerStatusType[] POWER_STATUSES = Device.PowerStatusType.values();
+
+    /** 每块保存的设备数 */
+    private static final int CHUNK_BITS = 12;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** 状态字节中表示已登记的位 */
+    private static final int REGISTERED = 0x40;
+
+    /** 状态字节中在线状态序号的左移位数，低位为电源状态序号 */
+    private static final int ONLINE_SHIFT = 3;
+
+    private static final int STATUS_MASK = (1 << ONLINE_SHIFT) - 1;
+
+    /** 设备ID到序号的映射 */
+    private final ConcurrentIntIntMap ordinals = new ConcurrentIntIntMap();
+
+    /** 按序号分块的状态列，0表示未登记；块数组只在持有本对象锁时扩容 */
+    private volatile byte[][] statuses = new byte[4][];
+
+    /** 按序号分块的设备ID列 */
+    private volatile int[][] deviceIDs = new int[4][];
+
+    /** 按序号分块的所属分片列，null表示未分配到家庭；只在持有新旧两个分片的锁时修改 */
+    private volatile Shard[][] homes = new Shard[4][];
+
+    /** 已回收的序号 */
+    private int[] freeOrdinals = new int[16];
+
+    /** 已回收的序号数 */
+    private int freeCount;
+
+    /** 下一个未使用的序号 */
+    private volatile int nextOrdinal;
+
+    /** 家庭分片 */
+    private final Map<Integer, Shard> byHousehold = new ConcurrentHashMap<>();
+
+    /** 未分配到家庭的设备所在的分片 */
+    private final Shard unassigned = new Shard();
+
+    /** 各在线状态的设备数，按枚举序号排列 */
+    private final LongAdder[] onlineCounts = newCounters(ONLINE_STATUSES.length);
+
+    /** 各电源状态的设备数，按枚举序号排列 */
+    private final LongAdder[] powerCounts = newCounters(POWER_STATUSES.length);
+
+    /**
+     * 一个家庭（或全部未分配设备）的状态计数，必须持有该对象的监视器访问
+     */
+    private static final class Shard {
+
+        /** 创建顺序计数器 */
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        /** 创建顺序，决定同时锁定两个分片时的加锁顺序 */
+        final int order = SEQUENCE.getAndIncrement();
+
+        /** 分片内设备的序号，只在加入、离开家庭时修改；未分配分片不记录 */
+        final RoaringBitmap members = new RoaringBitmap();
+
+        /** 各在线状态的设备数 */
+        final int[] online = new int[ONLINE_STATUSES.length];
+
+        /** 各电源状态的设备数 */
+        final int[] power = new int[POWER_STATUSES.length];
+
+        void count(int status, int delta) {
+            if ((status & REGISTERED) != 0) {
+                online[status >>> ONLINE_SHIFT & STATUS_MASK] += delta;
+                power[status & STATUS_MASK] += delta;
+            }
+        }
+    }
+
+    // ==================== 维护方法 ====================
+
+    /**
+     * 登记设备状态，设备尚无序号时分配序号
+     *
+     * @param deviceID 设备ID
+     * @param online 在线状态
+     * @param power 电源状态
+     */
+    public void register(int deviceID, Device.OnlineStatusType online, Device.PowerStatusType power) {
+        int ordinal = ordinalOf(deviceID);
+        int status = REGISTERED | online.ordinal() << ONLINE_SHIFT | power.ordinal();
+        while (true) {
+            Shard shard = homeShard(ordinal);
+            synchronized (shard) {
+                if (shard != homeShard(ordinal)) {
+                    continue; // 加锁前设备已移到其他家庭，重试
+                }
+                setStatus(shard, ordinal, status);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 清除设备状态，保留序号与家庭归属
+     *
+     * @param deviceID 设备ID
+     */
+    public void clearStatus(int deviceID) {
+        int ordinal = ordinals.get(deviceID);
+        if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+            return;
+        }
+        while (true) {
+            Shard shard = homeShard(ordinal);
+            synchronized (shard) {
+                if (shard != homeShard(ordinal)) {
+                    continue;
+                }
+                setStatus(shard, ordinal, 0);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 释放设备序号，供之后登记的设备复用
+     *
+     * @param deviceID 设备ID
+     */
+    public void release(int deviceID) {
+        int ordinal = ordinals.remove(deviceID);
+        if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+            return;
+        }
+        // 调用方已解除家庭归属，这里只防止复用序号的设备继承旧的分片
+        homes[ordinal >>> CHUNK_BITS][ordinal & (CHUNK_SIZE - 1)] = null;
+        synchronized (this) {
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        }
+    }
+
+    /**
+     * 更新在线状态，只锁定设备所在家庭的分片；记录的原状态与previous不一致时忽略
+     *
+     * @param deviceID 设备ID
+     * @param previous 原状态
+     * @param current 新状态
+     */
+    public void onlineStatusChanged(int deviceID, Device.OnlineStatusType previous, Device.OnlineStatusType current) {
+        int ordinal = ordinals.get(deviceID);
+        if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+            return;
+        }
+        while (true) {
+            Shard shard = homeShard(ordinal);
+            synchronized (shard) {
+                if (shard != homeShard(ordinal)) {
+                    continue;
+                }
+                int status = statusOf(ordinal);
+                if ((status & REGISTERED) != 0 && (status >>> ONLINE_SHIFT & STATUS_MASK) == previous.ordinal()) {
+                    setStatus(shard, ordinal, status & ~(STATUS_MASK << ONLINE_SHIFT)
+                            | current.ordinal() << ONLINE_SHIFT);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 更新电源状态，只锁定设备所在家庭的分片；记录的原状态与previous不一致时忽略
+     *
+     * @param deviceID 设备ID
+     * @param previous 原状态
+     * @param current 新状态
+     */
+    public void powerStatusChanged(int deviceID, Device.PowerStatusType previous, Device.PowerStatusType current) {
+        int ordinal = ordinals.get(deviceID);
+        if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+            return;
+        }
+        while (true) {
+            Shard shard = homeShard(ordinal);
+            synchronized (shard) {
+                if (shard != homeShard(ordinal)) {
+                    continue;
+                }
+                int status = statusOf(ordinal);
+                if ((status & REGISTERED) != 0 && (status & STATUS_MASK) == previous.ordinal()) {
+                    setStatus(shard, ordinal, status & ~STATUS_MASK | current.ordinal());
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 将设备移到家庭分片，设备尚未登记时忽略
+     *
+     * @param householdID 家庭ID
+     * @param deviceID 设备ID
+     */
+    public void assignHousehold(int householdID, int deviceID) {
+        int ordinal = ordinals.get(deviceID);
+        if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+            return;
+        }
+        Shard target = householdShard(householdID);
+        while (true) {
+            Shard source = homeShard(ordinal);
+            if (source == target) {
+                return;
+            }
+            Shard first = source.order < target.order ? source : target;
+            Shard second = first == source ? target : source;
+            synchronized (first) {
+                synchronized (second) {
+                    if (source != homeShard(ordinal)) {
+                        continue;
+                    }
+                    move(source, target, ordinal);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 将一批设备移到家庭分片，未分配到家庭的设备只获取一次两个分片的锁
+     *
+     * @param householdID 家庭ID
+     * @param deviceIDs 设备ID数组
+     */
+    public void assignHousehold(int householdID, int[] deviceIDs) {
+        Shard target = householdShard(householdID);
+        int[] others = null;
+        int otherCount = 0;
+        Shard first = unassigned.order < target.order ? unassigned : target;
+        Shard second = first == unassigned ? target : unassigned;
+        synchronized (first) {
+            synchronized (second) {
+                for (int deviceID : deviceIDs) {
+                    int ordinal = ordinals.get(deviceID);
+                    if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+                        continue;
+                    }
+                    if (homeShard(ordinal) == unassigned) {
+                        move(unassigned, target, ordinal);
+                    } else {
+                        if (others == null) {
+                            others = new int[deviceIDs.length];
+                        }
+                        others[otherCount++] = deviceID;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < otherCount; i++) {
+            assignHousehold(householdID, others[i]);
+        }
+    }
+
+    /**
+     * 将设备从家庭分片移出，设备不属于该家庭时忽略
+     *
+     * @param householdID 家庭ID
+     * @param deviceID 设备ID
+     */
+    public void unassignHousehold(int householdID, int deviceID) {
+        Shard source = byHousehold.get(householdID);
+        if (source == null) {
+            return;
+        }
+        Shard first = source.order < unassigned.order ? source : unassigned;
+        Shard second = first == source ? unassigned : source;
+        synchronized (first) {
+            synchronized (second) {
+                int ordinal = ordinals.get(deviceID);
+                if (ordinal == ConcurrentIntIntMap.NO_VALUE || homeShard(ordinal) != source) {
+                    return;
+                }
+                move(source, unassigned, ordinal);
+            }
+        }
+    }
+
+    /**
+     * 删除家庭分片，仍在其中的设备移到未分配分片
+     *
+     * @param householdID 家庭ID
+     */
+    public void dropHousehold(int householdID) {
+        Shard source = byHousehold.get(householdID);
+        if (source == null) {
+            return;
+        }
+        Shard first = source.order < unassigned.order ? source : unassigned;
+        Shard second = first == source ? unassigned : source;
+        synchronized (first) {
+            synchronized (second) {
+                for (int ordinal : source.members.toArray()) {
+                    move(source, unassigned, ordinal);
+                }
+                byHousehold.remove(householdID, source);
+            }
+        }
+    }
+
+    // ==================== 统计方法 ====================
+
+    /**
+     * 统计全部设备中指定在线状态的数量
+     *
+     * @param status 在线状态
+     * @return 设备数量
+     */
+    public int count(Device.OnlineStatusType status) {
+        return (int) onlineCounts[status.ordinal()].sum();
+    }
+
+    /**
+     * 统计全部设备中指定电源状态的数量
+     *
+     * @param status 电源状态
+     * @return 设备数量
+     */
+    public int count(Device.PowerStatusType status) {
+        return (int) powerCounts[status.ordinal()].sum();
+    }
+
+    /**
+     * 统计家庭中指定在线状态的设备数量
+     *
+     * @param householdID 家庭ID
+     * @param status 在线状态
+     * @return 设备数量
+     */
+    public int count(int householdID, Device.OnlineStatusType status) {
+        Shard shard = byHousehold.get(householdID);
+        if (shard == null) {
+            return 0;
+        }
+        synchronized (shard) {
+            return shard.online[status.ordinal()];
+        }
+    }
+
+    /**
+     * 统计家庭中指定电源状态的设备数量
+     *
+     * @param householdID 家庭ID
+     * @param status 电源状态
+     * @return 设备数量
+     */
+    public int count(int householdID, Device.PowerStatusType status) {
+        Shard shard = byHousehold.get(householdID);
+        if (shard == null) {
+            return 0;
+        }
+        synchronized (shard) {
+            return shard.power[status.ordinal()];
+        }
+    }
+
+    /**
+     * 获取"在线状态序号 -> 设备ID集合"关系
+     *
+     * @return 只读关系
+     */
+    public IntSetRelation onlineStatuses() {
+        return new StatusRelation(ONLINE_SHIFT, onlineCounts);
+    }
+
+    /**
+     * 获取"电源状态序号 -> 设备ID集合"关系
+     *
+     * @return 只读关系
+     */
+    public IntSetRelation powerStatuses() {
+        return new StatusRelation(0, powerCounts);
+    }
+
+    /**
+     * 估算状态列、设备ID列、所属分片列和分片成员占用的堆内存字节数（不含序号映射表）
+     *
+     * @return 估算字节数
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (byte[] chunk : statuses) {
+            if (chunk != null) {
+                bytes += 16L + chunk.length + 2 * (16L + chunk.length * 4L);
+            }
+        }
+        synchronized (unassigned) {
+            bytes += 64L + unassigned.members.estimatedBytes();
+        }
+        for (Shard shard : byHousehold.values()) {
+            synchronized (shard) {
+                bytes += 64L + shard.members.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 获取或分配设备序号
+     */
+    private int ordinalOf(int deviceID) {
+        int ordinal = ordinals.get(deviceID);
+        if (ordinal != ConcurrentIntIntMap.NO_VALUE) {
+            return ordinal;
+        }
+        synchronized (this) {
+            ordinal = ordinals.get(deviceID);
+            if (ordinal == ConcurrentIntIntMap.NO_VALUE) {
+                ordinal = freeCount > 0 ? freeOrdinals[--freeCount] : nextOrdinal;
+                int chunk = ordinal >>> CHUNK_BITS;
+                if (chunk == statuses.length) {
+                    statuses = Arrays.copyOf(statuses, chunk * 2);
+                    deviceIDs = Arrays.copyOf(deviceIDs, chunk * 2);
+                    homes = Arrays.copyOf(homes, chunk * 2);
+                }
+                if (statuses[chunk] == null) {
+                    statuses[chunk] = new byte[CHUNK_SIZE];
+                    deviceIDs[chunk] = new int[CHUNK_SIZE];
+                    homes[chunk] = new Shard[CHUNK_SIZE];
+                }
+                deviceIDs[chunk][ordinal & (CHUNK_SIZE - 1)] = deviceID;
+                if (ordinal == nextOrdinal) {
+                    nextOrdinal = ordinal + 1;
+                }
+                ordinals.put(deviceID, ordinal);
+            }
+            return ordinal;
+        }
+    }
+
+    private int statusOf(int ordinal) {
+        return statuses[ordinal >>> CHUNK_BITS][ordinal & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * 修改设备状态并更新分片计数与全量计数，必须持有设备所在分片的锁
+     */
+    private void setStatus(Shard shard, int ordinal, int status) {
+        byte[] chunk = statuses[ordinal >>> CHUNK_BITS];
+        int previous = chunk[ordinal & (CHUNK_SIZE - 1)];
+        if (previous == status) {
+            return;
+        }
+        shard.count(previous, -1);
+        shard.count(status, 1);
+        adjust(previous, -1);
+        adjust(status, 1);
+        chunk[ordinal & (CHUNK_SIZE - 1)] = (byte) status;
+    }
+
+    private void adjust(int status, int delta) {
+        if ((status & REGISTERED) != 0) {
+            onlineCounts[status >>> ONLINE_SHIFT & STATUS_MASK].add(delta);
+            powerCounts[status & STATUS_MASK].add(delta);
+        }
+    }
+
+    /**
+     * 将设备的所属分片、成员关系和状态计数转移到另一个分片，必须持有两个分片的锁
+     */
+    private void move(Shard source, Shard target, int ordinal) {
+        int status = statusOf(ordinal);
+        homes[ordinal >>> CHUNK_BITS][ordinal & (CHUNK_SIZE - 1)] = target != unassigned ? target : null;
+        // 未分配分片不记录成员，只有删除家庭分片时需要列出成员
+        if (source != unassigned) {
+            source.members.remove(ordinal);
+        }
+        if (target != unassigned) {
+            target.members.add(ordinal);
+        }
+        source.count(status, -1);
+        target.count(status, 1);
+    }
+
+    /**
+     * 设备当前所在的分片，调用方加锁后需再次确认
+     */
+    private Shard homeShard(int ordinal) {
+        Shard shard = homes[ordinal >>> CHUNK_BITS][ordinal & (CHUNK_SIZE - 1)];
+        return shard != null ? shard : unassigned;
+    }
+
+    private Shard householdShard(int householdID) {
+        return byHousehold.computeIfAbsent(householdID, id -> new Shard());
+    }
+
+    private static LongAdder[] newCounters(int count) {
+        LongAdder[] counters = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * "状态序号 -> 设备ID集合"关系视图，直接读取状态列
+     */
+    private final class StatusRelation implements IntSetRelation {
+
+        /** 状态序号在状态字节中的左移位数 */
+        private final int shift;
+
+        /** 各状态的设备数 */
+        private final LongAdder[] counts;
+
+        StatusRelation(int shift, LongAdder[] counts) {
+            this.shift = shift;
+            this.counts = counts;
+        }
+
+        @Override
+        public boolean contains(int key, int value) {
+            int ordinal = ordinals.get(value);
+            return ordinal != ConcurrentIntIntMap.NO_VALUE && matches(statusOf(ordinal), key);
+        }
+
+        @Override
+        public int size(int key) {
+            return (int) counts[key].sum();
+        }
+
+        @Override
+        public int[] get(int key) {
+            int limit = nextOrdinal;
+            byte[][] statusChunks = statuses;
+            int[][] idChunks = deviceIDs;
+            int[] result = new int[Math.max(16, size(key))];
+            int count = 0;
+            for (int ordinal = 0; ordinal < limit; ordinal++) {
+                int chunk = ordinal >>> CHUNK_BITS;
+                int slot = ordinal & (CHUNK_SIZE - 1);
+                if (matches(statusChunks[chunk][slot], key)) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = idChunks[chunk][slot];
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        private boolean matches(int status, int key) {
+            return (status & REGISTERED) != 0 && (status >>> shift & STATUS_MASK) == key;
+        }
+    }
+}
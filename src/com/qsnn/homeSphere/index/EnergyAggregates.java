@@ -0,0 +1,591 @@
+package com.qsnn.homeSphere.index;
+
+import com.qsnn.homeSphere.domain.deviceModule.Usage;
+import com.qsnn.homeSphere.domain.deviceModule.UsageStore;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 房间与家庭能耗汇总
+ *
+ * <p>为每台设备、每个房间和每个家庭维护一份能耗台账：全部历史的总能耗，以及最近一天（按使用记录的关闭日期）的能耗。
+ * 设备每新增一条使用记录即累加到设备台账，并同时累加到设备当前所属房间和家庭的台账；设备分配、移动或删除时，
+ * 把该设备台账中的数值从原房间、家庭转移到新房间、家庭。读取今日能耗和总能耗为O(1)。</p>
+ *
+ * <p>台账还记录实时负载：设备开启时把功率计入设备台账及其所属房间、家庭和全部设备的台账，关闭时扣除，
+ * 同时累计"功率 × 开启时刻"。实时能耗 = 已关闭使用记录的总能耗 + 负载 × 当前时刻 - "功率 × 开启时刻"之和，
+ * 即包含尚未关闭的使用记录，读取为O(1)。</p>
+ *
+ * <p>总能耗、今日能耗和实时能耗都按设备当前所在的房间和家庭统计，与"累加房间当前设备在时间段内的能耗"口径一致。
+ * 每个房间和家庭另有一份 {@link EnergyRollup}，按分钟、小时、天和月保存能耗序列。序列记录的是能耗发生时所在的房间和家庭，
+ * 设备移动时不转移已记录的序列。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>设备的能耗随设备转移，房间与家庭的台账始终等于其当前设备台账之和（在浮点舍入范围内）</li>
+ *   <li>单条使用记录的能耗按 {@code Util.calculatePowerConsumption} 的口径计算：使用时长按秒向下取整，单位为瓦时(Wh)；
+ *       跨越零点的使用记录只把当天部分计入当天</li>
+ *   <li>只保留最近一天的能耗，日期变更后读取今日能耗返回0，更早日期的使用记录不再计入当天</li>
+ *   <li>每份台账各自加锁：设备的所有操作先锁定设备台账，再逐个短暂锁定所属房间、家庭的台账（加锁顺序固定，不会死锁），
+ *       不同家庭的设备互不阻塞；设备关闭与设备移动都在设备台账的锁内完成，不会重复或遗漏；
+ *       新增使用记录时同时结束该设备的开启状态，实时能耗不会在关闭瞬间缺少或重复计入该记录</li>
+ *   <li>全部设备的台账使用 {@link DoubleAdder} 累加，读取全部设备的负载和实时能耗不加锁，
+ *       与并发更新同时进行时只是某一时刻的近似值</li>
+ *   <li>开启时刻取自单调时钟，不受系统时间调整影响；关闭后按使用记录的口径（按秒取整）计入，差异不超过1秒的能耗</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class EnergyAggregates {
+
+    /** 每天的秒数 */
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    /** 设备ID -> 设备台账 */
+    private final Map<Integer, Ledger> devices = new ConcurrentHashMap<>();
+
+    /** 房间ID -> 房间台账 */
+    private final Map<Integer, Ledger> rooms = new ConcurrentHashMap<>();
+
+    /** 家庭ID -> 家庭台账 */
+    private final Map<Integer, Ledger> households = new ConcurrentHashMap<>();
+
+    /** 全部设备的总能耗，包括未分配到房间的设备，单位：瓦时(Wh) */
+    private final DoubleAdder fleetTotalWh = new DoubleAdder();
+
+    /** 全部设备的实时负载，单位：瓦特(W) */
+    private final DoubleAdder fleetLoad = new DoubleAdder();
+
+    /** 全部设备的"功率 × 开启时刻"之和 */
+    private final DoubleAdder fleetOpenWeighted = new DoubleAdder();
+
+    /** 单调时钟（纳秒） */
+    private final LongSupplier clock;
+
+    /** 时钟原点，开启时刻以相对原点的纳秒数计，减小累计值的数量级 */
+    private final long origin;
+
+    /** 各级别能耗序列的保留桶数，未设置的级别使用默认值；修改时整体替换 */
+    private volatile Map<EnergyRollup.Resolution, Integer> retention = new EnumMap<>(EnergyRollup.Resolution.class);
+
+    /**
+     * 一份能耗台账，字段由台账自身的锁保护
+     */
+    private static final class Ledger {
+
+        /** 总能耗，单位：瓦时(Wh) */
+        double totalWh;
+
+        /** 当天台账的日期（自1970-01-01起的天数） */
+        long day = Long.MIN_VALUE;
+
+        /** 当天能耗，单位：瓦时(Wh) */
+        double dayWh;
+
+        /** 设备台账所属的房间，未分配时为null */
+        Integer roomID;
+
+        /** 设备台账所属的家庭，未分配或房间不属于家庭时为null */
+        Integer householdID;
+
+        /** 房间与家庭台账的能耗序列，第一次记录使用记录时创建；设备台账为null */
+        volatile EnergyRollup rollup;
+
+        /** 设备台账已删除，之后到达的更新被忽略 */
+        boolean removed;
+
+        /** 实时负载（开启设备的功率之和），单位：瓦特(W) */
+        double load;
+
+        /** 开启设备的"功率 × 开启时刻（相对时钟原点的纳秒数）"之和 */
+        double openWeighted;
+
+        /**
+         * 累加（sign为1）或扣除（sign为-1）一份负载
+         */
+        synchronized void applyLoad(int sign, double load, double openWeighted) {
+            this.load += sign * load;
+            this.openWeighted += sign * openWeighted;
+        }
+
+        /**
+         * 累加（sign为1）或扣除（sign为-1）一笔能耗
+         */
+        synchronized void apply(int sign, double totalWh, long day, double dayWh) {
+            this.totalWh += sign * totalWh;
+            if (day > this.day && sign > 0) {
+                this.day = day;
+                this.dayWh = dayWh;
+            } else if (day == this.day) {
+                this.dayWh += sign * dayWh;
+            }
+        }
+
+        synchronized double total() {
+            return totalWh;
+        }
+
+        synchronized double load() {
+            return load;
+        }
+
+        synchronized double today(long today) {
+            return day == today ? dayWh : 0;
+        }
+
+        /**
+         * 已关闭的总能耗加上开启设备从开启至今的能耗
+         */
+        synchronized double liveEnergy(double nowNanos) {
+            return EnergyAggregates.liveEnergy(totalWh, load, openWeighted, nowNanos);
+        }
+    }
+
+    /**
+     * 使用系统单调时钟构造
+     */
+    public EnergyAggregates() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * 使用指定时钟构造
+     *
+     * @param clock 单调时钟，返回纳秒数
+     */
+    public EnergyAggregates(LongSupplier clock) {
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    // ==================== 维护方法 ====================
+
+    /**
+     * 记录设备开启，设备的功率计入所属房间、家庭和全部设备的负载
+     *
+     * @param deviceID 设备ID
+     * @param power 设备功率，单位：瓦特(W)
+     */
+    public void sessionOpened(int deviceID, double power) {
+        Ledger ledger = devices.computeIfAbsent(deviceID, id -> new Ledger());
+        synchronized (ledger) {
+            if (!ledger.removed) {
+                setLoad(ledger, power, power * nowNanos());
+            }
+        }
+    }
+
+    /**
+     * 记录设备关闭而未产生使用记录，扣除设备的负载
+     *
+     * @param deviceID 设备ID
+     */
+    public void sessionClosed(int deviceID) {
+        Ledger ledger = devices.get(deviceID);
+        if (ledger != null) {
+            synchronized (ledger) {
+                if (!ledger.removed) {
+                    setLoad(ledger, 0, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录设备新增的使用记录，同时结束设备的开启状态
+     *
+     * @param deviceID 设备ID
+     * @param usage 使用记录
+     */
+    public void usageAdded(int deviceID, Usage usage) {
+        usageAdded(deviceID, UsageStore.secondsOf(usage.getOpenTime()), UsageStore.secondsOf(usage.getCloseTime()),
+                usage.getPower());
+    }
+
+    /**
+     * 记录设备新增的使用记录（以纪元秒数表示，与 {@link UsageStore} 一致），同时结束设备的开启状态
+     *
+     * @param deviceID 设备ID
+     * @param openSecond 开启时间的纪元秒数（本地时间按UTC换算）
+     * @param closeSecond 关闭时间的纪元秒数
+     * @param power 功率，单位：瓦特(W)
+     */
+    public void usageAdded(int deviceID, long openSecond, long closeSecond, double power) {
+        long day = Math.floorDiv(closeSecond, SECONDS_PER_DAY);
+        long dayStart = day * SECONDS_PER_DAY;
+        double totalWh = power * ((closeSecond - openSecond) / 3600.0);
+        double dayWh = power * ((closeSecond - Math.max(openSecond, dayStart)) / 3600.0);
+
+        Ledger ledger = devices.computeIfAbsent(deviceID, id -> new Ledger());
+        synchronized (ledger) {
+            if (ledger.removed) {
+                return;
+            }
+            setLoad(ledger, 0, 0);
+            ledger.apply(1, totalWh, day, dayWh);
+            fleetTotalWh.add(totalWh);
+            forEachAssignedScope(ledger, scope -> {
+                scope.apply(1, totalWh, day, dayWh);
+                rollupOf(scope).add(openSecond, closeSecond, power);
+            });
+        }
+    }
+
+    /**
+     * 设置能耗序列某一级别的保留桶数，对已有和之后创建的序列都生效
+     *
+     * @param resolution 级别
+     * @param buckets 保留桶数，必须大于0
+     * @throws IllegalArgumentException 如果保留桶数不大于0
+     */
+    public synchronized void setRollupRetention(EnergyRollup.Resolution resolution, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("能耗汇总保留桶数必须大于0");
+        }
+        Map<EnergyRollup.Resolution, Integer> updated = new EnumMap<>(EnergyRollup.Resolution.class);
+        updated.putAll(retention);
+        updated.put(resolution, buckets);
+        retention = updated;
+        for (Map<Integer, Ledger> scopes : List.of(rooms, households)) {
+            for (Ledger ledger : scopes.values()) {
+                EnergyRollup rollup = ledger.rollup;
+                if (rollup != null) {
+                    rollup.setRetention(resolution, buckets);
+                }
+            }
+        }
+    }
+
+    /**
+     * 将设备分配到房间，设备的能耗从原房间、家庭转移到新房间、家庭
+     *
+     * @param deviceID 设备ID
+     * @param roomID 房间ID
+     * @param householdID 房间所属家庭ID，可以为null
+     */
+    public void assign(int deviceID, int roomID, Integer householdID) {
+        Ledger ledger = devices.computeIfAbsent(deviceID, id -> new Ledger());
+        synchronized (ledger) {
+            if (ledger.removed) {
+                return;
+            }
+            transfer(ledger, -1, false);
+            ledger.roomID = roomID;
+            ledger.householdID = householdID;
+            transfer(ledger, 1, false);
+        }
+    }
+
+    /**
+     * 解除设备的房间分配，设备的能耗从原房间、家庭扣除
+     *
+     * @param deviceID 设备ID
+     */
+    public void unassign(int deviceID) {
+        Ledger ledger = devices.get(deviceID);
+        if (ledger != null) {
+            synchronized (ledger) {
+                if (!ledger.removed) {
+                    transfer(ledger, -1, false);
+                    ledger.roomID = null;
+                    ledger.householdID = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 清零设备台账和负载（设备被同ID的新设备替换时），保留其房间分配
+     *
+     * @param deviceID 设备ID
+     */
+    public void reset(int deviceID) {
+        Ledger ledger = devices.get(deviceID);
+        if (ledger != null) {
+            synchronized (ledger) {
+                if (!ledger.removed) {
+                    transfer(ledger, -1, true);
+                    ledger.totalWh = 0;
+                    ledger.day = Long.MIN_VALUE;
+                    ledger.dayWh = 0;
+                    ledger.load = 0;
+                    ledger.openWeighted = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除设备台账，设备的能耗从所属房间、家庭扣除
+     *
+     * @param deviceID 设备ID
+     */
+    public void remove(int deviceID) {
+        Ledger ledger = devices.remove(deviceID);
+        if (ledger != null) {
+            synchronized (ledger) {
+                if (!ledger.removed) {
+                    transfer(ledger, -1, true);
+                    ledger.removed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除房间台账，调用方应先删除或移走房间内的设备
+     *
+     * @param roomID 房间ID
+     */
+    public void removeRoom(int roomID) {
+        rooms.remove(roomID);
+    }
+
+    /**
+     * 删除家庭台账，调用方应先删除家庭内的房间
+     *
+     * @param householdID 家庭ID
+     */
+    public void removeHousehold(int householdID) {
+        households.remove(householdID);
+    }
+
+    // ==================== 查询方法 ====================
+
+    /**
+     * 获取房间今日能耗
+     *
+     * @param roomID 房间ID
+     * @return 今日能耗，单位：瓦时(Wh)
+     */
+    public double roomToday(int roomID) {
+        return today(rooms.get(roomID));
+    }
+
+    /**
+     * 获取家庭今日能耗
+     *
+     * @param householdID 家庭ID
+     * @return 今日能耗，单位：瓦时(Wh)
+     */
+    public double householdToday(int householdID) {
+        return today(households.get(householdID));
+    }
+
+    /**
+     * 获取房间当前设备的总能耗
+     *
+     * @param roomID 房间ID
+     * @return 总能耗，单位：瓦时(Wh)
+     */
+    public double roomTotal(int roomID) {
+        Ledger ledger = rooms.get(roomID);
+        return ledger == null ? 0 : ledger.total();
+    }
+
+    /**
+     * 获取家庭当前设备的总能耗
+     *
+     * @param householdID 家庭ID
+     * @return 总能耗，单位：瓦时(Wh)
+     */
+    public double householdTotal(int householdID) {
+        Ledger ledger = households.get(householdID);
+        return ledger == null ? 0 : ledger.total();
+    }
+
+    /**
+     * 获取房间的实时负载
+     *
+     * @param roomID 房间ID
+     * @return 开启设备的功率之和，单位：瓦特(W)
+     */
+    public double roomLoad(int roomID) {
+        Ledger ledger = rooms.get(roomID);
+        return ledger == null ? 0 : ledger.load();
+    }
+
+    /**
+     * 获取家庭的实时负载
+     *
+     * @param householdID 家庭ID
+     * @return 开启设备的功率之和，单位：瓦特(W)
+     */
+    public double householdLoad(int householdID) {
+        Ledger ledger = households.get(householdID);
+        return ledger == null ? 0 : ledger.load();
+    }
+
+    /**
+     * 获取全部设备的实时负载
+     *
+     * @return 开启设备的功率之和，单位：瓦特(W)
+     */
+    public double fleetLoad() {
+        return fleetLoad.sum();
+    }
+
+    /**
+     * 获取房间当前设备的实时总能耗，包括尚未关闭的使用记录
+     *
+     * @param roomID 房间ID
+     * @return 实时总能耗，单位：瓦时(Wh)
+     */
+    public double roomLiveEnergy(int roomID) {
+        return liveEnergy(rooms.get(roomID));
+    }
+
+    /**
+     * 获取家庭当前设备的实时总能耗，包括尚未关闭的使用记录
+     *
+     * @param householdID 家庭ID
+     * @return 实时总能耗，单位：瓦时(Wh)
+     */
+    public double householdLiveEnergy(int householdID) {
+        return liveEnergy(households.get(householdID));
+    }
+
+    /**
+     * 获取全部设备的实时总能耗，包括尚未关闭的使用记录
+     *
+     * @return 实时总能耗，单位：瓦时(Wh)
+     */
+    public double fleetLiveEnergy() {
+        return liveEnergy(fleetTotalWh.sum(), fleetLoad.sum(), fleetOpenWeighted.sum(), nowNanos());
+    }
+
+    /**
+     * 查询房间的能耗序列
+     *
+     * @param roomID 房间ID
+     * @param startTime 起始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @param resolution 查询粒度
+     * @return 桶起始时间 -> 能耗，单位：瓦时(Wh)
+     * @see EnergyRollup#series
+     */
+    public NavigableMap<LocalDateTime, Double> roomSeries(int roomID, LocalDateTime startTime,
+                                                          LocalDateTime endTime, EnergyRollup.Resolution resolution) {
+        return series(rooms, roomID).series(startTime, endTime, resolution);
+    }
+
+    /**
+     * 查询家庭的能耗序列
+     *
+     * @param householdID 家庭ID
+     * @param startTime 起始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @param resolution 查询粒度
+     * @return 桶起始时间 -> 能耗，单位：瓦时(Wh)
+     * @see EnergyRollup#series
+     */
+    public NavigableMap<LocalDateTime, Double> householdSeries(int householdID, LocalDateTime startTime,
+                                                               LocalDateTime endTime,
+                                                               EnergyRollup.Resolution resolution) {
+        return series(households, householdID).series(startTime, endTime, resolution);
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 获取台账的能耗序列，没有记录时返回空序列
+     */
+    private EnergyRollup series(Map<Integer, Ledger> scopes, int id) {
+        Ledger ledger = scopes.get(id);
+        EnergyRollup rollup = ledger != null ? ledger.rollup : null;
+        return rollup != null ? rollup : newRollup();
+    }
+
+    /**
+     * 获取房间或家庭台账的能耗序列，第一次调用时创建
+     */
+    private EnergyRollup rollupOf(Ledger scope) {
+        EnergyRollup rollup = scope.rollup;
+        if (rollup == null) {
+            synchronized (scope) {
+                rollup = scope.rollup;
+                if (rollup == null) {
+                    rollup = newRollup();
+                    scope.rollup = rollup;
+                    // 发布后再读取一次保留设置：并发修改保留设置时，要么修改方遍历到这份序列，要么这里读到新设置
+                    retention.forEach(rollup::setRetention);
+                }
+            }
+        }
+        return rollup;
+    }
+
+    private EnergyRollup newRollup() {
+        EnergyRollup rollup = new EnergyRollup();
+        retention.forEach(rollup::setRetention);
+        return rollup;
+    }
+
+    /**
+     * 将设备台账的数值和负载累加到（sign为1）或扣除自（sign为-1）其所属房间和家庭；
+     * includeFleet为true时同时处理全部设备的台账（设备删除或清零时）。必须持有设备台账的锁
+     */
+    private void transfer(Ledger ledger, int sign, boolean includeFleet) {
+        if (includeFleet) {
+            fleetTotalWh.add(sign * ledger.totalWh);
+            fleetLoad.add(sign * ledger.load);
+            fleetOpenWeighted.add(sign * ledger.openWeighted);
+        }
+        forEachAssignedScope(ledger, scope -> {
+            scope.apply(sign, ledger.totalWh, ledger.day, ledger.dayWh);
+            scope.applyLoad(sign, ledger.load, ledger.openWeighted);
+        });
+    }
+
+    /**
+     * 设置设备的负载，差值计入所属房间、家庭和全部设备的台账。必须持有设备台账的锁，且设备台账未删除
+     */
+    private void setLoad(Ledger ledger, double load, double openWeighted) {
+        double loadDelta = load - ledger.load;
+        double weightedDelta = openWeighted - ledger.openWeighted;
+        if (loadDelta == 0 && weightedDelta == 0) {
+            return;
+        }
+        ledger.load = load;
+        ledger.openWeighted = openWeighted;
+        fleetLoad.add(loadDelta);
+        fleetOpenWeighted.add(weightedDelta);
+        forEachAssignedScope(ledger, scope -> scope.applyLoad(1, loadDelta, weightedDelta));
+    }
+
+    private double liveEnergy(Ledger ledger) {
+        return ledger == null ? 0 : ledger.liveEnergy(nowNanos());
+    }
+
+    private double nowNanos() {
+        return (double) (clock.getAsLong() - origin);
+    }
+
+    private static double liveEnergy(double totalWh, double load, double openWeighted, double nowNanos) {
+        return totalWh + (load * nowNanos - openWeighted) / 3.6e12;
+    }
+
+    private void forEachAssignedScope(Ledger ledger, Consumer<Ledger> action) {
+        if (ledger.roomID != null) {
+            action.accept(rooms.computeIfAbsent(ledger.roomID, id -> new Ledger()));
+        }
+        if (ledger.householdID != null) {
+            action.accept(households.computeIfAbsent(ledger.householdID, id -> new Ledger()));
+        }
+    }
+
+    private static double today(Ledger ledger) {
+        return ledger == null ? 0 : ledger.today(LocalDate.now().toEpochDay());
+    }
+}
@@ -0,0 +1,406 @@
+package com.qsnn.homeSphere.index;
+
+import com.qsnn.homeSphere.domain.deviceModule.Usage;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 分级时间桶能耗汇总
+ *
+ * <p>按分钟、小时、天和月四个级别把使用记录的能耗累加到时间桶中，每个级别是一个按桶编号取模的环形数组，
+ * 只保留最近若干个桶（保留桶数可按级别配置）。查询某一粒度的能耗序列时，每个输出桶从保留了它的最粗级别读取：
+ * 通常直接读取同粒度级别的一个桶，同粒度级别已淘汰该桶时才由更细级别的多个桶求和。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>追加使用记录，把能耗按与各级别时间桶的重叠时长拆分到桶中</li>
+ *   <li>按分钟、小时、天或月查询时间段内的能耗序列</li>
+ *   <li>按级别调整保留桶数</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>单条使用记录的能耗按 {@code Util.calculatePowerConsumption} 的口径计算（使用时长按秒向下取整，单位为瓦时），
+ *       再按与每个桶的重叠时长成比例拆分，各桶之和等于该记录的能耗</li>
+ *   <li>每个级别直接由使用记录拆分，而不是由更细的级别逐级汇总，结果与逐级汇总相同；
+ *       早于保留范围的部分不拆分，长时间的使用记录每个级别最多写入保留桶数个桶</li>
+ *   <li>时间按本地时间计算桶边界；环形数组在第一次写入某一级别时按 {@value #INITIAL_BUCKETS} 个桶分配，
+ *       写入跨越的桶数增加时成倍扩容，直到保留桶数，新建的房间和家庭只占用少量内存</li>
+ *   <li>所有方法同步，可在设备关闭线程与查询线程之间共享</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class EnergyRollup {
+
+    /** 单次查询最多返回的桶数 */
+    public static final int MAX_SERIES_BUCKETS = 1_000_000;
+
+    /** 环形数组第一次分配的桶数 */
+    private static final int INITIAL_BUCKETS = 16;
+
+    /**
+     * 时间桶粒度，按从细到粗的顺序声明
+     */
+    public enum Resolution {
+        MINUTE(60, 2 * 24 * 60),
+        HOUR(3600, 90 * 24),
+        DAY(86400, 3 * 366),
+        MONTH(0, 10 * 12);
+
+        /** 固定桶长的秒数，月为0（桶长不固定） */
+        private final long seconds;
+
+        /** 默认保留桶数 */
+        private final int defaultRetention;
+
+        Resolution(long seconds, int defaultRetention) {
+            this.seconds = seconds;
+            this.defaultRetention = defaultRetention;
+        }
+
+        /**
+         * 获取默认保留桶数
+         *
+         * @return 默认保留桶数（分钟2天、小时90天、天约3年、月10年）
+         */
+        public int getDefaultRetention() {
+            return defaultRetention;
+        }
+
+        /**
+         * 时间所在的桶编号
+         */
+        long bucketOf(LocalDateTime time) {
+            if (seconds == 0) {
+                return time.getYear() * 12L + time.getMonthValue() - 1;
+            }
+            return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), seconds);
+        }
+
+        /**
+         * 纪元秒数（本地时间按UTC换算）所在的桶编号
+         */
+        long bucketOf(long second) {
+            if (seconds == 0) {
+                LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(second, 86400L));
+                return date.getYear() * 12L + date.getMonthValue() - 1;
+            }
+            return Math.floorDiv(second, seconds);
+        }
+
+        /**
+         * 桶起点的秒数（本地时间按UTC换算）
+         */
+        long startSecond(long bucket) {
+            if (seconds == 0) {
+                return startTime(bucket).toEpochSecond(ZoneOffset.UTC);
+            }
+            return bucket * seconds;
+        }
+
+        /**
+         * 桶的起始时间
+         */
+        LocalDateTime startTime(long bucket) {
+            if (seconds == 0) {
+                return LocalDate.of((int) Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1)
+                        .atStartOfDay();
+            }
+            return LocalDateTime.ofEpochSecond(bucket * seconds, 0, ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * 单个级别的环形数组
+     *
+     * <p>数组长度可以小于保留桶数：数组只覆盖[最新桶 - 数组长度 + 1, 最新桶]，其中早于 {@code lowest} 的槽位都为0；
+     * 写入范围超出数组覆盖范围时扩容。</p>
+     */
+    private static final class Tier {
+
+        final Resolution resolution;
+
+        /** 保留桶数 */
+        int capacity;
+
+        /** 桶编号对数组长度取模后的能耗，单位：瓦时(Wh)；第一次写入前为null */
+        double[] values;
+
+        /** 已写入的最新桶编号 */
+        long newest = Long.MIN_VALUE;
+
+        /** 可能有能耗的最早桶编号，不早于保留范围 */
+        long lowest = Long.MIN_VALUE;
+
+        Tier(Resolution resolution, int capacity) {
+            this.resolution = resolution;
+            this.capacity = capacity;
+        }
+
+        /**
+         * 将最新桶推进到bucket，清空被覆盖的槽位，必要时扩容
+         */
+        void advance(long bucket) {
+            if (values == null) {
+                values = new double[Math.min(capacity, INITIAL_BUCKETS)];
+                newest = bucket;
+                lowest = bucket;
+                return;
+            }
+            if (bucket <= newest) {
+                return;
+            }
+            lowest = Math.max(lowest, bucket - capacity + 1);
+            if (bucket - lowest + 1 > values.length) {
+                relayout(bucket - lowest + 1);
+            }
+            if (bucket - newest >= values.length) {
+                Arrays.fill(values, 0);
+            } else {
+                for (long b = newest + 1; b <= bucket; b++) {
+                    values[slot(b)] = 0;
+                }
+            }
+            newest = bucket;
+        }
+
+        /**
+         * 确保保留范围内不早于bucket的桶都可写入
+         */
+        void extendTo(long bucket) {
+            if (bucket < lowest) {
+                if (newest - bucket + 1 > values.length) {
+                    relayout(newest - bucket + 1);
+                }
+                lowest = bucket;
+            }
+        }
+
+        /**
+         * 保留范围内最早的桶编号
+         */
+        long oldest() {
+            return newest == Long.MIN_VALUE ? Long.MIN_VALUE : newest - capacity + 1;
+        }
+
+        /**
+         * 判断[from, to)范围内的桶是否都在保留范围内（晚于最新桶的桶尚无能耗，视为保留）
+         */
+        boolean retains(long from, long to) {
+            return values == null || from >= oldest() || to <= from;
+        }
+
+        double get(long bucket) {
+            return values == null || bucket > newest || bucket < lowest ? 0 : values[slot(bucket)];
+        }
+
+        int slot(long bucket) {
+            return Math.floorMod(bucket, values.length);
+        }
+
+        /**
+         * 调整保留桶数，保留最新的桶
+         */
+        void resize(int newCapacity) {
+            capacity = newCapacity;
+            if (values != null) {
+                lowest = Math.max(lowest, newest - newCapacity + 1);
+                double[] resized = new double[(int) Math.min(newCapacity, Math.max(newest - lowest + 1, INITIAL_BUCKETS))];
+                copyInto(resized);
+                values = resized;
+            }
+        }
+
+        /**
+         * 扩容到至少能覆盖span个桶（成倍增长，不超过保留桶数），按新长度重新排列已有的桶
+         */
+        private void relayout(long span) {
+            long length = Math.min(capacity, Math.max(span, values.length * 2L));
+            double[] resized = new double[(int) length];
+            copyInto(resized);
+            values = resized;
+        }
+
+        private void copyInto(double[] target) {
+            for (long b = lowest; b <= newest; b++) {
+                target[Math.floorMod(b, target.length)] = values[slot(b)];
+            }
+        }
+    }
+
+    /** 按粒度从细到粗排列的各级别 */
+    private final Tier[] tiers = new Tier[Resolution.values().length];
+
+    /**
+     * 按默认保留桶数构造
+     */
+    public EnergyRollup() {
+        for (Resolution resolution : Resolution.values()) {
+            tiers[resolution.ordinal()] = new Tier(resolution, resolution.getDefaultRetention());
+        }
+    }
+
+    // ==================== 写操作 ====================
+
+    /**
+     * 追加一条使用记录
+     *
+     * @param usage 使用记录
+     */
+    public void add(Usage usage) {
+        LocalDateTime open = usage.getOpenTime();
+        LocalDateTime close = usage.getCloseTime();
+        add(open.toEpochSecond(ZoneOffset.UTC), open.getNano(), close.toEpochSecond(ZoneOffset.UTC), close.getNano(),
+                usage.getPower());
+    }
+
+    /**
+     * 追加一条以纪元秒数（本地时间按UTC换算）表示的使用记录，不创建任何时间对象
+     *
+     * @param openSecond 开启时间的纪元秒数
+     * @param closeSecond 关闭时间的纪元秒数
+     * @param power 功率，单位：瓦特(W)
+     */
+    public void add(long openSecond, long closeSecond, double power) {
+        add(openSecond, 0, closeSecond, 0, power);
+    }
+
+    private synchronized void add(long openSecond, int openNano, long closeSecond, int closeNano, double power) {
+        // 使用时长（秒，含小数部分）与按秒取整后的能耗
+        double duration = (closeSecond - openSecond) + (closeNano - openNano) / 1e9;
+        if (duration <= 0) {
+            return;
+        }
+        double energy = power * Math.floor(duration) / 3600.0;
+        if (energy == 0) {
+            return;
+        }
+        double openNanos = openNano / 1e9;
+
+        for (Tier tier : tiers) {
+            Resolution resolution = tier.resolution;
+            long last = resolution.bucketOf(closeSecond);
+            tier.advance(last);
+            long first = Math.max(resolution.bucketOf(openSecond), tier.oldest());
+            tier.extendTo(first);
+            for (long b = first; b <= last; b++) {
+                // 以开启时间为原点计算重叠时长，避免纪元秒数的浮点精度损失
+                double from = Math.max(0, resolution.startSecond(b) - openSecond - openNanos);
+                double to = b == last ? duration
+                        : Math.min(duration, resolution.startSecond(b + 1) - openSecond - openNanos);
+                if (to > from) {
+                    tier.values[tier.slot(b)] += energy * (to - from) / duration;
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置级别的保留桶数，超出新保留桶数的最早的桶被丢弃
+     *
+     * @param resolution 级别
+     * @param buckets 保留桶数，必须大于0
+     * @throws IllegalArgumentException 如果保留桶数不大于0
+     */
+    public synchronized void setRetention(Resolution resolution, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("能耗汇总保留桶数必须大于0");
+        }
+        tiers[resolution.ordinal()].resize(buckets);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 获取级别的保留桶数
+     *
+     * @param resolution 级别
+     * @return 保留桶数
+     */
+    public synchronized int getRetention(Resolution resolution) {
+        return tiers[resolution.ordinal()].capacity;
+    }
+
+    /**
+     * 查询时间段内的能耗序列
+     *
+     * <p>返回起始时间所在的桶到结束时间之前最后一个桶的全部桶，没有能耗的桶为0。
+     * 每个桶从保留了它的最粗级别（不粗于查询粒度）读取；所有级别都已淘汰的桶为 {@link Double#NaN}。</p>
+     *
+     * @param startTime 起始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @param resolution 查询粒度
+     * @return 桶起始时间 -> 能耗，单位：瓦时(Wh)，按时间排序
+     * @throws IllegalArgumentException 如果时间为null、起始时间晚于结束时间或桶数超过 {@link #MAX_SERIES_BUCKETS}
+     */
+    public synchronized NavigableMap<LocalDateTime, Double> series(LocalDateTime startTime, LocalDateTime endTime,
+                                                                   Resolution resolution) {
+        if (startTime == null || endTime == null || resolution == null) {
+            throw new IllegalArgumentException("查询时间和粒度不能为null");
+        }
+        if (startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException("起始时间不能晚于结束时间");
+        }
+        long first = resolution.bucketOf(startTime);
+        long last = resolution.bucketOf(endTime);
+        if (resolution.startTime(last).equals(endTime)) {
+            last--;
+        }
+        if (last - first + 1 > MAX_SERIES_BUCKETS) {
+            throw new IllegalArgumentException("查询的桶数过多");
+        }
+
+        NavigableMap<LocalDateTime, Double> series = new TreeMap<>();
+        LocalDateTime bucketStart = resolution.startTime(first);
+        for (long b = first; b <= last; b++) {
+            LocalDateTime bucketEnd = resolution.startTime(b + 1);
+            series.put(bucketStart, bucketEnergy(bucketStart, bucketEnd, resolution));
+            bucketStart = bucketEnd;
+        }
+        return series;
+    }
+
+    /**
+     * 估算占用的堆内存字节数
+     *
+     * @return 估算字节数
+     */
+    public synchronized long estimatedBytes() {
+        long bytes = 16L + 16L + tiers.length * 40L;
+        for (Tier tier : tiers) {
+            if (tier.values != null) {
+                bytes += 16L + tier.values.length * 8L;
+            }
+        }
+        return bytes;
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 从保留了[start, end)的最粗级别读取能耗
+     */
+    private double bucketEnergy(LocalDateTime start, LocalDateTime end, Resolution resolution) {
+        for (int level = resolution.ordinal(); level >= 0; level--) {
+            Tier tier = tiers[level];
+            long from = tier.resolution.bucketOf(start);
+            long to = tier.resolution.bucketOf(end);
+            if (tier.retains(from, to)) {
+                double energy = 0;
+                for (long b = Math.max(from, tier.oldest()); b < to && b <= tier.newest; b++) {
+                    energy += tier.get(b);
+                }
+                return energy;
+            }
+        }
+        return Double.NaN;
+    }
+}
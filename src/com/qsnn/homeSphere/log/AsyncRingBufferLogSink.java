@@ -0,0 +1,348 @@
+package com.qsnn.homeSphere.log;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于环形缓冲区的异步日志输出端
+ *
+ * <p>任意线程调用 {@link #append(Log)} 时只在环形缓冲区中占用一个槽位并写入日志引用，
+ * 由唯一的后台线程按顺序取出、格式化并批量写出。批量达到指定条数或距上次写出超过指定时间时写出一次。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>多生产者、单消费者的无锁环形缓冲区</li>
+ *   <li>按条数或时间批量写出</li>
+ *   <li>缓冲区满时按 {@link OverflowPolicy} 处理：阻塞等待、丢弃或抽样保留</li>
+ *   <li>丢弃的日志数量会以一条汇总行写出</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>生产者通过CAS占用序号，槽位写入日志后即视为发布；消费者按序号顺序读取，保证同一线程的日志顺序</li>
+ *   <li>消费者空闲时休眠，生产者仅在消费者休眠时唤醒它，正常路径上没有系统调用</li>
+ *   <li>未指定输出流时，每次写出都使用当时的 {@code System.out}，与重定向标准输出的调用方保持一致</li>
+ *   <li>关闭后接收的日志直接同步写出，不会丢失进程退出阶段的日志；与关闭并发、消费者退出前来不及读取的日志，
+ *       由关闭线程或生产者自己写出：槽位以原子操作取出，每条日志只会被消费者、关闭线程或生产者之一写出一次</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class AsyncRingBufferLogSink implements LogSink {
+
+    /** 默认缓冲区容量 */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** 默认批量条数 */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** 默认写出间隔（毫秒） */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    /** 消费者空闲时的最长休眠时间 */
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** 生产者等待空位时的休眠时间 */
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * 缓冲区满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /** 阻塞等待空位 */
+        BLOCK,
+        /** 直接丢弃 */
+        DROP,
+        /** 每sampleRate条溢出日志中阻塞保留一条，其余丢弃 */
+        SAMPLE
+    }
+
+    /** 槽位数组 */
+    private final AtomicReferenceArray<Log> slots;
+
+    /** 槽位下标掩码 */
+    private final int mask;
+
+    /** 下一个待占用的序号 */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** 下一个待消费的序号，只由消费者线程写入 */
+    private volatile long head;
+
+    /** 已写出的日志数 */
+    private volatile long written;
+
+    /** 输出流，为null时使用当时的标准输出 */
+    private final PrintStream out;
+
+    /** 批量条数 */
+    private final int batchSize;
+
+    /** 写出间隔（纳秒） */
+    private final long flushIntervalNanos;
+
+    /** 溢出策略 */
+    private final OverflowPolicy overflowPolicy;
+
+    /** 抽样间隔 */
+    private final int sampleRate;
+
+    /** 溢出计数，用于抽样 */
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /** 丢弃计数 */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** 消费者线程 */
+    private final Thread consumer;
+
+    /** 消费者是否处于休眠 */
+    private volatile boolean sleeping;
+
+    /** 是否有等待中的flush请求 */
+    private volatile boolean flushRequested;
+
+    /** 是否已关闭 */
+    private volatile boolean closed;
+
+    /**
+     * 以默认参数构造，输出到标准输出，缓冲区满时阻塞
+     */
+    public AsyncRingBufferLogSink() {
+        this(null, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, OverflowPolicy.BLOCK, 1);
+    }
+
+    /**
+     * 以指定参数构造
+     *
+     * @param out 输出流，为null时使用当时的标准输出
+     * @param capacity 缓冲区容量，必须为2的幂
+     * @param batchSize 批量条数
+     * @param flushIntervalMillis 写出间隔（毫秒）
+     * @param overflowPolicy 溢出策略
+     * @param sampleRate 抽样间隔，仅SAMPLE策略使用
+     * @throws IllegalArgumentException 如果参数不合法
+     */
+    public AsyncRingBufferLogSink(PrintStream out, int capacity, int batchSize, long flushIntervalMillis,
+                                  OverflowPolicy overflowPolicy, int sampleRate) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("缓冲区容量必须为2的幂");
+        }
+        if (batchSize < 1 || flushIntervalMillis < 1 || sampleRate < 1) {
+            throw new IllegalArgumentException("批量条数、写出间隔和抽样间隔必须为正数");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("溢出策略不能为空");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.out = out;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.consumer = new Thread(this::consume, "log-appender");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    // ==================== LogSink 实现 ====================
+
+    @Override
+    public void append(Log log) {
+        if (closed) {
+            writeDirectly(log);
+            return;
+        }
+        boolean admitted = false;
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                if (!admitted && !admitOverflow()) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                admitted = true;
+                wakeConsumer();
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+                if (closed) {
+                    writeDirectly(log);
+                    return;
+                }
+                continue;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                int index = (int) sequence & mask;
+                slots.set(index, log);
+                if (closed) {
+                    // 占用序号之后才关闭：消费者和关闭线程可能都已结束读取，仍在槽位中的日志由本线程取回写出
+                    if (slots.compareAndSet(index, log, null)) {
+                        writeDirectly(log);
+                    }
+                    return;
+                }
+                if (sleeping) {
+                    LockSupport.unpark(consumer);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (written < target && consumer.isAlive()) {
+            flushRequested = true;
+            wakeConsumer();
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        wakeConsumer();
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        drainAfterClose();
+    }
+
+    /**
+     * 获取因缓冲区满而丢弃的日志数
+     *
+     * @return 丢弃数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 缓冲区满时判断当前日志是否等待空位
+     */
+    private boolean admitOverflow() {
+        switch (overflowPolicy) {
+            case BLOCK:
+                return true;
+            case SAMPLE:
+                return overflowCount.incrementAndGet() % sampleRate == 0;
+            default:
+                return false;
+        }
+    }
+
+    private void wakeConsumer() {
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * 消费者循环
+     */
+    private void consume() {
+        StringBuilder batch = new StringBuilder(batchSize * 96);
+        int pending = 0;
+        long reportedDrops = 0;
+        long lastFlush = System.nanoTime();
+        while (true) {
+            long sequence = head;
+            int index = (int) sequence & mask;
+            Log log = slots.get(index);
+            if (log != null && slots.compareAndSet(index, log, null)) {
+                head = sequence + 1;
+                log.appendTo(batch).append(System.lineSeparator());
+                if (++pending >= batchSize) {
+                    reportedDrops = write(batch, pending, reportedDrops);
+                    pending = 0;
+                    lastFlush = System.nanoTime();
+                }
+                continue;
+            }
+
+            long now = System.nanoTime();
+            boolean drained = sequence == tail.get();
+            if (pending > 0 && (now - lastFlush >= flushIntervalNanos || flushRequested || closed)) {
+                reportedDrops = write(batch, pending, reportedDrops);
+                pending = 0;
+                lastFlush = now;
+            }
+            if (drained) {
+                flushRequested = false;
+            }
+            if (closed) {
+                // 尚未写入或已被生产者取回的槽位由关闭线程和生产者处理，消费者不再等待
+                write(batch, 0, reportedDrops);
+                return;
+            }
+
+            sleeping = true;
+            if (slots.get(index) == null && !closed && !flushRequested) {
+                long timeout = pending > 0 ? flushIntervalNanos - (now - lastFlush) : IDLE_PARK_NANOS;
+                LockSupport.parkNanos(this, Math.max(timeout, 1));
+            }
+            sleeping = false;
+        }
+    }
+
+    /**
+     * 写出一批日志，附带新增的丢弃汇总
+     *
+     * @return 已汇总的丢弃数
+     */
+    private long write(StringBuilder batch, int count, long reportedDrops) {
+        long drops = dropped.get();
+        if (drops > reportedDrops) {
+            batch.append("日志缓冲区已满，丢弃").append(drops - reportedDrops).append("条日志")
+                    .append(System.lineSeparator());
+        }
+        if (batch.length() > 0) {
+            try {
+                PrintStream target = out != null ? out : System.out;
+                target.print(batch);
+                target.flush();
+            } catch (RuntimeException e) {
+                // 输出失败不能终止消费者线程，本批日志丢弃
+            }
+            batch.setLength(0);
+        }
+        written += count;
+        return drops;
+    }
+
+    /**
+     * 消费者退出后，写出在其退出前已写入槽位但未被读取的日志；尚未写入槽位的日志由生产者写入后自行取回
+     */
+    private void drainAfterClose() {
+        long end = tail.get();
+        for (long sequence = head; sequence < end; sequence++) {
+            Log log = slots.getAndSet((int) sequence & mask, null);
+            if (log != null) {
+                writeDirectly(log);
+            }
+        }
+        head = end;
+    }
+
+    /**
+     * 关闭后同步写出
+     */
+    private void writeDirectly(Log log) {
+        PrintStream target = out != null ? out : System.out;
+        synchronized (target) {
+            target.println(log);
+        }
+    }
+}
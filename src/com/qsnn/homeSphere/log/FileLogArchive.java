@@ -0,0 +1,180 @@
+package com.qsnn.homeSphere.log;
+
+import com.qsnn.homeSphere.domain.EntityType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于文本文件的日志归档
+ *
+ * <p>每种实体类型的淘汰日志追加到归档目录下的一个文件（如 {@code device.log}），
+ * 未指定类型的日志存储写入 {@code other.log}。每行一条日志，格式与 {@link Log#toString()} 相同。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>目录和文件在首次归档时才创建，未发生淘汰时不产生任何文件</li>
+ *   <li>每批日志格式化到同一个缓冲区后一次写出，写完即刷新到操作系统</li>
+ *   <li>写出失败不会抛给追加日志的调用方，失败的条数可通过 {@link #getFailedCount()} 查询</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class FileLogArchive implements LogArchive {
+
+    /** 未指定实体类型时使用的文件名 */
+    private static final String OTHER_FILE_NAME = "other.log";
+
+    /** 归档目录 */
+    private final Path directory;
+
+    /** 各实体类型的写出器 */
+    private final Map<EntityType, BufferedWriter> writers = new EnumMap<>(EntityType.class);
+
+    /** 未指定实体类型的写出器 */
+    private BufferedWriter otherWriter;
+
+    /** 写出失败的日志数 */
+    private final AtomicLong failed = new AtomicLong();
+
+    /** 是否已关闭 */
+    private boolean closed;
+
+    /**
+     * 构造文件归档
+     *
+     * @param directory 归档目录
+     * @throws IllegalArgumentException 如果目录为null
+     */
+    public FileLogArchive(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("归档目录不能为空");
+        }
+        this.directory = directory;
+    }
+
+    // ==================== LogArchive 实现 ====================
+
+    @Override
+    public synchronized void archive(EntityType ownerType, List<Log> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            failed.addAndGet(logs.size());
+            return;
+        }
+        StringBuilder buffer = new StringBuilder(logs.size() * 96);
+        for (Log log : logs) {
+            log.appendTo(buffer).append(System.lineSeparator());
+        }
+        try {
+            BufferedWriter writer = writerFor(ownerType);
+            writer.append(buffer);
+            writer.flush();
+        } catch (IOException e) {
+            failed.addAndGet(logs.size());
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        for (BufferedWriter writer : writers.values()) {
+            flushQuietly(writer);
+        }
+        if (otherWriter != null) {
+            flushQuietly(otherWriter);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (BufferedWriter writer : writers.values()) {
+            closeQuietly(writer);
+        }
+        writers.clear();
+        if (otherWriter != null) {
+            closeQuietly(otherWriter);
+            otherWriter = null;
+        }
+    }
+
+    // ==================== Getter 方法 ====================
+
+    /**
+     * 获取归档目录
+     *
+     * @return 归档目录
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 获取某种实体类型的归档文件路径
+     *
+     * @param ownerType 实体类型，为null表示未指定类型
+     * @return 归档文件路径，文件可能尚未创建
+     */
+    public Path fileFor(EntityType ownerType) {
+        String name = ownerType == null ? OTHER_FILE_NAME : ownerType.name().toLowerCase(Locale.ROOT) + ".log";
+        return directory.resolve(name);
+    }
+
+    /**
+     * 获取写出失败的日志数
+     *
+     * @return 失败数
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    // ==================== 私有方法 ====================
+
+    private BufferedWriter writerFor(EntityType ownerType) throws IOException {
+        BufferedWriter writer = ownerType == null ? otherWriter : writers.get(ownerType);
+        if (writer == null) {
+            Files.createDirectories(directory);
+            writer = Files.newBufferedWriter(fileFor(ownerType), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (ownerType == null) {
+                otherWriter = writer;
+            } else {
+                writers.put(ownerType, writer);
+            }
+        }
+        return writer;
+    }
+
+    private static void flushQuietly(BufferedWriter writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            // 每批归档后都已刷新，此处失败不影响已写出的日志
+        }
+    }
+
+    private static void closeQuietly(BufferedWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // 关闭阶段的失败无法再处理
+        }
+    }
+}
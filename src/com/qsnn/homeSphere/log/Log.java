@@ -1,8 +1,12 @@
 package com.qsnn.homeSphere.log;
 
+import com.qsnn.homeSphere.utils.LocalClock;
+import com.qsnn.homeSphere.utils.id.TimeOrderedIdGenerator;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Random;
 
 /**
  * 日志类
@@ -18,10 +22,13 @@ import java.util.Random;
  *
  * <p><b>设计特点：</b></p>
  * <ul>
- *   <li>日志ID和时间戳为final，确保日志记录的不可变性</li>
- *   <li>自动生成基于时间戳的唯一日志ID</li>
- *   <li>在构造时自动输出日志内容</li>
+ *   <li>日志ID和时间戳为final，确保日志记录的不可变性；时间戳以纳秒数保存在long中，由 {@link LocalClock} 读取、不创建时间对象，读取时才转换为时间对象</li>
+ *   <li>日志ID为按时间排序的64位整数（时间戳 + 节点号 + 序号），只在需要时格式化为文本</li>
+ *   <li>基于日志ID实现equals和hashCode，可存入哈希集合</li>
+ *   <li>构造时交给当前的 {@link LogSink} 输出，构造本身不做任何I/O</li>
+ *   <li>事件可以由消息模板加参数描述，备注可以是任意对象，文本只在首次读取或输出时生成</li>
  *   <li>支持日志类型的分类管理</li>
+ *   <li>{@link LogStore} 按列保存日志，从中读取的日志是按需生成的视图：相等性不变，但修改视图不影响存储</li>
  * </ul>
  *
  * @author qsnn
@@ -29,28 +36,47 @@ import java.util.Random;
  * @since 2025
  */
 public class Log {
+    /** 日志ID生成器，节点号取自系统属性homeSphere.nodeID，默认为0 */
+    private static final TimeOrderedIdGenerator ID_GENERATOR =
+            new TimeOrderedIdGenerator(Integer.getInteger("homeSphere.nodeID", 0));
+
+    /** 每天的纳秒数 */
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+
     /** 日志唯一标识符 */
-    protected final String logID;
+    protected final long logID;
 
     /** 日志执行者（通常是设备ID或用户ID） */
     protected final String actor;
 
-    /** 日志记录时间 */
-    protected final LocalDateTime t;
+    /** 日志记录时间，本地时间自1970-01-01T00:00起的纳秒数（见 {@link #getTimeNanos()}） */
+    protected final long time;
 
-    /** 日志事件描述 */
+    /** 日志事件描述，延迟格式化的日志在首次读取时生成 */
     protected String event;
 
+    /** 事件消息模板，以{}作为参数占位符；为null表示event已是最终文本 */
+    private String eventTemplate;
+
+    /** 事件模板参数 */
+    private Object[] eventArgs;
+
     /** 日志类型 */
     protected LogType eventType;
 
-    /** 日志备注信息 */
+    /** 日志备注信息，延迟格式化的日志在首次读取时生成 */
     protected String remarks;
 
+    /** 延迟生成文本的备注对象 */
+    private Object remarksSource;
+
+    /** 作为独立日志加入 {@link LogSearchIndex} 时的文档编号，未加入时为-1，由索引在写锁内维护 */
+    int searchDocID = -1;
+
     /**
      * 日志构造函数
      *
-     * <p>创建日志时会自动生成日志ID、记录当前时间，并输出日志内容。</p>
+     * <p>创建日志时会自动生成日志ID、记录当前时间，并提交给当前的日志输出端。</p>
      *
      * @param actor 日志执行者
      * @param event 日志事件描述
@@ -58,13 +84,68 @@ public class Log {
      * @param remarks 日志备注信息
      */
     public Log(String actor, String event, LogType eventType, String remarks) {
-        t = LocalDateTime.now();
-        this.logID = generateLogID();
+        this.time = LocalClock.nowNanos();
+        this.logID = ID_GENERATOR.nextId();
         this.actor = actor;
         this.event = event;
         this.eventType = eventType;
         this.remarks = remarks == null ? "" : remarks;
-        System.out.println(this);
+        LogSinks.get().append(this);
+    }
+
+    /**
+     * 延迟格式化的日志构造函数
+     *
+     * <p>只保存消息模板、参数和备注对象的引用，事件与备注文本在首次读取或由输出端输出时才生成。
+     * 模板中的每个{}依次替换为对应参数的 {@code String.valueOf} 结果。调用方需保证参数与备注对象
+     * 在日志输出前不再改变，或者接受输出时的取值。</p>
+     *
+     * @param actor 日志执行者
+     * @param eventType 日志类型
+     * @param remarks 备注对象，可以为null
+     * @param template 事件消息模板
+     * @param args 模板参数
+     */
+    public Log(String actor, LogType eventType, Object remarks, String template, Object... args) {
+        this.time = LocalClock.nowNanos();
+        this.logID = ID_GENERATOR.nextId();
+        this.actor = actor;
+        this.eventTemplate = template;
+        this.eventArgs = args;
+        this.eventType = eventType;
+        this.remarksSource = remarks;
+        LogSinks.get().append(this);
+    }
+
+    /**
+     * 由日志存储按列保存的字段重建日志视图，不生成新ID，也不提交给日志输出端
+     *
+     * @param logID 日志ID
+     * @param actor 执行者
+     * @param time 时间纳秒数
+     * @param eventType 日志类型
+     * @param event 事件文本，template不为null时忽略
+     * @param template 事件消息模板，可以为null
+     * @param args 模板参数
+     * @param remarks 备注文本或延迟生成文本的备注对象，可以为null
+     */
+    Log(long logID, String actor, long time, LogType eventType, String event, String template, Object[] args,
+        Object remarks) {
+        this.logID = logID;
+        this.actor = actor;
+        this.time = time;
+        this.eventType = eventType;
+        if (template != null) {
+            this.eventTemplate = template;
+            this.eventArgs = args;
+        } else {
+            this.event = event;
+        }
+        if (remarks instanceof String) {
+            this.remarks = (String) remarks;
+        } else {
+            this.remarksSource = remarks;
+        }
     }
 
     // ==================== Getter 方法 ====================
@@ -74,17 +155,49 @@ public class Log {
      *
      * @return 日志唯一标识符
      */
-    public String getLogID() {
+    public long getLogID() {
         return logID;
     }
 
+    /**
+     * 获取日志ID的文本形式
+     *
+     * <p>格式：LOG + 16位十六进制数，文本的字典序与日志ID的数值顺序一致</p>
+     *
+     * @return 日志ID文本
+     */
+    public String getLogIDText() {
+        return TimeOrderedIdGenerator.appendText(logID, new StringBuilder(19).append("LOG")).toString();
+    }
+
+    /**
+     * 获取日志执行者
+     *
+     * @return 执行者
+     */
+    public String getActor() {
+        return actor;
+    }
+
     /**
      * 获取日志记录时间
      *
      * @return 日志时间戳
      */
     public LocalDateTime getT() {
-        return t;
+        return ofTimeNanos(time);
+    }
+
+    /**
+     * 获取日志记录时间的纳秒数
+     *
+     * <p>为本地时间（不含时区）自1970-01-01T00:00起的纳秒数，与 {@link #getT()} 一一对应，
+     * 比较大小即比较时间先后。</p>
+     *
+     * @return 时间纳秒数
+     */
+    public long getTimeNanos() {
+        return time;
     }
 
     /**
@@ -93,7 +206,12 @@ public class Log {
      * @return 事件描述
      */
     public String getEvent() {
-        return event;
+        String text = event;
+        if (text == null && eventTemplate != null) {
+            text = format(eventTemplate, eventArgs);
+            event = text;
+        }
+        return text;
     }
 
     /**
@@ -111,7 +229,40 @@ public class Log {
      * @return 备注信息
      */
     public String getRemarks() {
-        return remarks;
+        String text = remarks;
+        if (text == null) {
+            Object source = remarksSource;
+            text = source == null ? "" : String.valueOf(source);
+            remarks = text;
+        }
+        return text;
+    }
+
+    /**
+     * 获取事件消息模板，供同一包内的输出端直接编码模板和参数
+     *
+     * @return 消息模板，事件已是最终文本时返回null
+     */
+    String eventTemplate() {
+        return eventTemplate;
+    }
+
+    /**
+     * 获取事件模板参数
+     *
+     * @return 模板参数，可能为null
+     */
+    Object[] eventArgs() {
+        return eventArgs;
+    }
+
+    /**
+     * 获取备注的原始形式，供日志存储按列保存
+     *
+     * @return 已生成的备注文本，尚未生成时为备注对象，可能为null
+     */
+    Object remarksValue() {
+        return remarks != null ? remarks : remarksSource;
     }
 
     // ==================== Setter 方法 ====================
@@ -123,6 +274,8 @@ public class Log {
      */
     public void setEvent(String event) {
         this.event = event;
+        this.eventTemplate = null;
+        this.eventArgs = null;
     }
 
     /**
@@ -141,32 +294,81 @@ public class Log {
      */
     public void setRemarks(String remarks) {
         this.remarks = remarks;
+        this.remarksSource = null;
     }
 
     // ==================== 业务方法 ====================
 
     /**
-     * 生成日志ID
+     * 写入日志
      *
-     * <p>基于当前时间戳和随机数生成唯一的日志标识符</p>
-     * <p>格式：LOG + 年月日时分秒 + 3位随机数</p>
+     * <p>将日志再次提交给当前的日志输出端</p>
+     */
+    public void writeLog(){
+        LogSinks.get().append(this);
+    }
+
+    /**
+     * 将日志的格式化文本追加到缓冲区
      *
-     * @return 生成的日志ID
+     * <p>格式与 {@link #toString()} 相同，输出端批量写出时直接追加，不生成中间字符串。</p>
+     *
+     * @param buffer 目标缓冲区
+     * @return 目标缓冲区
      */
-    private String generateLogID() {
-        return String.format("LOG%d%02d%02d%02d%02d%02d%03d",
-                t.getYear(), t.getMonthValue(), t.getDayOfMonth(),
-                t.getHour(), t.getMinute(), t.getSecond(),
-                new Random().nextInt(1000));
+    public StringBuilder appendTo(StringBuilder buffer) {
+        buffer.append("LOG[LOG");
+        TimeOrderedIdGenerator.appendText(logID, buffer).append("](").append(actor).append(") ");
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(getT(), buffer);
+        return buffer.append(' ').append(eventType)
+                .append(' ').append(getEvent())
+                .append(" (").append(getRemarks()).append(')');
     }
 
     /**
-     * 写入日志
+     * 将时间转换为纳秒数（不涉及时区）
      *
-     * <p>将日志内容输出到控制台</p>
+     * @param t 时间
+     * @return 自1970-01-01T00:00起的纳秒数
      */
-    public void writeLog(){
-        System.out.println(this);
+    static long toTimeNanos(LocalDateTime t) {
+        return t.toLocalDate().toEpochDay() * NANOS_PER_DAY + t.toLocalTime().toNanoOfDay();
+    }
+
+    /**
+     * 将纳秒数转换回时间
+     *
+     * @param nanos 自1970-01-01T00:00起的纳秒数
+     * @return 时间
+     */
+    static LocalDateTime ofTimeNanos(long nanos) {
+        return LocalDateTime.of(LocalDate.ofEpochDay(Math.floorDiv(nanos, NANOS_PER_DAY)),
+                LocalTime.ofNanoOfDay(Math.floorMod(nanos, NANOS_PER_DAY)));
+    }
+
+    /**
+     * 按模板生成文本，模板中的每个{}依次替换为参数，多余的占位符原样保留
+     *
+     * @param template 消息模板
+     * @param args 模板参数
+     * @return 生成的文本
+     */
+    private static String format(String template, Object[] args) {
+        if (args == null || args.length == 0) {
+            return template;
+        }
+        StringBuilder buffer = new StringBuilder(template.length() + 16 * args.length);
+        int from = 0;
+        int argIndex = 0;
+        while (argIndex < args.length) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            buffer.append(template, from, at).append(args[argIndex++]);
+            from = at + 2;
+        }
+        return buffer.append(template, from, template.length()).toString();
     }
 
     // ==================== 枚举类型定义 ====================
@@ -189,16 +391,13 @@ public class Log {
      * 返回日志的格式化字符串表示
      *
      * <p>格式：LOG[日志ID](执行者) 时间 类型 事件 (备注)</p>
-     * <p>示例：LOG[LOG20250115143045001](DEV001) 2025-01-15T14:30:45 INFO 设备开启 (主卧室空调)</p>
+     * <p>示例：LOG[LOG0091A2B3C4000000](DEV001) 2025-01-15T14:30:45 INFO 设备开启 (主卧室空调)</p>
      *
      * @return 格式化的日志信息字符串
      */
     @Override
     public String toString(){
-        return String.format("LOG[%s](%s) %s %s %s (%s)",
-                logID, actor,
-                t.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-                eventType, event, remarks);
+        return appendTo(new StringBuilder(96)).toString();
     }
 
     /**
@@ -215,6 +414,18 @@ public class Log {
         if (obj == null || getClass() != obj.getClass()) return false;
 
         Log log = (Log) obj;
-        return logID.equals(log.logID);
+        return logID == log.logID;
+    }
+
+    /**
+     * 返回日志的哈希码
+     *
+     * <p>与 {@link #equals(Object)} 一致，基于日志ID计算</p>
+     *
+     * @return 哈希码
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(logID);
     }
 }
\ No newline at end of file
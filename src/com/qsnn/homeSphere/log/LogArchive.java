@@ -0,0 +1,46 @@
+package com.qsnn.homeSphere.log;
+
+import com.qsnn.homeSphere.domain.EntityType;
+
+import java.util.List;
+
+/**
+ * 日志归档接口
+ *
+ * <p>日志存储按保留策略淘汰的日志交给当前安装的归档处理，而不是直接丢弃。
+ * 默认归档为 {@link FileLogArchive}，可通过 {@link LogRetention#installArchive(LogArchive)} 替换。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>{@link #archive(EntityType, List)} 通常在 {@link LogRetention} 的后台线程上调用，归档队列已满时在追加日志的线程上调用，
+ *       都在日志存储的锁之外，实现必须线程安全</li>
+ *   <li>同一日志存储淘汰的日志按追加顺序成批交付</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+@FunctionalInterface
+public interface LogArchive {
+
+    /**
+     * 归档一批被淘汰的日志
+     *
+     * @param ownerType 日志所属实体的类型，未指定类型的日志存储为null
+     * @param logs 被淘汰的日志，按追加顺序排列
+     */
+    void archive(EntityType ownerType, List<Log> logs);
+
+    /**
+     * 将已归档的日志写入持久存储
+     */
+    default void flush() {
+    }
+
+    /**
+     * 写出剩余日志并释放资源
+     */
+    default void close() {
+    }
+}
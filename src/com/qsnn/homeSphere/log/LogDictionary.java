@@ -0,0 +1,133 @@
+package com.qsnn.homeSphere.log;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日志字典
+ *
+ * <p>进程内共享的字符串驻留表，为日志的执行者、事件文本和事件消息模板分配int编码。
+ * {@link LogStore} 按列保存日志时只保存编码，几百万条日志重复使用的少量字符串各只保存一份。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>编码从0开始按首次出现的顺序分配，分配后不再改变，不回收</li>
+ *   <li>长度超过 {@link #MAX_TEXT_LENGTH} 的文本或字典已满时不分配编码，由调用方按原文保存，
+ *       避免一次性的长文本使字典无限增长</li>
+ *   <li>字典同时受条数（{@link #MAX_ENTRIES}，默认65536条）和估算字节数（{@link #MAX_BYTES}，默认8MB）限制，
+ *       可分别由系统属性 {@code homeSphere.logDictionaryEntries} 和 {@code homeSphere.logDictionaryBytes} 指定；
+ *       字典在进程内共享且编码不回收，不计入 {@link LogRetention} 的全局预算，占用以这两个上限为界</li>
+ *   <li>查找编码为并发哈希表读取，按编码取文本为无锁数组读取；分配编码时加锁</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class LogDictionary {
+
+    /** 可驻留文本的最大长度 */
+    public static final int MAX_TEXT_LENGTH = 64;
+
+    /** 字典的最大条数 */
+    public static final int MAX_ENTRIES = Math.max(0, Integer.getInteger("homeSphere.logDictionaryEntries", 1 << 16));
+
+    /** 字典的最大估算字节数 */
+    public static final long MAX_BYTES = Math.max(0, Long.getLong("homeSphere.logDictionaryBytes", 8L << 20));
+
+    /** 每条编码在哈希表和文本数组中的估算字节数（不含文本本身） */
+    private static final int ENTRY_BYTES = 68;
+
+    /** 不在字典中的编码 */
+    public static final int NONE = -1;
+
+    /** 文本 -> 编码 */
+    private static final Map<String, Integer> CODES = new ConcurrentHashMap<>();
+
+    /** 编码 -> 文本，只在持有类锁时替换 */
+    private static volatile String[] texts = new String[256];
+
+    /** 已分配的编码数 */
+    private static int size;
+
+    /** 已分配编码的估算字节数（含文本，不含文本数组的空槽） */
+    private static long bytes;
+
+    private LogDictionary() {
+    }
+
+    /**
+     * 获取文本的编码，不存在时分配
+     *
+     * @param text 文本
+     * @return 编码；文本为null、过长或字典已满时返回 {@link #NONE}
+     */
+    public static int intern(String text) {
+        if (text == null || text.length() > MAX_TEXT_LENGTH) {
+            return NONE;
+        }
+        Integer code = CODES.get(text);
+        return code != null ? code : allocate(text);
+    }
+
+    /**
+     * 获取文本的编码，不分配
+     *
+     * @param text 文本
+     * @return 编码，不在字典中时返回 {@link #NONE}
+     */
+    public static int lookup(String text) {
+        Integer code = text == null ? null : CODES.get(text);
+        return code != null ? code : NONE;
+    }
+
+    /**
+     * 获取编码对应的文本
+     *
+     * @param code 编码
+     * @return 文本，编码为 {@link #NONE} 时返回null
+     */
+    public static String text(int code) {
+        return code == NONE ? null : texts[code];
+    }
+
+    /**
+     * 获取字典条数
+     *
+     * @return 条数
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 估算字典占用的堆内存字节数
+     *
+     * @return 估算字节数
+     */
+    public static synchronized long estimatedBytes() {
+        return 16L + texts.length * 4L + bytes;
+    }
+
+    private static synchronized int allocate(String text) {
+        Integer existing = CODES.get(text);
+        if (existing != null) {
+            return existing;
+        }
+        long entryBytes = ENTRY_BYTES + 40L + 2L * text.length();
+        if (size == MAX_ENTRIES || bytes + entryBytes > MAX_BYTES) {
+            return NONE;
+        }
+        String[] current = texts;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, (int) Math.min(MAX_ENTRIES, current.length * 2L));
+        }
+        // 先写入文本再发布数组和编码，读到编码的线程一定能读到文本
+        current[size] = text;
+        texts = current;
+        CODES.put(text, size);
+        bytes += entryBytes;
+        return size++;
+    }
+}
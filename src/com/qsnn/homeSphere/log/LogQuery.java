@@ -0,0 +1,275 @@
+package com.qsnn.homeSphere.log;
+
+import com.qsnn.homeSphere.domain.EntityType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 全局日志查询
+ *
+ * <p>以链式调用组合条件，对各实体的日志存储做惰性的多路归并，结果按时间排序。例如查询最近100条设备错误日志：</p>
+ * <pre>
+ * system.queryLogs()
+ *       .entityTypes(EntityType.DEVICE)
+ *       .logTypes(Log.LogType.ERROR)
+ *       .newestFirst()
+ *       .limit(100)
+ *       .list();
+ * </pre>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>实体类型条件决定参与归并的日志存储，时间范围在每个存储内二分定位起点</li>
+ *   <li>日志类型和执行者条件先与各存储及其各块记录的类型位图、执行者摘要比较，
+ *       从未出现过该类型或执行者的存储不参与归并，不可能满足条件的块整块跳过；
+ *       其余块在进入归并之前逐条比较编码列，只为满足条件的日志生成视图</li>
+ *   <li>归并以最小堆保存各存储的当前日志，每取出一条只推进对应的存储。带limit的查询在每个参与归并的存储中
+ *       至少定位到第一条满足条件的日志，代价随参与归并的存储数增长；条件越少见，需要越过的块越多</li>
+ *   <li>时间相同的日志按日志ID排序，结果稳定</li>
+ *   <li>结果为迭代器或顺序流，只在消费时读取；查询对象不可跨线程共享，每次查询应新建</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogQuery {
+
+    /** 各实体类型的日志存储来源 */
+    private final Map<EntityType, Iterable<LogStore>> sources;
+
+    /** 限定的实体类型，为空表示全部 */
+    private final Set<EntityType> entityTypes = EnumSet.noneOf(EntityType.class);
+
+    /** 限定的日志类型，为空表示全部 */
+    private final Set<Log.LogType> logTypes = EnumSet.noneOf(Log.LogType.class);
+
+    /** 限定的执行者，为null表示全部 */
+    private String actor;
+
+    private long fromTime = Long.MIN_VALUE;
+
+    private long toTime = Long.MAX_VALUE;
+
+    private boolean descending;
+
+    private long offset;
+
+    private long limit = Long.MAX_VALUE;
+
+    /**
+     * 构造查询，通常通过 {@code HomeSphereSystem.queryLogs()} 创建
+     *
+     * @param sources 各实体类型的日志存储来源，每次执行查询时重新遍历
+     * @throws IllegalArgumentException 如果来源为null
+     */
+    public LogQuery(Map<EntityType, ? extends Iterable<LogStore>> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("日志来源不能为空");
+        }
+        this.sources = new EnumMap<>(EntityType.class);
+        this.sources.putAll(sources);
+    }
+
+    // ==================== 条件方法 ====================
+
+    /**
+     * 限定日志所属的实体类型，可多次调用累加
+     *
+     * @param types 实体类型
+     * @return 本查询对象
+     */
+    public LogQuery entityTypes(EntityType... types) {
+        entityTypes.addAll(List.of(types));
+        return this;
+    }
+
+    /**
+     * 限定日志类型，可多次调用累加
+     *
+     * @param types 日志类型
+     * @return 本查询对象
+     */
+    public LogQuery logTypes(Log.LogType... types) {
+        logTypes.addAll(List.of(types));
+        return this;
+    }
+
+    /**
+     * 限定日志执行者
+     *
+     * @param actor 执行者，与 {@link Log#getActor()} 比较
+     * @return 本查询对象
+     */
+    public LogQuery actor(String actor) {
+        this.actor = actor;
+        return this;
+    }
+
+    /**
+     * 限定时间范围
+     *
+     * @param from 起始时间（含），为null表示不限
+     * @param to 结束时间（含），为null表示不限
+     * @return 本查询对象
+     */
+    public LogQuery between(LocalDateTime from, LocalDateTime to) {
+        this.fromTime = from != null ? Log.toTimeNanos(from) : Long.MIN_VALUE;
+        this.toTime = to != null ? Log.toTimeNanos(to) : Long.MAX_VALUE;
+        return this;
+    }
+
+    /**
+     * 结果从新到旧排列（默认从旧到新）
+     *
+     * @return 本查询对象
+     */
+    public LogQuery newestFirst() {
+        this.descending = true;
+        return this;
+    }
+
+    /**
+     * 跳过结果中的前若干条
+     *
+     * @param offset 跳过条数
+     * @return 本查询对象
+     * @throws IllegalArgumentException 如果条数为负数
+     */
+    public LogQuery offset(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("跳过条数不能为负数");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * 限定结果的最大条数
+     *
+     * @param limit 最大条数
+     * @return 本查询对象
+     * @throws IllegalArgumentException 如果条数为负数
+     */
+    public LogQuery limit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("最大条数不能为负数");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // ==================== 执行方法 ====================
+
+    /**
+     * 执行查询，返回惰性归并的迭代器
+     *
+     * @return 结果迭代器
+     */
+    public Iterator<Log> iterator() {
+        return new MergeIterator();
+    }
+
+    /**
+     * 执行查询，返回惰性归并的顺序流
+     *
+     * @return 结果流
+     */
+    public Stream<Log> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 执行查询，返回结果列表
+     *
+     * @return 结果列表
+     */
+    public List<Log> list() {
+        List<Log> result = new ArrayList<>();
+        iterator().forEachRemaining(result::add);
+        return result;
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 多路归并迭代器
+     */
+    private final class MergeIterator implements Iterator<Log> {
+
+        private final PriorityQueue<LogStore.Scan> heap;
+
+        /** 还可返回的条数 */
+        private long remaining = limit;
+
+        private Log next;
+
+        MergeIterator() {
+            Comparator<LogStore.Scan> byTime = Comparator.comparingLong(LogStore.Scan::currentTime)
+                    .thenComparingLong(scan -> scan.current().getLogID());
+            heap = new PriorityQueue<>(descending ? byTime.reversed() : byTime);
+            Set<Log.LogType> types = logTypes.isEmpty() ? null : EnumSet.copyOf(logTypes);
+            for (Map.Entry<EntityType, Iterable<LogStore>> entry : sources.entrySet()) {
+                if (!entityTypes.isEmpty() && !entityTypes.contains(entry.getKey())) {
+                    continue;
+                }
+                for (LogStore store : entry.getValue()) {
+                    LogStore.Scan scan = store.scan(fromTime, toTime, descending, types, actor);
+                    if (scan != null && scan.advance()) {
+                        heap.add(scan);
+                    }
+                }
+            }
+            for (long skipped = 0; skipped < offset && poll() != null; skipped++) {
+                // 跳过offset条
+            }
+            next = remaining > 0 ? poll() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Log next() {
+            Log log = next;
+            if (log == null) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            next = remaining > 0 ? poll() : null;
+            return log;
+        }
+
+        /**
+         * 取出堆顶日志并推进对应的存储
+         */
+        private Log poll() {
+            LogStore.Scan scan = heap.poll();
+            if (scan == null) {
+                return null;
+            }
+            Log log = scan.current();
+            if (scan.advance()) {
+                heap.add(scan);
+            }
+            return log;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.qsnn.homeSphere.log;
+
+/**
+ * 日志限流参数
+ *
+ * <p>令牌桶参数：每个执行者的令牌以固定速率补充，桶中最多积累burst个令牌。
+ * 每创建一条日志消耗一个令牌，没有令牌时日志被抑制并计入重复事件汇总。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>不可变对象，可在多个日志类型之间共享</li>
+ *   <li>{@link #UNLIMITED} 表示不限流，该日志类型的日志不经过令牌桶</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class LogRateLimit {
+
+    /** 不限流 */
+    public static final LogRateLimit UNLIMITED = new LogRateLimit();
+
+    /** 每秒补充的令牌数 */
+    private final double permitsPerSecond;
+
+    /** 桶容量 */
+    private final int burst;
+
+    private LogRateLimit() {
+        this.permitsPerSecond = Double.POSITIVE_INFINITY;
+        this.burst = Integer.MAX_VALUE;
+    }
+
+    /**
+     * 构造限流参数
+     *
+     * @param permitsPerSecond 每个执行者每秒补充的令牌数
+     * @param burst 桶容量，即允许的突发日志数
+     * @throws IllegalArgumentException 如果参数不是正数
+     */
+    public LogRateLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond) || burst < 1) {
+            throw new IllegalArgumentException("日志限流速率和桶容量必须为正数");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    // ==================== Getter 方法 ====================
+
+    /**
+     * 获取每秒补充的令牌数
+     *
+     * @return 令牌数，不限流时为正无穷
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 获取桶容量
+     *
+     * @return 桶容量
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * 判断是否不限流
+     *
+     * @return 不限流时返回true
+     */
+    public boolean isUnlimited() {
+        return this == UNLIMITED;
+    }
+
+    @Override
+    public String toString() {
+        return isUnlimited() ? "LogRateLimit{unlimited}"
+                : "LogRateLimit{permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + '}';
+    }
+}
@@ -0,0 +1,448 @@
+package com.qsnn.homeSphere.log;
+
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按执行者的日志限流器
+ *
+ * <p>在创建日志之前调用 {@link #tryAcquire}：每个执行者的每种日志类型各有一个令牌桶，
+ * 有令牌时允许创建日志，否则日志被抑制，只按事件累计次数和首末时间。该执行者再次获得令牌时，
+ * 被抑制的事件先汇总成一条日志（如"连接网络 ×1342（首次时间 ~ 末次时间）"）写入调用方提供的日志集合。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>按日志类型配置限流参数，{@link Log.LogType#ERROR} 始终不限流</li>
+ *   <li>被抑制的事件按事件文本分别汇总，交替出现的事件（如反复连接、断开）同样能合并</li>
+ *   <li>{@link #flush()} 立即写出全部待汇总的事件，用于停机</li>
+ *   <li>{@link #sweep(long)} 写出已安静一段时间的事件的汇总，并移除空闲的执行者；
+ *       已安装的限流器由后台守护线程每 {@value #SWEEP_INTERVAL_MILLIS} 毫秒清理一次</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>默认不限流；日志类型不限流时 {@link #tryAcquire} 直接返回true，不访问任何执行者状态</li>
+ *   <li>各执行者的状态相互独立，只在同一执行者的状态上加锁</li>
+ *   <li>每个执行者最多同时汇总 {@link #MAX_PENDING_EVENTS} 种事件，超出时最早的一种立即写出汇总</li>
+ *   <li>没有待汇总事件且令牌桶已补满的执行者与新建的状态等价，清理时移除，执行者表不会随历史执行者增长</li>
+ *   <li>待汇总事件以弱引用保存汇总写入的集合，已删除实体的日志存储不会被限流器长期持有；
+ *       集合已被回收时汇总日志只交给日志输出端</li>
+ *   <li>进程内通过 {@link #install(LogRateLimiter)} 安装，替换限流器即丢弃原有的令牌与汇总状态</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogRateLimiter {
+
+    /** 每个执行者最多同时汇总的事件种数 */
+    public static final int MAX_PENDING_EVENTS = 16;
+
+    /** 后台清理的间隔毫秒数，也是后台清理写出汇总前事件需要安静的时长 */
+    public static final long SWEEP_INTERVAL_MILLIS = 1_000;
+
+    private static final Log.LogType[] LOG_TYPES = Log.LogType.values();
+
+    /** 当前安装的限流器 */
+    private static volatile LogRateLimiter current = new LogRateLimiter();
+
+    /** 清理已安装限流器的后台线程，第一次限流时启动 */
+    private static Thread sweeper;
+
+    /** 后台线程是否已启动 */
+    private static volatile boolean sweeping;
+
+    /** 各日志类型的限流参数，按枚举序号索引，整体替换 */
+    private volatile LogRateLimit[] limits;
+
+    /** 执行者 -> 限流状态 */
+    private final Map<String, ActorState> actors = new ConcurrentHashMap<>();
+
+    /**
+     * 构造不限流的限流器
+     */
+    public LogRateLimiter() {
+        limits = new LogRateLimit[LOG_TYPES.length];
+        Arrays.fill(limits, LogRateLimit.UNLIMITED);
+    }
+
+    // ==================== 安装 ====================
+
+    /**
+     * 获取当前安装的限流器
+     *
+     * @return 当前限流器
+     */
+    public static LogRateLimiter get() {
+        return current;
+    }
+
+    /**
+     * 安装限流器
+     *
+     * <p>原限流器中待汇总的事件不会自动写出，需要时由调用方先调用其 {@link #flush()}。</p>
+     *
+     * @param limiter 新的限流器
+     * @return 原限流器
+     * @throws IllegalArgumentException 如果限流器为null
+     */
+    public static synchronized LogRateLimiter install(LogRateLimiter limiter) {
+        if (limiter == null) {
+            throw new IllegalArgumentException("日志限流器不能为空");
+        }
+        LogRateLimiter previous = current;
+        current = limiter;
+        return previous;
+    }
+
+    // ==================== 配置 ====================
+
+    /**
+     * 设置日志类型的限流参数
+     *
+     * @param type 日志类型，不能为ERROR
+     * @param limit 限流参数
+     * @return 原限流参数
+     * @throws IllegalArgumentException 如果参数为null或对ERROR日志限流
+     */
+    public synchronized LogRateLimit setLimit(Log.LogType type, LogRateLimit limit) {
+        if (type == null || limit == null) {
+            throw new IllegalArgumentException("日志类型和限流参数不能为空");
+        }
+        if (type == Log.LogType.ERROR && !limit.isUnlimited()) {
+            throw new IllegalArgumentException("ERROR日志不能限流");
+        }
+        LogRateLimit[] next = Arrays.copyOf(limits, limits.length);
+        LogRateLimit previous = next[type.ordinal()];
+        next[type.ordinal()] = limit;
+        limits = next;
+        return previous;
+    }
+
+    /**
+     * 获取日志类型的限流参数
+     *
+     * @param type 日志类型
+     * @return 限流参数
+     */
+    public LogRateLimit getLimit(Log.LogType type) {
+        return limits[type.ordinal()];
+    }
+
+    // ==================== 限流 ====================
+
+    /**
+     * 判断是否允许创建一条日志
+     *
+     * <p>返回true时调用方应创建该日志；返回false时该日志已计入汇总，调用方不应创建。
+     * 返回true且该执行者此前有被抑制的同类型事件时，汇总日志会先写入target。</p>
+     *
+     * @param actor 日志执行者
+     * @param type 日志类型
+     * @param event 事件文本，也是汇总的依据
+     * @param target 汇总日志写入的集合，通常为实体的日志存储；为null时汇总日志只交给日志输出端
+     * @return 允许创建时返回true
+     */
+    public boolean tryAcquire(String actor, Log.LogType type, String event, Collection<? super Log> target) {
+        LogRateLimit limit = limits[type.ordinal()];
+        if (limit.isUnlimited()) {
+            return true;
+        }
+        if (!sweeping) {
+            ensureSweeper();
+        }
+        List<Pending> summaries;
+        boolean admitted;
+        while (true) {
+            ActorState state = actors.computeIfAbsent(actor, key -> new ActorState());
+            synchronized (state) {
+                if (state.removed) {
+                    continue; // 状态刚被清理移除，重新获取
+                }
+                admitted = state.tryTake(type, limit, System.nanoTime());
+                if (admitted) {
+                    summaries = state.drain(type);
+                } else {
+                    summaries = state.suppress(type, event, target, System.currentTimeMillis());
+                }
+                break;
+            }
+        }
+        if (summaries != null) {
+            for (Pending pending : summaries) {
+                pending.write(actor);
+            }
+        }
+        return admitted;
+    }
+
+    /**
+     * 写出全部待汇总的事件
+     */
+    public void flush() {
+        for (Map.Entry<String, ActorState> entry : actors.entrySet()) {
+            List<Pending> summaries;
+            synchronized (entry.getValue()) {
+                summaries = entry.getValue().drain(null);
+            }
+            if (summaries != null) {
+                for (Pending pending : summaries) {
+                    pending.write(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * 写出已安静一段时间的事件的汇总，并移除空闲的执行者
+     *
+     * <p>最后一次被抑制距今不少于quietMillis的事件写出汇总；之后没有待汇总事件、且各日志类型的令牌桶
+     * 按当前限流参数已补满的执行者被移除。</p>
+     *
+     * @param quietMillis 写出汇总前事件需要安静的毫秒数，为0时写出全部待汇总的事件
+     * @return 移除的执行者数
+     */
+    public int sweep(long quietMillis) {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        LogRateLimit[] configured = limits;
+        int removed = 0;
+        for (Map.Entry<String, ActorState> entry : actors.entrySet()) {
+            ActorState state = entry.getValue();
+            List<Pending> summaries;
+            synchronized (state) {
+                summaries = state.drainQuiet(nowMillis - quietMillis);
+                if (state.pending.isEmpty() && state.isFull(configured, nowNanos)) {
+                    state.removed = true;
+                    actors.remove(entry.getKey(), state);
+                    removed++;
+                }
+            }
+            if (summaries != null) {
+                for (Pending pending : summaries) {
+                    pending.write(entry.getKey());
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 获取当前保存了限流状态的执行者数
+     *
+     * @return 执行者数
+     */
+    public int getActorCount() {
+        return actors.size();
+    }
+
+    /**
+     * 获取已被抑制、尚未写出汇总的日志数
+     *
+     * @param actor 日志执行者
+     * @return 日志数
+     */
+    public long getSuppressedCount(String actor) {
+        ActorState state = actors.get(actor);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            long count = 0;
+            for (Pending pending : state.pending) {
+                count += pending.count;
+            }
+            return count;
+        }
+    }
+
+    private static synchronized void ensureSweeper() {
+        if (sweeper == null) {
+            sweeper = new Thread(LogRateLimiter::runSweeper, "log-rate-limiter");
+            sweeper.setDaemon(true);
+            sweeper.start();
+            sweeping = true;
+        }
+    }
+
+    private static void runSweeper() {
+        while (true) {
+            try {
+                Thread.sleep(SWEEP_INTERVAL_MILLIS);
+                current.sweep(SWEEP_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // 单次清理失败（如汇总写入的集合抛出异常）不影响后续清理
+            }
+        }
+    }
+
+    // ==================== 执行者状态 ====================
+
+    /**
+     * 一个执行者的令牌桶与待汇总事件，由该对象的监视器保护
+     */
+    private static final class ActorState {
+
+        /** 各日志类型的剩余令牌数 */
+        final double[] tokens = new double[LOG_TYPES.length];
+
+        /** 各日志类型上次补充令牌的时间，0表示尚未使用 */
+        final long[] refilledAt = new long[LOG_TYPES.length];
+
+        /** 待汇总的事件，按首次抑制的顺序排列 */
+        final List<Pending> pending = new ArrayList<>(2);
+
+        /** 已被清理移除，持有该状态的调用方需重新获取 */
+        boolean removed;
+
+        /**
+         * 判断各日志类型的令牌桶是否都已补满（与新建的状态等价）
+         */
+        boolean isFull(LogRateLimit[] limits, long now) {
+            for (int i = 0; i < refilledAt.length; i++) {
+                if (refilledAt[i] == 0 || limits[i].isUnlimited()) {
+                    continue;
+                }
+                double refill = (now - refilledAt[i]) * limits[i].getPermitsPerSecond() / 1e9;
+                if (tokens[i] + refill < limits[i].getBurst()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean tryTake(Log.LogType type, LogRateLimit limit, long now) {
+            int i = type.ordinal();
+            if (refilledAt[i] == 0) {
+                tokens[i] = limit.getBurst();
+            } else {
+                double refill = (now - refilledAt[i]) * limit.getPermitsPerSecond() / 1e9;
+                tokens[i] = Math.min(limit.getBurst(), tokens[i] + refill);
+            }
+            refilledAt[i] = now;
+            if (tokens[i] >= 1) {
+                tokens[i] -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 记录一次被抑制的事件
+         *
+         * @return 因超过汇总种数上限而需要立即写出的汇总，没有时返回null
+         */
+        List<Pending> suppress(Log.LogType type, String event, Collection<? super Log> target, long nowMillis) {
+            for (Pending run : pending) {
+                if (run.type == type && run.event.equals(event)) {
+                    run.count++;
+                    run.lastMillis = nowMillis;
+                    if (run.target == null || run.target.get() != target) {
+                        run.target = Pending.reference(target);
+                    }
+                    return null;
+                }
+            }
+            pending.add(new Pending(type, event, target, nowMillis));
+            return pending.size() > MAX_PENDING_EVENTS ? List.of(pending.remove(0)) : null;
+        }
+
+        /**
+         * 取出待汇总的事件
+         *
+         * @param type 只取出该类型的事件，为null时取出全部
+         * @return 取出的事件，没有时返回null
+         */
+        List<Pending> drain(Log.LogType type) {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            List<Pending> drained = null;
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                if (type == null || pending.get(i).type == type) {
+                    if (drained == null) {
+                        drained = new ArrayList<>();
+                    }
+                    drained.add(0, pending.remove(i));
+                }
+            }
+            return drained;
+        }
+
+        /**
+         * 取出最后一次抑制不晚于quietSince的事件
+         *
+         * @return 取出的事件，没有时返回null
+         */
+        List<Pending> drainQuiet(long quietSince) {
+            List<Pending> drained = null;
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                if (pending.get(i).lastMillis <= quietSince) {
+                    if (drained == null) {
+                        drained = new ArrayList<>();
+                    }
+                    drained.add(0, pending.remove(i));
+                }
+            }
+            return drained;
+        }
+    }
+
+    /**
+     * 一种被抑制的事件
+     */
+    private static final class Pending {
+
+        final Log.LogType type;
+
+        final String event;
+
+        /** 汇总日志写入的集合，为null时只交给日志输出端 */
+        WeakReference<Collection<? super Log>> target;
+
+        long count = 1;
+
+        final long firstMillis;
+
+        long lastMillis;
+
+        Pending(Log.LogType type, String event, Collection<? super Log> target, long nowMillis) {
+            this.type = type;
+            this.event = event;
+            this.target = reference(target);
+            this.firstMillis = nowMillis;
+            this.lastMillis = nowMillis;
+        }
+
+        /**
+         * 生成汇总日志并写入目标集合
+         */
+        void write(String actor) {
+            Log summary = new Log(actor, type, null, "{} ×{}（{} ~ {}）", event, count,
+                    toTime(firstMillis), toTime(lastMillis));
+            Collection<? super Log> collection = target != null ? target.get() : null;
+            if (collection != null) {
+                collection.add(summary);
+            }
+        }
+
+        static WeakReference<Collection<? super Log>> reference(Collection<? super Log> target) {
+            return target != null ? new WeakReference<>(target) : null;
+        }
+
+        private static LocalDateTime toTime(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.qsnn.homeSphere.log;
+
+import com.qsnn.homeSphere.domain.EntityType;
+
+import java.lang.ref.WeakReference;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志保留配置注册表
+ *
+ * <p>保存进程内各实体类型的 {@link LogRetentionPolicy}、所有日志存储共享的全局字节预算，
+ * 以及淘汰日志使用的 {@link LogArchive}。日志存储在每次追加时读取当前配置，修改配置对已有的存储立即生效，
+ * 多出的日志在该存储下一次追加时淘汰。</p>
+ *
+ * <p>全局预算与归档由一个后台线程（log-retention）执行：追加日志的线程只把按策略淘汰的日志放入队列，
+ * 发现超出全局预算时提交一次淘汰请求，随即返回。后台线程依次写出队列中的归档批次；处理淘汰请求时
+ * 对所有登记的日志存储按最早日志的时间做多路归并，从全局最早的日志开始淘汰，直到回落到预算的
+ * (1 - 1/{@value #LOW_WATER_DIVISOR})以下。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>默认不限制，行为与未配置保留策略时相同</li>
+ *   <li>全局预算按日志存储中保留的日志估算字节数累计；超出预算时淘汰的是所有实体中最早的日志，
+ *       与哪个实体正在追加无关。后台淘汰与追加并发进行，保留的字节数可能短暂超出预算，
+ *       {@link #awaitBackgroundWork()} 返回后不超出预算</li>
+ *   <li>日志存储在第一次追加时以弱引用登记，实体删除后其日志存储仍可被回收，登记表在每次全局淘汰时清理</li>
+ *   <li>归档队列有界，队列已满时由追加线程直接归档，作为背压</li>
+ *   <li>未显式安装归档时，首次使用会创建默认的 {@link FileLogArchive}，目录取自系统属性
+ *       homeSphere.logArchiveDir，默认为 log-archive，并注册关闭钩子</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class LogRetention {
+
+    /** 各实体类型的保留策略，按枚举序号索引，整体替换 */
+    private static volatile LogRetentionPolicy[] policies = initialPolicies();
+
+    /** 全局字节预算，0表示不限 */
+    private static volatile long globalBudgetBytes;
+
+    /** 所有日志存储保留的估算字节数 */
+    private static final AtomicLong retainedBytes = new AtomicLong();
+
+    /** 当前归档 */
+    private static volatile LogArchive archive;
+
+    /** 全局淘汰的目标：淘汰到预算的(1 - 1/LOW_WATER_DIVISOR) */
+    private static final int LOW_WATER_DIVISOR = 64;
+
+    /** 归档队列容量（批次数） */
+    private static final int QUEUE_CAPACITY = 4096;
+
+    /** 后台线程空闲时检查全局预算的间隔（毫秒），用于预算调低后没有新追加的情况 */
+    private static final long IDLE_CHECK_MILLIS = 1000;
+
+    /** 已登记的日志存储，只追加、在全局淘汰时清理已回收的存储，由LogRetention.class的锁保护 */
+    private static final List<WeakReference<LogStore>> stores = new ArrayList<>();
+
+    /** 后台任务队列：归档批次、淘汰请求与同步屏障 */
+    private static final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    /** 是否已有尚未处理的全局淘汰请求 */
+    private static final AtomicBoolean evictionRequested = new AtomicBoolean();
+
+    /** 后台线程，首次提交任务时启动 */
+    private static Thread worker;
+
+    private LogRetention() {
+    }
+
+    // ==================== 配置 ====================
+
+    /**
+     * 获取实体类型的保留策略
+     *
+     * @param ownerType 实体类型，为null时返回不限制的策略
+     * @return 保留策略
+     */
+    public static LogRetentionPolicy getPolicy(EntityType ownerType) {
+        return ownerType == null ? LogRetentionPolicy.UNLIMITED : policies[ownerType.ordinal()];
+    }
+
+    /**
+     * 设置实体类型的保留策略
+     *
+     * @param ownerType 实体类型
+     * @param policy 保留策略
+     * @return 原保留策略
+     * @throws IllegalArgumentException 如果实体类型或策略为null
+     */
+    public static synchronized LogRetentionPolicy setPolicy(EntityType ownerType, LogRetentionPolicy policy) {
+        if (ownerType == null || policy == null) {
+            throw new IllegalArgumentException("实体类型和保留策略不能为空");
+        }
+        LogRetentionPolicy[] next = Arrays.copyOf(policies, policies.length);
+        LogRetentionPolicy previous = next[ownerType.ordinal()];
+        next[ownerType.ordinal()] = policy;
+        policies = next;
+        return previous;
+    }
+
+    /**
+     * 获取全局字节预算
+     *
+     * @return 字节预算，0表示不限
+     */
+    public static long getGlobalBudgetBytes() {
+        return globalBudgetBytes;
+    }
+
+    /**
+     * 设置全局字节预算
+     *
+     * @param bytes 所有日志存储合计最多保留的估算字节数，0表示不限
+     * @throws IllegalArgumentException 如果预算为负数
+     */
+    public static void setGlobalBudgetBytes(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("全局日志预算不能为负数");
+        }
+        globalBudgetBytes = bytes;
+    }
+
+    /**
+     * 获取所有日志存储当前保留的估算字节数
+     *
+     * @return 估算字节数
+     */
+    public static long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * 获取当前归档
+     *
+     * @return 当前归档
+     */
+    public static LogArchive getArchive() {
+        LogArchive current = archive;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LogRetention.class) {
+            if (archive == null) {
+                FileLogArchive defaultArchive =
+                        new FileLogArchive(Paths.get(System.getProperty("homeSphere.logArchiveDir", "log-archive")));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    awaitBackgroundWork(IDLE_CHECK_MILLIS);
+                    defaultArchive.close();
+                }, "log-archive-shutdown"));
+                archive = defaultArchive;
+            }
+            return archive;
+        }
+    }
+
+    /**
+     * 安装新的归档
+     *
+     * <p>原归档不会被关闭，由调用方决定是否关闭。</p>
+     *
+     * @param newArchive 新的归档
+     * @return 原归档，尚未创建默认归档时返回null
+     * @throws IllegalArgumentException 如果归档为null
+     */
+    public static synchronized LogArchive installArchive(LogArchive newArchive) {
+        if (newArchive == null) {
+            throw new IllegalArgumentException("日志归档不能为空");
+        }
+        LogArchive previous = archive;
+        archive = newArchive;
+        return previous;
+    }
+
+    /**
+     * 等待此前提交的归档批次和全局淘汰全部完成，并刷新当前归档
+     *
+     * <p>返回后保留的字节数不超出全局预算（除非此后又有追加）。用于测试、停机或需要读取归档内容之前。</p>
+     */
+    public static void awaitBackgroundWork() {
+        awaitBackgroundWork(0);
+    }
+
+    /**
+     * 等待后台任务完成，超时为0表示一直等待
+     */
+    private static void awaitBackgroundWork(long timeoutMillis) {
+        CountDownLatch done = new CountDownLatch(1);
+        Runnable barrier = () -> {
+            try {
+                if (overGlobalBudget()) {
+                    evictGlobally();
+                }
+                getArchive().flush();
+            } finally {
+                done.countDown();
+            }
+        };
+        try {
+            submitBlocking(barrier);
+            if (timeoutMillis > 0) {
+                done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                done.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== 日志存储使用的方法 ====================
+
+    /**
+     * 登记日志存储，参与全局淘汰；每个存储只在第一次追加时登记一次
+     */
+    static synchronized void register(LogStore store) {
+        stores.add(new WeakReference<>(store));
+    }
+
+    /**
+     * 把按策略淘汰的日志交给后台线程归档，队列已满时在调用线程上直接归档
+     *
+     * @param ownerType 日志所属实体类型
+     * @param logs 淘汰的日志，按追加顺序排列
+     */
+    static void archiveLater(EntityType ownerType, List<Log> logs) {
+        Runnable task = () -> getArchive().archive(ownerType, logs);
+        if (!submit(task)) {
+            task.run();
+        }
+    }
+
+    /**
+     * 超出全局预算时提交一次全局淘汰请求，已有未处理的请求时直接返回
+     */
+    static void requestEviction() {
+        if (evictionRequested.compareAndSet(false, true) && !submit(LogRetention::runEvictionRequest)) {
+            // 队列已满：后台线程处理完当前任务后会在空闲检查中发现超出预算
+            evictionRequested.set(false);
+        }
+    }
+
+    /**
+     * 记入日志存储新保留的字节数
+     */
+    static void reserve(long bytes) {
+        retainedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * 扣除日志存储淘汰或清空的字节数
+     */
+    static void release(long bytes) {
+        retainedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * 判断是否超出全局预算
+     */
+    static boolean overGlobalBudget() {
+        long budget = globalBudgetBytes;
+        return budget > 0 && retainedBytes.get() > budget;
+    }
+
+    // ==================== 后台线程 ====================
+
+    private static void runEvictionRequest() {
+        evictionRequested.set(false);
+        if (overGlobalBudget()) {
+            evictGlobally();
+        }
+    }
+
+    /**
+     * 从全局最早的日志开始淘汰，直到回落到预算的低水位以下
+     *
+     * <p>各存储按最早保留日志的时间放入小顶堆；每次取出最早的存储，淘汰其中不晚于堆中下一个存储最早时间的日志，
+     * 再按新的最早时间放回。只在后台线程调用。</p>
+     */
+    private static void evictGlobally() {
+        long budget = globalBudgetBytes;
+        if (budget <= 0) {
+            return;
+        }
+        long lowWater = budget - budget / LOW_WATER_DIVISOR;
+        PriorityQueue<Candidate> heap = new PriorityQueue<>();
+        for (LogStore store : liveStores()) {
+            long oldest = store.oldestRetainedTime();
+            if (oldest != Long.MAX_VALUE) {
+                heap.add(new Candidate(store, oldest));
+            }
+        }
+        while (retainedBytes.get() > lowWater && !heap.isEmpty()) {
+            Candidate candidate = heap.poll();
+            long nextOldest = heap.isEmpty() ? Long.MAX_VALUE : heap.peek().oldest;
+            List<Log> evicted = candidate.store.evictForBudget(nextOldest, lowWater);
+            if (evicted != null) {
+                getArchive().archive(candidate.store.ownerType(), evicted);
+            }
+            long oldest = candidate.store.oldestRetainedTime();
+            if (oldest != Long.MAX_VALUE) {
+                candidate.oldest = oldest;
+                heap.add(candidate);
+            }
+        }
+    }
+
+    /**
+     * 取出仍存活的已登记存储，并清理已回收的登记
+     */
+    private static synchronized List<LogStore> liveStores() {
+        List<LogStore> live = new ArrayList<>(stores.size());
+        stores.removeIf(reference -> {
+            LogStore store = reference.get();
+            if (store == null) {
+                return true;
+            }
+            live.add(store);
+            return false;
+        });
+        return live;
+    }
+
+    /**
+     * 堆中的一个日志存储及其最早保留日志的时间
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        final LogStore store;
+
+        long oldest;
+
+        Candidate(LogStore store, long oldest) {
+            this.store = store;
+            this.oldest = oldest;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Long.compare(oldest, other.oldest);
+        }
+    }
+
+    /**
+     * 提交后台任务，队列已满时返回false
+     */
+    private static boolean submit(Runnable task) {
+        ensureWorker();
+        return tasks.offer(task);
+    }
+
+    private static void submitBlocking(Runnable task) throws InterruptedException {
+        ensureWorker();
+        tasks.put(task);
+    }
+
+    private static synchronized void ensureWorker() {
+        if (worker == null) {
+            worker = new Thread(LogRetention::runWorker, "log-retention");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private static void runWorker() {
+        while (true) {
+            try {
+                Runnable task = tasks.poll(IDLE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                } else if (overGlobalBudget()) {
+                    evictGlobally();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // 单个任务失败不影响后续归档与淘汰
+            }
+        }
+    }
+
+    private static LogRetentionPolicy[] initialPolicies() {
+        LogRetentionPolicy[] initial = new LogRetentionPolicy[EntityType.values().length];
+        Arrays.fill(initial, LogRetentionPolicy.UNLIMITED);
+        return initial;
+    }
+}
@@ -0,0 +1,119 @@
+package com.qsnn.homeSphere.log;
+
+import java.time.Duration;
+
+/**
+ * 日志保留策略
+ *
+ * <p>描述单个实体的日志存储最多保留多少日志。三个上限相互独立，任一超出即从最早的日志开始淘汰，
+ * 淘汰的日志交给当前的 {@link LogArchive} 归档。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>不可变对象，可在多个实体类型之间共享</li>
+ *   <li>上限为0（时长为null）表示不限制</li>
+ *   <li>按年龄淘汰时以最新追加的日志时间为基准，追加路径上不读取系统时钟</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class LogRetentionPolicy {
+
+    /** 不限制的保留策略 */
+    public static final LogRetentionPolicy UNLIMITED = new LogRetentionPolicy(0, null, 0);
+
+    /** 最多保留的日志条数，0表示不限 */
+    private final int maxCount;
+
+    /** 日志最长保留时长，null表示不限 */
+    private final Duration maxAge;
+
+    /** 最长保留时长的纳秒数，超出long范围时取Long.MAX_VALUE */
+    private final long maxAgeNanos;
+
+    /** 最多保留的估算字节数，0表示不限 */
+    private final long maxBytes;
+
+    /**
+     * 构造保留策略
+     *
+     * @param maxCount 最多保留的日志条数，0表示不限
+     * @param maxAge 日志最长保留时长，null表示不限
+     * @param maxBytes 最多保留的估算字节数（见 {@link LogStore#retainedBytes()}），0表示不限
+     * @throws IllegalArgumentException 如果上限为负数
+     */
+    public LogRetentionPolicy(int maxCount, Duration maxAge, long maxBytes) {
+        if (maxCount < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("日志保留条数和字节数不能为负数");
+        }
+        if (maxAge != null && maxAge.isNegative()) {
+            throw new IllegalArgumentException("日志保留时长不能为负数");
+        }
+        this.maxCount = maxCount;
+        this.maxAge = maxAge;
+        this.maxAgeNanos = maxAge == null ? Long.MAX_VALUE : saturatedNanos(maxAge);
+        this.maxBytes = maxBytes;
+    }
+
+    // ==================== Getter 方法 ====================
+
+    /**
+     * 获取最多保留的日志条数
+     *
+     * @return 日志条数上限，0表示不限
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * 获取日志最长保留时长
+     *
+     * @return 保留时长，null表示不限
+     */
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * 获取日志最长保留时长的纳秒数
+     *
+     * @return 纳秒数，不限或超出long范围时返回Long.MAX_VALUE
+     */
+    public long getMaxAgeNanos() {
+        return maxAgeNanos;
+    }
+
+    /**
+     * 获取最多保留的估算字节数
+     *
+     * @return 字节数上限，0表示不限
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 判断策略是否不做任何限制
+     *
+     * @return 三个上限都未设置时返回true
+     */
+    public boolean isUnlimited() {
+        return maxCount == 0 && maxAge == null && maxBytes == 0;
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LogRetentionPolicy{maxCount=" + maxCount + ", maxAge=" + maxAge + ", maxBytes=" + maxBytes + '}';
+    }
+}
@@ -0,0 +1,493 @@
+package com.qsnn.homeSphere.log;
+
+import com.qsnn.homeSphere.utils.primitive.IntObjectHashMap;
+import com.qsnn.homeSphere.utils.primitive.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 日志全文检索索引
+ *
+ * <p>对日志事件与备注文本的字符二元组（相邻两个字符）建立倒排索引，适用于不分词的中文文本，
+ * 也适用于设备名称、设备ID等任意片段。每个二元组对应一个压缩位图（{@link RoaringBitmap}）作为倒排表，
+ * 位图中的元素为日志的文档编号。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>增量维护：日志存储通过 {@link #addAll(LogStore)} 加入后，每追加一条日志即加入索引，
+ *       淘汰或清空的日志不再出现在结果中；{@link #removeAll(LogStore)} 移除整个存储</li>
+ *   <li>多关键词检索：每个关键词拆成二元组，全部关键词的全部二元组倒排表从小到大求交集，
+ *       再对候选日志逐条核对原文，结果不含误报</li>
+ *   <li>英文字母不区分大小写</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>文档编号按加入索引的顺序递增分配，倒排表只在末尾追加，位图的数组容器插入不需要移动元素</li>
+ *   <li>文档以分块数组按编号保存：日志存储中的日志只保存存储的登记项和全局下标，核对时从存储按列生成日志视图，
+ *       已淘汰、清空或已移除存储的下标直接跳过，无需逐条移除；独立的日志对象直接保存引用，移除只清空对应槽位</li>
+ *   <li>存储在淘汰、清空或移除时通知失效的文档数（原子计数，不获取索引锁）；失效文档超过一半时压缩：
+ *       按原顺序重新编号存活的文档并重建倒排表，释放失效的文档槽位、倒排表元素以及已移除存储的引用</li>
+ *   <li>只有一个字符的关键词无法用二元组定位，只参与核对；全部关键词都只有一个字符时退化为逐条核对</li>
+ *   <li>文本生成与二元组拆分、排序、去重都在锁外完成，写锁内只分配文档编号并追加倒排表；
+ *       日志存储在释放自身锁之后才写入索引，不会在持有存储锁时等待索引锁；检索获取读锁，多个检索可以并行</li>
+ *   <li>索引不是进程全局的，由创建它的系统实例持有并只加入该实例的日志存储；
+ *       未加入索引的日志存储不做任何额外工作，延迟格式化的日志文本也不会因建立索引而提前生成</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogSearchIndex {
+
+    /** 每块保存的日志数 */
+    private static final int DOC_CHUNK_BITS = 16;
+
+    private static final int DOC_CHUNK_SIZE = 1 << DOC_CHUNK_BITS;
+
+    /** 触发压缩的最少失效文档数 */
+    private static final int MIN_COMPACT_DOCS = 1024;
+
+    private static final int[] NO_GRAMS = new int[0];
+
+    /** 二元组到倒排表 */
+    private IntObjectHashMap<RoaringBitmap> postings = new IntObjectHashMap<>();
+
+    /** 按文档编号保存的文档来源：日志存储的登记项或独立的日志对象 */
+    private Object[][] docs = new Object[4][];
+
+    /** 来源为日志存储时日志在存储中的全局下标 */
+    private long[][] positions = new long[4][];
+
+    /** 已分配的文档编号数 */
+    private int docCount;
+
+    /** 上次压缩以来失效的文档数（估算值，只用于决定何时压缩） */
+    private final AtomicLong staleDocs = new AtomicLong();
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * 日志存储在本索引中的登记项
+     *
+     * <p>每次加入索引创建新的登记项，移除时标记为失效，文档通过登记项引用存储；
+     * 重新加入的存储不会与失效登记项下的旧文档重复。</p>
+     */
+    static final class Source {
+
+        /** 所属索引 */
+        final LogSearchIndex index;
+
+        /** 日志存储 */
+        final LogStore store;
+
+        /** 是否仍在索引中 */
+        volatile boolean attached = true;
+
+        Source(LogSearchIndex index, LogStore store) {
+            this.index = index;
+            this.store = store;
+        }
+
+        /**
+         * 该登记项下全局下标处的日志是否仍有效
+         */
+        boolean isLive(long position) {
+            return attached && store.isRetained(position);
+        }
+    }
+
+    // ==================== 写操作 ====================
+
+    /**
+     * 将独立的日志对象加入索引，已在索引中的日志忽略
+     *
+     * <p>日志存储中的日志由存储自动加入，见 {@link #addAll(LogStore)}。</p>
+     *
+     * @param log 日志
+     */
+    public void add(Log log) {
+        // 锁外生成文本并拆分二元组，避免在写锁内执行延迟格式化
+        int[] grams = grams(log.getEvent(), log.getRemarks());
+        long stamp = lock.writeLock();
+        try {
+            if (log.searchDocID >= 0) {
+                return;
+            }
+            log.searchDocID = addDoc(log, 0, grams);
+            compactIfStale();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 将日志存储中保留的全部日志加入索引，此后该存储追加的日志也会加入本索引
+     *
+     * @param store 日志存储，已加入本索引时忽略
+     */
+    public void addAll(LogStore store) {
+        store.indexInto(this);
+    }
+
+    /**
+     * 将日志存储从索引中移除，该存储的日志不再出现在检索结果中，此后追加的日志也不再加入索引
+     *
+     * <p>已有文档在下次压缩时释放。</p>
+     *
+     * @param store 日志存储，不在本索引中时忽略
+     */
+    public void removeAll(LogStore store) {
+        store.detachFrom(this);
+    }
+
+    /**
+     * 将日志存储中的一条日志加入索引，由存储在释放自身锁之后调用
+     *
+     * @param source 日志存储的登记项
+     * @param position 日志在存储中的全局下标
+     * @param log 日志，用于生成索引文本
+     */
+    void add(Source source, long position, Log log) {
+        int[] grams = grams(log.getEvent(), log.getRemarks());
+        long stamp = lock.writeLock();
+        try {
+            if (source.attached) {
+                addDoc(source, position, grams);
+                compactIfStale();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 记录失效的文档数，由日志存储在淘汰、清空或移除时调用，不获取索引锁
+     *
+     * @param count 失效的文档数
+     */
+    void released(long count) {
+        if (count > 0) {
+            staleDocs.addAndGet(count);
+        }
+    }
+
+    /**
+     * 将独立的日志对象从检索结果中移除
+     *
+     * @param log 日志，不在索引中时忽略
+     */
+    public void remove(Log log) {
+        long stamp = lock.writeLock();
+        try {
+            int docID = log.searchDocID;
+            if (docID < 0 || docID >= docCount || docs[docID >>> DOC_CHUNK_BITS][docID & (DOC_CHUNK_SIZE - 1)] != log) {
+                return;
+            }
+            docs[docID >>> DOC_CHUNK_BITS][docID & (DOC_CHUNK_SIZE - 1)] = null;
+            log.searchDocID = -1;
+            staleDocs.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ==================== 检索 ====================
+
+    /**
+     * 检索同时包含全部关键词的日志
+     *
+     * @param terms 关键词，每个关键词需出现在事件或备注中
+     * @return 匹配的日志，按加入索引的顺序排列
+     */
+    public List<Log> search(String... terms) {
+        return search(Integer.MAX_VALUE, terms);
+    }
+
+    /**
+     * 检索同时包含全部关键词的日志，最多返回指定条数
+     *
+     * @param limit 最大条数
+     * @param terms 关键词，每个关键词需出现在事件或备注中
+     * @return 匹配的日志，按加入索引的顺序排列
+     * @throws IllegalArgumentException 如果没有关键词或存在空关键词
+     */
+    public List<Log> search(int limit, String... terms) {
+        if (terms == null || terms.length == 0) {
+            throw new IllegalArgumentException("检索关键词不能为空");
+        }
+        for (String term : terms) {
+            if (term == null || term.isEmpty()) {
+                throw new IllegalArgumentException("检索关键词不能为空");
+            }
+        }
+        List<Log> result = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            List<RoaringBitmap> lists = new ArrayList<>();
+            for (String term : terms) {
+                for (int i = 0; i + 1 < term.length(); i++) {
+                    RoaringBitmap list = postings.get(gram(term.charAt(i), term.charAt(i + 1)));
+                    if (list == null) {
+                        return result;
+                    }
+                    lists.add(list);
+                }
+            }
+            if (lists.isEmpty()) {
+                for (int docID = 0; docID < docCount && result.size() < limit; docID++) {
+                    collect(docID, terms, result);
+                }
+                return result;
+            }
+            lists.sort(Comparator.comparingInt(RoaringBitmap::cardinality));
+            RoaringBitmap candidates = lists.get(0);
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates = RoaringBitmap.and(candidates, lists.get(i));
+            }
+            for (int docID : candidates.toArray()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                collect(docID, terms, result);
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ==================== 压缩 ====================
+
+    /**
+     * 压缩索引：按原顺序重新编号存活的文档并重建倒排表
+     *
+     * <p>释放已淘汰、清空或移除的文档及其倒排表元素，以及对已移除日志存储的引用。
+     * 失效文档超过一半时在追加时自动执行，需要立即释放内存时可手动调用。压缩在写锁内重新生成存活日志的文本。</p>
+     */
+    public void compact() {
+        long stamp = lock.writeLock();
+        try {
+            compactLocked();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 获取索引中的日志数（不含已移除、淘汰或清空的日志），需要遍历文档表
+     *
+     * @return 日志数
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            int size = 0;
+            for (int docID = 0; docID < docCount; docID++) {
+                int chunk = docID >>> DOC_CHUNK_BITS;
+                int slot = docID & (DOC_CHUNK_SIZE - 1);
+                if (isLive(docs[chunk][slot], positions[chunk][slot])) {
+                    size++;
+                }
+            }
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 获取不同二元组的数量
+     *
+     * @return 二元组数
+     */
+    public int gramCount() {
+        long stamp = lock.readLock();
+        try {
+            return postings.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 估算倒排表和文档表占用的堆内存字节数（不含日志存储和日志对象）
+     *
+     * @return 估算字节数
+     */
+    public long estimatedBytes() {
+        long stamp = lock.readLock();
+        try {
+            long[] bytes = {postings.estimatedBytes() + 32L + docs.length * 8L};
+            postings.forEachValue(list -> bytes[0] += list.estimatedBytes());
+            for (Object[] chunk : docs) {
+                if (chunk != null) {
+                    bytes[0] += 32L + chunk.length * 12L;
+                }
+            }
+            return bytes[0];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 分配文档编号并追加到各二元组的倒排表，必须持有写锁
+     */
+    private int addDoc(Object owner, long position, int[] grams) {
+        int docID = docCount++;
+        int chunk = docID >>> DOC_CHUNK_BITS;
+        if (chunk == docs.length) {
+            docs = Arrays.copyOf(docs, chunk * 2);
+            positions = Arrays.copyOf(positions, chunk * 2);
+        }
+        if (docs[chunk] == null) {
+            docs[chunk] = new Object[DOC_CHUNK_SIZE];
+            positions[chunk] = new long[DOC_CHUNK_SIZE];
+        }
+        docs[chunk][docID & (DOC_CHUNK_SIZE - 1)] = owner;
+        positions[chunk][docID & (DOC_CHUNK_SIZE - 1)] = position;
+        for (int key : grams) {
+            RoaringBitmap list = postings.get(key);
+            if (list == null) {
+                list = new RoaringBitmap();
+                postings.put(key, list);
+            }
+            list.add(docID);
+        }
+        return docID;
+    }
+
+    /**
+     * 失效文档超过一半（且不少于 {@link #MIN_COMPACT_DOCS}）时压缩，必须持有写锁
+     */
+    private void compactIfStale() {
+        long stale = staleDocs.get();
+        if (stale >= MIN_COMPACT_DOCS && stale * 2 > docCount) {
+            compactLocked();
+        }
+    }
+
+    /**
+     * 重新编号存活的文档并重建倒排表，必须持有写锁
+     */
+    private void compactLocked() {
+        // 压缩期间新通知的失效文档可能已被本次压缩释放，只扣除开始时的计数，多计的部分只会让下次压缩略微提前
+        long stale = staleDocs.get();
+        Object[][] oldDocs = docs;
+        long[][] oldPositions = positions;
+        int oldCount = docCount;
+        docs = new Object[4][];
+        positions = new long[4][];
+        docCount = 0;
+        postings = new IntObjectHashMap<>();
+        for (int docID = 0; docID < oldCount; docID++) {
+            int chunk = docID >>> DOC_CHUNK_BITS;
+            int slot = docID & (DOC_CHUNK_SIZE - 1);
+            Object owner = oldDocs[chunk][slot];
+            long position = oldPositions[chunk][slot];
+            if (owner instanceof Source) {
+                Log log = isLive(owner, position) ? ((Source) owner).store.viewAt(position) : null;
+                if (log != null) {
+                    addDoc(owner, position, grams(log.getEvent(), log.getRemarks()));
+                }
+            } else if (owner != null) {
+                Log log = (Log) owner;
+                log.searchDocID = addDoc(log, 0, grams(log.getEvent(), log.getRemarks()));
+            }
+        }
+        staleDocs.addAndGet(-stale);
+    }
+
+    private static boolean isLive(Object owner, long position) {
+        return owner instanceof Source ? ((Source) owner).isLive(position) : owner != null;
+    }
+
+    /**
+     * 拆分事件与备注的二元组，排序并去重
+     */
+    private static int[] grams(String event, String remarks) {
+        int eventGrams = event != null ? Math.max(0, event.length() - 1) : 0;
+        int remarkGrams = remarks != null ? Math.max(0, remarks.length() - 1) : 0;
+        if (eventGrams + remarkGrams == 0) {
+            return NO_GRAMS;
+        }
+        int[] grams = new int[eventGrams + remarkGrams];
+        for (int i = 0; i < eventGrams; i++) {
+            grams[i] = gram(event.charAt(i), event.charAt(i + 1));
+        }
+        for (int i = 0; i < remarkGrams; i++) {
+            grams[eventGrams + i] = gram(remarks.charAt(i), remarks.charAt(i + 1));
+        }
+        Arrays.sort(grams);
+        int unique = 1;
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[unique - 1]) {
+                grams[unique++] = grams[i];
+            }
+        }
+        return unique == grams.length ? grams : Arrays.copyOf(grams, unique);
+    }
+
+    /**
+     * 核对候选日志的原文，匹配时加入结果
+     */
+    private void collect(int docID, String[] terms, List<Log> result) {
+        Log log = docAt(docID);
+        if (log == null) {
+            return;
+        }
+        String event = log.getEvent();
+        String remarks = log.getRemarks();
+        for (String term : terms) {
+            if (!containsIgnoreCase(event, term) && !containsIgnoreCase(remarks, term)) {
+                return;
+            }
+        }
+        result.add(log);
+    }
+
+    private Log docAt(int docID) {
+        int chunk = docID >>> DOC_CHUNK_BITS;
+        int slot = docID & (DOC_CHUNK_SIZE - 1);
+        Object owner = docs[chunk][slot];
+        if (owner instanceof Source) {
+            Source source = (Source) owner;
+            return source.attached ? source.store.viewAt(positions[chunk][slot]) : null;
+        }
+        return (Log) owner;
+    }
+
+    private static boolean containsIgnoreCase(String text, String term) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + term.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, term, 0, term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 二元组的键：两个字符（英文字母转小写）拼成一个int
+     *
+     * <p>键的最高位为字符的最高位，{@code Integer.MIN_VALUE} 对应两个字符为0x8000与0x0000，
+     * 与哈希表保留的空键冲突时改用0。</p>
+     */
+    private static int gram(char first, char second) {
+        int key = Character.toLowerCase(first) << 16 | Character.toLowerCase(second);
+        return key == Integer.MIN_VALUE ? 0 : key;
+    }
+}
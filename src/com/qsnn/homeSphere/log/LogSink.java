@@ -0,0 +1,40 @@
+package com.qsnn.homeSphere.log;
+
+/**
+ * 日志输出接口
+ *
+ * <p>日志对象创建后交给当前安装的输出端处理，日志构造本身不做任何I/O。
+ * 默认输出端为 {@link AsyncRingBufferLogSink}，可通过 {@link LogSinks#install(LogSink)} 替换。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>{@link #append(Log)} 可能被任意线程并发调用，实现必须线程安全</li>
+ *   <li>{@link #append(Log)} 应尽快返回，耗时的格式化和写出应在后台完成</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+@FunctionalInterface
+public interface LogSink {
+
+    /**
+     * 接收一条日志
+     *
+     * @param log 日志
+     */
+    void append(Log log);
+
+    /**
+     * 等待此前接收的日志全部写出
+     */
+    default void flush() {
+    }
+
+    /**
+     * 写出剩余日志并释放资源，关闭后接收的日志由实现自行决定如何处理
+     */
+    default void close() {
+    }
+}
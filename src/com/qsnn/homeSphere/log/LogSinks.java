@@ -0,0 +1,58 @@
+package com.qsnn.homeSphere.log;
+
+/**
+ * 日志输出端注册表
+ *
+ * <p>保存进程内当前使用的 {@link LogSink}。未显式安装时，首次使用会创建默认的
+ * {@link AsyncRingBufferLogSink}（输出到标准输出），并注册关闭钩子在进程退出前写出剩余日志。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class LogSinks {
+
+    /** 当前输出端 */
+    private static volatile LogSink current;
+
+    private LogSinks() {
+    }
+
+    /**
+     * 获取当前输出端
+     *
+     * @return 当前输出端
+     */
+    public static LogSink get() {
+        LogSink sink = current;
+        if (sink != null) {
+            return sink;
+        }
+        synchronized (LogSinks.class) {
+            if (current == null) {
+                AsyncRingBufferLogSink defaultSink = new AsyncRingBufferLogSink();
+                Runtime.getRuntime().addShutdownHook(new Thread(defaultSink::close, "log-sink-shutdown"));
+                current = defaultSink;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 安装新的输出端
+     *
+     * <p>原输出端不会被关闭，由调用方决定是否先 {@link LogSink#flush()} 或 {@link LogSink#close()}。</p>
+     *
+     * @param sink 新的输出端
+     * @return 原输出端，尚未创建默认输出端时返回null
+     * @throws IllegalArgumentException 如果输出端为null
+     */
+    public static synchronized LogSink install(LogSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("日志输出端不能为空");
+        }
+        LogSink previous = current;
+        current = sink;
+        return previous;
+    }
+}
@@ -0,0 +1,963 @@
+package com.qsnn.homeSphere.log;
+
+import com.qsnn.homeSphere.domain.EntityType;
+
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 只追加的分块列式日志存储
+ *
+ * <p>每个实体（设备、用户、房间、家庭）持有一个日志存储。日志按追加顺序保存在若干块中，
+ * 每块按列保存日志ID、时间纳秒数、执行者编码以及事件编码与日志类型，执行者与事件文本（或消息模板）
+ * 经 {@link LogDictionary} 编码；只有模板参数、备注以及无法编码的文本才保存在附加字段中。
+ * 每块还记录块内最小、最大时间以及截至该块的最大时间，时间范围查询先二分查找起始块，
+ * 再只扫描时间范围可能相交的块。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>O(1)追加，时间相同的日志全部保留</li>
+ *   <li>按时间范围查询，结果按时间排序</li>
+ *   <li>作为只读集合遍历，支持清空，不支持删除单条日志</li>
+ *   <li>追加时按所属实体类型的 {@link LogRetentionPolicy} 淘汰最早的日志，淘汰的日志交给 {@link LogRetention}
+ *       的后台线程归档；超出全局字节预算时只提交淘汰请求，由后台线程从所有存储中全局最早的日志开始淘汰</li>
+ *   <li>加入 {@link LogSearchIndex} 后，追加的日志在释放存储锁之后加入检索索引，淘汰或清空的日志不再出现在检索结果中，
+ *       并通知索引失效的日志数</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>块容量从8开始倍增到256，只有少量日志的实体占用很小</li>
+ *   <li>每条日志约占24字节（两个long和两个int，日志类型占事件编码的低2位），附加字段列只在块内出现附加字段时才分配；
+ *       不保存日志对象和时间对象，读取时按列生成 {@link Log} 视图，视图按日志ID判等，修改视图不影响存储</li>
+ *   <li>追加和淘汰操作加锁；读操作无锁，只读取已发布且未淘汰的日志</li>
+ *   <li>日志以递增的全局下标编号，淘汰只前移起始下标，整块淘汰后移除该块</li>
+ *   <li>并发追加可能使追加顺序与时间顺序略有出入，查询时按需排序，保证结果有序</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class LogStore extends AbstractCollection<Log> {
+
+    /** 首块容量 */
+    private static final int FIRST_CHUNK_CAPACITY = 8;
+
+    /** 最大块容量 */
+    private static final int MAX_CHUNK_CAPACITY = 256;
+
+    /** 每条日志在各列中的字节数（不含附加字段列） */
+    private static final int ENTRY_BYTES = 24;
+
+    /** 日志类型在事件列中占用的低位数 */
+    private static final int TYPE_BITS = 2;
+
+    /** 日志类型为null时在事件列中的取值 */
+    private static final int NULL_TYPE = (1 << TYPE_BITS) - 1;
+
+    /** 执行者摘要中表示存在无法编码的执行者的位 */
+    private static final long UNCODED_ACTOR_BIT = 1L << 63;
+
+    /** 延迟生成文本的备注对象的估算字节数 */
+    private static final int REMARKS_BYTES = 96;
+
+    private static final Log.LogType[] LOG_TYPES = Log.LogType.values();
+
+    private static final Chunk[] NO_CHUNKS = new Chunk[0];
+
+    /** 所属实体类型，决定使用的保留策略；为null时只受全局预算限制 */
+    private final EntityType ownerType;
+
+    /** 块数组，只在追加新块、移除已淘汰的块或清空时替换 */
+    private volatile Chunk[] chunks = NO_CHUNKS;
+
+    /** 已使用的块数 */
+    private int chunkCount;
+
+    /** 下一个新块的容量 */
+    private int nextCapacity = FIRST_CHUNK_CAPACITY;
+
+    /** 第一条未淘汰日志的全局下标 */
+    private volatile long head;
+
+    /** 已发布日志的结束全局下标（不含） */
+    private volatile long tail;
+
+    /** 已追加日志的最大时间纳秒数 */
+    private long maxTime = Long.MIN_VALUE;
+
+    /** 追加过的日志类型序号位图，清空时重置；淘汰不回退，只可能多报 */
+    private volatile int typeMask;
+
+    /** 追加过的执行者编码摘要，清空时重置；淘汰不回退，只可能多报 */
+    private volatile long actorMask;
+
+    /** 保留的日志估算字节数 */
+    private long bytes;
+
+    /** 追加顺序是否与时间顺序一致 */
+    private volatile boolean ordered = true;
+
+    /** 在检索索引中的登记项，未加入索引时为null；必须持有锁修改 */
+    private volatile LogSearchIndex.Source searchSource;
+
+    /** 是否已在 {@link LogRetention} 登记，必须持有锁访问 */
+    private boolean registered;
+
+    /**
+     * 一块日志，各列下标一一对应
+     */
+    private static final class Chunk {
+
+        /** 日志ID */
+        final long[] ids;
+
+        /** 时间纳秒数 */
+        final long[] times;
+
+        /** 执行者编码，无法编码时为 {@link LogDictionary#NONE} */
+        final int[] actors;
+
+        /** 事件文本或消息模板的编码左移 {@link #TYPE_BITS} 位，低位为日志类型序号（null为 {@link #NULL_TYPE}）；
+         *  无法编码时编码部分为 {@link LogDictionary#NONE} */
+        final int[] events;
+
+        /** 附加字段，块内第一次出现附加字段时分配，在发布该日志之前写入 */
+        Extra[] extras;
+
+        /** 块内第一条日志的全局下标 */
+        final long offset;
+
+        /** 块内日志数 */
+        int count;
+
+        /** 块内最小时间 */
+        long minTime = Long.MAX_VALUE;
+
+        /** 块内最大时间 */
+        long maxTime = Long.MIN_VALUE;
+
+        /** 截至本块（含）的最大时间，随块序号单调不减 */
+        long prefixMaxTime = Long.MIN_VALUE;
+
+        /** 块内出现过的日志类型序号位图（含null类型的 {@link #NULL_TYPE} 位） */
+        int typeMask;
+
+        /** 块内出现过的执行者编码摘要，见 {@link #actorBit} */
+        long actorMask;
+
+        Chunk(int capacity, long offset) {
+            this.ids = new long[capacity];
+            this.times = new long[capacity];
+            this.actors = new int[capacity];
+            this.events = new int[capacity];
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * 一条日志无法按编码保存的部分
+     */
+    private static final class Extra {
+
+        /** 无法编码的执行者 */
+        final String actor;
+
+        /** 无法编码的事件文本或消息模板 */
+        final String event;
+
+        /** 模板参数，不为null时事件为消息模板 */
+        final Object[] args;
+
+        /** 备注文本或延迟生成文本的备注对象 */
+        final Object remarks;
+
+        /** 估算字节数，追加和淘汰时记入相同的值 */
+        final int bytes;
+
+        Extra(String actor, String event, Object[] args, Object remarks) {
+            this.actor = actor;
+            this.event = event;
+            this.args = args;
+            this.remarks = remarks;
+            this.bytes = 24 + stringBytes(actor) + stringBytes(event) + (args == null ? 0 : 16 + 4 * args.length)
+                    + (remarks == null ? 0 : remarks instanceof String ? stringBytes((String) remarks) : REMARKS_BYTES);
+        }
+    }
+
+    /**
+     * 构造不属于任何实体类型的日志存储，只受全局预算限制
+     */
+    public LogStore() {
+        this(null);
+    }
+
+    /**
+     * 构造日志存储
+     *
+     * @param ownerType 所属实体类型，决定使用的保留策略
+     */
+    public LogStore(EntityType ownerType) {
+        this.ownerType = ownerType;
+    }
+
+    // ==================== 写操作 ====================
+
+    /**
+     * 追加日志，并按保留策略淘汰最早的日志
+     *
+     * <p>只保存日志的字段，之后对该日志对象的修改不影响存储。</p>
+     *
+     * @param log 日志，不能为null
+     * @return 总是返回true
+     * @throws IllegalArgumentException 如果日志为null
+     */
+    @Override
+    public boolean add(Log log) {
+        if (log == null) {
+            throw new IllegalArgumentException("日志不能为null");
+        }
+        // 锁外编码，字典分配编码时加的是字典自己的锁
+        int actorCode = LogDictionary.intern(log.actor);
+        String template = log.eventTemplate();
+        Object[] args = template != null ? log.eventArgs() : null;
+        if (args != null && args.length == 0) {
+            args = null;
+        }
+        String event = template != null ? template : log.getEvent();
+        int eventCode = LogDictionary.intern(event);
+        Object remarks = log.remarksValue();
+        if ("".equals(remarks)) {
+            remarks = null;
+        }
+        Extra extra = null;
+        if ((actorCode == LogDictionary.NONE && log.actor != null)
+                || (eventCode == LogDictionary.NONE && event != null) || args != null || remarks != null) {
+            extra = new Extra(actorCode == LogDictionary.NONE ? log.actor : null,
+                    eventCode == LogDictionary.NONE ? event : null, args, remarks);
+        }
+        int type = log.eventType == null ? NULL_TYPE : log.eventType.ordinal();
+
+        List<Log> evicted;
+        boolean register;
+        LogSearchIndex.Source source;
+        long position;
+        synchronized (this) {
+            register = !registered;
+            registered = true;
+            append(log.logID, log.time, actorCode, eventCode, type, extra);
+            position = tail - 1;
+            source = searchSource;
+            evicted = enforceRetention(log.time);
+        }
+        if (register) {
+            LogRetention.register(this);
+        }
+        if (source != null) {
+            // 释放存储锁之后再写入索引，已被淘汰的下标在检索时跳过
+            source.index.add(source, position, log);
+        }
+        if (evicted != null) {
+            LogRetention.archiveLater(ownerType, evicted);
+        }
+        if (LogRetention.overGlobalBudget()) {
+            LogRetention.requestEviction();
+        }
+        return true;
+    }
+
+    /**
+     * 清空全部日志，清空的日志不归档，也不再出现在检索结果中
+     */
+    @Override
+    public synchronized void clear() {
+        LogSearchIndex.Source source = searchSource;
+        if (source != null) {
+            source.index.released(tail - head);
+        }
+        LogRetention.release(bytes);
+        bytes = 0;
+        head = tail;
+        chunks = NO_CHUNKS;
+        chunkCount = 0;
+        nextCapacity = FIRST_CHUNK_CAPACITY;
+        maxTime = Long.MIN_VALUE;
+        ordered = true;
+        typeMask = 0;
+        actorMask = 0;
+    }
+
+    // ==================== 读操作 ====================
+
+    @Override
+    public int size() {
+        long start = head;
+        return (int) (tail - start);
+    }
+
+    @Override
+    public Iterator<Log> iterator() {
+        // 先读tail再读chunks和head：tail之前发布的日志所在的块一定在随后读到的块数组中，
+        // 块被移除前head已前移，读到的head不会早于块数组的第一块
+        long end = tail;
+        Chunk[] snapshot = chunks;
+        long start = Math.min(head, end);
+        return new Iterator<>() {
+            private long position = start;
+            private int chunk = start < end ? chunkIndexOf(snapshot, start) : 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public Log next() {
+                if (position >= end) {
+                    throw new NoSuchElementException();
+                }
+                while (position - snapshot[chunk].offset >= snapshot[chunk].ids.length) {
+                    chunk++;
+                }
+                Chunk current = snapshot[chunk];
+                return view(current, (int) (position++ - current.offset));
+            }
+        };
+    }
+
+    /**
+     * 查询时间范围内的日志
+     *
+     * @param from 起始时间（含），为null表示不限
+     * @param to 结束时间（含），为null表示不限
+     * @return 按时间排序的日志列表
+     */
+    public List<Log> range(LocalDateTime from, LocalDateTime to) {
+        return range(from != null ? Log.toTimeNanos(from) : Long.MIN_VALUE,
+                to != null ? Log.toTimeNanos(to) : Long.MAX_VALUE);
+    }
+
+    /**
+     * 按时间纳秒数查询范围内的日志
+     */
+    private List<Log> range(long fromTime, long toTime) {
+        // 先读tail再读ordered：读到某条乱序日志已发布时，也一定能读到它之前写入的ordered=false
+        long end = tail;
+        boolean sorted = ordered;
+        Chunk[] snapshot = chunks;
+        long start = head;
+        List<Log> result = new ArrayList<>();
+        if (start >= end || fromTime > toTime) {
+            return result;
+        }
+
+        // 截至该块的最大时间单调不减，二分查找第一个可能包含起始时间之后日志的块
+        int chunkLimit = chunkIndexOf(snapshot, end - 1) + 1;
+        int low = 0;
+        int high = chunkLimit;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (snapshot[mid].prefixMaxTime < fromTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        for (int c = low; c < chunkLimit; c++) {
+            Chunk chunk = snapshot[c];
+            if (chunk.minTime > toTime || chunk.maxTime < fromTime) {
+                continue;
+            }
+            int first = (int) Math.max(0, start - chunk.offset);
+            int last = (int) Math.min(chunk.ids.length, end - chunk.offset);
+            for (int i = first; i < last; i++) {
+                long time = chunk.times[i];
+                if (time >= fromTime && time <= toTime) {
+                    result.add(view(chunk, i));
+                }
+            }
+            if (sorted && chunk.maxTime > toTime) {
+                break;
+            }
+        }
+        if (!sorted) {
+            result.sort(Comparator.comparingLong(Log::getTimeNanos));
+        }
+        return result;
+    }
+
+    /**
+     * 创建按时间顺序惰性读取的扫描器，供 {@link LogQuery} 归并使用
+     *
+     * <p>追加顺序与时间顺序一致时直接在块上二分定位起点并逐条读取，遇到超出时间范围的日志即结束；
+     * 否则退化为 {@link #range} 先取出并排序本存储的范围内日志。日志类型和执行者条件先与存储和各块的
+     * 类型位图、执行者摘要比较，整个存储或整块不可能满足时直接跳过；块内再逐条比较列中的编码，
+     * 只为满足条件的日志生成视图。</p>
+     *
+     * @param fromTime 起始时间纳秒数（含）
+     * @param toTime 结束时间纳秒数（含）
+     * @param descending 是否从新到旧读取
+     * @param types 限定的日志类型，为null表示全部
+     * @param actor 限定的执行者，为null表示全部
+     * @return 扫描器，存储中不可能有满足条件的日志时返回null
+     */
+    Scan scan(long fromTime, long toTime, boolean descending, Set<Log.LogType> types, String actor) {
+        int wantedTypes = typeMaskOf(types);
+        long wantedActors = actor == null ? -1L : actorMaskOf(LogDictionary.lookup(actor));
+        if ((typeMask & wantedTypes) == 0 || (actorMask & wantedActors) == 0) {
+            return null;
+        }
+        long end = tail;
+        boolean sorted = ordered;
+        Chunk[] snapshot = chunks;
+        long start = Math.min(head, end);
+        if (!sorted) {
+            List<Log> logs = new ArrayList<>();
+            for (Log log : range(fromTime, toTime)) {
+                if ((types == null || types.contains(log.getEventType()))
+                        && (actor == null || actor.equals(log.getActor()))) {
+                    logs.add(log);
+                }
+            }
+            return new Scan(null, logs, 0, logs.size(), fromTime, toTime, descending, null, null);
+        }
+        // 快照中的执行者都已在发布前编码，此后查找编码与快照一致
+        return new Scan(snapshot, null, start, end, fromTime, toTime, descending, types, actor);
+    }
+
+    /**
+     * 读取全局下标处的日志，供检索索引核对原文
+     *
+     * @param position 全局下标
+     * @return 日志视图，已淘汰或已清空时返回null
+     */
+    Log viewAt(long position) {
+        // 先读块数组再读head：读到的head不晚于position时，该下标所在的块尚未移除
+        Chunk[] snapshot = chunks;
+        if (position < head || position >= tail || snapshot.length == 0) {
+            return null;
+        }
+        Chunk chunk = snapshot[chunkIndexOf(snapshot, position)];
+        if (chunk == null || position < chunk.offset || position - chunk.offset >= chunk.ids.length) {
+            return null;
+        }
+        return view(chunk, (int) (position - chunk.offset));
+    }
+
+    /**
+     * 判断全局下标处的日志是否仍保留
+     *
+     * @param position 全局下标
+     * @return 未淘汰且未清空时返回true
+     */
+    boolean isRetained(long position) {
+        return position >= head && position < tail;
+    }
+
+    /**
+     * 将全部保留的日志加入检索索引，此后追加的日志增量加入；已加入该索引时忽略，已加入其他索引时先从原索引移除
+     *
+     * <p>只在存储锁内登记并读取下标范围，逐条写入索引在锁外进行；期间追加的日志由追加线程写入。</p>
+     *
+     * @param index 检索索引
+     */
+    void indexInto(LogSearchIndex index) {
+        LogSearchIndex.Source source;
+        long from;
+        long to;
+        synchronized (this) {
+            LogSearchIndex.Source current = searchSource;
+            if (current != null && current.index == index) {
+                return;
+            }
+            detach(current);
+            source = new LogSearchIndex.Source(index, this);
+            searchSource = source;
+            from = head;
+            to = tail;
+        }
+        for (long position = from; position < to; position++) {
+            Log log = viewAt(position);
+            if (log != null) {
+                index.add(source, position, log);
+            }
+        }
+    }
+
+    /**
+     * 从检索索引中移除本存储，未加入该索引时忽略
+     *
+     * @param index 检索索引
+     */
+    synchronized void detachFrom(LogSearchIndex index) {
+        LogSearchIndex.Source current = searchSource;
+        if (current != null && current.index == index) {
+            detach(current);
+            searchSource = null;
+        }
+    }
+
+    /**
+     * 标记登记项失效并通知索引失效的日志数，必须持有锁
+     */
+    private void detach(LogSearchIndex.Source source) {
+        if (source != null) {
+            source.attached = false;
+            source.index.released(tail - head);
+        }
+    }
+
+    /**
+     * 通知检索索引有日志被淘汰，必须持有锁
+     */
+    private void releaseIndexed(List<Log> evicted) {
+        LogSearchIndex.Source source = searchSource;
+        if (source != null && evicted != null) {
+            source.index.released(evicted.size());
+        }
+    }
+
+    /**
+     * 获取保留的日志估算字节数（各列中的固定字节数加上附加字段的估算字节数）
+     *
+     * @return 估算字节数
+     */
+    public synchronized long retainedBytes() {
+        return bytes;
+    }
+
+    /**
+     * 估算日志存储占用的堆内存字节数，含各列与附加字段，不含附加字段引用的共享对象和字典
+     *
+     * @return 估算字节数
+     */
+    public long estimatedBytes() {
+        long total = 64L;
+        Chunk[] snapshot = chunks;
+        total += 16L + snapshot.length * 4L;
+        for (Chunk chunk : snapshot) {
+            if (chunk != null) {
+                total += 64L + 4 * 16L + (long) chunk.ids.length * ENTRY_BYTES;
+                Extra[] extras = chunk.extras;
+                if (extras != null) {
+                    total += 16L + extras.length * 4L;
+                    for (Extra extra : extras) {
+                        if (extra != null) {
+                            total += extra.bytes;
+                        }
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 按时间顺序读取一个日志存储的扫描器
+     *
+     * <p>块模式下在追加顺序有序的块上按全局下标读取；列表模式下读取已排序并过滤的日志列表。
+     * 扫描器不是线程安全的，只能由一个线程使用。</p>
+     */
+    static final class Scan {
+
+        /** 块快照，列表模式下为null */
+        private final Chunk[] snapshot;
+
+        /** 已排序的日志，块模式下为null */
+        private final List<Log> sorted;
+
+        /** 可读取的起始下标（含） */
+        private final long start;
+
+        /** 可读取的结束下标（不含） */
+        private final long end;
+
+        private final long fromTime;
+
+        private final long toTime;
+
+        private final boolean descending;
+
+        /** 允许的日志类型序号位图（含null类型的 {@link #NULL_TYPE} 位），-1表示全部 */
+        private final int typeMask;
+
+        /** 限定的执行者，为null表示全部 */
+        private final String actor;
+
+        /** 限定的执行者编码 */
+        private final int actorCode;
+
+        /** 可能满足执行者条件的摘要位，-1表示全部 */
+        private final long actorMask;
+
+        /** 下一个待读取的下标 */
+        private long position;
+
+        private Log current;
+
+        private long currentTime;
+
+        private Scan(Chunk[] snapshot, List<Log> sorted, long start, long end, long fromTime, long toTime,
+                     boolean descending, Set<Log.LogType> types, String actor) {
+            this.snapshot = snapshot;
+            this.sorted = sorted;
+            this.start = start;
+            this.end = end;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            this.descending = descending;
+            this.typeMask = typeMaskOf(types);
+            this.actor = actor;
+            this.actorCode = LogDictionary.lookup(actor);
+            this.actorMask = actor == null ? -1L : actorMaskOf(actorCode);
+            if (sorted != null) {
+                this.position = descending ? end - 1 : start;
+            } else if (descending) {
+                // 最后一条时间不晚于toTime的日志
+                this.position = lowerBound(toTime == Long.MAX_VALUE ? toTime : toTime + 1) - 1;
+            } else {
+                this.position = lowerBound(fromTime);
+            }
+        }
+
+        /**
+         * 移动到下一条满足条件的日志
+         *
+         * @return 存在下一条日志时返回true
+         */
+        boolean advance() {
+            while (descending ? position >= start : position < end) {
+                long index = position;
+                position += descending ? -1 : 1;
+                if (sorted != null) {
+                    current = sorted.get((int) index);
+                    currentTime = current.getTimeNanos();
+                    return true;
+                }
+                Chunk chunk = snapshot[chunkIndexOf(snapshot, index)];
+                if ((chunk.typeMask & typeMask) == 0 || (chunk.actorMask & actorMask) == 0) {
+                    // 整块不可能满足条件：块内时间有序，越过整块前只需判断块的时间边界
+                    if (descending ? chunk.maxTime < fromTime : chunk.minTime > toTime) {
+                        break;
+                    }
+                    position = descending ? chunk.offset - 1 : chunk.offset + chunk.ids.length;
+                    continue;
+                }
+                int offset = (int) (index - chunk.offset);
+                long time = chunk.times[offset];
+                if (descending ? time < fromTime : time > toTime) {
+                    break;
+                }
+                if (matches(chunk, offset)) {
+                    current = view(chunk, offset);
+                    currentTime = time;
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+
+        /**
+         * 获取当前日志
+         */
+        Log current() {
+            return current;
+        }
+
+        /**
+         * 获取当前日志的时间纳秒数
+         */
+        long currentTime() {
+            return currentTime;
+        }
+
+        /**
+         * 按列判断日志类型和执行者条件
+         */
+        private boolean matches(Chunk chunk, int offset) {
+            if (typeMask != -1 && (typeMask & 1 << (chunk.events[offset] & NULL_TYPE)) == 0) {
+                return false;
+            }
+            if (actor == null) {
+                return true;
+            }
+            int code = chunk.actors[offset];
+            if (code != LogDictionary.NONE) {
+                return code == actorCode;
+            }
+            Extra extra = extraAt(chunk, offset);
+            return extra != null && actor.equals(extra.actor);
+        }
+
+        /**
+         * 在有序的块快照中查找第一条时间不早于指定值的日志下标
+         */
+        private long lowerBound(long time) {
+            long low = start;
+            long high = end;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                Chunk chunk = snapshot[chunkIndexOf(snapshot, mid)];
+                if (chunk.times[(int) (mid - chunk.offset)] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 将一条日志的各列写入最后一块并发布，必须持有锁
+     */
+    private void append(long logID, long time, int actorCode, int eventCode, int type, Extra extra) {
+        Chunk[] current = chunks;
+        Chunk last = chunkCount > 0 ? current[chunkCount - 1] : null;
+        if (last == null || last.count == last.ids.length) {
+            Chunk chunk = new Chunk(nextCapacity, tail);
+            chunk.prefixMaxTime = maxTime;
+            nextCapacity = Math.min(MAX_CHUNK_CAPACITY, nextCapacity * 2);
+            if (chunkCount == current.length) {
+                current = Arrays.copyOf(current, Math.max(4, chunkCount * 2));
+            }
+            current[chunkCount++] = chunk;
+            chunks = current;
+            last = chunk;
+        }
+        if (time < maxTime) {
+            ordered = false;
+        }
+        maxTime = Math.max(maxTime, time);
+        int i = last.count;
+        last.ids[i] = logID;
+        last.times[i] = time;
+        last.actors[i] = actorCode;
+        last.events[i] = eventCode << TYPE_BITS | type;
+        if (extra != null) {
+            if (last.extras == null) {
+                last.extras = new Extra[last.ids.length];
+            }
+            last.extras[i] = extra;
+        }
+        last.count++;
+        last.minTime = Math.min(last.minTime, time);
+        last.maxTime = Math.max(last.maxTime, time);
+        last.prefixMaxTime = maxTime;
+        last.typeMask |= 1 << type;
+        last.actorMask |= actorBit(actorCode);
+        if ((typeMask & 1 << type) == 0) {
+            typeMask |= 1 << type;
+        }
+        if ((actorMask & actorBit(actorCode)) == 0) {
+            actorMask |= actorBit(actorCode);
+        }
+        int entryBytes = entryBytes(extra);
+        bytes += entryBytes;
+        LogRetention.reserve(entryBytes);
+        tail = tail + 1;
+    }
+
+    /**
+     * 按保留策略淘汰最早的日志，必须持有锁；全局预算由 {@link LogRetention} 的后台线程统一淘汰
+     *
+     * @param newestTime 最新追加日志的时间纳秒数，作为按年龄淘汰的基准
+     * @return 被淘汰的日志，没有淘汰时返回null
+     */
+    private List<Log> enforceRetention(long newestTime) {
+        LogRetentionPolicy policy = LogRetention.getPolicy(ownerType);
+        if (policy.isUnlimited()) {
+            return null;
+        }
+        long maxCount = policy.getMaxCount() > 0 ? policy.getMaxCount() : Long.MAX_VALUE;
+        long maxBytes = policy.getMaxBytes() > 0 ? policy.getMaxBytes() : Long.MAX_VALUE;
+        long maxAge = policy.getMaxAgeNanos();
+        long oldestAllowed = newestTime < Long.MIN_VALUE + maxAge ? Long.MIN_VALUE : newestTime - maxAge;
+        List<Log> evicted = null;
+        while (tail > head) {
+            long retained = tail - head;
+            boolean over = retained > maxCount
+                    || bytes > maxBytes
+                    || oldestTime() < oldestAllowed;
+            if (!over) {
+                break;
+            }
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(evictOldest());
+        }
+        releaseIndexed(evicted);
+        return evicted;
+    }
+
+    /**
+     * 为全局预算淘汰最早的日志：至少淘汰一条，之后只淘汰时间不晚于limitTime的日志，
+     * 全局保留字节数不超过lowWater时停止。由 {@link LogRetention} 的后台线程调用。
+     *
+     * @param limitTime 其他存储中最早保留日志的时间纳秒数
+     * @param lowWater 全局淘汰的目标字节数
+     * @return 被淘汰的日志，没有淘汰时返回null
+     */
+    synchronized List<Log> evictForBudget(long limitTime, long lowWater) {
+        List<Log> evicted = null;
+        while (tail > head && LogRetention.getRetainedBytes() > lowWater
+                && (evicted == null || oldestTime() <= limitTime)) {
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(evictOldest());
+        }
+        releaseIndexed(evicted);
+        return evicted;
+    }
+
+    /**
+     * 获取最早一条保留日志的时间纳秒数
+     *
+     * @return 时间纳秒数，存储为空时返回Long.MAX_VALUE
+     */
+    synchronized long oldestRetainedTime() {
+        return tail > head ? oldestTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 获取所属实体类型
+     *
+     * @return 实体类型，可能为null
+     */
+    EntityType ownerType() {
+        return ownerType;
+    }
+
+    /**
+     * 最早一条未淘汰日志的时间纳秒数，必须持有锁且存储不为空
+     */
+    private long oldestTime() {
+        Chunk first = chunks[0];
+        return first.times[(int) (head - first.offset)];
+    }
+
+    /**
+     * 淘汰最早的一条日志，必须持有锁且存储不为空
+     *
+     * <p>列中的值保留到整块移除为止，无锁读者在淘汰前取得的快照仍能完整读取。</p>
+     */
+    private Log evictOldest() {
+        Chunk[] current = chunks;
+        Chunk first = current[0];
+        int index = (int) (head - first.offset);
+        Log log = view(first, index);
+        int entryBytes = entryBytes(extraAt(first, index));
+        bytes -= entryBytes;
+        LogRetention.release(entryBytes);
+        // 先前移head再移除块，保证无锁读者读到的head不早于块数组的第一块
+        head = head + 1;
+        if (index + 1 == first.ids.length) {
+            Chunk[] next = new Chunk[current.length];
+            System.arraycopy(current, 1, next, 0, chunkCount - 1);
+            chunkCount--;
+            chunks = next;
+        }
+        return log;
+    }
+
+    /**
+     * 由各列生成日志视图
+     */
+    private static Log view(Chunk chunk, int i) {
+        Extra extra = extraAt(chunk, i);
+        int actorCode = chunk.actors[i];
+        int eventCode = chunk.events[i] >> TYPE_BITS;
+        String actor = actorCode != LogDictionary.NONE ? LogDictionary.text(actorCode)
+                : extra != null ? extra.actor : null;
+        String event = eventCode != LogDictionary.NONE ? LogDictionary.text(eventCode)
+                : extra != null ? extra.event : null;
+        int type = chunk.events[i] & NULL_TYPE;
+        Log.LogType eventType = type == NULL_TYPE ? null : LOG_TYPES[type];
+        if (extra == null) {
+            return new Log(chunk.ids[i], actor, chunk.times[i], eventType, event, null, null, null);
+        }
+        return new Log(chunk.ids[i], actor, chunk.times[i], eventType, event,
+                extra.args != null ? event : null, extra.args, extra.remarks);
+    }
+
+    /**
+     * 读取附加字段，没有时返回null
+     */
+    private static Extra extraAt(Chunk chunk, int i) {
+        Extra[] extras = chunk.extras;
+        return extras == null ? null : extras[i];
+    }
+
+    /**
+     * 一条日志的估算字节数
+     */
+    private static int entryBytes(Extra extra) {
+        return extra == null ? ENTRY_BYTES : ENTRY_BYTES + 4 + extra.bytes;
+    }
+
+    /**
+     * 估算字符串的堆内存占用（按每字符2字节计）
+     */
+    private static int stringBytes(String text) {
+        return text == null || text.isEmpty() ? 0 : 40 + 2 * text.length();
+    }
+
+    /**
+     * 日志类型条件对应的类型序号位图，为null时返回-1表示全部
+     */
+    private static int typeMaskOf(Set<Log.LogType> types) {
+        if (types == null) {
+            return -1;
+        }
+        int mask = 0;
+        for (Log.LogType type : types) {
+            mask |= 1 << type.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * 执行者条件可能匹配的摘要位：编码的位，以及按原文保存的执行者的位
+     */
+    private static long actorMaskOf(int actorCode) {
+        return actorCode == LogDictionary.NONE ? UNCODED_ACTOR_BIT : actorBit(actorCode) | UNCODED_ACTOR_BIT;
+    }
+
+    /**
+     * 执行者编码在摘要中对应的位：编码按63取模映射到低63位，无法编码的执行者映射到最高位
+     */
+    private static long actorBit(int actorCode) {
+        return actorCode == LogDictionary.NONE ? UNCODED_ACTOR_BIT : 1L << (actorCode % 63);
+    }
+
+    /**
+     * 查找全局下标所在的块，块的起始下标递增
+     */
+    private static int chunkIndexOf(Chunk[] snapshot, long index) {
+        int low = 0;
+        int high = snapshot.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (snapshot[mid] != null && snapshot[mid].offset <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,919 @@
+package com.qsnn.homeSphere.log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于内存映射文件的二进制日志段（journal）
+ *
+ * <p>作为 {@link LogSink} 安装后，每条日志以紧凑的二进制格式追加到内存映射的段文件中，进程重启后仍可查询。
+ * 段文件写满后滚动到新段，目录中已有的段在构造时恢复，新的日志追加到最后一段之后。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>日志ID与时间按与上一条记录的差值以zigzag变长整数编码</li>
+ *   <li>执行者、消息模板与短文本按段内字典编码，首次出现时内联定义，之后只写字典序号</li>
+ *   <li>延迟格式化的日志直接写入模板和参数，整数参数按变长整数编码，不生成事件文本</li>
+ *   <li>段按大小滚动，每段维护稀疏时间索引与最小、最大时间，时间范围查询跳过不相交的段和索引区间</li>
+ *   <li>{@link Cursor} 直接在映射缓冲区上解码，文本只在调用对应getter时生成，字典文本不复制</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>每条记录先写内容和紧随其后的0字节段尾标记，最后写非零的记录标记；进程崩溃留下的半条记录标记为0，
+ *       恢复和读取时视为段尾。恢复后在半条记录的位置重新写入时，新记录之后的残留字节已被段尾标记隔开，
+ *       不会被误认为已提交的记录</li>
+ *   <li>写入加锁串行执行，直接编码到映射缓冲区，不经过中间数组，也不做系统调用</li>
+ *   <li>读取无锁：读者只读取已提交位置之前的记录，提交位置以volatile发布</li>
+ *   <li>文本采用与 {@link java.io.DataOutput#writeUTF(String)} 相同的改良UTF-8编码</li>
+ *   <li>写入失败或单条记录超过段容量时日志被丢弃并计数，不向记录日志的调用方抛出异常</li>
+ * </ul>
+ *
+ * <p>段文件格式：16字节文件头（魔数HSJ1、版本号、段序号），随后是连续的记录。记录依次为：
+ * 标记字节（0x80 | 日志类型序号，日志类型为null时为0xFF）、日志ID差值、时间差值、执行者、事件、备注。
+ * 段未写满时最后一条记录之后是一个0字节。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class MappedLogJournal implements LogSink {
+
+    /** 默认段大小：64MB */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+    /** 最小段大小 */
+    public static final int MIN_SEGMENT_BYTES = 4096;
+
+    /** 段文件魔数："HSJ1" */
+    private static final int MAGIC = 0x48534A31;
+
+    /** 格式版本 */
+    private static final short VERSION = 1;
+
+    /** 文件头字节数 */
+    private static final int HEADER_BYTES = 16;
+
+    /** 段文件名前缀与后缀 */
+    private static final String FILE_PREFIX = "segment-";
+    private static final String FILE_SUFFIX = ".hsj";
+
+    /** 每隔多少条记录建立一个稀疏索引项 */
+    private static final int INDEX_INTERVAL = 256;
+
+    /** 每段字典最多条目数 */
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    /** 可进入字典的最长文本（字符数） */
+    private static final int MAX_DICTIONARY_STRING = 64;
+
+    /** 文本字段形式：内联文本 */
+    private static final int FORM_LITERAL = 0;
+
+    /** 文本字段形式：字典引用 */
+    private static final int FORM_REFERENCE = 1;
+
+    /** 文本字段形式：内联文本并加入字典 */
+    private static final int FORM_DEFINE = 2;
+
+    /** 文本字段形式：整数（随后一个zigzag变长整数） */
+    private static final int FORM_INTEGER = 3;
+
+    /** 记录标记的最高位，标记非零表示记录已提交 */
+    private static final int RECORD_FLAG = 0x80;
+
+    /** 日志类型为null时记录标记低位的取值 */
+    private static final int NULL_TYPE = 0x7F;
+
+    private static final Log.LogType[] LOG_TYPES = Log.LogType.values();
+
+    /** 段文件目录 */
+    private final Path directory;
+
+    /** 段大小 */
+    private final int segmentBytes;
+
+    /** 全部段，只在滚动时整体替换 */
+    private volatile Segment[] segments;
+
+    /** 当前写入段 */
+    private Segment active;
+
+    /** 丢弃的日志数 */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** 是否已关闭 */
+    private volatile boolean closed;
+
+    /**
+     * 以默认段大小打开目录中的日志段
+     *
+     * @param directory 段文件目录，不存在时创建
+     * @throws UncheckedIOException 如果目录或段文件无法打开
+     */
+    public MappedLogJournal(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * 打开目录中的日志段
+     *
+     * @param directory 段文件目录，不存在时创建
+     * @param segmentBytes 新段的大小，不小于 {@link #MIN_SEGMENT_BYTES}
+     * @throws IllegalArgumentException 如果参数不合法或已有段文件格式错误
+     * @throws UncheckedIOException 如果目录或段文件无法打开
+     */
+    public MappedLogJournal(Path directory, int segmentBytes) {
+        if (directory == null) {
+            throw new IllegalArgumentException("日志段目录不能为空");
+        }
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("段大小不能小于" + MIN_SEGMENT_BYTES + "字节");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+            files.sort(null);
+            List<Segment> opened = new ArrayList<>();
+            for (Path file : files) {
+                opened.add(Segment.recover(file));
+            }
+            if (opened.isEmpty()) {
+                opened.add(Segment.create(directory, 1, segmentBytes));
+            }
+            this.segments = opened.toArray(new Segment[0]);
+            this.active = segments[segments.length - 1];
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法打开日志段目录: " + directory, e);
+        }
+    }
+
+    // ==================== LogSink 实现 ====================
+
+    @Override
+    public void append(Log log) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return;
+        }
+        Object[] args = log.eventTemplate() != null ? log.eventArgs() : null;
+        String[] argTexts = argTexts(args);
+        String remarks = log.getRemarks();
+        int bound = recordBound(log, args, argTexts, remarks);
+        synchronized (this) {
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            Segment segment = active;
+            if (segment.buffer.capacity() - segment.writePosition < bound) {
+                if (HEADER_BYTES + bound > segmentBytes) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                try {
+                    segment = roll();
+                } catch (IOException | UncheckedIOException e) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+            segment.write(log, args, argTexts, remarks);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!closed) {
+            active.buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        active.buffer.force();
+        closed = true;
+    }
+
+    // ==================== 查询方法 ====================
+
+    /**
+     * 查询时间范围内的日志记录
+     *
+     * <p>按段的顺序、段内按写入顺序返回记录。游标进入某段时已提交的记录可见。</p>
+     *
+     * @param from 起始时间（含），为null表示不限
+     * @param to 结束时间（含），为null表示不限
+     * @return 游标
+     */
+    public Cursor query(LocalDateTime from, LocalDateTime to) {
+        long fromTime = from != null ? Log.toTimeNanos(from) : Long.MIN_VALUE;
+        long toTime = to != null ? Log.toTimeNanos(to) : Long.MAX_VALUE;
+        return new Cursor(segments, fromTime, toTime);
+    }
+
+    /**
+     * 获取已提交的记录数
+     *
+     * @return 记录数
+     */
+    public long getRecordCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            if (segment.committed > 0) {
+                count += segment.records;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取已提交记录占用的字节数（含文件头，不含段尾未使用的空间）
+     *
+     * @return 字节数
+     */
+    public long getCommittedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.committed;
+        }
+        return bytes;
+    }
+
+    /**
+     * 获取段数
+     *
+     * @return 段数
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * 获取丢弃的日志数
+     *
+     * @return 丢弃数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 获取段文件目录
+     *
+     * @return 目录
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 滚动到新段，必须持有锁
+     */
+    private Segment roll() throws IOException {
+        active.buffer.force();
+        Segment next = Segment.create(directory, active.sequence + 1, segmentBytes);
+        Segment[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[grown.length - 1] = next;
+        segments = grown;
+        active = next;
+        return next;
+    }
+
+    /**
+     * 预先生成非整数参数的文本，整数参数对应位置为null
+     */
+    private static String[] argTexts(Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        String[] texts = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (!isInteger(args[i])) {
+                texts[i] = String.valueOf(args[i]);
+            }
+        }
+        return texts;
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * 记录编码后字节数的上界
+     */
+    private static int recordBound(Log log, Object[] args, String[] argTexts, String remarks) {
+        // 记录标记、两个差值、事件头，以及段尾标记
+        long bound = 1 + 10 + 10 + 5 + 1;
+        bound += stringBound(log.actor);
+        if (args != null || log.eventTemplate() != null) {
+            bound += stringBound(log.eventTemplate());
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    bound += argTexts[i] == null ? 1 + 10 : stringBound(argTexts[i]);
+                }
+            }
+        } else {
+            bound += stringBound(log.getEvent());
+        }
+        bound += stringBound(remarks);
+        return (int) Math.min(Integer.MAX_VALUE, bound);
+    }
+
+    private static long stringBound(String text) {
+        return 5 + 3L * (text == null ? 0 : text.length());
+    }
+
+    private static String segmentFileName(long sequence) {
+        return String.format("%s%08d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+
+    // ==================== 编解码 ====================
+
+    private static int writeVarint(ByteBuffer buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put(position++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(position++, (byte) value);
+        return position;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 计算改良UTF-8编码后的字节数
+     */
+    private static int utfLength(String text) {
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || c == 0) {
+                length += c >= 0x800 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    private static int writeUtf(ByteBuffer buffer, int position, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80 && c != 0) {
+                buffer.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(position++, (byte) (0xC0 | (c >> 6)));
+                buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put(position++, (byte) (0xE0 | (c >> 12)));
+                buffer.put(position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 在映射缓冲区上按位置顺序解码
+     */
+    private static final class Decoder {
+
+        final ByteBuffer buffer;
+
+        int position;
+
+        Decoder(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readVarint() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                byte b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        /**
+         * 跳过一个文本字段，返回字段形式
+         */
+        int skipString() {
+            long header = readVarint();
+            int form = (int) (header & 3);
+            if (form == FORM_LITERAL || form == FORM_DEFINE) {
+                position += (int) (header >>> 2);
+            } else if (form == FORM_INTEGER) {
+                readVarint();
+            }
+            return form;
+        }
+
+        String readString(String[] dictionary) {
+            long header = readVarint();
+            int form = (int) (header & 3);
+            switch (form) {
+                case FORM_REFERENCE:
+                    return dictionary[(int) (header >>> 2)];
+                case FORM_INTEGER:
+                    return Long.toString(unzigzag(readVarint()));
+                default:
+                    return readUtf((int) (header >>> 2));
+            }
+        }
+
+        String readUtf(int byteLength) {
+            char[] chars = new char[byteLength];
+            int end = position + byteLength;
+            int count = 0;
+            while (position < end) {
+                int b = buffer.get(position++) & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                } else if (b < 0xE0) {
+                    chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get(position++) & 0x3F));
+                } else {
+                    int b2 = buffer.get(position++) & 0x3F;
+                    int b3 = buffer.get(position++) & 0x3F;
+                    chars[count++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+                }
+            }
+            return new String(chars, 0, count);
+        }
+    }
+
+    // ==================== 段 ====================
+
+    /**
+     * 一个段文件
+     *
+     * <p>写入状态只由持有日志段锁的线程访问；读者先读取 {@link #committed}，再读取其余字段。</p>
+     */
+    private static final class Segment {
+
+        final long sequence;
+
+        final MappedByteBuffer buffer;
+
+        /** 已提交记录的结束位置 */
+        volatile int committed;
+
+        /** 已提交的记录数 */
+        long records;
+
+        /** 下一条记录的写入位置 */
+        int writePosition;
+
+        /** 段内字典，按序号索引 */
+        String[] dictionary = new String[64];
+
+        int dictionarySize;
+
+        /** 字典文本到序号，只由写入方使用 */
+        final Map<String, Integer> dictionaryIds = new HashMap<>();
+
+        /** 稀疏索引：索引项之前全部记录的最大时间键 */
+        long[] indexPrefixMaxTime = new long[16];
+
+        /** 稀疏索引：记录位置 */
+        int[] indexPosition = new int[16];
+
+        /** 稀疏索引：前一条记录的日志ID，用于从该位置开始解码差值 */
+        long[] indexPreviousLogID = new long[16];
+
+        /** 稀疏索引：前一条记录的时间键 */
+        long[] indexPreviousTime = new long[16];
+
+        int indexSize;
+
+        long minTime = Long.MAX_VALUE;
+
+        long maxTime = Long.MIN_VALUE;
+
+        /** 段内记录的写入顺序是否与时间顺序一致 */
+        boolean ordered = true;
+
+        long previousLogID;
+
+        long previousTime;
+
+        Segment(long sequence, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.buffer = buffer;
+            this.writePosition = HEADER_BYTES;
+        }
+
+        static Segment create(Path directory, long sequence, int size) throws IOException {
+            Path file = directory.resolve(segmentFileName(sequence));
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putLong(8, sequence);
+            Segment segment = new Segment(sequence, buffer);
+            segment.committed = HEADER_BYTES;
+            return segment;
+        }
+
+        /**
+         * 打开已有段文件，扫描记录重建字典、稀疏索引和写入位置
+         */
+        static Segment recover(Path file) throws IOException {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+                throw new IllegalArgumentException("日志段文件格式错误: " + file);
+            }
+            Segment segment = new Segment(buffer.getLong(8), buffer);
+            Decoder decoder = new Decoder(buffer, HEADER_BYTES);
+            while (decoder.position < buffer.capacity() && (buffer.get(decoder.position) & RECORD_FLAG) != 0) {
+                int start = decoder.position;
+                decoder.position++;
+                long logID = segment.previousLogID + unzigzag(decoder.readVarint());
+                long time = segment.previousTime + unzigzag(decoder.readVarint());
+                segment.recoverString(decoder);
+                long eventHeader = decoder.readVarint();
+                segment.recoverString(decoder);
+                for (int i = 0; i < (int) (eventHeader >>> 1); i++) {
+                    segment.recoverString(decoder);
+                }
+                segment.recoverString(decoder);
+                segment.writePosition = start;
+                segment.commit(decoder.position, logID, time);
+            }
+            return segment;
+        }
+
+        /**
+         * 恢复时读取一个文本字段，内联定义的文本加入字典
+         */
+        private void recoverString(Decoder decoder) {
+            int start = decoder.position;
+            if (decoder.skipString() == FORM_DEFINE) {
+                decoder.position = start;
+                define(decoder.readString(dictionary));
+            }
+        }
+
+        /**
+         * 写入一条记录并提交，调用方已保证剩余空间足够
+         */
+        void write(Log log, Object[] args, String[] argTexts, String remarks) {
+            int start = writePosition;
+            long time = log.time;
+            int position = start + 1;
+            position = writeVarint(buffer, position, zigzag(log.logID - previousLogID));
+            position = writeVarint(buffer, position, zigzag(time - previousTime));
+            position = writeString(position, log.actor, true);
+            String template = log.eventTemplate();
+            if (template != null) {
+                int argCount = args == null ? 0 : args.length;
+                position = writeVarint(buffer, position, (long) argCount << 1 | 1);
+                position = writeString(position, template, true);
+                for (int i = 0; i < argCount; i++) {
+                    if (argTexts[i] == null) {
+                        position = writeVarint(buffer, position, FORM_INTEGER);
+                        position = writeVarint(buffer, position, zigzag(((Number) args[i]).longValue()));
+                    } else {
+                        boolean shared = args[i] instanceof String || args[i] instanceof Enum;
+                        position = writeString(position, argTexts[i], shared);
+                    }
+                }
+            } else {
+                position = writeVarint(buffer, position, 0);
+                position = writeString(position, log.getEvent(), true);
+            }
+            position = writeString(position, remarks, true);
+            // 先写段尾标记隔开之前崩溃残留的字节，内容写完后才写记录标记，崩溃时未写完的记录标记为0
+            if (position < buffer.capacity()) {
+                buffer.put(position, (byte) 0);
+            }
+            Log.LogType type = log.getEventType();
+            buffer.put(start, (byte) (RECORD_FLAG | (type == null ? NULL_TYPE : type.ordinal())));
+            commit(position, log.logID, time);
+        }
+
+        private int writeString(int position, String text, boolean shared) {
+            if (text == null) {
+                text = "";
+            }
+            if (shared && !text.isEmpty()) {
+                Integer id = dictionaryIds.get(text);
+                if (id != null) {
+                    return writeVarint(buffer, position, (long) id << 2 | FORM_REFERENCE);
+                }
+                if (dictionarySize < MAX_DICTIONARY_SIZE && text.length() <= MAX_DICTIONARY_STRING) {
+                    define(text);
+                    position = writeVarint(buffer, position, (long) utfLength(text) << 2 | FORM_DEFINE);
+                    return writeUtf(buffer, position, text);
+                }
+            }
+            position = writeVarint(buffer, position, (long) utfLength(text) << 2 | FORM_LITERAL);
+            return writeUtf(buffer, position, text);
+        }
+
+        private void define(String text) {
+            if (dictionarySize == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+            }
+            dictionaryIds.put(text, dictionarySize);
+            dictionary[dictionarySize++] = text;
+        }
+
+        /**
+         * 更新索引与统计信息，最后发布提交位置
+         */
+        private void commit(int end, long logID, long time) {
+            if (records % INDEX_INTERVAL == 0) {
+                if (indexSize == indexPosition.length) {
+                    int capacity = indexSize * 2;
+                    indexPrefixMaxTime = Arrays.copyOf(indexPrefixMaxTime, capacity);
+                    indexPosition = Arrays.copyOf(indexPosition, capacity);
+                    indexPreviousLogID = Arrays.copyOf(indexPreviousLogID, capacity);
+                    indexPreviousTime = Arrays.copyOf(indexPreviousTime, capacity);
+                }
+                indexPrefixMaxTime[indexSize] = maxTime;
+                indexPosition[indexSize] = writePosition;
+                indexPreviousLogID[indexSize] = previousLogID;
+                indexPreviousTime[indexSize] = previousTime;
+                indexSize++;
+            }
+            if (time < maxTime) {
+                ordered = false;
+            }
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            previousLogID = logID;
+            previousTime = time;
+            records++;
+            writePosition = end;
+            committed = end;
+        }
+    }
+
+    // ==================== 游标 ====================
+
+    /**
+     * 日志记录游标
+     *
+     * <p>调用 {@link #next()} 移动到下一条符合时间范围的记录后，通过getter读取当前记录。
+     * 游标不是线程安全的，只能由一个线程使用。</p>
+     */
+    public static final class Cursor {
+
+        private final Segment[] segments;
+
+        private final long fromTime;
+
+        private final long toTime;
+
+        /** 下一个待打开的段下标 */
+        private int nextSegment;
+
+        private Segment segment;
+
+        private String[] dictionary;
+
+        private Decoder decoder;
+
+        private int end;
+
+        private boolean segmentOrdered;
+
+        private long previousLogID;
+
+        private long previousTime;
+
+        private boolean positioned;
+
+        private Log.LogType eventType;
+
+        private long logID;
+
+        private long time;
+
+        private int actorPosition;
+
+        private int eventPosition;
+
+        private int remarksPosition;
+
+        private Cursor(Segment[] segments, long fromTime, long toTime) {
+            this.segments = segments;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+        }
+
+        /**
+         * 移动到下一条记录
+         *
+         * @return 存在下一条记录时返回true
+         */
+        public boolean next() {
+            positioned = false;
+            if (fromTime > toTime) {
+                return false;
+            }
+            while (true) {
+                if (segment == null && !openNextSegment()) {
+                    return false;
+                }
+                if (decoder.position >= end) {
+                    segment = null;
+                    continue;
+                }
+                ByteBuffer buffer = decoder.buffer;
+                int tag = buffer.get(decoder.position++) & 0xFF;
+                logID = previousLogID + unzigzag(decoder.readVarint());
+                time = previousTime + unzigzag(decoder.readVarint());
+                actorPosition = decoder.position;
+                decoder.skipString();
+                eventPosition = decoder.position;
+                long eventHeader = decoder.readVarint();
+                decoder.skipString();
+                for (int i = 0; i < (int) (eventHeader >>> 1); i++) {
+                    decoder.skipString();
+                }
+                remarksPosition = decoder.position;
+                decoder.skipString();
+                previousLogID = logID;
+                previousTime = time;
+                if (time < fromTime) {
+                    continue;
+                }
+                if (time > toTime) {
+                    if (segmentOrdered) {
+                        segment = null;
+                    }
+                    continue;
+                }
+                int type = tag & ~RECORD_FLAG;
+                eventType = type == NULL_TYPE ? null : LOG_TYPES[type];
+                positioned = true;
+                return true;
+            }
+        }
+
+        /**
+         * 获取当前记录的日志ID
+         *
+         * @return 日志ID
+         */
+        public long getLogID() {
+            checkPositioned();
+            return logID;
+        }
+
+        /**
+         * 获取当前记录的时间
+         *
+         * @return 日志时间
+         */
+        public LocalDateTime getTime() {
+            checkPositioned();
+            return Log.ofTimeNanos(time);
+        }
+
+        /**
+         * 获取当前记录的日志类型
+         *
+         * @return 日志类型，记录时为null的返回null
+         */
+        public Log.LogType getEventType() {
+            checkPositioned();
+            return eventType;
+        }
+
+        /**
+         * 获取当前记录的执行者
+         *
+         * @return 执行者
+         */
+        public String getActor() {
+            checkPositioned();
+            return new Decoder(decoder.buffer, actorPosition).readString(dictionary);
+        }
+
+        /**
+         * 获取当前记录的事件文本，模板记录按参数生成文本
+         *
+         * @return 事件文本
+         */
+        public String getEvent() {
+            checkPositioned();
+            Decoder reader = new Decoder(decoder.buffer, eventPosition);
+            long header = reader.readVarint();
+            String text = reader.readString(dictionary);
+            int argCount = (int) (header >>> 1);
+            if ((header & 1) == 0 || argCount == 0) {
+                return text;
+            }
+            StringBuilder buffer = new StringBuilder(text.length() + 16 * argCount);
+            int from = 0;
+            for (int i = 0; i < argCount; i++) {
+                String arg = reader.readString(dictionary);
+                int at = text.indexOf("{}", from);
+                if (at < 0) {
+                    break;
+                }
+                buffer.append(text, from, at).append(arg);
+                from = at + 2;
+            }
+            return buffer.append(text, from, text.length()).toString();
+        }
+
+        /**
+         * 获取当前记录的备注
+         *
+         * @return 备注文本
+         */
+        public String getRemarks() {
+            checkPositioned();
+            return new Decoder(decoder.buffer, remarksPosition).readString(dictionary);
+        }
+
+        private void checkPositioned() {
+            if (!positioned) {
+                throw new NoSuchElementException("游标未指向记录");
+            }
+        }
+
+        /**
+         * 打开下一个与时间范围相交的段，并用稀疏索引定位起始位置
+         */
+        private boolean openNextSegment() {
+            while (nextSegment < segments.length) {
+                Segment candidate = segments[nextSegment++];
+                int committed = candidate.committed;
+                if (candidate.records == 0 || candidate.minTime > toTime || candidate.maxTime < fromTime) {
+                    continue;
+                }
+                int indexSize = candidate.indexSize;
+                long[] prefixMax = candidate.indexPrefixMaxTime;
+                // 找到最后一个之前记录全部早于起始时间的索引项
+                int low = 0;
+                int high = indexSize - 1;
+                while (low < high) {
+                    int mid = (low + high + 1) >>> 1;
+                    if (prefixMax[mid] < fromTime) {
+                        low = mid;
+                    } else {
+                        high = mid - 1;
+                    }
+                }
+                segment = candidate;
+                dictionary = candidate.dictionary;
+                segmentOrdered = candidate.ordered;
+                end = committed;
+                decoder = new Decoder(candidate.buffer, candidate.indexPosition[low]);
+                previousLogID = candidate.indexPreviousLogID[low];
+                previousTime = candidate.indexPreviousTime[low];
+                return true;
+            }
+            return false;
+        }
+    }
+}
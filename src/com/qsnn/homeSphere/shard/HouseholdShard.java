@@ -0,0 +1,99 @@
+package com.qsnn.homeSphere.shard;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.utils.id.IdAllocators;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 家庭分片
+ *
+ * <p>一个分片持有一部分家庭的全部状态（家庭、房间、设备、场景及其关系），
+ * 由单个事件循环线程按顺序处理邮箱中的命令。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>分片状态只会被事件循环线程访问，内部系统实例以线程封闭模式运行，不获取家庭锁；
+ *       登记到分片的用户对象与其他分片共享，写用户日志时仍获取日志存储自身的锁</li>
+ *   <li>命令以函数形式提交，结果通过 {@link CompletableFuture} 返回</li>
+ *   <li>命令抛出的异常以异常完成的形式传递给调用方，不影响事件循环</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class HouseholdShard implements AutoCloseable {
+
+    /** 分片序号 */
+    private final int index;
+
+    /** 分片持有的系统实例，仅由事件循环线程访问 */
+    private final HomeSphereSystem system;
+
+    /** 单线程事件循环，其任务队列即分片邮箱 */
+    private final ExecutorService eventLoop;
+
+    /**
+     * 分片构造函数
+     *
+     * @param index 分片序号
+     * @param idAllocators 所有分片共享的ID分配器，保证跨分片ID唯一
+     */
+    public HouseholdShard(int index, IdAllocators idAllocators) {
+        this.index = index;
+        this.system = new HomeSphereSystem(idAllocators, true);
+        this.eventLoop = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "homesphere-shard-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 向分片邮箱提交命令
+     *
+     * @param <T> 命令结果类型
+     * @param command 在分片系统实例上执行的命令
+     * @return 命令结果
+     */
+    public <T> CompletableFuture<T> submit(Function<HomeSphereSystem, T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            eventLoop.execute(() -> {
+                try {
+                    result.complete(command.apply(system));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("分片" + index + "已关闭", e));
+        }
+        return result;
+    }
+
+    /**
+     * 获取分片序号
+     *
+     * @return 分片序号
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 关闭分片，已提交的命令会继续执行完毕
+     */
+    @Override
+    public void close() {
+        eventLoop.shutdown();
+    }
+}
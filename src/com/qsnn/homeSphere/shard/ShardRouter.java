@@ -0,0 +1,157 @@
+package com.qsnn.homeSphere.shard;
+
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntIntMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片路由表
+ *
+ * <p>记录每个家庭所在的分片，以及房间、设备所属的家庭，使任何以家庭、房间或设备为目标的命令
+ * 都能被投递到唯一拥有该家庭状态的分片。新家庭按轮询方式分配分片。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ShardRouter {
+
+    /** 分片数量 */
+    private final int shardCount;
+
+    /** 家庭到分片的映射 */
+    private final ConcurrentIntIntMap householdToShard = new ConcurrentIntIntMap();
+
+    /** 房间到家庭的映射 */
+    private final ConcurrentIntIntMap roomToHousehold = new ConcurrentIntIntMap();
+
+    /** 设备到家庭的映射 */
+    private final ConcurrentIntIntMap deviceToHousehold = new ConcurrentIntIntMap();
+
+    /** 轮询分配计数器 */
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    /**
+     * 路由表构造函数
+     *
+     * @param shardCount 分片数量
+     */
+    public ShardRouter(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * 为新家庭选择分片
+     *
+     * @return 分片序号
+     */
+    public int shardForNewHousehold() {
+        return Math.floorMod(nextShard.getAndIncrement(), shardCount);
+    }
+
+    /**
+     * 获取家庭所在分片
+     *
+     * @param householdID 家庭ID
+     * @return 分片序号
+     * @throws IllegalArgumentException 如果家庭不存在
+     */
+    public int shardOfHousehold(Integer householdID) {
+        return require(householdToShard, householdID, "家庭不存在");
+    }
+
+    /**
+     * 获取房间所属家庭
+     *
+     * @param roomID 房间ID
+     * @return 家庭ID
+     * @throws IllegalArgumentException 如果房间不存在
+     */
+    public int householdOfRoom(Integer roomID) {
+        return require(roomToHousehold, roomID, "房间不存在");
+    }
+
+    /**
+     * 获取设备所属家庭
+     *
+     * @param deviceID 设备ID
+     * @return 家庭ID
+     * @throws IllegalArgumentException 如果设备未分配到任何房间
+     */
+    public int householdOfDevice(Integer deviceID) {
+        return require(deviceToHousehold, deviceID, "设备未分配到任何房间！");
+    }
+
+    /**
+     * 登记家庭所在分片
+     *
+     * @param householdID 家庭ID
+     * @param shard 分片序号
+     */
+    public void bindHousehold(int householdID, int shard) {
+        householdToShard.put(householdID, shard);
+    }
+
+    /**
+     * 登记房间所属家庭
+     *
+     * @param roomID 房间ID
+     * @param householdID 家庭ID
+     */
+    public void bindRoom(int roomID, int householdID) {
+        roomToHousehold.put(roomID, householdID);
+    }
+
+    /**
+     * 登记设备所属家庭
+     *
+     * <p>设备ID全局唯一：已登记到其他家庭的设备ID被拒绝，不会把路由改到另一个分片。</p>
+     *
+     * @param deviceID 设备ID
+     * @param householdID 家庭ID
+     * @return 设备ID此前未登记返回true，已登记到同一家庭返回false
+     * @throws IllegalArgumentException 如果设备ID已登记到其他家庭
+     */
+    public boolean bindDevice(int deviceID, int householdID) {
+        int existing = deviceToHousehold.putIfAbsent(deviceID, householdID);
+        if (existing != ConcurrentIntIntMap.NO_VALUE && existing != householdID) {
+            throw new IllegalArgumentException("设备ID已被占用: " + deviceID);
+        }
+        return existing == ConcurrentIntIntMap.NO_VALUE;
+    }
+
+    /**
+     * 注销家庭的分片登记
+     *
+     * @param householdID 家庭ID
+     */
+    public void unbindHousehold(int householdID) {
+        householdToShard.remove(householdID);
+    }
+
+    /**
+     * 注销房间的家庭登记
+     *
+     * @param roomID 房间ID
+     */
+    public void unbindRoom(int roomID) {
+        roomToHousehold.remove(roomID);
+    }
+
+    /**
+     * 注销设备的家庭登记
+     *
+     * @param deviceID 设备ID
+     */
+    public void unbindDevice(int deviceID) {
+        deviceToHousehold.remove(deviceID);
+    }
+
+    private static int require(ConcurrentIntIntMap table, Integer key, String message) {
+        int value = key != null ? table.get(key) : ConcurrentIntIntMap.NO_VALUE;
+        if (value == ConcurrentIntIntMap.NO_VALUE) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+}
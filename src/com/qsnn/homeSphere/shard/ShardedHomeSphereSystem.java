@@ -0,0 +1,436 @@
+package com.qsnn.homeSphere.shard;
+
+import com.qsnn.homeSphere.HomeSphereSystem;
+import com.qsnn.homeSphere.domain.deviceModule.Device;
+import com.qsnn.homeSphere.domain.deviceModule.Manufacturer;
+import com.qsnn.homeSphere.domain.deviceModule.devices.DeviceType;
+import com.qsnn.homeSphere.domain.house.Household;
+import com.qsnn.homeSphere.domain.house.Room;
+import com.qsnn.homeSphere.domain.users.User;
+import com.qsnn.homeSphere.utils.id.IdAllocators;
+import com.qsnn.homeSphere.utils.primitive.ConcurrentIntSetMultimap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 按家庭分片的智能家居系统
+ *
+ * <p>将全部家庭范围内的状态按家庭ID划分到N个 {@link HouseholdShard} 中，
+ * 每个分片由单线程事件循环独占，分片内无需获取家庭锁，吞吐量随分片数增长。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>用户在全局用户目录中注册，首次加入某分片内的家庭时登记到该分片</li>
+ *   <li>家庭、房间、设备、场景相关命令经 {@link ShardRouter} 投递到所属分片，只能通过本类的方法提交，
+ *       创建和删除的房间、设备都会同步登记到路由表</li>
+ *   <li>用户到家庭的查询跨分片并发执行后合并结果</li>
+ *   <li>所有分片共享同一组ID分配器，ID全局唯一；调用方指定的设备ID已属于其他家庭时拒绝创建</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>用户对象由全局目录持有，登记到多个分片时被多个事件循环线程共享：用户的可变字段为volatile，
+ *       用户日志存储自身加锁，因此分片线程写用户日志时仍会获取该存储的锁</li>
+ *   <li>命令失败时撤销本次为其登记的用户，用户离开分片内的最后一个家庭时从该分片撤销</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ShardedHomeSphereSystem implements AutoCloseable {
+
+    /** 全局用户目录，只保存用户 */
+    private final HomeSphereSystem userDirectory;
+
+    /** 分片数组 */
+    private final HouseholdShard[] shards;
+
+    /** 分片路由表 */
+    private final ShardRouter router;
+
+    /** 跨分片的用户到家庭索引 */
+    private final ConcurrentIntSetMultimap userToHouseholds = new ConcurrentIntSetMultimap();
+
+    /**
+     * 以内存ID分配器构造
+     *
+     * @param shardCount 分片数量
+     */
+    public ShardedHomeSphereSystem(int shardCount) {
+        this(shardCount, IdAllocators.inMemory());
+    }
+
+    /**
+     * 构造分片系统
+     *
+     * @param shardCount 分片数量
+     * @param idAllocators 所有分片共享的ID分配器
+     * @throws IllegalArgumentException 如果分片数量小于1
+     */
+    public ShardedHomeSphereSystem(int shardCount, IdAllocators idAllocators) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("分片数量必须大于0");
+        }
+        this.userDirectory = new HomeSphereSystem(idAllocators);
+        this.shards = new HouseholdShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new HouseholdShard(i, idAllocators);
+        }
+        this.router = new ShardRouter(shardCount);
+    }
+
+    // ==================== 用户相关方法 ====================
+
+    /**
+     * 用户注册
+     *
+     * @param username 用户名
+     * @param password 密码
+     * @param name 用户真实姓名
+     * @param address 用户地址
+     * @return 新注册用户的ID
+     */
+    public Integer registerUser(String username, String password, String name, String address) {
+        return userDirectory.registerUser(username, password, name, address);
+    }
+
+    /**
+     * 通过ID获取用户
+     *
+     * @param userID 用户ID
+     * @return 用户对象
+     */
+    public User getUserByID(Integer userID) {
+        return userDirectory.getUserByID(userID);
+    }
+
+    // ==================== 家庭相关方法 ====================
+
+    /**
+     * 创建家庭，家庭按轮询方式分配到分片
+     *
+     * @param name 家庭名称
+     * @param address 家庭地址
+     * @param creatorID 创建者用户ID
+     * @return 新创建家庭的ID
+     */
+    public CompletableFuture<Integer> createHousehold(String name, String address, Integer creatorID) {
+        User creator = userDirectory.getUserByID(creatorID);
+        if (creator == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("用户或家庭不存在"));
+        }
+        int shard = router.shardForNewHousehold();
+        return shards[shard].submit(system -> {
+            Integer householdID = withAttachedUser(system, creator,
+                    () -> system.createHousehold(name, address, creatorID));
+            router.bindHousehold(householdID, shard);
+            userToHouseholds.put(creatorID, householdID);
+            return householdID;
+        });
+    }
+
+    /**
+     * 创建用户和家庭的关系
+     *
+     * @param operatorID 操作者用户ID
+     * @param userID 要关联的用户ID
+     * @param householdID 要关联的家庭ID
+     * @return 命令完成信号
+     */
+    public CompletableFuture<Void> createRelations(Integer operatorID, Integer userID, Integer householdID) {
+        User user = userDirectory.getUserByID(userID);
+        if (user == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("用户或家庭不存在"));
+        }
+        return onHousehold(householdID, system -> {
+            withAttachedUser(system, user, () -> {
+                system.createRelations(operatorID, userID, householdID);
+                return null;
+            });
+            userToHouseholds.put(userID, householdID);
+            return null;
+        });
+    }
+
+    /**
+     * 从家庭中移除用户
+     *
+     * @param userID 用户ID
+     * @param householdID 家庭ID
+     * @return 移除是否成功，用户是该家庭的管理员时为false
+     */
+    public CompletableFuture<Boolean> removeUserFromHousehold(Integer userID, Integer householdID) {
+        return onHousehold(householdID, system -> {
+            boolean removed = system.removeUserFromHousehold(userID, householdID);
+            if (removed) {
+                // 家庭管理员不会被移除，跨分片关系只在移除成功时同步
+                userToHouseholds.remove(userID, householdID);
+                system.detachUser(userID);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * 删除家庭，级联删除其房间、设备和场景，并注销路由登记
+     *
+     * @param householdID 家庭ID
+     * @return 删除是否成功
+     */
+    public CompletableFuture<Boolean> deleteHousehold(Integer householdID) {
+        return onHousehold(householdID, system -> {
+            Set<Room> rooms = system.getRoomsByHousehold(householdID);
+            Set<Device> devices = system.getDevicesByHousehold(householdID);
+            Set<User> members = system.getUsersByHousehold(householdID);
+            if (!system.deleteHousehold(householdID)) {
+                return false;
+            }
+            rooms.forEach(room -> router.unbindRoom(room.getRoomID()));
+            devices.forEach(device -> router.unbindDevice(device.getDeviceID()));
+            for (User user : members) {
+                userToHouseholds.remove(user.getUserID(), householdID);
+                system.detachUser(user.getUserID());
+            }
+            router.unbindHousehold(householdID);
+            return true;
+        });
+    }
+
+    /**
+     * 获取用户的所有家庭（跨分片查询）
+     *
+     * @param userID 用户ID
+     * @return 家庭集合
+     */
+    public CompletableFuture<Set<Household>> getHouseholdsByUser(Integer userID) {
+        int[] householdIDs = userToHouseholds.get(userID);
+        List<CompletableFuture<Household>> lookups = new ArrayList<>(householdIDs.length);
+        for (int householdID : householdIDs) {
+            lookups.add(onHousehold(householdID, system -> system.getHouseholdByID(householdID)));
+        }
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Set<Household> result = new HashSet<>();
+            for (CompletableFuture<Household> lookup : lookups) {
+                Household household = lookup.join();
+                if (household != null) {
+                    result.add(household);
+                }
+            }
+            return result;
+        });
+    }
+
+    // ==================== 房间与设备相关方法 ====================
+
+    /**
+     * 创建房间
+     *
+     * @param householdID 所属家庭ID
+     * @param name 房间名称
+     * @param area 房间面积
+     * @return 新创建房间的ID
+     */
+    public CompletableFuture<Integer> createRoom(Integer householdID, String name, Double area) {
+        return onHousehold(householdID, system -> {
+            Integer roomID = system.createRoom(householdID, name, area);
+            router.bindRoom(roomID, householdID);
+            return roomID;
+        });
+    }
+
+    /**
+     * 在房间所在分片中创建设备并放入该房间
+     *
+     * @param roomID 目标房间ID
+     * @param deviceType 设备类型
+     * @param deviceID 设备ID
+     * @param name 设备名称
+     * @param OS 设备操作系统
+     * @param manufacturer 设备制造商
+     * @param power 设备功率
+     * @param connectMode 设备连接模式
+     * @param powerMode 设备供电模式
+     * @return 设备ID；设备ID已属于其他家庭时以 {@link IllegalArgumentException} 异常完成
+     */
+    public CompletableFuture<Integer> createDevice(Integer roomID, DeviceType deviceType, Integer deviceID,
+                                                   String name, String OS, Manufacturer manufacturer, double power,
+                                                   Device.ConnectMode connectMode, Device.PowerMode powerMode) {
+        int householdID;
+        boolean bound;
+        try {
+            if (deviceID == null) {
+                throw new IllegalArgumentException("设备ID不能为null");
+            }
+            householdID = router.householdOfRoom(roomID);
+            // 先在路由表中占用设备ID，同一ID不会被并发创建到两个分片
+            bound = router.bindDevice(deviceID, householdID);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Integer> created = onHousehold(householdID, system -> {
+            system.createDevice(deviceType, deviceID, name, OS, manufacturer, power, connectMode, powerMode);
+            system.addDeviceToRoom(deviceID, roomID);
+            return deviceID;
+        });
+        if (!bound) {
+            return created;
+        }
+        return created.whenComplete((id, error) -> {
+            if (error != null) {
+                router.unbindDevice(deviceID);
+            }
+        });
+    }
+
+    /**
+     * 删除房间，级联删除房间内的设备
+     *
+     * @param roomID 房间ID
+     * @return 删除是否成功
+     */
+    public CompletableFuture<Boolean> deleteRoom(Integer roomID) {
+        int householdID;
+        try {
+            householdID = router.householdOfRoom(roomID);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return onHousehold(householdID, system -> {
+            Set<Device> devices = system.getDevicesByRoom(roomID);
+            if (!system.deleteRoom(roomID)) {
+                return false;
+            }
+            devices.forEach(device -> router.unbindDevice(device.getDeviceID()));
+            router.unbindRoom(roomID);
+            return true;
+        });
+    }
+
+    /**
+     * 删除设备
+     *
+     * @param deviceID 设备ID
+     * @return 删除是否成功
+     */
+    public CompletableFuture<Boolean> deleteDevice(Integer deviceID) {
+        int householdID;
+        try {
+            householdID = router.householdOfDevice(deviceID);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return onHousehold(householdID, system -> {
+            boolean deleted = system.deleteDevice(deviceID);
+            router.unbindDevice(deviceID);
+            return deleted;
+        });
+    }
+
+    /**
+     * 移动设备到同一家庭内的其他房间
+     *
+     * @param operatorUserID 操作者用户ID
+     * @param deviceID 设备ID
+     * @param targetRoomID 目标房间ID
+     * @return 移动是否成功
+     */
+    public CompletableFuture<Boolean> moveDevice(Integer operatorUserID, Integer deviceID, Integer targetRoomID) {
+        int householdID;
+        try {
+            householdID = router.householdOfDevice(deviceID);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return onHousehold(householdID, system -> system.moveDevice(operatorUserID, deviceID, targetRoomID));
+    }
+
+    /**
+     * 获取房间内的设备
+     *
+     * @param roomID 房间ID
+     * @return 设备集合
+     */
+    public CompletableFuture<Set<Device>> getDevicesByRoom(Integer roomID) {
+        int householdID;
+        try {
+            householdID = router.householdOfRoom(roomID);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return onHousehold(householdID, system -> system.getDevicesByRoom(roomID));
+    }
+
+    // ==================== 自动化场景相关方法 ====================
+
+    /**
+     * 创建自动化场景
+     *
+     * @param householdID 所属家庭ID
+     * @param name 场景名称
+     * @param description 场景描述
+     * @return 新创建场景的ID
+     */
+    public CompletableFuture<Integer> createAutomationScene(Integer householdID, String name, String description) {
+        return onHousehold(householdID, system -> system.createAutomationScene(householdID, name, description));
+    }
+
+    // ==================== 通用方法 ====================
+
+    /**
+     * 获取分片数量
+     *
+     * @return 分片数量
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 关闭全部分片
+     */
+    @Override
+    public void close() {
+        for (HouseholdShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 在家庭所属分片上执行命令
+     *
+     * <p>不对外开放：任意命令可以创建或删除房间、设备而不更新路由表。命令只应访问该家庭范围内的状态。</p>
+     */
+    private <T> CompletableFuture<T> onHousehold(Integer householdID, Function<HomeSphereSystem, T> command) {
+        int shard;
+        try {
+            shard = router.shardOfHousehold(householdID);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return shards[shard].submit(command);
+    }
+
+    /**
+     * 在分片中登记用户后执行操作，操作失败时撤销本次登记，分片中不留下未加入任何家庭的用户
+     */
+    private static <T> T withAttachedUser(HomeSphereSystem system, User user, Supplier<T> action) {
+        boolean attached = system.attachUser(user);
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            if (attached) {
+                system.detachUser(user.getUserID());
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.qsnn.homeSphere.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * 本地时间时钟
+ *
+ * <p>以纪元秒数或纳秒数（本地时间按UTC换算，即 {@code LocalDateTime.now().toEpochSecond(ZoneOffset.UTC)} 的口径）
+ * 读取当前时间，供日志和使用记录在热路径上取时间，不创建 {@code LocalDateTime}。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>与 {@code LocalDateTime.now()} 结果一致，但只创建一个 {@link Instant}（通常被逃逸分析消除），
+ *       而不是 {@code LocalDateTime}、{@code LocalDate}、{@code LocalTime} 等多个对象</li>
+ *   <li>缓存当前时区偏移及其有效区间（到下一次夏令时切换为止，且最多 {@link #MAX_CACHE_SECONDS} 秒），
+ *       区间过期后重新读取系统默认时区，默认时区被修改后最迟在该时间内生效</li>
+ *   <li>无锁，缓存整体替换</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class LocalClock {
+
+    /** 时区偏移缓存的最长有效秒数 */
+    private static final long MAX_CACHE_SECONDS = 60;
+
+    /** 当前时区偏移缓存 */
+    private static volatile Offset offset = new Offset(Long.MAX_VALUE, Long.MIN_VALUE, 0);
+
+    /**
+     * 一段时间内不变的时区偏移
+     */
+    private static final class Offset {
+
+        /** 有效区间起点纪元秒数（含，UTC） */
+        final long from;
+
+        /** 有效区间终点纪元秒数（不含，UTC） */
+        final long until;
+
+        /** 偏移秒数 */
+        final long seconds;
+
+        Offset(long from, long until, long seconds) {
+            this.from = from;
+            this.until = until;
+            this.seconds = seconds;
+        }
+    }
+
+    private LocalClock() {
+    }
+
+    /**
+     * 当前本地时间的纪元秒数
+     *
+     * @return 纪元秒数（本地时间按UTC换算）
+     */
+    public static long nowSeconds() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() + offsetSeconds(now);
+    }
+
+    /**
+     * 当前本地时间的纪元纳秒数
+     *
+     * @return 纪元纳秒数（本地时间按UTC换算）
+     */
+    public static long nowNanos() {
+        Instant now = Instant.now();
+        return (now.getEpochSecond() + offsetSeconds(now)) * 1_000_000_000L + now.getNano();
+    }
+
+    private static long offsetSeconds(Instant now) {
+        long second = now.getEpochSecond();
+        Offset current = offset;
+        if (second < current.from || second >= current.until) {
+            ZoneRules rules = ZoneId.systemDefault().getRules();
+            ZoneOffsetTransition next = rules.nextTransition(now);
+            long until = second + MAX_CACHE_SECONDS;
+            if (next != null) {
+                until = Math.min(until, next.toEpochSecond());
+            }
+            current = new Offset(second, until, rules.getOffset(now).getTotalSeconds());
+            offset = current;
+        }
+        return current.seconds;
+    }
+}
@@ -0,0 +1,158 @@
+package com.qsnn.homeSphere.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段锁
+ *
+ * <p>按整数键（通常为家庭ID）将锁请求映射到固定数量的锁分段上，
+ * 使不同键上的写操作可以并行执行，而同一键上的写操作互斥。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>分段数量为2的幂，通过位运算定位分段</li>
+ *   <li>分段锁均为可重入锁，同一线程可嵌套获取</li>
+ *   <li>同时获取两个分段时按分段下标排序，避免死锁</li>
+ *   <li>线程封闭场景可使用 {@link #threadConfined()}，其全部加解锁操作均为空操作</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class StripedLock {
+
+    /** 锁分段数组 */
+    private final Lock[] stripes;
+
+    /** 分段下标掩码 */
+    private final int mask;
+
+    /**
+     * 分段锁构造函数
+     *
+     * @param concurrencyLevel 期望的并发度，实际分段数为不小于该值的2的幂
+     * @throws IllegalArgumentException 如果并发度小于1
+     */
+    public StripedLock(int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("并发度必须大于0");
+        }
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    private StripedLock(Lock single) {
+        stripes = new Lock[]{single};
+        mask = 0;
+    }
+
+    /**
+     * 创建不加锁的分段锁
+     *
+     * <p>用于只会被单个线程访问的对象（如分片事件循环持有的系统实例），避免无意义的加解锁开销。</p>
+     *
+     * @return 所有操作均为空操作的分段锁
+     */
+    public static StripedLock threadConfined() {
+        return new StripedLock(NoOpLock.INSTANCE);
+    }
+
+    /**
+     * 获取键对应的锁分段
+     *
+     * @param key 分段键
+     * @return 该键对应的锁
+     */
+    public Lock get(Integer key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * 获取两个键对应的锁分段（按固定顺序加锁）
+     *
+     * <p>若两个键落在同一分段，只加锁一次。加锁后需通过 {@link #unlockBoth(Integer, Integer)} 释放。</p>
+     *
+     * @param first 第一个分段键
+     * @param second 第二个分段键
+     */
+    public void lockBoth(Integer first, Integer second) {
+        int a = indexOf(first);
+        int b = indexOf(second);
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+
+    /**
+     * 释放通过 {@link #lockBoth(Integer, Integer)} 获取的锁
+     *
+     * @param first 第一个分段键
+     * @param second 第二个分段键
+     */
+    public void unlockBoth(Integer first, Integer second) {
+        int a = indexOf(first);
+        int b = indexOf(second);
+        if (a != b) {
+            stripes[Math.max(a, b)].unlock();
+        }
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    /**
+     * 计算键所在的分段下标
+     */
+    private int indexOf(Integer key) {
+        int h = key == null ? 0 : key;
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & mask;
+    }
+
+    /**
+     * 空操作锁，供线程封闭场景使用
+     */
+    private static final class NoOpLock implements Lock {
+
+        static final NoOpLock INSTANCE = new NoOpLock();
+
+        @Override
+        public void lock() {
+        }
+
+        @Override
+        public void lockInterruptibly() {
+        }
+
+        @Override
+        public boolean tryLock() {
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("线程封闭锁不支持条件变量");
+        }
+    }
+}
@@ -1,20 +1,19 @@
 package com.qsnn.homeSphere.utils;
 
 import com.qsnn.homeSphere.domain.deviceModule.Usage;
+import com.qsnn.homeSphere.domain.deviceModule.UsageStore;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Random;
-import java.util.Set;
+import java.util.Collection;
 
 /**
  * 工具类
  *
- * <p>该类提供系统中常用的通用工具方法，包括ID生成和能耗计算等功能。</p>
+ * <p>该类提供系统中常用的通用工具方法，包括能耗计算等功能。</p>
  *
  * <p><b>主要功能：</b></p>
  * <ul>
- *   <li>生成唯一的ID标识符</li>
  *   <li>计算设备能耗消耗</li>
  *   <li>提供时间范围相关的辅助方法</li>
  * </ul>
@@ -23,7 +22,6 @@ import java.util.Set;
  * <ul>
  *   <li>所有方法均为静态方法，无需实例化</li>
  *   <li>提供重载方法支持不同的计算需求</li>
- *   <li>包含防止无限循环的安全机制</li>
  * </ul>
  *
  * @author qsnn
@@ -32,29 +30,6 @@ import java.util.Set;
  */
 public class Util {
 
-    /**
-     * 根据已存在ID集合创建新的唯一ID
-     *
-     * <p>生成6-9位数字的随机ID，确保不与现有ID重复</p>
-     *
-     * @param existingIds 已存在的ID集合
-     * @return 新的唯一ID，如果无法生成则返回重复的ID
-     */
-    public static Integer createFreeID(Set<Integer> existingIds) {
-        Random random = new Random();
-        int maxAttempts = 1000; // 防止无限循环
-        int attempts = 0;
-        int id = random.nextInt(100000, 1000000000);
-        while (attempts < maxAttempts) {
-            id = random.nextInt(100000, 1000000000); // 6-9位数字
-            if (!existingIds.contains(id)) {
-                break;
-            }
-            attempts++;
-        }
-        return id;
-    }
-
     /**
      * 计算指定时间段内的总能耗
      *
@@ -65,7 +40,11 @@ public class Util {
      * @param endTime 查询结束时间
      * @return 指定时间段内的总能耗，单位：瓦时(Wh)
      */
-    public static double calculatePowerConsumption(Set<Usage> usages, LocalDateTime startTime, LocalDateTime endTime) {
+    public static double calculatePowerConsumption(Collection<Usage> usages, LocalDateTime startTime, LocalDateTime endTime) {
+        // 列式存储直接按列逐条计算，不生成使用记录视图
+        if (usages instanceof UsageStore) {
+            return ((UsageStore) usages).scanEnergy(startTime, endTime);
+        }
         double totalEnergy = 0.0;
 
         for (Usage usage : usages) {
@@ -99,7 +78,10 @@ public class Util {
      * @param usages 设备使用记录集合
      * @return 总能耗，单位：千瓦时(kWh)
      */
-    public static double calculatePowerConsumption(Set<Usage> usages) {
+    public static double calculatePowerConsumption(Collection<Usage> usages) {
+        if (usages instanceof UsageStore) {
+            return ((UsageStore) usages).totalEnergy();
+        }
         double sum = 0;
         for (Usage usage : usages) {
             sum += usage.getPowerConsumption();
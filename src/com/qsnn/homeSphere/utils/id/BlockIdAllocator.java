@@ -0,0 +1,106 @@
+package com.qsnn.homeSphere.utils.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于租约块的顺序ID分配器
+ *
+ * <p>每个线程从全局计数器一次租用一段连续ID（租约块），之后在线程本地递增分配，
+ * 直到租约块用完才再次访问全局计数器。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>分配为O(1)，无需检查ID冲突</li>
+ *   <li>租约通过原子操作获取，无锁</li>
+ *   <li>同一线程分配的ID单调递增，不同线程之间按租约块交错</li>
+ *   <li>配置 {@link IdLeaseStore} 时，每次租约先持久化再使用，重启后不会重复分配</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class BlockIdAllocator implements IdAllocator {
+
+    /** 默认租约块大小 */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /** 分配器名称，作为持久化键 */
+    private final String name;
+
+    /** 租约块大小 */
+    private final int blockSize;
+
+    /** 租约持久化存储，为null时不持久化 */
+    private final IdLeaseStore leaseStore;
+
+    /** 下一个未租出的ID */
+    private final AtomicLong nextUnleased;
+
+    /** 线程本地租约块：[0]为下一个可用ID，[1]为块结束ID（不含） */
+    private final ThreadLocal<long[]> localBlock = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * 构造不持久化的分配器
+     *
+     * @param name 分配器名称
+     * @param firstId 首个ID
+     */
+    public BlockIdAllocator(String name, int firstId) {
+        this(name, firstId, DEFAULT_BLOCK_SIZE, null);
+    }
+
+    /**
+     * 构造分配器
+     *
+     * @param name 分配器名称
+     * @param firstId 首个ID
+     * @param blockSize 租约块大小
+     * @param leaseStore 租约持久化存储，为null时不持久化
+     * @throws IllegalArgumentException 如果租约块大小小于1
+     */
+    public BlockIdAllocator(String name, int firstId, int blockSize, IdLeaseStore leaseStore) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("租约块大小必须大于0");
+        }
+        this.name = name;
+        this.blockSize = blockSize;
+        this.leaseStore = leaseStore;
+        long persisted = leaseStore != null ? leaseStore.load(name) : 0;
+        this.nextUnleased = new AtomicLong(Math.max(firstId, persisted));
+    }
+
+    @Override
+    public int nextId() {
+        long[] block = localBlock.get();
+        if (block[0] == block[1]) {
+            lease(block);
+        }
+        return (int) block[0]++;
+    }
+
+    /**
+     * 获取分配器名称
+     *
+     * @return 分配器名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 租用新的ID块
+     */
+    private void lease(long[] block) {
+        long start = nextUnleased.getAndAdd(blockSize);
+        long end = start + blockSize;
+        if (end - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("ID空间已耗尽: " + name);
+        }
+        if (leaseStore != null) {
+            leaseStore.advance(name, end);
+        }
+        block[0] = start;
+        block[1] = end;
+    }
+}
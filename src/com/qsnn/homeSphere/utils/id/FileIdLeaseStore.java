@@ -0,0 +1,79 @@
+package com.qsnn.homeSphere.utils.id;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于文件的ID租约持久化存储
+ *
+ * <p>每个分配器的租约高水位保存在目录下的 {@code <名称>.lease} 文件中，
+ * 写入时先写临时文件再原子替换，避免崩溃时留下不完整的内容。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class FileIdLeaseStore implements IdLeaseStore {
+
+    /** 租约文件所在目录 */
+    private final Path directory;
+
+    /** 已持久化的高水位缓存，避免重复写入更小的值 */
+    private final Map<String, Long> persisted = new HashMap<>();
+
+    /**
+     * 构造文件租约存储
+     *
+     * @param directory 租约文件目录，不存在时自动创建
+     * @throws UncheckedIOException 如果目录创建失败
+     */
+    public FileIdLeaseStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法创建ID租约目录: " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized long load(String name) {
+        Path file = fileOf(name);
+        long value = 0;
+        if (Files.exists(file)) {
+            try {
+                value = Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+            } catch (IOException e) {
+                throw new UncheckedIOException("无法读取ID租约文件: " + file, e);
+            }
+        }
+        persisted.put(name, value);
+        return value;
+    }
+
+    @Override
+    public synchronized void advance(String name, long highWater) {
+        if (highWater <= persisted.getOrDefault(name, 0L)) {
+            return;
+        }
+        Path file = fileOf(name);
+        Path temp = directory.resolve(name + ".lease.tmp");
+        try {
+            Files.write(temp, Long.toString(highWater).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法写入ID租约文件: " + file, e);
+        }
+        persisted.put(name, highWater);
+    }
+
+    private Path fileOf(String name) {
+        return directory.resolve(name + ".lease");
+    }
+}
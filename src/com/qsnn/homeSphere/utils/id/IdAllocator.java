@@ -0,0 +1,21 @@
+package com.qsnn.homeSphere.utils.id;
+
+/**
+ * ID分配器接口
+ *
+ * <p>为一类实体分配全局唯一的整数ID。实现必须是线程安全的，且分配出的ID不得重复。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public interface IdAllocator {
+
+    /**
+     * 分配下一个ID
+     *
+     * @return 未被分配过的ID
+     * @throws IllegalStateException 如果ID空间已耗尽
+     */
+    int nextId();
+}
@@ -0,0 +1,77 @@
+package com.qsnn.homeSphere.utils.id;
+
+import com.qsnn.homeSphere.domain.EntityType;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 按实体类型组织的ID分配器集合
+ *
+ * <p>为每种 {@link EntityType} 配置一个独立的 {@link IdAllocator}，未单独配置的实体类型使用默认的
+ * {@link BlockIdAllocator}。同一个实例可以被多个系统实例共享，从而在它们之间保持ID全局唯一。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class IdAllocators {
+
+    /** 默认的首个ID，保持与历史6位以上数字ID一致的格式 */
+    public static final int DEFAULT_FIRST_ID = 100000;
+
+    /** 实体类型到分配器的映射 */
+    private final Map<EntityType, IdAllocator> allocators = new EnumMap<>(EntityType.class);
+
+    private IdAllocators(IdLeaseStore leaseStore) {
+        for (EntityType type : EntityType.values()) {
+            allocators.put(type, new BlockIdAllocator(type.name().toLowerCase(), DEFAULT_FIRST_ID,
+                    BlockIdAllocator.DEFAULT_BLOCK_SIZE, leaseStore));
+        }
+    }
+
+    /**
+     * 创建仅在内存中分配的分配器集合
+     *
+     * @return 分配器集合
+     */
+    public static IdAllocators inMemory() {
+        return new IdAllocators(null);
+    }
+
+    /**
+     * 创建租约持久化到指定目录的分配器集合
+     *
+     * @param directory 租约文件目录
+     * @return 分配器集合
+     */
+    public static IdAllocators persistent(Path directory) {
+        return new IdAllocators(new FileIdLeaseStore(directory));
+    }
+
+    /**
+     * 替换某一实体类型的分配器
+     *
+     * @param type 实体类型
+     * @param allocator 新的分配器
+     * @return 当前分配器集合，便于链式调用
+     */
+    public IdAllocators with(EntityType type, IdAllocator allocator) {
+        if (allocator == null) {
+            throw new IllegalArgumentException("分配器不能为null");
+        }
+        allocators.put(type, allocator);
+        return this;
+    }
+
+    /**
+     * 获取实体类型对应的分配器
+     *
+     * @param type 实体类型
+     * @return ID分配器
+     */
+    public IdAllocator of(EntityType type) {
+        return allocators.get(type);
+    }
+}
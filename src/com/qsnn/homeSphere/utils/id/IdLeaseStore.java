@@ -0,0 +1,32 @@
+package com.qsnn.homeSphere.utils.id;
+
+/**
+ * ID租约持久化接口
+ *
+ * <p>记录每个分配器已租出的最高ID（不含），使系统重启后从该位置继续分配，
+ * 保证重启前后分配出的ID不重复。重启时未用完的租约块会被跳过。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public interface IdLeaseStore {
+
+    /**
+     * 读取已租出的最高ID
+     *
+     * @param name 分配器名称
+     * @return 已持久化的最高ID（不含），从未租出时返回0
+     */
+    long load(String name);
+
+    /**
+     * 推进已租出的最高ID
+     *
+     * <p>实现只在新值大于已持久化值时写入，并须在方法返回前完成持久化。</p>
+     *
+     * @param name 分配器名称
+     * @param highWater 新租约块的结束ID（不含）
+     */
+    void advance(String name, long highWater);
+}
@@ -0,0 +1,410 @@
+package com.qsnn.homeSphere.utils.persistent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 不可变的int键持久化映射表
+ *
+ * <p>以32路位图前缀树（HAMT）存储，每层消耗键的5个比特。更新操作只复制从根到目标叶子的路径
+ * （至多7个节点），其余子树在新旧版本之间结构共享，因此每个版本都可以作为快照长期持有。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>查询、插入、删除的时间复杂度均为O(log32 n)</li>
+ *   <li>实例创建后永不改变，可在任意线程间自由共享，无需加锁</li>
+ *   <li>每次修改产生的新版本携带递增的版本号</li>
+ *   <li>作为 {@link Map} 只读，所有修改型方法抛出 {@link UnsupportedOperationException}</li>
+ * </ul>
+ *
+ * @param <V> 值类型
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public final class PersistentIntMap<V> extends AbstractMap<Integer, V> {
+
+    /** 每层使用的比特数 */
+    private static final int BITS = 5;
+
+    /** 每层的下标掩码 */
+    private static final int LEVEL_MASK = (1 << BITS) - 1;
+
+    /** 空映射表 */
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(new Node(0, new Object[0]), 0, 0L);
+
+    /** 根节点，永不为null */
+    private final Node root;
+
+    /** 键值对数量 */
+    private final int size;
+
+    /** 版本号 */
+    private final long version;
+
+    /** 延迟创建的条目集合视图 */
+    private Set<Entry<Integer, V>> entrySet;
+
+    private PersistentIntMap(Node root, int size, long version) {
+        this.root = root;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * 获取空映射表
+     *
+     * @param <V> 值类型
+     * @return 版本号为0的空映射表
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    // ==================== 查询方法 ====================
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 对应的值，不存在时返回null
+     */
+    public V get(int key) {
+        Node node = root;
+        int shift = 0;
+        while (true) {
+            int bit = bitOf(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[node.indexOf(bit)];
+            if (slot instanceof Leaf) {
+                Leaf<?> leaf = (Leaf<?>) slot;
+                @SuppressWarnings("unchecked")
+                V value = leaf.key == key ? (V) leaf.value : null;
+                return value;
+            }
+            node = (Node) slot;
+            shift += BITS;
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取版本号
+     *
+     * @return 本实例的版本号，每次修改递增1
+     */
+    public long version() {
+        return version;
+    }
+
+    // ==================== 修改方法（返回新版本） ====================
+
+    /**
+     * 返回插入或替换键值对后的新版本
+     *
+     * @param key 键
+     * @param value 值，不能为null
+     * @return 新版本；若值未变化则返回本实例
+     */
+    public PersistentIntMap<V> plus(int key, V value) {
+        Objects.requireNonNull(value, "值不能为null");
+        V previous = get(key);
+        if (previous == value) {
+            return this;
+        }
+        Node newRoot = insert(root, 0, new Leaf<>(key, value));
+        return new PersistentIntMap<>(newRoot, previous == null ? size + 1 : size, version + 1);
+    }
+
+    /**
+     * 返回删除键后的新版本
+     *
+     * @param key 键
+     * @return 新版本；若键不存在则返回本实例
+     */
+    public PersistentIntMap<V> minus(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Object result = delete(root, 0, key);
+        Node newRoot;
+        if (result == null) {
+            newRoot = new Node(0, new Object[0]);
+        } else if (result instanceof Leaf) {
+            Leaf<?> leaf = (Leaf<?>) result;
+            newRoot = new Node(bitOf(leaf.key, 0), new Object[]{leaf});
+        } else {
+            newRoot = (Node) result;
+        }
+        return new PersistentIntMap<>(newRoot, size - 1, version + 1);
+    }
+
+    // ==================== 遍历方法 ====================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        Objects.requireNonNull(action);
+        forEach(root, leaf -> action.accept(leaf.key, (V) leaf.value));
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        Set<Entry<Integer, V>> view = entrySet;
+        if (view == null) {
+            view = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new LeafIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = view;
+        }
+        return view;
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 计算键在指定层的位图比特
+     */
+    private static int bitOf(int key, int shift) {
+        return 1 << ((key >>> shift) & LEVEL_MASK);
+    }
+
+    /**
+     * 将叶子插入子树，返回新子树
+     */
+    private static Node insert(Node node, int shift, Leaf<?> leaf) {
+        int bit = bitOf(leaf.key, shift);
+        int index = node.indexOf(bit);
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots);
+        }
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Leaf) {
+            Leaf<?> existing = (Leaf<?>) slot;
+            replacement = existing.key == leaf.key ? leaf : split(existing, leaf, shift + BITS);
+        } else {
+            replacement = insert((Node) slot, shift + BITS, leaf);
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+
+    /**
+     * 为两个在当前层之前前缀相同的叶子创建子树
+     */
+    private static Node split(Leaf<?> a, Leaf<?> b, int shift) {
+        int bitA = bitOf(a.key, shift);
+        int bitB = bitOf(b.key, shift);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[]{split(a, b, shift + BITS)});
+        }
+        Object[] slots = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[]{a, b} : new Object[]{b, a};
+        return new Node(bitA | bitB, slots);
+    }
+
+    /**
+     * 从子树中删除键（调用方保证键存在）
+     *
+     * @return 新子树：null表示子树为空，{@link Leaf} 表示子树只剩一个叶子可上提到父节点
+     */
+    private static Object delete(Node node, int shift, int key) {
+        int bit = bitOf(key, shift);
+        int index = node.indexOf(bit);
+        Object slot = node.slots[index];
+        Object replacement = slot instanceof Leaf ? null : delete((Node) slot, shift + BITS, key);
+
+        if (replacement == null) {
+            if (node.slots.length == 1) {
+                return null;
+            }
+            if (node.slots.length == 2 && node.slots[1 - index] instanceof Leaf) {
+                return node.slots[1 - index];
+            }
+            Object[] slots = new Object[node.slots.length - 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+            return new Node(node.bitmap & ~bit, slots);
+        }
+        if (replacement instanceof Leaf && node.slots.length == 1) {
+            return replacement;
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+
+    /**
+     * 深度优先遍历子树中的所有叶子
+     */
+    private static void forEach(Node node, Consumer<Leaf<?>> action) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Leaf) {
+                action.accept((Leaf<?>) slot);
+            } else {
+                forEach((Node) slot, action);
+            }
+        }
+    }
+
+    /**
+     * 位图节点：bitmap中第i位为1表示第i个分支存在，slots按分支顺序紧凑存放叶子或子节点
+     */
+    private static final class Node {
+
+        final int bitmap;
+
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * 叶子节点，同时作为对外暴露的不可变条目
+     */
+    private static final class Leaf<V> implements Entry<Integer, V> {
+
+        final int key;
+
+        final V value;
+
+        Leaf(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("快照不可修改");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return Objects.equals(getKey(), other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * 基于显式栈的叶子迭代器
+     */
+    private static final class LeafIterator<V> implements Iterator<Entry<Integer, V>> {
+
+        /** 每层当前节点，前缀树最多7层 */
+        private final Node[] nodes = new Node[8];
+
+        /** 每层下一个待访问的槽位 */
+        private final int[] positions = new int[8];
+
+        private int depth;
+
+        private Leaf<V> next;
+
+        LeafIterator(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (positions[depth] >= node.slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = node.slots[positions[depth]++];
+                if (slot instanceof Leaf) {
+                    next = (Leaf<V>) slot;
+                    return;
+                }
+                depth++;
+                nodes[depth] = (Node) slot;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<Integer, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf<V> current = next;
+            advance();
+            return current;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.qsnn.homeSphere.utils.persistent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * 支持O(1)快照的线程安全int键映射表
+ *
+ * <p>当前状态是一个 {@link PersistentIntMap} 版本，保存在原子引用中。写操作基于当前版本构造新版本，
+ * 再通过CAS发布；读操作直接读取当前版本，不加锁。{@link #snapshot()} 只返回当前版本的引用，
+ * 调用方可以长时间遍历该快照，期间的写操作不会影响它。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>读操作与快照获取均无锁，快照获取为O(1)</li>
+ *   <li>写操作为O(log32 n)的路径复制，冲突时有限次重试，之后改为持有写锁发布；
+ *       批量写入始终持有写锁，持有期间其他写操作排队等待，整批修改最多因少数已在进行中的写操作重建几次，
+ *       不会被持续的单键写入无限推迟</li>
+ *   <li>全部键共用一个版本引用，快照和批量写入在所有键上都是原子的；
+ *       因此不同家庭的写操作在发布时竞争同一个CAS点，发布本身只是一次引用替换，路径复制在竞争之前完成</li>
+ *   <li>快照的版本号单调递增，可用于判断两次读取之间是否发生过修改</li>
+ * </ul>
+ *
+ * @param <V> 值类型
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class VersionedIntMap<V> {
+
+    /** 乐观写入的最大CAS尝试次数，用尽后改为持有写锁写入 */
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 4;
+
+    /** 当前版本 */
+    private final AtomicReference<PersistentIntMap<V>> current = new AtomicReference<>(PersistentIntMap.empty());
+
+    /** 写锁，供批量写入和冲突频繁的写操作使用 */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** 是否有线程持有写锁；为true时其他写操作直接排队等待写锁，不再乐观重试 */
+    private volatile boolean locked;
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键，可以为null
+     * @return 对应的值，不存在时返回null
+     */
+    public V get(Integer key) {
+        return key != null ? current.get().get((int) key) : null;
+    }
+
+    /**
+     * 判断键是否存在
+     *
+     * @param key 键，可以为null
+     * @return 存在返回true
+     */
+    public boolean containsKey(Integer key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 写入键值对
+     *
+     * @param key 键
+     * @param value 值，不能为null
+     * @return 原值，不存在时返回null
+     */
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "值不能为null");
+        return update(base -> base.plus(key, value)).get(key);
+    }
+
+    /**
+     * 键不存在时写入键值对
+     *
+     * @param key 键
+     * @param value 值，不能为null
+     * @return 已存在的值；写入成功时返回null
+     */
+    public V putIfAbsent(int key, V value) {
+        Objects.requireNonNull(value, "值不能为null");
+        return update(base -> base.get(key) != null ? base : base.plus(key, value)).get(key);
+    }
+
+    /**
+     * 批量写入键值对，整批修改通过一次CAS发布，读者不会看到半批结果
+     *
+     * <p>持有写锁构造和发布，期间其他写操作排队等待，不会因持续的单键写入而反复重建整批修改。</p>
+     *
+     * @param keys 键数组
+     * @param values 与键一一对应的值列表，不能包含null
+     * @throws IllegalArgumentException 如果键与值的数量不一致
+     */
+    public void putAll(int[] keys, List<? extends V> values) {
+        if (keys.length != values.size()) {
+            throw new IllegalArgumentException("键与值的数量不一致");
+        }
+        updateLocked(base -> {
+            PersistentIntMap<V> next = base;
+            for (int i = 0; i < keys.length; i++) {
+                next = next.plus(keys[i], values.get(i));
+            }
+            return next;
+        });
+    }
+
+    /**
+     * 所有键都不存在时批量写入键值对，整批修改通过一次CAS发布
+     *
+     * <p>与 {@link #putAll} 相同，持有写锁构造和发布。</p>
+     *
+     * @param keys 键数组
+     * @param values 与键一一对应的值列表，不能包含null
+     * @return 写入成功返回true；任一键已存在时不写入任何键值对，返回false
+     * @throws IllegalArgumentException 如果键与值的数量不一致
+     */
+    public boolean putAllIfAbsent(int[] keys, List<? extends V> values) {
+        if (keys.length != values.size()) {
+            throw new IllegalArgumentException("键与值的数量不一致");
+        }
+        PersistentIntMap<V> base = updateLocked(current -> {
+            PersistentIntMap<V> next = current;
+            for (int i = 0; i < keys.length; i++) {
+                if (current.get(keys[i]) != null) {
+                    return current;
+                }
+                next = next.plus(keys[i], values.get(i));
+            }
+            return next;
+        });
+        for (int key : keys) {
+            if (base.get(key) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键，可以为null
+     * @return 被删除的值，不存在时返回null
+     */
+    public V remove(Integer key) {
+        if (key == null) {
+            return null;
+        }
+        int k = key;
+        return update(base -> base.minus(k)).get(k);
+    }
+
+    /**
+     * 获取键值对数量
+     *
+     * @return 当前版本的键值对数量
+     */
+    public int size() {
+        return current.get().size();
+    }
+
+    /**
+     * 获取当前版本的所有值
+     *
+     * @return 当前快照的值视图，不受后续写操作影响
+     */
+    public Collection<V> values() {
+        return current.get().values();
+    }
+
+    /**
+     * 获取当前版本的只读快照
+     *
+     * @return 不可变快照，获取开销为O(1)
+     */
+    public PersistentIntMap<V> snapshot() {
+        return current.get();
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 以CAS发布修改：先乐观重试有限次数，有线程持有写锁或重试次数用尽时改为持有写锁发布
+     *
+     * @param change 基于给定版本构造新版本，不修改时返回原版本
+     * @return 修改所基于的版本
+     */
+    private PersistentIntMap<V> update(UnaryOperator<PersistentIntMap<V>> change) {
+        for (int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS && !locked; attempt++) {
+            PersistentIntMap<V> base = current.get();
+            PersistentIntMap<V> next = change.apply(base);
+            if (next == base || current.compareAndSet(base, next)) {
+                return base;
+            }
+        }
+        return updateLocked(change);
+    }
+
+    /**
+     * 持有写锁发布修改
+     *
+     * <p>持有写锁期间其他写操作不再乐观重试，只有在此之前已读取版本的少数写操作可能使CAS失败，重试次数有界。</p>
+     *
+     * @param change 基于给定版本构造新版本，不修改时返回原版本
+     * @return 修改所基于的版本
+     */
+    private PersistentIntMap<V> updateLocked(UnaryOperator<PersistentIntMap<V>> change) {
+        writeLock.lock();
+        locked = true;
+        try {
+            while (true) {
+                PersistentIntMap<V> base = current.get();
+                PersistentIntMap<V> next = change.apply(base);
+                if (next == base || current.compareAndSet(base, next)) {
+                    return base;
+                }
+            }
+        } finally {
+            locked = false;
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 线程安全的int到int映射表
+ *
+ * <p>将键按哈希分散到多个 {@link IntIntHashMap} 分段中，每个分段由一把 {@link StampedLock} 保护。
+ * 写操作只锁定所在分段，读操作优先使用乐观读，无写冲突时不加锁。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ConcurrentIntIntMap {
+
+    /** 键不存在时的返回值 */
+    public static final int NO_VALUE = IntIntHashMap.NO_VALUE;
+
+    /** 默认分段数 */
+    private static final int DEFAULT_SEGMENTS = 64;
+
+    /** 分段表 */
+    private final IntIntHashMap[] segments;
+
+    /** 分段锁 */
+    private final StampedLock[] locks;
+
+    /** 分段下标掩码 */
+    private final int mask;
+
+    /** 分段定位使用哈希高位，与分段内部使用的低位相互独立 */
+    private final int shift;
+
+    /**
+     * 以默认分段数构造
+     */
+    public ConcurrentIntIntMap() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * 以指定分段数构造
+     *
+     * @param segmentCount 分段数，必须为2的幂
+     * @throws IllegalArgumentException 如果分段数不是2的幂
+     */
+    public ConcurrentIntIntMap(int segmentCount) {
+        if (segmentCount < 1 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("分段数必须为2的幂");
+        }
+        segments = new IntIntHashMap[segmentCount];
+        locks = new StampedLock[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new IntIntHashMap();
+            locks[i] = new StampedLock();
+        }
+        mask = segmentCount - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * 获取键对应的值（乐观读）
+     *
+     * @param key 键
+     * @return 对应的值，不存在时返回 {@link #NO_VALUE}
+     */
+    public int get(int key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int value = segments[s].get(key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return segments[s].get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 检查是否包含指定键
+     *
+     * @param key 键
+     * @return 包含返回true
+     */
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * 写入键值对
+     *
+     * @param key 键
+     * @param value 值
+     * @return 原有的值，不存在时返回 {@link #NO_VALUE}
+     */
+    public int put(int key, int value) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            return segments[s].put(key, value);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 键不存在时写入键值对
+     *
+     * @param key 键
+     * @param value 值
+     * @return 原有的值；键不存在（已写入）时返回 {@link #NO_VALUE}
+     */
+    public int putIfAbsent(int key, int value) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            int existing = segments[s].get(key);
+            if (existing == NO_VALUE) {
+                segments[s].put(key, value);
+            }
+            return existing;
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return 被删除的值，不存在时返回 {@link #NO_VALUE}
+     */
+    public int remove(int key) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            return segments[s].remove(key);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 获取元素总数
+     *
+     * @return 键值对数量（并发修改时为近似值）
+     */
+    public int size() {
+        int total = 0;
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                total += segments[s].size();
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 按期望元素总数为各分段预留容量
+     *
+     * @param expectedSize 期望元素总数
+     */
+    public void ensureCapacity(int expectedSize) {
+        int perSegment = expectedSize / segments.length + 1;
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].writeLock();
+            try {
+                segments[s].ensureCapacity(perSegment);
+            } finally {
+                locks[s].unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 估算占用的堆内存
+     *
+     * @return 全部分段占用字节数
+     */
+    public long estimatedBytes() {
+        long total = 0;
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                total += segments[s].estimatedBytes();
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    private int segmentOf(int key) {
+        return (IntHashing.mix(key) >>> shift) & mask;
+    }
+}
@@ -0,0 +1,215 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 线程安全的int到int集合一对多映射表
+ *
+ * <p>将键按哈希分散到多个 {@link IntSetMultimap} 分段中，每个分段由一把 {@link StampedLock} 保护。
+ * 写操作只锁定所在分段；存在性与计数查询使用乐观读，复制值集合时使用读锁。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class ConcurrentIntSetMultimap implements IntSetRelation {
+
+    /** 默认分段数 */
+    private static final int DEFAULT_SEGMENTS = 64;
+
+    /** 分段表 */
+    private final IntSetMultimap[] segments;
+
+    /** 分段锁 */
+    private final StampedLock[] locks;
+
+    /** 分段下标掩码 */
+    private final int mask;
+
+    /** 分段定位使用哈希高位，与分段内部使用的低位相互独立 */
+    private final int shift;
+
+    /**
+     * 以默认分段数构造
+     */
+    public ConcurrentIntSetMultimap() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * 以指定分段数构造
+     *
+     * @param segmentCount 分段数，必须为2的幂
+     * @throws IllegalArgumentException 如果分段数不是2的幂
+     */
+    public ConcurrentIntSetMultimap(int segmentCount) {
+        if (segmentCount < 1 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("分段数必须为2的幂");
+        }
+        segments = new IntSetMultimap[segmentCount];
+        locks = new StampedLock[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new IntSetMultimap();
+            locks[i] = new StampedLock();
+        }
+        mask = segmentCount - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * 添加一条关系
+     *
+     * @param key 键
+     * @param value 值
+     * @return 关系原本不存在返回true
+     */
+    public boolean put(int key, int value) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            return segments[s].put(key, value);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 批量添加同一键的关系，只获取一次分段写锁
+     *
+     * @param key 键
+     * @param values 值数组
+     * @return 新增的关系数
+     */
+    public int putAll(int key, int[] values) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            return segments[s].putAll(key, values);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除一条关系
+     *
+     * @param key 键
+     * @param value 值
+     * @return 关系存在并被删除返回true
+     */
+    public boolean remove(int key, int value) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            return segments[s].remove(key, value);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除键及其全部关系
+     *
+     * @param key 键
+     * @return 被删除的值数组
+     */
+    public int[] removeAll(int key) {
+        int s = segmentOf(key);
+        long stamp = locks[s].writeLock();
+        try {
+            return segments[s].removeAll(key);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 检查关系是否存在（乐观读）
+     *
+     * @param key 键
+     * @param value 值
+     * @return 存在返回true
+     */
+    @Override
+    public boolean contains(int key, int value) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean result = segments[s].contains(key, value);
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return segments[s].contains(key, value);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 获取键关联的值数量（乐观读）
+     *
+     * @param key 键
+     * @return 值数量
+     */
+    @Override
+    public int size(int key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int result = segments[s].size(key);
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return segments[s].size(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 复制键关联的全部值
+     *
+     * @param key 键
+     * @return 值数组的一致快照，键不存在时返回空数组
+     */
+    @Override
+    public int[] get(int key) {
+        int s = segmentOf(key);
+        long stamp = locks[s].readLock();
+        try {
+            return segments[s].get(key);
+        } finally {
+            locks[s].unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 估算占用的堆内存
+     *
+     * @return 全部分段占用字节数
+     */
+    public long estimatedBytes() {
+        long total = 0;
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                total += segments[s].estimatedBytes();
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    private int segmentOf(int key) {
+        return (IntHashing.mix(key) >>> shift) & mask;
+    }
+}
@@ -0,0 +1,223 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import static com.qsnn.homeSphere.utils.primitive.IntHashing.FREE_KEY;
+
+/**
+ * int开放寻址哈希集合
+ *
+ * <p>用于一对多关系表的"多"端（如家庭下的房间ID集合），以int数组存储元素，
+ * 初始容量仅4个槽位，适合大量小集合的场景。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>线性探测，删除时采用反向移位，不产生墓碑槽位</li>
+ *   <li>{@code Integer.MIN_VALUE} 为保留值，不能作为元素</li>
+ *   <li>非线程安全，由外层容器负责并发控制</li>
+ *   <li>读操作对并发修改容错（不会越界或死循环），可配合乐观读锁使用</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class IntHashSet {
+
+    /** 槽位数组 */
+    private int[] slots;
+
+    /** 元素数 */
+    private int size;
+
+    /**
+     * 以默认容量构造
+     */
+    public IntHashSet() {
+        this(0);
+    }
+
+    /**
+     * 以期望元素数构造
+     *
+     * @param expectedSize 期望元素数
+     */
+    public IntHashSet(int expectedSize) {
+        slots = newSlots(IntHashing.capacityFor(expectedSize));
+    }
+
+    /**
+     * 检查是否包含元素
+     *
+     * @param value 元素
+     * @return 包含返回true，否则返回false
+     */
+    public boolean contains(int value) {
+        int[] table = slots;
+        int mask = table.length - 1;
+        int i = IntHashing.mix(value) & mask;
+        for (int probes = 0; probes < table.length; probes++) {
+            int v = table[i];
+            if (v == value) {
+                return value != FREE_KEY;
+            }
+            if (v == FREE_KEY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素
+     * @return 元素原本不存在返回true，否则返回false
+     * @throws IllegalArgumentException 如果元素为保留值
+     */
+    public boolean add(int value) {
+        IntHashing.checkKey(value);
+        int mask = slots.length - 1;
+        int i = IntHashing.mix(value) & mask;
+        while (slots[i] != FREE_KEY) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        if (IntHashing.needsGrow(size + 1, slots.length)) {
+            rehash(slots.length << 1);
+            return add(value);
+        }
+        slots[i] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * 删除元素
+     *
+     * @param value 元素
+     * @return 元素存在并被删除返回true，否则返回false
+     */
+    public boolean remove(int value) {
+        if (value == FREE_KEY) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = IntHashing.mix(value) & mask;
+        while (slots[i] != value) {
+            if (slots[i] == FREE_KEY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int v = slots[j];
+            if (v == FREE_KEY) {
+                break;
+            }
+            if (IntHashing.shouldShift(i, j, IntHashing.mix(v) & mask)) {
+                slots[i] = v;
+                i = j;
+            }
+        }
+        slots[i] = FREE_KEY;
+        size--;
+        return true;
+    }
+
+    /**
+     * 获取元素数
+     *
+     * @return 元素数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 检查集合是否为空
+     *
+     * @return 为空返回true
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 遍历所有元素
+     *
+     * @param action 对每个元素执行的操作
+     */
+    public void forEach(IntConsumer action) {
+        for (int v : slots) {
+            if (v != FREE_KEY) {
+                action.accept(v);
+            }
+        }
+    }
+
+    /**
+     * 复制全部元素到新数组
+     *
+     * @return 元素数组，顺序不确定
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int v : slots) {
+            if (v != FREE_KEY) {
+                result[n++] = v;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 预留容量，使添加至expectedSize个元素前不再扩容
+     *
+     * @param expectedSize 期望元素数
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = IntHashing.capacityFor(expectedSize);
+        if (capacity > slots.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * 估算占用的堆内存
+     *
+     * @return 对象头与槽位数组占用字节数
+     */
+    public long estimatedBytes() {
+        return 24L + 16L + 4L * slots.length;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        int[] table = newSlots(capacity);
+        int mask = capacity - 1;
+        for (int v : old) {
+            if (v != FREE_KEY) {
+                int i = IntHashing.mix(v) & mask;
+                while (table[i] != FREE_KEY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = v;
+            }
+        }
+        slots = table;
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, FREE_KEY);
+        return table;
+    }
+}
@@ -0,0 +1,79 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+/**
+ * 整数哈希辅助方法
+ *
+ * <p>供本包内的开放寻址表共享的哈希扰动与容量计算逻辑，不对外公开。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+final class IntHashing {
+
+    /** 表示空槽位的保留键值，该值不能作为键存入 */
+    static final int FREE_KEY = Integer.MIN_VALUE;
+
+    /** 最小表容量 */
+    static final int MIN_CAPACITY = 4;
+
+    private IntHashing() {
+    }
+
+    /**
+     * 对整数键进行扰动，使连续ID均匀分布到各个槽位
+     *
+     * @param key 原始键
+     * @return 扰动后的哈希值
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 计算容纳指定元素数所需的表容量（2的幂，装载因子不超过0.75）
+     *
+     * @param expectedSize 期望元素数
+     * @return 表容量
+     */
+    static int capacityFor(int expectedSize) {
+        long required = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / 0.75));
+        if (required > (1 << 30)) {
+            throw new IllegalArgumentException("容量过大: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) required - 1) << 1;
+    }
+
+    /**
+     * 判断表是否需要扩容
+     *
+     * @param size 当前元素数（含即将插入的元素）
+     * @param capacity 当前容量
+     * @return 超过0.75装载因子时返回true
+     */
+    static boolean needsGrow(int size, int capacity) {
+        return size > capacity - (capacity >>> 2);
+    }
+
+    /**
+     * 判断槽位j上的元素（理想槽位为home）在删除槽位i后是否需要回移到i
+     *
+     * <p>线性探测的反向移位删除：仅当home不在循环区间(i, j]内时才回移。</p>
+     */
+    static boolean shouldShift(int i, int j, int home) {
+        return i <= j ? (home <= i || home > j) : (home <= i && home > j);
+    }
+
+    /**
+     * 校验键不是保留值
+     *
+     * @param key 键
+     * @throws IllegalArgumentException 如果键为保留的空槽值
+     */
+    static void checkKey(int key) {
+        if (key == FREE_KEY) {
+            throw new IllegalArgumentException("键不能为Integer.MIN_VALUE");
+        }
+    }
+}
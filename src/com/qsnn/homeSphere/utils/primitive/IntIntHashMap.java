@@ -0,0 +1,229 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.Arrays;
+
+import static com.qsnn.homeSphere.utils.primitive.IntHashing.FREE_KEY;
+
+/**
+ * int到int的开放寻址哈希表
+ *
+ * <p>用于替代 {@code Map<Integer, Integer>} 形式的一对一关系表（如设备到房间），
+ * 每个键值对打包存放在一个long槽位中，无装箱对象和链表节点。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>线性探测，删除时采用反向移位，不产生墓碑槽位</li>
+ *   <li>高32位存键、低32位存值，单次数组读取即可取得完整键值对</li>
+ *   <li>{@link #NO_VALUE} 作为缺失值标记，不能作为值存入；{@code Integer.MIN_VALUE} 不能作为键</li>
+ *   <li>非线程安全，并发访问请使用 {@link ConcurrentIntIntMap}</li>
+ *   <li>读操作对并发修改容错（不会越界或死循环），可配合乐观读锁使用</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class IntIntHashMap {
+
+    /** 键不存在时的返回值 */
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+
+    /** 空槽位 */
+    private static final long EMPTY = pack(FREE_KEY, 0);
+
+    /** 槽位数组 */
+    private long[] slots;
+
+    /** 元素数 */
+    private int size;
+
+    /**
+     * 以默认容量构造
+     */
+    public IntIntHashMap() {
+        this(0);
+    }
+
+    /**
+     * 以期望元素数构造，避免后续扩容
+     *
+     * @param expectedSize 期望元素数
+     */
+    public IntIntHashMap(int expectedSize) {
+        slots = newSlots(IntHashing.capacityFor(expectedSize));
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 对应的值，不存在时返回 {@link #NO_VALUE}
+     */
+    public int get(int key) {
+        long[] table = slots;
+        int mask = table.length - 1;
+        int i = IntHashing.mix(key) & mask;
+        for (int probes = 0; probes < table.length; probes++) {
+            long slot = table[i];
+            int k = keyOf(slot);
+            // 先判断空槽位：保留键与空槽位的键相同，不能返回空槽位的值
+            if (k == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (k == key) {
+                return valueOf(slot);
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * 检查是否包含指定键
+     *
+     * @param key 键
+     * @return 包含返回true，否则返回false
+     */
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * 写入键值对
+     *
+     * @param key 键
+     * @param value 值
+     * @return 原有的值，不存在时返回 {@link #NO_VALUE}
+     * @throws IllegalArgumentException 如果键或值为保留值
+     */
+    public int put(int key, int value) {
+        IntHashing.checkKey(key);
+        if (value == NO_VALUE) {
+            throw new IllegalArgumentException("值不能为Integer.MIN_VALUE");
+        }
+        int mask = slots.length - 1;
+        int i = IntHashing.mix(key) & mask;
+        while (true) {
+            int k = keyOf(slots[i]);
+            if (k == key) {
+                int previous = valueOf(slots[i]);
+                slots[i] = pack(key, value);
+                return previous;
+            }
+            if (k == FREE_KEY) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        if (IntHashing.needsGrow(size + 1, slots.length)) {
+            rehash(slots.length << 1);
+            return put(key, value);
+        }
+        slots[i] = pack(key, value);
+        size++;
+        return NO_VALUE;
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return 被删除的值，不存在时返回 {@link #NO_VALUE}
+     */
+    public int remove(int key) {
+        int mask = slots.length - 1;
+        int i = IntHashing.mix(key) & mask;
+        while (true) {
+            int k = keyOf(slots[i]);
+            if (k == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (k == key) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        int previous = valueOf(slots[i]);
+        // 反向移位：把后续探测链上的元素前移填补空位
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long slot = slots[j];
+            if (keyOf(slot) == FREE_KEY) {
+                break;
+            }
+            if (IntHashing.shouldShift(i, j, IntHashing.mix(keyOf(slot)) & mask)) {
+                slots[i] = slot;
+                i = j;
+            }
+        }
+        slots[i] = EMPTY;
+        size--;
+        return previous;
+    }
+
+    /**
+     * 获取元素数
+     *
+     * @return 键值对数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 预留容量，避免批量写入过程中多次扩容
+     *
+     * @param expectedSize 期望元素数
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = IntHashing.capacityFor(expectedSize);
+        if (capacity > slots.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * 估算占用的堆内存
+     *
+     * @return 槽位数组占用字节数
+     */
+    public long estimatedBytes() {
+        return 16L + 8L * slots.length;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        long[] table = newSlots(capacity);
+        int mask = capacity - 1;
+        for (long slot : old) {
+            int k = keyOf(slot);
+            if (k != FREE_KEY) {
+                int i = IntHashing.mix(k) & mask;
+                while (keyOf(table[i]) != FREE_KEY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = slot;
+            }
+        }
+        slots = table;
+    }
+
+    private static long[] newSlots(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static long pack(int key, int value) {
+        return ((long) key << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static int keyOf(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    private static int valueOf(long slot) {
+        return (int) slot;
+    }
+}
@@ -0,0 +1,226 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static com.qsnn.homeSphere.utils.primitive.IntHashing.FREE_KEY;
+
+/**
+ * int键到对象的开放寻址哈希表
+ *
+ * <p>键以int数组存储，值以对象数组存储，二者下标一一对应，避免键的装箱和链表节点开销。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>线性探测，删除时采用反向移位，不产生墓碑槽位</li>
+ *   <li>{@code Integer.MIN_VALUE} 不能作为键，null不能作为值</li>
+ *   <li>非线程安全，由外层容器负责并发控制</li>
+ *   <li>读操作对并发修改容错（不会越界或死循环），可配合乐观读锁使用</li>
+ * </ul>
+ *
+ * @param <V> 值类型
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class IntObjectHashMap<V> {
+
+    /** 键数组 */
+    private int[] keys;
+
+    /** 值数组，与键数组下标对应 */
+    private Object[] values;
+
+    /** 元素数 */
+    private int size;
+
+    /**
+     * 以默认容量构造
+     */
+    public IntObjectHashMap() {
+        this(0);
+    }
+
+    /**
+     * 以期望元素数构造
+     *
+     * @param expectedSize 期望元素数
+     */
+    public IntObjectHashMap(int expectedSize) {
+        allocate(IntHashing.capacityFor(expectedSize));
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 对应的值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int[] ks = keys;
+        Object[] vs = values;
+        if (ks.length != vs.length) {
+            return null; // 并发扩容中的不一致视图，由调用方校验后重试
+        }
+        int mask = ks.length - 1;
+        int i = IntHashing.mix(key) & mask;
+        for (int probes = 0; probes < ks.length; probes++) {
+            int k = ks[i];
+            if (k == key && k != FREE_KEY) {
+                return (V) vs[i];
+            }
+            if (k == FREE_KEY) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 写入键值对
+     *
+     * @param key 键
+     * @param value 值，不能为null
+     * @return 原有的值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        IntHashing.checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("值不能为null");
+        }
+        int mask = keys.length - 1;
+        int i = IntHashing.mix(key) & mask;
+        while (keys[i] != FREE_KEY) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        if (IntHashing.needsGrow(size + 1, keys.length)) {
+            rehash(keys.length << 1);
+            return put(key, value);
+        }
+        // 先写值再写键，使乐观读者看到键时值已就绪
+        values[i] = value;
+        keys[i] = key;
+        size++;
+        return null;
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return 被删除的值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        int i = IntHashing.mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == FREE_KEY) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        V previous = (V) values[i];
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int k = keys[j];
+            if (k == FREE_KEY) {
+                break;
+            }
+            if (IntHashing.shouldShift(i, j, IntHashing.mix(k) & mask)) {
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE_KEY;
+        values[i] = null;
+        size--;
+        return previous;
+    }
+
+    /**
+     * 获取元素数
+     *
+     * @return 键值对数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 预留容量，避免批量写入过程中多次扩容
+     *
+     * @param expectedSize 期望元素数
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = IntHashing.capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * 遍历所有值
+     *
+     * @param action 对每个值执行的操作
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * 估算键值数组本身占用的堆内存（不含值对象）
+     *
+     * @return 字节数
+     */
+    public long estimatedBytes() {
+        return 32L + 4L * keys.length + 4L * values.length;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] newKeys = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        Arrays.fill(newKeys, FREE_KEY);
+        int mask = capacity - 1;
+        for (int n = 0; n < oldKeys.length; n++) {
+            int k = oldKeys[n];
+            if (k != FREE_KEY) {
+                int i = IntHashing.mix(k) & mask;
+                while (newKeys[i] != FREE_KEY) {
+                    i = (i + 1) & mask;
+                }
+                newKeys[i] = k;
+                newValues[i] = oldValues[n];
+            }
+        }
+        values = newValues;
+        keys = newKeys;
+    }
+
+    private void allocate(int capacity) {
+        int[] newKeys = new int[capacity];
+        Arrays.fill(newKeys, FREE_KEY);
+        values = new Object[capacity];
+        keys = newKeys;
+    }
+}
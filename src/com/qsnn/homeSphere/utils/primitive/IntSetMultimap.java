@@ -0,0 +1,217 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.function.IntConsumer;
+
+/**
+ * int到int集合的一对多映射表
+ *
+ * <p>用于替代 {@code Map<Integer, Set<Integer>>} 形式的一对多关系表（如家庭到房间），
+ * 键存放在 {@link IntObjectHashMap} 中，每个键的值集合为一个紧凑的 {@link IntHashSet}。</p>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>值集合在首次添加时创建，最后一个值被删除时随键一起移除</li>
+ *   <li>{@code Integer.MIN_VALUE} 不能作为键或值</li>
+ *   <li>非线程安全，并发访问请使用 {@link ConcurrentIntSetMultimap}</li>
+ *   <li>读操作对并发修改容错（不会越界或死循环），可配合乐观读锁使用</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class IntSetMultimap {
+
+    /** 空数组常量 */
+    private static final int[] EMPTY = new int[0];
+
+    /** 键到值集合的映射 */
+    private final IntObjectHashMap<IntHashSet> sets;
+
+    /** 关系总数 */
+    private long relationCount;
+
+    /**
+     * 以默认容量构造
+     */
+    public IntSetMultimap() {
+        this(0);
+    }
+
+    /**
+     * 以期望键数构造
+     *
+     * @param expectedKeys 期望键数
+     */
+    public IntSetMultimap(int expectedKeys) {
+        sets = new IntObjectHashMap<>(expectedKeys);
+    }
+
+    /**
+     * 添加一条关系
+     *
+     * @param key 键
+     * @param value 值
+     * @return 关系原本不存在返回true
+     */
+    public boolean put(int key, int value) {
+        IntHashing.checkKey(value);
+        IntHashSet set = sets.get(key);
+        if (set == null) {
+            set = new IntHashSet();
+            sets.put(key, set);
+        }
+        if (set.add(value)) {
+            relationCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 批量添加同一键的关系，值集合只扩容一次
+     *
+     * @param key 键
+     * @param values 值数组
+     * @return 新增的关系数
+     */
+    public int putAll(int key, int[] values) {
+        for (int value : values) {
+            IntHashing.checkKey(value);
+        }
+        IntHashSet set = sets.get(key);
+        if (set == null) {
+            set = new IntHashSet(values.length);
+            sets.put(key, set);
+        } else {
+            set.ensureCapacity(set.size() + values.length);
+        }
+        int added = 0;
+        for (int value : values) {
+            if (set.add(value)) {
+                added++;
+            }
+        }
+        relationCount += added;
+        return added;
+    }
+
+    /**
+     * 删除一条关系，值集合为空时移除该键
+     *
+     * @param key 键
+     * @param value 值
+     * @return 关系存在并被删除返回true
+     */
+    public boolean remove(int key, int value) {
+        IntHashSet set = sets.get(key);
+        if (set == null || !set.remove(value)) {
+            return false;
+        }
+        if (set.isEmpty()) {
+            sets.remove(key);
+        }
+        relationCount--;
+        return true;
+    }
+
+    /**
+     * 删除键及其全部关系
+     *
+     * @param key 键
+     * @return 被删除的值数组，键不存在时返回空数组
+     */
+    public int[] removeAll(int key) {
+        IntHashSet set = sets.remove(key);
+        if (set == null) {
+            return EMPTY;
+        }
+        relationCount -= set.size();
+        return set.toArray();
+    }
+
+    /**
+     * 检查关系是否存在
+     *
+     * @param key 键
+     * @param value 值
+     * @return 存在返回true
+     */
+    public boolean contains(int key, int value) {
+        IntHashSet set = sets.get(key);
+        return set != null && set.contains(value);
+    }
+
+    /**
+     * 获取键关联的值数量
+     *
+     * @param key 键
+     * @return 值数量
+     */
+    public int size(int key) {
+        IntHashSet set = sets.get(key);
+        return set != null ? set.size() : 0;
+    }
+
+    /**
+     * 复制键关联的全部值
+     *
+     * @param key 键
+     * @return 值数组，键不存在时返回空数组
+     */
+    public int[] get(int key) {
+        IntHashSet set = sets.get(key);
+        return set != null ? set.toArray() : EMPTY;
+    }
+
+    /**
+     * 遍历键关联的全部值
+     *
+     * @param key 键
+     * @param action 对每个值执行的操作
+     */
+    public void forEach(int key, IntConsumer action) {
+        IntHashSet set = sets.get(key);
+        if (set != null) {
+            set.forEach(action);
+        }
+    }
+
+    /**
+     * 获取键数量
+     *
+     * @return 键数量
+     */
+    public int keyCount() {
+        return sets.size();
+    }
+
+    /**
+     * 获取关系总数
+     *
+     * @return 全部键的值数量之和
+     */
+    public long relationCount() {
+        return relationCount;
+    }
+
+    /**
+     * 预留键容量
+     *
+     * @param expectedKeys 期望键数
+     */
+    public void ensureCapacity(int expectedKeys) {
+        sets.ensureCapacity(expectedKeys);
+    }
+
+    /**
+     * 估算占用的堆内存
+     *
+     * @return 键表与全部值集合占用字节数
+     */
+    public long estimatedBytes() {
+        long[] total = {sets.estimatedBytes()};
+        sets.forEachValue(set -> total[0] += set.estimatedBytes());
+        return total[0];
+    }
+}
@@ -0,0 +1,38 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+/**
+ * 只读的int一对多关系
+ *
+ * <p>描述"键 -> 值集合"形式的关系，供查询层在不关心具体存储结构的情况下求交集。</p>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public interface IntSetRelation {
+
+    /**
+     * 检查关系是否存在
+     *
+     * @param key 键
+     * @param value 值
+     * @return 存在返回true
+     */
+    boolean contains(int key, int value);
+
+    /**
+     * 获取键的值数量
+     *
+     * @param key 键
+     * @return 值数量，键不存在时返回0
+     */
+    int size(int key);
+
+    /**
+     * 获取键的全部值
+     *
+     * @param key 键
+     * @return 值数组的副本，键不存在时返回空数组
+     */
+    int[] get(int key);
+}
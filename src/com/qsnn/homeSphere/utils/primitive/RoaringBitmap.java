@@ -0,0 +1,502 @@
+package com.qsnn.homeSphere.utils.primitive;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 压缩位图（Roaring结构）
+ *
+ * <p>将32位非负整数按高16位划分为若干块，每块使用一个容器存储低16位：元素较少时为有序char数组，
+ * 超过4096个元素后转为1024个long组成的定长位图。稀疏数据按数组存储，稠密数据按位存储，
+ * 两种情况下空间都接近最优。</p>
+ *
+ * <p><b>主要功能：</b></p>
+ * <ul>
+ *   <li>单个元素的添加、删除与存在性检查</li>
+ *   <li>O(1)获取基数</li>
+ *   <li>两个位图求交集及交集基数，按容器逐块计算，位图容器之间为逐字按位与加popcount</li>
+ * </ul>
+ *
+ * <p><b>设计特点：</b></p>
+ * <ul>
+ *   <li>位图容器降到2048个元素以下才转回数组容器，避免在阈值附近反复转换</li>
+ *   <li>非线程安全，由外层容器负责并发控制</li>
+ * </ul>
+ *
+ * @author qsnn
+ * @version 1.0
+ * @since 2025
+ */
+public class RoaringBitmap {
+
+    /** 数组容器的最大元素数 */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /** 位图容器转回数组容器的元素数 */
+    private static final int BITMAP_SHRINK_LIMIT = ARRAY_LIMIT / 2;
+
+    /** 容器键（高16位），升序排列 */
+    private char[] keys = new char[4];
+
+    /** 与键一一对应的容器 */
+    private Container[] containers = new Container[4];
+
+    /** 容器数 */
+    private int size;
+
+    /** 元素数 */
+    private int cardinality;
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素，必须为非负数
+     * @return 元素原本不存在返回true
+     * @throws IllegalArgumentException 如果元素为负数
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("位图元素不能为负数: " + value);
+        }
+        char high = (char) (value >>> 16);
+        int i = indexOf(high);
+        if (i < 0) {
+            i = -i - 1;
+            insertContainer(i, high, new ArrayContainer());
+        }
+        Container container = containers[i];
+        int before = container.cardinality;
+        containers[i] = container.add((char) value);
+        if (containers[i].cardinality == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * 删除元素
+     *
+     * @param value 元素
+     * @return 元素原本存在返回true
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = indexOf((char) (value >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        Container container = containers[i];
+        int before = container.cardinality;
+        Container updated = container.remove((char) value);
+        if (updated.cardinality == before) {
+            return false;
+        }
+        cardinality--;
+        if (updated.cardinality == 0) {
+            removeContainer(i);
+        } else {
+            containers[i] = updated;
+        }
+        return true;
+    }
+
+    /**
+     * 检查是否包含元素
+     *
+     * @param value 元素
+     * @return 包含返回true，否则返回false
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = indexOf((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * 获取元素数
+     *
+     * @return 元素数
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * 判断是否为空
+     *
+     * @return 为空返回true
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * 按升序遍历元素
+     *
+     * @param action 对每个元素执行的操作
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * 按升序复制所有元素
+     *
+     * @return 元素数组
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] n = {0};
+        forEach(value -> result[n[0]++] = value);
+        return result;
+    }
+
+    /**
+     * 估算占用的堆内存字节数
+     *
+     * @return 估算字节数
+     */
+    public long estimatedBytes() {
+        long bytes = 16L + keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 计算两个位图交集的元素数，不构造交集
+     *
+     * @param a 位图a
+     * @param b 位图b
+     * @return 交集元素数
+     */
+    public static int andCardinality(RoaringBitmap a, RoaringBitmap b) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            char ka = a.keys[i];
+            char kb = b.keys[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else {
+                count += a.containers[i++].andCardinality(b.containers[j++]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 计算两个位图的交集
+     *
+     * @param a 位图a
+     * @param b 位图b
+     * @return 新的交集位图
+     */
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            char ka = a.keys[i];
+            char kb = b.keys[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else {
+                Container container = a.containers[i++].and(b.containers[j++]);
+                if (container.cardinality > 0) {
+                    result.insertContainer(result.size, ka, container);
+                    result.cardinality += container.cardinality;
+                }
+            }
+        }
+        return result;
+    }
+
+    // ==================== 私有方法 ====================
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int i, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    private void removeContainer(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    // ==================== 容器 ====================
+
+    /**
+     * 存储同一高16位下低16位的容器，修改操作返回修改后的容器（可能转换了类型）
+     */
+    private abstract static class Container {
+
+        /** 元素数 */
+        int cardinality;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int andCardinality(Container other);
+
+        abstract Container and(Container other);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract long estimatedBytes();
+    }
+
+    /**
+     * 有序数组容器
+     */
+    private static final class ArrayContainer extends Container {
+
+        char[] values;
+
+        ArrayContainer() {
+            values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof BitmapContainer) {
+                int count = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < o.cardinality) {
+                if (values[i] < o.values[j]) {
+                    i++;
+                } else if (values[i] > o.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality)];
+            int n = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[n++] = values[i];
+                    }
+                }
+                return new ArrayContainer(result, n);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < o.cardinality) {
+                if (values[i] < o.values[j]) {
+                    i++;
+                } else if (values[i] > o.values[j]) {
+                    j++;
+                } else {
+                    result[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 32L + values.length * 2L;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    /**
+     * 定长位图容器，覆盖全部65536个低16位取值
+     */
+    private static final class BitmapContainer extends Container {
+
+        final long[] words = new long[1024];
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (after != before) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if (after != before) {
+                words[value >>> 6] = after;
+                cardinality--;
+                if (cardinality < BITMAP_SHRINK_LIMIT) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            long[] o = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                count += Long.bitCount(words[i] & o[i]);
+            }
+            return count;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] o = ((BitmapContainer) other).words;
+            BitmapContainer result = new BitmapContainer();
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & o[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return count <= ARRAY_LIMIT ? result.toArray() : result;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 32L + words.length * 8L;
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(4, cardinality)];
+            int n = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, n);
+        }
+    }
+}